@@ -0,0 +1,45 @@
+package org.gusdb.fgputil.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * ValueFactory that can create values for many keys at once (e.g. with a
+ * single query).  InMemoryCache.getAll() passes all the requested keys missing
+ * from the cache to getNewValues() in one call; single-key requests go through
+ * getNewValue(), which by default delegates to getNewValues().  Keys omitted
+ * from the returned map are treated the same way on both paths: they are not
+ * cached, getAll() leaves them out of its results, and getValue() returns
+ * null for them.
+ *
+ * @param <S> type of cache key
+ * @param <T> type of cached value
+ */
+@FunctionalInterface
+public interface BulkValueFactory<S,T> extends ValueFactory<S,T> {
+
+  /**
+   * Creates new values for the passed keys.  Keys for which no value can be
+   * found may be omitted from the returned map; they will not be cached.
+   *
+   * @param keys keys of the values to be created
+   * @return map from key to new value
+   * @throws ValueProductionException if values cannot be created
+   */
+  public Map<S,T> getNewValues(Collection<S> keys) throws ValueProductionException;
+
+  /**
+   * Creates a new value for the passed key by calling getNewValues() with
+   * only that key.
+   *
+   * @param key key of the value to be created
+   * @return new value, or null if getNewValues() omitted the key
+   * @throws ValueProductionException if the value cannot be created
+   */
+  @Override
+  public default T getNewValue(S key) throws ValueProductionException {
+    return getNewValues(Collections.singletonList(key)).get(key);
+  }
+
+}
@@ -0,0 +1,264 @@
+package org.gusdb.fgputil.cache;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Holds the configuration of an InMemoryCache.  Setters return this object so
+ * a configuration can be built fluently, e.g.
+ *
+ * <pre>
+ * new InMemoryCache&lt;&gt;(new CacheConfig&lt;String,Foo&gt;()
+ *     .setCapacity(5000)
+ *     .setEvictionPolicy(EvictionPolicy.SEGMENTED_LRU));
+ * </pre>
+ *
+ * Any value not set retains its default, which reproduces the behavior of a
+ * cache created with the no-arg InMemoryCache constructor.
+ *
+ * @param <S> type of unique keys of values cached
+ * @param <T> type of values cached
+ */
+public class CacheConfig<S,T> {
+
+  /**
+   * Policy used to decide which entries are discarded when the cache is over
+   * capacity.
+   */
+  public enum EvictionPolicy {
+
+    /**
+     * Discards the least recently accessed entries first.
+     */
+    LRU,
+
+    /**
+     * Splits entries into a probationary segment (entries accessed once) and a
+     * protected segment (entries accessed more than once).  Entries in the
+     * probationary segment are discarded first, so a burst of one-time lookups
+     * cannot flush frequently used entries out of the cache.
+     */
+    SEGMENTED_LRU;
+  }
+
+  private int _capacity = InMemoryCache.DEFAULT_CAPACITY;
+  private int _numToTrimOnCapacity = InMemoryCache.DEFAULT_NUM_TO_TRIM_ON_CAPACITY;
+  private ValueCloner<T> _cloner = null;
+  private int _concurrencyLevel = InMemoryCache.DEFAULT_CONCURRENCY_LEVEL;
+  private EvictionPolicy _evictionPolicy = EvictionPolicy.LRU;
+  private long _expireAfterWriteMillis = 0;
+  private long _expireAfterAccessMillis = 0;
+  private long _refreshAfterWriteMillis = 0;
+  private Executor _executor = null;
+  private Weigher<S,T> _weigher = null;
+  private long _maxWeight = 0;
+  private boolean _incrementalTrimming = false;
+  private boolean _recordStats = true;
+
+  public int getCapacity() {
+    return _capacity;
+  }
+
+  /**
+   * @param capacity maximum number of objects that can be cached
+   * @return this config
+   */
+  public CacheConfig<S,T> setCapacity(int capacity) {
+    _capacity = capacity;
+    return this;
+  }
+
+  public int getNumToTrimOnCapacity() {
+    return _numToTrimOnCapacity;
+  }
+
+  /**
+   * @param numToTrimOnCapacity number of objects to trim when capacity reached
+   * @return this config
+   */
+  public CacheConfig<S,T> setNumToTrimOnCapacity(int numToTrimOnCapacity) {
+    _numToTrimOnCapacity = numToTrimOnCapacity;
+    return this;
+  }
+
+  public boolean isIncrementalTrimming() {
+    return _incrementalTrimming;
+  }
+
+  /**
+   * Sets whether the cache trims only as many entries as needed to make room
+   * for each new entry (usually one) instead of trimming numToTrimOnCapacity
+   * entries at once.  Incremental trimming spreads the cost of trimming evenly
+   * over inserts, avoiding the periodic pause of a large bulk trim, at the
+   * cost of keeping the cache always at capacity.
+   *
+   * @param incrementalTrimming true to trim incrementally, false (the default)
+   * to trim numToTrimOnCapacity entries when capacity is reached
+   * @return this config
+   */
+  public CacheConfig<S,T> setIncrementalTrimming(boolean incrementalTrimming) {
+    _incrementalTrimming = incrementalTrimming;
+    return this;
+  }
+
+  public ValueCloner<T> getCloner() {
+    return _cloner;
+  }
+
+  /**
+   * @param cloner cloner used to return cache-safe objects to callers; if
+   * null, cached objects are returned as-is
+   * @return this config
+   */
+  public CacheConfig<S,T> setCloner(ValueCloner<T> cloner) {
+    _cloner = cloner;
+    return this;
+  }
+
+  public int getConcurrencyLevel() {
+    return _concurrencyLevel;
+  }
+
+  /**
+   * Sets the maximum number of independently locked segments.  The actual
+   * number used may be smaller for caches with small capacities, since each
+   * segment enforces its share of the capacity on its own.  A value of 1
+   * places all writes behind a single lock.
+   *
+   * @param concurrencyLevel maximum number of cache segments
+   * @return this config
+   */
+  public CacheConfig<S,T> setConcurrencyLevel(int concurrencyLevel) {
+    _concurrencyLevel = concurrencyLevel;
+    return this;
+  }
+
+  public EvictionPolicy getEvictionPolicy() {
+    return _evictionPolicy;
+  }
+
+  /**
+   * @param evictionPolicy policy deciding which entries are trimmed first
+   * @return this config
+   */
+  public CacheConfig<S,T> setEvictionPolicy(EvictionPolicy evictionPolicy) {
+    _evictionPolicy = evictionPolicy;
+    return this;
+  }
+
+  public long getExpireAfterWriteMillis() {
+    return _expireAfterWriteMillis;
+  }
+
+  /**
+   * Sets the time after a value is created or updated at which it expires.
+   * Expired values are never returned; the next request for an expired key
+   * creates a new value with ValueFactory.getNewValue().
+   *
+   * @param expireAfterWriteMillis time to live of a value, or 0 (the default)
+   * for values that do not expire
+   * @return this config
+   */
+  public CacheConfig<S,T> setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+    _expireAfterWriteMillis = expireAfterWriteMillis;
+    return this;
+  }
+
+  public long getExpireAfterAccessMillis() {
+    return _expireAfterAccessMillis;
+  }
+
+  /**
+   * Sets the time after a value was last created, updated, or returned at
+   * which it expires.
+   *
+   * @param expireAfterAccessMillis maximum idle time of a value, or 0 (the
+   * default) for values that do not expire
+   * @return this config
+   */
+  public CacheConfig<S,T> setExpireAfterAccessMillis(long expireAfterAccessMillis) {
+    _expireAfterAccessMillis = expireAfterAccessMillis;
+    return this;
+  }
+
+  public long getRefreshAfterWriteMillis() {
+    return _refreshAfterWriteMillis;
+  }
+
+  /**
+   * Sets the time after a value is created or updated at which it is
+   * refreshed ahead of expiration.  The first request for the value after
+   * this time schedules a refresh on the executor and, like all requests made
+   * during the refresh, receives the current value without waiting.  Values
+   * are refreshed with ValueFactory.getUpdatedValue(), or getNewValue() if the
+   * factory does not support updates.  Should be less than the
+   * expire-after-write time if one is set.
+   *
+   * @param refreshAfterWriteMillis age at which a value is refreshed, or 0 (the
+   * default) to disable refresh-ahead
+   * @return this config
+   */
+  public CacheConfig<S,T> setRefreshAfterWriteMillis(long refreshAfterWriteMillis) {
+    _refreshAfterWriteMillis = refreshAfterWriteMillis;
+    return this;
+  }
+
+  public Executor getExecutor() {
+    return _executor;
+  }
+
+  /**
+   * Sets the executor on which background work (refreshes and asynchronous
+   * fetches) is performed.  Since this work usually calls out to a database
+   * or other blocking resource, it should not be a shared pool like the
+   * common fork/join pool.
+   *
+   * @param executor executor for background work, or null (the default) for
+   * a pool owned by the cache of at most InMemoryCache.DEFAULT_MAX_LOADER_THREADS
+   * daemon threads, which exit when idle
+   * @return this config
+   */
+  public CacheConfig<S,T> setExecutor(Executor executor) {
+    _executor = executor;
+    return this;
+  }
+
+  public Weigher<S,T> getWeigher() {
+    return _weigher;
+  }
+
+  public long getMaxWeight() {
+    return _maxWeight;
+  }
+
+  /**
+   * Sets a maximum total weight for the cache's entries, calculated by the
+   * passed weigher (e.g. Weigher.estimatedHeapSize()).  When a new or updated
+   * value pushes the total over the maximum, least recently accessed entries
+   * are discarded until it is back under.  The entry capacity still applies,
+   * so caches limited by weight should usually also set a generous capacity.
+   *
+   * @param weigher weigher used to calculate each entry's weight
+   * @param maxWeight maximum total weight of all entries
+   * @return this config
+   */
+  public CacheConfig<S,T> setMaxWeight(Weigher<S,T> weigher, long maxWeight) {
+    _weigher = weigher;
+    _maxWeight = maxWeight;
+    return this;
+  }
+
+  public boolean isRecordStats() {
+    return _recordStats;
+  }
+
+  /**
+   * @param recordStats whether the cache should record statistics (hits,
+   * misses, load times, evictions, lock waits); defaults to true
+   * @return this config
+   */
+  public CacheConfig<S,T> setRecordStats(boolean recordStats) {
+    _recordStats = recordStats;
+    return this;
+  }
+
+}
@@ -0,0 +1,122 @@
+package org.gusdb.fgputil.cache;
+
+/**
+ * Immutable snapshot of a cache's statistics.  Counts are cumulative since the
+ * cache was created.
+ */
+public class CacheStats {
+
+  private final long _hitCount;
+  private final long _missCount;
+  private final long _loadSuccessCount;
+  private final long _loadFailureCount;
+  private final long _totalLoadTimeNanos;
+  private final long _evictionCount;
+  private final long _lockWaitCount;
+  private final long _totalLockWaitTimeNanos;
+
+  public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+      long totalLoadTimeNanos, long evictionCount, long lockWaitCount, long totalLockWaitTimeNanos) {
+    _hitCount = hitCount;
+    _missCount = missCount;
+    _loadSuccessCount = loadSuccessCount;
+    _loadFailureCount = loadFailureCount;
+    _totalLoadTimeNanos = totalLoadTimeNanos;
+    _evictionCount = evictionCount;
+    _lockWaitCount = lockWaitCount;
+    _totalLockWaitTimeNanos = totalLockWaitTimeNanos;
+  }
+
+  /**
+   * @return number of requests answered with a cached value
+   */
+  public long getHitCount() {
+    return _hitCount;
+  }
+
+  /**
+   * @return number of requests that had to wait for a value to be created or updated
+   */
+  public long getMissCount() {
+    return _missCount;
+  }
+
+  /**
+   * @return total number of requests
+   */
+  public long getRequestCount() {
+    return _hitCount + _missCount;
+  }
+
+  /**
+   * @return ratio of hits to requests, or 1.0 if there have been no requests
+   */
+  public double getHitRate() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 1.0 : (double)_hitCount / requestCount;
+  }
+
+  /**
+   * @return number of values successfully created, updated, or refreshed
+   */
+  public long getLoadSuccessCount() {
+    return _loadSuccessCount;
+  }
+
+  /**
+   * @return number of attempts to create, update, or refresh a value that threw an exception
+   */
+  public long getLoadFailureCount() {
+    return _loadFailureCount;
+  }
+
+  /**
+   * @return total time spent creating, updating, or refreshing values
+   */
+  public long getTotalLoadTimeNanos() {
+    return _totalLoadTimeNanos;
+  }
+
+  /**
+   * @return average time spent creating, updating or refreshing a value, or 0 if none have been loaded
+   */
+  public double getAverageLoadTimeNanos() {
+    long loadCount = _loadSuccessCount + _loadFailureCount;
+    return loadCount == 0 ? 0 : (double)_totalLoadTimeNanos / loadCount;
+  }
+
+  /**
+   * @return number of entries discarded to keep the cache within its capacity
+   */
+  public long getEvictionCount() {
+    return _evictionCount;
+  }
+
+  /**
+   * @return number of times a thread had to wait for a lock held by another thread
+   */
+  public long getLockWaitCount() {
+    return _lockWaitCount;
+  }
+
+  /**
+   * @return total time threads spent waiting for locks held by other threads
+   */
+  public long getTotalLockWaitTimeNanos() {
+    return _totalLockWaitTimeNanos;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "hits=" + _hitCount +
+        ", misses=" + _missCount +
+        ", hitRate=" + getHitRate() +
+        ", loadSuccesses=" + _loadSuccessCount +
+        ", loadFailures=" + _loadFailureCount +
+        ", totalLoadTimeNanos=" + _totalLoadTimeNanos +
+        ", evictions=" + _evictionCount +
+        ", lockWaits=" + _lockWaitCount +
+        ", totalLockWaitTimeNanos=" + _totalLockWaitTimeNanos + "}";
+  }
+}
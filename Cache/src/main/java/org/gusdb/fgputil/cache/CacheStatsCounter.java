@@ -0,0 +1,93 @@
+package org.gusdb.fgputil.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Accumulates cache statistics.  Counters are striped (LongAdder) so threads
+ * recording events rarely contend with each other; a consistent-enough view is
+ * produced on demand by snapshot().  A disabled counter ignores all events.
+ */
+public class CacheStatsCounter {
+
+  private final boolean _enabled;
+  private final LongAdder _hitCount = new LongAdder();
+  private final LongAdder _missCount = new LongAdder();
+  private final LongAdder _loadSuccessCount = new LongAdder();
+  private final LongAdder _loadFailureCount = new LongAdder();
+  private final LongAdder _totalLoadTimeNanos = new LongAdder();
+  private final LongAdder _evictionCount = new LongAdder();
+  private final LongAdder _lockWaitCount = new LongAdder();
+  private final LongAdder _totalLockWaitTimeNanos = new LongAdder();
+
+  public CacheStatsCounter(boolean enabled) {
+    _enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return _enabled;
+  }
+
+  public void recordHit() {
+    if (_enabled) _hitCount.increment();
+  }
+
+  public void recordMiss() {
+    if (_enabled) _missCount.increment();
+  }
+
+  public void recordLoadSuccess(long loadTimeNanos) {
+    if (_enabled) {
+      _loadSuccessCount.increment();
+      _totalLoadTimeNanos.add(loadTimeNanos);
+    }
+  }
+
+  public void recordLoadFailure(long loadTimeNanos) {
+    if (_enabled) {
+      _loadFailureCount.increment();
+      _totalLoadTimeNanos.add(loadTimeNanos);
+    }
+  }
+
+  public void recordEvictions(int numEvicted) {
+    if (_enabled) _evictionCount.add(numEvicted);
+  }
+
+  public void recordLockWait(long waitTimeNanos) {
+    if (_enabled) {
+      _lockWaitCount.increment();
+      _totalLockWaitTimeNanos.add(waitTimeNanos);
+    }
+  }
+
+  /**
+   * Acquires the passed lock, recording the time spent waiting if it was not
+   * immediately available.
+   *
+   * @param lock lock to acquire
+   */
+  public void lock(Lock lock) {
+    if (lock.tryLock()) {
+      return;
+    }
+    long start = System.nanoTime();
+    lock.lock();
+    recordLockWait(System.nanoTime() - start);
+  }
+
+  /**
+   * @return snapshot of the current values of this counter
+   */
+  public CacheStats snapshot() {
+    return new CacheStats(
+        _hitCount.sum(),
+        _missCount.sum(),
+        _loadSuccessCount.sum(),
+        _loadFailureCount.sum(),
+        _totalLoadTimeNanos.sum(),
+        _evictionCount.sum(),
+        _lockWaitCount.sum(),
+        _totalLockWaitTimeNanos.sum());
+  }
+}
@@ -0,0 +1,21 @@
+package org.gusdb.fgputil.cache;
+
+/**
+ * Management interface exposing a cache's statistics over JMX.  Register a
+ * cache with CacheStatsMXBeans.register().
+ */
+public interface CacheStatsMXBean {
+
+  long getHitCount();
+  long getMissCount();
+  long getRequestCount();
+  double getHitRate();
+  long getLoadSuccessCount();
+  long getLoadFailureCount();
+  long getTotalLoadTimeNanos();
+  double getAverageLoadTimeNanos();
+  long getEvictionCount();
+  long getLockWaitCount();
+  long getTotalLockWaitTimeNanos();
+
+}
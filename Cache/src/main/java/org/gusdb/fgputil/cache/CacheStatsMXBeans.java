@@ -0,0 +1,70 @@
+package org.gusdb.fgputil.cache;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers cache statistics with the platform MBean server so they can be
+ * viewed with JMX tools (e.g. jconsole) under the domain
+ * <code>org.gusdb.fgputil.cache</code>.
+ */
+public class CacheStatsMXBeans {
+
+  private static final String DOMAIN = "org.gusdb.fgputil.cache";
+
+  private static class CacheStatsView implements CacheStatsMXBean {
+
+    private final StatisticsProvider _cache;
+
+    public CacheStatsView(StatisticsProvider cache) {
+      _cache = cache;
+    }
+
+    @Override public long getHitCount()                { return _cache.getStatistics().getHitCount(); }
+    @Override public long getMissCount()               { return _cache.getStatistics().getMissCount(); }
+    @Override public long getRequestCount()            { return _cache.getStatistics().getRequestCount(); }
+    @Override public double getHitRate()               { return _cache.getStatistics().getHitRate(); }
+    @Override public long getLoadSuccessCount()        { return _cache.getStatistics().getLoadSuccessCount(); }
+    @Override public long getLoadFailureCount()        { return _cache.getStatistics().getLoadFailureCount(); }
+    @Override public long getTotalLoadTimeNanos()      { return _cache.getStatistics().getTotalLoadTimeNanos(); }
+    @Override public double getAverageLoadTimeNanos()  { return _cache.getStatistics().getAverageLoadTimeNanos(); }
+    @Override public long getEvictionCount()           { return _cache.getStatistics().getEvictionCount(); }
+    @Override public long getLockWaitCount()           { return _cache.getStatistics().getLockWaitCount(); }
+    @Override public long getTotalLockWaitTimeNanos()  { return _cache.getStatistics().getTotalLockWaitTimeNanos(); }
+  }
+
+  /**
+   * Registers the passed cache's statistics with the platform MBean server.
+   *
+   * @param cacheName name identifying the cache; must be unique among registered caches
+   * @param cache cache whose statistics should be exposed
+   * @return name under which the statistics were registered
+   * @throws JMException if the name is invalid or already registered
+   */
+  public static ObjectName register(String cacheName, StatisticsProvider cache) throws JMException {
+    ObjectName name = getObjectName(cacheName);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsView(cache), name);
+    return name;
+  }
+
+  /**
+   * Removes the statistics registered under the passed cache name, if present.
+   *
+   * @param cacheName name passed to register()
+   * @throws JMException if the name is invalid
+   */
+  public static void unregister(String cacheName) throws JMException {
+    ObjectName name = getObjectName(cacheName);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+  }
+
+  public static ObjectName getObjectName(String cacheName) throws JMException {
+    return new ObjectName(DOMAIN + ":type=CacheStats,name=" + ObjectName.quote(cacheName));
+  }
+}
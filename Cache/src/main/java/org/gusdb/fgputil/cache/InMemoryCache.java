@@ -1,26 +1,65 @@
 package org.gusdb.fgputil.cache;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import org.apache.log4j.Logger;
+import org.gusdb.fgputil.cache.CacheConfig.EvictionPolicy;
 
 /**
  * Implements an efficient cache of objects mapped by key.  This class is
  * thread-safe and can be used in a static, application-wide way to cache
  * homogeneous objects.
  *
+ * Lookups of cached values do not block: entries are found in a concurrent
+ * index, and access order (used to decide which entries to trim) is recorded
+ * only if the owning segment's lock is immediately available.  Inserts and
+ * removals lock only the segment owning the key, so threads working with keys
+ * in different segments do not contend.  Each key's value is created by at
+ * most one thread at a time; other threads requesting the same key wait for
+ * that value rather than creating their own.
+ *
+ * Values can optionally expire a fixed time after they are written or last
+ * accessed, and can be refreshed in the background ahead of expiration so
+ * that requests for hot keys are not held up while the value is rebuilt (see
+ * CacheConfig).  Expired entries are not returned, but remain in the cache
+ * (counting against its capacity) until requested again or trimmed.
+ *
+ * In addition to its entry capacity, a cache can be limited by the total
+ * weight (e.g. estimated heap size) of its entries; see Weigher.
+ *
+ * Note null keys are not supported.
+ *
  * @param <S> type of unique keys of values cached
  * @param <T> type of values cached
- * 
+ *
  * @author rdoherty
  */
-public class InMemoryCache<S,T> {
+public class InMemoryCache<S,T> implements StatisticsProvider {
 
   private static final Logger LOG = Logger.getLogger(InMemoryCache.class);
 
@@ -35,28 +74,344 @@ public class InMemoryCache<S,T> {
    */
   public static final int DEFAULT_NUM_TO_TRIM_ON_CAPACITY = 700;
 
+  /**
+   * Default maximum number of independently locked segments
+   */
+  public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+  /**
+   * Maximum number of threads in the pool a cache creates for background
+   * work if no executor is configured
+   */
+  public static final int DEFAULT_MAX_LOADER_THREADS = 4;
+
+  // how long an idle thread of the cache's own pool waits for work before exiting
+  private static final long LOADER_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  // segments will not be created with a capacity smaller than this (unless
+  //   the capacity of the entire cache is smaller) so that trimming within a
+  //   single segment stays a reasonable approximation of trimming the cache
+  private static final int MIN_SEGMENT_CAPACITY = 64;
+
+  // portion of each segment's capacity reserved for entries accessed more
+  //   than once when using the segmented LRU eviction policy
+  private static final double PROTECTED_FRACTION = 0.8;
+
   private static class ValueContainer<T> {
-    Lock lock = new ReentrantLock();
-    T value = null;
+    final Lock lock = new ReentrantLock();
+    final AtomicBoolean refreshing = new AtomicBoolean(false);
+    volatile T value = null;
+    // System.nanoTime() values; only maintained if expiration is configured
+    volatile long writeTime;
+    volatile long accessTime;
+    // guarded by owning segment's lock; only maintained if weigher configured
+    long weight = 0;
   }
-  
-  private final Map<S, ValueContainer<T>> _cache = new LinkedHashMap<>();
-  private final Lock _cacheLock = new ReentrantLock();
+
+  // result of a conditional update: the live value found and whether it was replaced
+  private static class UpdateResult<T> {
+    final T currentValue;
+    final boolean replaced;
+    UpdateResult(T currentValue, boolean replaced) {
+      this.currentValue = currentValue;
+      this.replaced = replaced;
+    }
+  }
+
+  /**
+   * A portion of the cache's entries, with its own lock and its own share of
+   * the cache's capacity.  All modifications of the index for keys owned by
+   * a segment are made while holding that segment's lock, so the index and
+   * the segment's access-order structures always agree.
+   */
+  private class Segment {
+
+    private final Lock _lock = new ReentrantLock();
+    private final int _segmentCapacity;
+    private final int _segmentNumToTrim;
+    private final int _protectedCapacity;
+
+    // with LRU, holds all the segment's entries in access order; with
+    //   segmented LRU, holds entries accessed only once in insertion order
+    private final LinkedHashMap<S, ValueContainer<T>> _probation;
+
+    // with segmented LRU, holds entries accessed more than once in access
+    //   order; null with LRU
+    private final LinkedHashMap<S, ValueContainer<T>> _protected;
+
+    Segment(int capacity, int numToTrim, EvictionPolicy policy) {
+      _segmentCapacity = capacity;
+      _segmentNumToTrim = numToTrim;
+      if (policy == EvictionPolicy.SEGMENTED_LRU) {
+        _probation = new LinkedHashMap<>();
+        _protected = new LinkedHashMap<>(16, 0.75f, true);
+        _protectedCapacity = Math.max(1, (int)(capacity * PROTECTED_FRACTION));
+      }
+      else {
+        _probation = new LinkedHashMap<>(16, 0.75f, true);
+        _protected = null;
+        _protectedCapacity = 0;
+      }
+    }
+
+    // Returns the container for the passed key, creating and inserting an
+    //   empty one if none exists
+    ValueContainer<T> getOrCreate(S key) {
+      _stats.lock(_lock);
+      try {
+        // check again to see if value added while waiting for segment access
+        ValueContainer<T> container = _index.get(key);
+        if (container != null) {
+          recordAccess(key);
+        }
+        else {
+          // empty value container
+          container = new ValueContainer<T>();
+          insert(key, container);
+        }
+        return container;
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // Records an access of the passed key if the segment is not busy; access
+    //   order is a heuristic so dropping the occasional access is acceptable
+    void tryRecordAccess(S key) {
+      if (_lock.tryLock()) {
+        try {
+          recordAccess(key);
+        }
+        finally {
+          _lock.unlock();
+        }
+      }
+    }
+
+    // Puts the container back in the cache if it was removed since retrieved
+    void reinsert(S key, ValueContainer<T> container) {
+      _stats.lock(_lock);
+      try {
+        if (!_index.containsKey(key)) {
+          insert(key, container);
+        }
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // Removes the entry for the passed key only if it maps to the passed container
+    void remove(S key, ValueContainer<T> container) {
+      _stats.lock(_lock);
+      try {
+        if (_index.remove(key, container)) {
+          removeFromAccessOrder(key);
+          _totalWeight.addAndGet(-container.weight);
+        }
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    void remove(S key) {
+      _stats.lock(_lock);
+      try {
+        ValueContainer<T> container = _index.remove(key);
+        if (container != null) {
+          removeFromAccessOrder(key);
+          _totalWeight.addAndGet(-container.weight);
+        }
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // Replaces or removes the entry for the passed key if its current live
+    //   value (null if absent, not yet created, or expired) passes the passed
+    //   condition; a null container removes the entry.  Returns the live value
+    //   found and whether it passed the condition (i.e. was replaced).
+    UpdateResult<T> update(S key, Predicate<T> condition, ValueContainer<T> newContainer, long now) {
+      _stats.lock(_lock);
+      try {
+        ValueContainer<T> current = _index.get(key);
+        T currentValue = current == null ? null : current.value;
+        if (currentValue != null && isExpired(current, now)) {
+          currentValue = null;
+        }
+        if (!condition.test(currentValue)) {
+          return new UpdateResult<>(currentValue, false);
+        }
+        if (current != null) {
+          _index.remove(key);
+          removeFromAccessOrder(key);
+          _totalWeight.addAndGet(-current.weight);
+        }
+        if (newContainer != null) {
+          insert(key, newContainer);
+        }
+        return new UpdateResult<>(currentValue, true);
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // Removes all of the segment's entries
+    void clear() {
+      _stats.lock(_lock);
+      try {
+        for (Map<S, ValueContainer<T>> accessOrder : accessOrders()) {
+          for (Entry<S, ValueContainer<T>> entry : accessOrder.entrySet()) {
+            _index.remove(entry.getKey(), entry.getValue());
+            _totalWeight.addAndGet(-entry.getValue().weight);
+          }
+          accessOrder.clear();
+        }
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // Sets the weight of the passed entry if it is still in the cache
+    void setWeight(S key, ValueContainer<T> container, long weight) {
+      _stats.lock(_lock);
+      try {
+        if (_index.get(key) == container) {
+          _totalWeight.addAndGet(weight - container.weight);
+          container.weight = weight;
+        }
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // Removes the least recently accessed entry; returns false if segment is empty
+    boolean evictEldest() {
+      _stats.lock(_lock);
+      try {
+        if (trim(_probation, 1) == 0 || (_protected != null && trim(_protected, 1) == 0)) {
+          _stats.recordEvictions(1);
+          return true;
+        }
+        return false;
+      }
+      finally {
+        _lock.unlock();
+      }
+    }
+
+    // assumes segment is locked
+    private void recordAccess(S key) {
+      if (_protected == null) {
+        // access-ordered map moves the key to the back
+        _probation.get(key);
+      }
+      else if (_protected.get(key) == null) {
+        // first repeat access; promote from probation to protected
+        ValueContainer<T> container = _probation.remove(key);
+        if (container != null) {
+          _protected.put(key, container);
+          if (_protected.size() > _protectedCapacity) {
+            // demote the least recently used protected entry
+            Iterator<Entry<S, ValueContainer<T>>> eldest = _protected.entrySet().iterator();
+            Entry<S, ValueContainer<T>> demoted = eldest.next();
+            eldest.remove();
+            _probation.put(demoted.getKey(), demoted.getValue());
+          }
+        }
+      }
+    }
+
+    // assumes segment is locked
+    private void insert(S key, ValueContainer<T> container) {
+      _index.put(key, container);
+      _probation.put(key, container);
+      checkCapacity();
+    }
+
+    // assumes segment is locked
+    private void removeFromAccessOrder(S key) {
+      if (_probation.remove(key) == null && _protected != null) {
+        _protected.remove(key);
+      }
+    }
+
+    private List<Map<S, ValueContainer<T>>> accessOrders() {
+      return _protected == null ? List.of(_probation) : List.of(_probation, _protected);
+    }
+
+    private int size() {
+      return _probation.size() + (_protected == null ? 0 : _protected.size());
+    }
+
+    // assumes segment is locked
+    private void checkCapacity() {
+      if (size() > _segmentCapacity) {
+        // we know least recently accessed entries appear first in map iteration
+        int numToTrim = Math.min(Math.max(_segmentNumToTrim, size() - _segmentCapacity), size());
+        if (numToTrim > 1) {
+          LOG.debug("Capacity reached, will trim " + numToTrim + " cached items.");
+        }
+        _lastTrimTime = System.currentTimeMillis();
+        int numLeft = trim(_probation, numToTrim);
+        if (_protected != null) {
+          numLeft = trim(_protected, numLeft);
+        }
+        _stats.recordEvictions(numToTrim - numLeft);
+      }
+    }
+
+    // assumes segment is locked; returns number still left to trim
+    private int trim(Map<S, ValueContainer<T>> accessOrder, int numToTrim) {
+      Iterator<Entry<S, ValueContainer<T>>> entries = accessOrder.entrySet().iterator();
+      while (numToTrim > 0 && entries.hasNext()) {
+        Entry<S, ValueContainer<T>> entry = entries.next();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Trimming item with ID " + entry.getKey());
+        }
+        entries.remove();
+        _index.remove(entry.getKey(), entry.getValue());
+        _totalWeight.addAndGet(-entry.getValue().weight);
+        numToTrim--;
+      }
+      return numToTrim;
+    }
+  }
+
+  private final Map<S, ValueContainer<T>> _index = new ConcurrentHashMap<>();
+  private final AtomicLong _totalWeight = new AtomicLong(0);
+  private final AtomicInteger _weightEvictionHand = new AtomicInteger(0);
+  private final Map<S, CompletableFuture<T>> _asyncLoads = new ConcurrentHashMap<>();
+  private final List<Segment> _segments;
   private final int _capacity;
   private final int _numToTrimOnCapacity;
   private final ValueCloner<T> _cloner;
-  private Date _lastTrimDate = null;
+  private final long _expireAfterWriteNanos;
+  private final long _expireAfterAccessNanos;
+  private final long _refreshAfterWriteNanos;
+  private final boolean _tracksTime;
+  private final Executor _executor;
+  private final Weigher<S,T> _weigher;
+  private final long _maxWeight;
+  private final CacheStatsCounter _stats;
+  private volatile long _lastTrimTime = 0;
 
   /**
    * Creates a cache with default settings.
    */
   public InMemoryCache() {
-    this(DEFAULT_CAPACITY, DEFAULT_NUM_TO_TRIM_ON_CAPACITY, null);
+    this(new CacheConfig<S,T>());
   }
 
   /**
    * Creates a cache with custom capacity and trimming characteristics.
-   * 
+   *
    * @param capacity maximum number of objects that can be cached
    * @param numToTrimOnCapacity number of objects to trim when capacity reached
    */
@@ -72,7 +427,7 @@ public class InMemoryCache<S,T> {
    * copies that share immutable data but copy mutable data, etc.  The default
    * cloner simply returns the cached object as-is, which is safe in many
    * circumstances.
-   * 
+   *
    * @param cloner custom cloner
    */
   public InMemoryCache(ValueCloner<T> cloner) {
@@ -87,27 +442,75 @@ public class InMemoryCache<S,T> {
    * copies that share immutable data but copy mutable data, etc.  The default
    * cloner simply returns the cached object as-is, which is safe in many
    * circumstances.
-   * 
+   *
    * @param capacity maximum number of objects that can be cached
    * @param numToTrimOnCapacity number of objects to trim when capacity reached
    * @param cloner custom cloner
    */
   public InMemoryCache(int capacity, int numToTrimOnCapacity, ValueCloner<T> cloner) {
+    this(new CacheConfig<S,T>()
+        .setCapacity(capacity)
+        .setNumToTrimOnCapacity(numToTrimOnCapacity)
+        .setCloner(cloner));
+  }
+
+  /**
+   * Creates a cache with the passed configuration.
+   *
+   * @param config cache configuration
+   */
+  public InMemoryCache(CacheConfig<S,T> config) {
 
     // can store 1 entry but not fewer
-    _capacity = Math.max(1, capacity);
+    _capacity = Math.max(1, config.getCapacity());
 
-    // don't trim more than the max number of entries, but trim at least 1
-    _numToTrimOnCapacity = Math.max(1, Math.min(capacity, numToTrimOnCapacity));
+    // don't trim more than the max number of entries, but trim at least 1; if
+    //   incremental, trim only what is needed to make room for each new entry
+    _numToTrimOnCapacity = config.isIncrementalTrimming() ? 1 :
+        Math.max(1, Math.min(_capacity, config.getNumToTrimOnCapacity()));
 
     // cloner used to return cache-safe objects to callers
+    ValueCloner<T> cloner = config.getCloner();
     _cloner = (cloner != null ? cloner : cachedItem -> cachedItem);
+
+    // expiration and refresh-ahead settings; 0 disables
+    _expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getExpireAfterWriteMillis()));
+    _expireAfterAccessNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getExpireAfterAccessMillis()));
+    _refreshAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getRefreshAfterWriteMillis()));
+    if (_refreshAfterWriteNanos > 0 && _expireAfterWriteNanos > 0 &&
+        _refreshAfterWriteNanos >= _expireAfterWriteNanos) {
+      throw new IllegalArgumentException("Refresh-after-write time must be " +
+          "less than expire-after-write time or values will never be refreshed.");
+    }
+    _tracksTime = _expireAfterWriteNanos > 0 || _expireAfterAccessNanos > 0 || _refreshAfterWriteNanos > 0;
+    _executor = config.getExecutor() != null ? config.getExecutor() : createLoaderExecutor();
+
+    // optional weight-based capacity
+    _weigher = config.getWeigher();
+    _maxWeight = config.getMaxWeight();
+    if (_weigher != null && _maxWeight <= 0) {
+      throw new IllegalArgumentException("Maximum weight must be positive if a weigher is configured.");
+    }
+
+    // statistics counters (no-ops if disabled)
+    _stats = new CacheStatsCounter(config.isRecordStats());
+
+    // split capacity across segments (a power of 2 so keys can be masked to a segment)
+    int numSegments = Integer.highestOneBit(Math.max(1, Math.min(
+        config.getConcurrencyLevel(), _capacity / MIN_SEGMENT_CAPACITY)));
+    _segments = new ArrayList<>(numSegments);
+    for (int i = 0; i < numSegments; i++) {
+      int segmentCapacity = _capacity / numSegments + (i < _capacity % numSegments ? 1 : 0);
+      int segmentNumToTrim = Math.max(1, (int)Math.round(
+          (double)_numToTrimOnCapacity * segmentCapacity / _capacity));
+      _segments.add(new Segment(segmentCapacity, segmentNumToTrim, config.getEvictionPolicy()));
+    }
   }
 
   /**
    * Returns the maximum size of the cache (i.e. number of entries).  Actual memory
    * size will vary based on the size of the items stored and their keys.
-   * 
+   *
    * @return maximum size of the cache
    */
   public int getCapacity() {
@@ -116,64 +519,116 @@ public class InMemoryCache<S,T> {
 
   /**
    * Returns the number of entries to be trimmed off the cache (least recently
-   * accessed trimmed first) when the capacity is reached.
-   * 
+   * accessed trimmed first) when the capacity is reached.  This is 1 for
+   * caches configured for incremental trimming.
+   *
    * @return number of entries trimmed from cache if capacity is reached
    */
   public int getNumToTrimOnCapacity() {
     return _numToTrimOnCapacity;
   }
 
+  /**
+   * Returns the maximum total weight of the cache's entries, or 0 if the cache
+   * is not limited by weight.
+   *
+   * @return maximum total weight of the cache
+   */
+  public long getMaxWeight() {
+    return _weigher == null ? 0 : _maxWeight;
+  }
+
+  /**
+   * Returns the current total weight of the cache's entries as calculated by
+   * the configured weigher, or 0 if no weigher is configured.
+   *
+   * @return total weight of the cache's entries
+   */
+  public long getTotalWeight() {
+    return _totalWeight.get();
+  }
+
   /**
    * Returns date of last capacity trim (individual items may be marked invalid
    * for other reasons at other times).
-   * 
+   *
    * @return date of last capacity trim
    */
   public Date getLastTrimDate() {
-    return _lastTrimDate;
+    long lastTrimTime = _lastTrimTime;
+    return lastTrimTime == 0 ? null : new Date(lastTrimTime);
   }
 
   /**
    * Retrieves an item from the cache with the passed key.  If the item is not
    * in the cache (not yet fetched, expired, or trimmed), it will be fetched
    * with the passed ValueFactory.
-   * 
+   *
    * @param key key of the desired item
    * @param factory factory for items of the type cached
-   * @return object represented by the passed key
+   * @return object represented by the passed key, or null if the factory produced none
    * @throws ValueProductionException if unable to create/update the item
    */
   public T getValue(S key, ValueFactory<S,T> factory) throws ValueProductionException {
+    return _cloner.createCachesafeClone(getCachedValue(key, factory));
+  }
+
+  // Returns the cached value (not a cache-safe clone) for the passed key,
+  //   creating or updating it if needed
+  private T getCachedValue(S key, ValueFactory<S,T> factory) throws ValueProductionException {
     ValueContainer<T> container = getValueContainerById(key);
-    T result = null;
+    long now = _tracksTime ? System.nanoTime() : 0;
+
+    // if value exists and is current, no need to lock the container
+    T value = container.value;
+    if (value != null && !isExpired(container, now) && !factory.valueNeedsUpdating(value)) {
+      if (_expireAfterAccessNanos > 0) {
+        container.accessTime = now;
+      }
+      if (_refreshAfterWriteNanos > 0 && now - container.writeTime >= _refreshAfterWriteNanos) {
+        refreshInBackground(key, container, factory);
+      }
+      _stats.recordHit();
+      return value;
+    }
+
     try {
-      container.lock.lock();
+      _stats.lock(container.lock);
+
+      // value may have expired while we waited for the lock (or before)
+      if (container.value != null && isExpired(container, now)) {
+        LOG.debug("Cached value with ID " + key + " has expired and will be recreated.");
+        container.value = null;
+      }
 
       // if no value exists in the cache for this key, create it
       if (container.value == null) {
+        _stats.recordMiss();
+        long loadStart = System.nanoTime();
         try {
           container.value = factory.getNewValue(key);
+          recordWrite(container);
+          _stats.recordLoadSuccess(System.nanoTime() - loadStart);
         }
         catch (Exception e) {
+          _stats.recordLoadFailure(System.nanoTime() - loadStart);
           // if creation fails, remove the container for the next attempt
-          try {
-            _cacheLock.lock();
-            _cache.remove(key);
-          }
-          finally {
-            _cacheLock.unlock();
-          }
+          getSegment(key).remove(key, container);
           throw convertException(e);
         }
       }
 
       // otherwise check to see if value needs updating before returning
       else if (factory.valueNeedsUpdating(container.value)) {
+        _stats.recordMiss();
+        long loadStart = System.nanoTime();
         try {
           container.value = factory.getUpdatedValue(key, container.value);
+          recordWrite(container);
+          _stats.recordLoadSuccess(System.nanoTime() - loadStart);
         }
         catch (Exception e) {
+          _stats.recordLoadFailure(System.nanoTime() - loadStart);
           // if update fails, make a note in the log, but leave the old version
           //   in the cache and throw exception
           LOG.warn("ItemFetcher of type " + factory.getClass().getName() +
@@ -183,94 +638,427 @@ public class InMemoryCache<S,T> {
         }
       }
 
-      // push entry to the "back" of the linked hash map to
-      //   keep least frequently used items in front
-      try {
-        _cacheLock.lock();
-        _cache.remove(key);
-        // value may have been removed while we were creating it; assume this
-        //   new version is up-to-date enough and reinsert
-        _cache.put(key, container);
+      // value was created by another thread while we waited for the lock
+      else {
+        _stats.recordHit();
+        if (_expireAfterAccessNanos > 0) {
+          container.accessTime = now;
+        }
       }
-      finally {
-        _cacheLock.unlock();
+
+      // factory produced nothing; do not leave an empty entry behind
+      if (container.value == null) {
+        getSegment(key).remove(key, container);
+        return null;
       }
-      result = _cloner.createCachesafeClone(container.value);
+
+      // value may have been removed while we were creating it; assume this
+      //   new version is up-to-date enough and reinsert
+      if (_index.get(key) != container) {
+        getSegment(key).reinsert(key, container);
+      }
+      updateWeight(key, container);
+      return container.value;
     }
     finally {
       container.lock.unlock();
     }
-    return result;
   }
 
-  private ValueProductionException convertException(Exception e) {
-    return (e instanceof ValueProductionException ?
-        (ValueProductionException) e : new ValueProductionException(e));
+  private boolean isExpired(ValueContainer<T> container, long now) {
+    return (_expireAfterWriteNanos > 0 && now - container.writeTime >= _expireAfterWriteNanos) ||
+        (_expireAfterAccessNanos > 0 && now - container.accessTime >= _expireAfterAccessNanos);
   }
 
-  // Returns an empty value container placed in the map at the given key
-  private ValueContainer<T> getValueContainerById(S key) {
-    ValueContainer<T> container = _cache.get(key);
-    if (container == null) {
-      try {
-        _cacheLock.lock();
-        // check again to see if value added while waiting for cache access
-        container = _cache.get(key);
-        if (container == null) {
-          // empty value container
-          container = new ValueContainer<T>();
-          _cache.put(key, container);
-          checkCapacity();
+  // assumes container is locked
+  private void recordWrite(ValueContainer<T> container) {
+    if (_tracksTime) {
+      container.writeTime = container.accessTime = System.nanoTime();
+    }
+  }
+
+  // Recalculates the weight of the passed entry and discards entries until
+  //   the cache is back under its maximum weight; assumes container is locked
+  private void updateWeight(S key, ValueContainer<T> container) {
+    if (_weigher == null) {
+      return;
+    }
+    getSegment(key).setWeight(key, container, _weigher.weigh(key, container.value));
+    // evict from segments in turn so no single segment bears the cost; give
+    //   up only after finding every segment empty
+    int numEmptySegments = 0;
+    while (_totalWeight.get() > _maxWeight && numEmptySegments < _segments.size()) {
+      int segmentIndex = Math.floorMod(_weightEvictionHand.getAndIncrement(), _segments.size());
+      numEmptySegments = _segments.get(segmentIndex).evictEldest() ? 0 : numEmptySegments + 1;
+    }
+  }
+
+  // Schedules a refresh of the passed container's value unless one is
+  //   already in progress; callers continue to receive the old value until the
+  //   refresh completes
+  private void refreshInBackground(S key, ValueContainer<T> container, ValueFactory<S,T> factory) {
+    if (!container.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      _executor.execute(() -> {
+        long loadStart = 0;
+        try {
+          _stats.lock(container.lock);
+          // skip if value was expired or recreated while refresh was queued
+          T oldValue = container.value;
+          if (oldValue != null && System.nanoTime() - container.writeTime >= _refreshAfterWriteNanos) {
+            LOG.debug("Refreshing cached value with ID " + key);
+            loadStart = System.nanoTime();
+            T newValue;
+            try {
+              newValue = factory.getUpdatedValue(key, oldValue);
+            }
+            catch (UnsupportedOperationException e) {
+              // factory does not support updates; create a new value instead
+              newValue = factory.getNewValue(key);
+            }
+            _stats.recordLoadSuccess(System.nanoTime() - loadStart);
+            if (newValue == null) {
+              // factory no longer produces a value for this key; do not keep the old one
+              container.value = null;
+              getSegment(key).remove(key, container);
+            }
+            else {
+              container.value = newValue;
+              recordWrite(container);
+              updateWeight(key, container);
+            }
+          }
+        }
+        catch (Exception e) {
+          if (loadStart != 0) {
+            _stats.recordLoadFailure(System.nanoTime() - loadStart);
+          }
+          // leave the old version in the cache; it will be refreshed again on
+          //   next access or recreated once it expires
+          LOG.warn("ItemFetcher of type " + factory.getClass().getName() +
+              " failed to refresh value with ID " + key, e);
+        }
+        finally {
+          container.lock.unlock();
+          container.refreshing.set(false);
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      LOG.warn("Unable to schedule refresh of value with ID " + key, e);
+      container.refreshing.set(false);
+    }
+  }
+
+  /**
+   * Retrieves items from the cache with the passed keys.  Items not in the cache
+   * are fetched with the passed ValueFactory.  If the factory is a
+   * BulkValueFactory, all missing items not already being fetched by another
+   * thread are fetched in a single call to getNewValues(); otherwise they are
+   * fetched one at a time as in getValue().  Either way, requests for an item
+   * already being fetched wait for that fetch rather than fetching it again.
+   *
+   * @param keys keys of the desired items
+   * @param factory factory for items of the type cached
+   * @return map from key to item, in the order of the passed keys; keys for
+   * which a bulk factory produced no value are omitted
+   * @throws ValueProductionException if unable to create/update the items
+   */
+  public Map<S,T> getAll(Collection<S> keys, ValueFactory<S,T> factory) throws ValueProductionException {
+    Map<S,T> results = new LinkedHashMap<>();
+    List<S> remainingKeys = new ArrayList<>();
+    Map<S, ValueContainer<T>> claimed = new LinkedHashMap<>();
+    long now = _tracksTime ? System.nanoTime() : 0;
+    try {
+      for (S key : new LinkedHashSet<>(keys)) {
+        results.put(key, null); // maintain key order
+        ValueContainer<T> container = getValueContainerById(key);
+        T value = container.value;
+        if (value != null && !isExpired(container, now) && !factory.valueNeedsUpdating(value)) {
+          _stats.recordHit();
+          results.put(key, _cloner.createCachesafeClone(value));
+        }
+        // claim entries to bulk-load only if no one else is working on them;
+        //   never wait for a lock while holding others
+        else if (factory instanceof BulkValueFactory && (value == null || isExpired(container, now)) &&
+            container.lock.tryLock()) {
+          if (container.value == null || isExpired(container, now)) {
+            container.value = null;
+            claimed.put(key, container);
+          }
+          else {
+            // created by another thread since we checked
+            container.lock.unlock();
+            remainingKeys.add(key);
+          }
+        }
+        else {
+          remainingKeys.add(key);
         }
       }
-      finally {
-        _cacheLock.unlock();
+      if (!claimed.isEmpty()) {
+        loadAll(claimed, (BulkValueFactory<S,T>)factory, results);
+      }
+    }
+    finally {
+      for (ValueContainer<T> container : claimed.values()) {
+        container.lock.unlock();
+      }
+    }
+
+    // fetch anything else one at a time, waiting on other threads if needed
+    for (S key : remainingKeys) {
+      results.put(key, getValue(key, factory));
+    }
+    results.values().removeIf(Objects::isNull);
+    return results;
+  }
+
+  // loads values for all the passed claimed entries; assumes their containers are locked
+  private void loadAll(Map<S, ValueContainer<T>> claimed, BulkValueFactory<S,T> factory,
+      Map<S,T> results) throws ValueProductionException {
+    for (int i = 0; i < claimed.size(); i++) {
+      _stats.recordMiss();
+    }
+    long loadStart = System.nanoTime();
+    Map<S,T> newValues;
+    try {
+      newValues = factory.getNewValues(Collections.unmodifiableSet(claimed.keySet()));
+    }
+    catch (Exception e) {
+      _stats.recordLoadFailure(System.nanoTime() - loadStart);
+      // if creation fails, remove the containers for the next attempt
+      for (Entry<S, ValueContainer<T>> entry : claimed.entrySet()) {
+        getSegment(entry.getKey()).remove(entry.getKey(), entry.getValue());
+      }
+      throw convertException(e);
+    }
+    _stats.recordLoadSuccess(System.nanoTime() - loadStart);
+    for (Entry<S, ValueContainer<T>> entry : claimed.entrySet()) {
+      S key = entry.getKey();
+      ValueContainer<T> container = entry.getValue();
+      container.value = newValues.get(key);
+      if (container.value == null) {
+        // no value for this key; do not cache
+        getSegment(key).remove(key, container);
+        continue;
+      }
+      recordWrite(container);
+      if (_index.get(key) != container) {
+        getSegment(key).reinsert(key, container);
       }
+      updateWeight(key, container);
+      results.put(key, _cloner.createCachesafeClone(container.value));
     }
-    return container;
   }
 
-  // assumes cache is locked
-  private void checkCapacity() {
-    if (_cache.size() > _capacity) {
-      // we know least recently accessed entries appear first in map iteration
-      List<S> allKeys = new ArrayList<>(_cache.keySet());
-      int numToTrim = Math.min(_numToTrimOnCapacity, _cache.size());
-      LOG.debug("Capacity reached, will trim " + numToTrim + " cached items.");
-      _lastTrimDate = new Date();
-      for (int i = 0; i < numToTrim; i++) {
-        S id = allKeys.get(i);
-        LOG.debug("Trimming item with ID " + id);
-        _cache.remove(id);
+  /**
+   * Retrieves an item from the cache asynchronously.  If the item is cached
+   * and current, the returned future is already complete; otherwise the item
+   * is fetched (as in getValue()) on the cache's executor.  Concurrent
+   * asynchronous requests for the same key share a single fetch, and fetches
+   * coordinate with synchronous getValue() calls as usual.  If the fetch fails,
+   * the future completes exceptionally with a ValueProductionException.
+   *
+   * @param key key of the desired item
+   * @param factory factory for items of the type cached
+   * @return future supplying the object represented by the passed key
+   */
+  public CompletableFuture<T> getValueAsync(S key, ValueFactory<S,T> factory) {
+    ValueContainer<T> container = _index.get(key);
+    if (container != null) {
+      T value = container.value;
+      if (value != null && !isExpired(container, _tracksTime ? System.nanoTime() : 0) &&
+          !factory.valueNeedsUpdating(value)) {
+        // already cached; go through getValue() so access is recorded as usual
+        try {
+          return CompletableFuture.completedFuture(getValue(key, factory));
+        }
+        catch (ValueProductionException e) {
+          return CompletableFuture.failedFuture(e);
+        }
+      }
+    }
+    CompletableFuture<T> load = new CompletableFuture<>();
+    CompletableFuture<T> existingLoad = _asyncLoads.putIfAbsent(key, load);
+    if (existingLoad == null) {
+      existingLoad = load;
+      try {
+        _executor.execute(() -> {
+          try {
+            load.complete(getCachedValue(key, factory));
+          }
+          catch (Throwable e) {
+            load.completeExceptionally(e);
+          }
+          finally {
+            _asyncLoads.remove(key, load);
+          }
+        });
       }
+      catch (RejectedExecutionException e) {
+        _asyncLoads.remove(key, load);
+        load.completeExceptionally(e);
+      }
+    }
+    // each caller gets its own cache-safe clone
+    return existingLoad.thenApply(_cloner::createCachesafeClone);
+  }
+
+  // Creates a pool for this cache's background work; threads are created on
+  //   demand and exit when idle, so the pool needs no shutdown
+  private static Executor createLoaderExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        DEFAULT_MAX_LOADER_THREADS, DEFAULT_MAX_LOADER_THREADS,
+        LOADER_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "InMemoryCache-loader");
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private ValueProductionException convertException(Exception e) {
+    return (e instanceof ValueProductionException ?
+        (ValueProductionException) e : new ValueProductionException(e));
+  }
+
+  // Returns the container for the passed key, placing an empty one in the
+  //   cache if none exists
+  private ValueContainer<T> getValueContainerById(S key) {
+    ValueContainer<T> container = _index.get(key);
+    if (container != null) {
+      getSegment(key).tryRecordAccess(key);
+      return container;
     }
+    return getSegment(key).getOrCreate(key);
+  }
+
+  private Segment getSegment(S key) {
+    int hash = key.hashCode();
+    return _segments.get((hash ^ (hash >>> 16)) & (_segments.size() - 1));
   }
 
   /**
    * Removes the entries behind the passed keys from the cache.
-   * 
+   *
    * @param ids IDs of items to expire
    */
   public void expireEntries(@SuppressWarnings("unchecked") S... ids) {
-    try {
-      _cacheLock.lock();
-      for (S id : ids) {
-        LOG.debug("Expiring item with ID " + id);
-        _cache.remove(id);
-      }
+    for (S id : ids) {
+      LOG.debug("Expiring item with ID " + id);
+      getSegment(id).remove(id);
     }
-    finally {
-      _cacheLock.unlock();
+  }
+
+  /**
+   * Removes all entries from the cache.  Values being created while the cache
+   * is cleared are inserted once they are complete.
+   */
+  public void expireAllEntries() {
+    LOG.debug("Expiring all items");
+    for (Segment segment : _segments) {
+      segment.clear();
+    }
+  }
+
+  // Returns the current value for the passed key without creating it, or null
+  //   if the key is absent, its value is not yet created, or it has expired.
+  //   Does not block.
+  T peekValue(S key) {
+    ValueContainer<T> container = _index.get(key);
+    long now = _tracksTime ? System.nanoTime() : 0;
+    T value = container == null ? null : container.value;
+    if (value == null || isExpired(container, now)) {
+      _stats.recordMiss();
+      return null;
+    }
+    getSegment(key).tryRecordAccess(key);
+    if (_expireAfterAccessNanos > 0) {
+      container.accessTime = now;
+    }
+    _stats.recordHit();
+    return _cloner.createCachesafeClone(value);
+  }
+
+  // Atomically replaces the value for the passed key with newValue (or
+  //   removes the entry if newValue is null) if the current value (null if
+  //   none) passes the condition; returns the current value either way.
+  //   Replacing an entry whose value is being created causes the created value
+  //   to be discarded.
+  T updateValue(S key, Predicate<T> condition, T newValue) {
+    ValueContainer<T> newContainer = null;
+    if (newValue != null) {
+      newContainer = new ValueContainer<T>();
+      newContainer.value = newValue;
+      recordWrite(newContainer);
+    }
+    UpdateResult<T> result = getSegment(key).update(key, condition,
+        newContainer, _tracksTime ? System.nanoTime() : 0);
+    if (newContainer != null && result.replaced) {
+      updateWeight(key, newContainer);
     }
+    return result.currentValue;
+  }
+
+  // Returns a weakly consistent iterator over the cache's current (created and
+  //   unexpired) entries; it never throws ConcurrentModificationException and
+  //   does not record accesses
+  Iterator<Entry<S,T>> entryIterator() {
+    Iterator<Entry<S, ValueContainer<T>>> containers = _index.entrySet().iterator();
+    return new Iterator<Entry<S,T>>() {
+
+      private Entry<S,T> _next = null;
+
+      @Override
+      public boolean hasNext() {
+        long now = _tracksTime ? System.nanoTime() : 0;
+        while (_next == null && containers.hasNext()) {
+          Entry<S, ValueContainer<T>> entry = containers.next();
+          T value = entry.getValue().value;
+          if (value != null && !isExpired(entry.getValue(), now)) {
+            _next = new SimpleImmutableEntry<>(entry.getKey(), _cloner.createCachesafeClone(value));
+          }
+        }
+        return _next != null;
+      }
+
+      @Override
+      public Entry<S,T> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Entry<S,T> next = _next;
+        _next = null;
+        return next;
+      }
+    };
+  }
+
+  /**
+   * Returns a snapshot of this cache's statistics.  Hits are requests answered
+   * without waiting for a value to be created or updated; refreshes count as
+   * loads but not as misses.  Evictions are entries trimmed to stay within
+   * capacity or maximum weight.  If statistics recording is disabled, all
+   * counts are zero.
+   *
+   * @return snapshot of this cache's statistics
+   */
+  @Override
+  public CacheStats getStatistics() {
+    return _stats.snapshot();
   }
 
   /**
    * Returns the number of entries in the cache
-   * 
+   *
    * @return the number of entries in the cache
    */
   public int getSize() {
-    return _cache.size();
+    return _index.size();
   }
 }
-
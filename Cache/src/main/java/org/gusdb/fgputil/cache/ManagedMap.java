@@ -1,31 +1,35 @@
 package org.gusdb.fgputil.cache;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 /**
- * Represents an InMemoryCache whose key/value pairs must be explicitly added.  Implements the Map
- * interface for familiarity but iteration through entries is not supported.  Entries in the ManagedMap
- * are purged using trimming characteristics passed to constructor, or default if none are passed.
- * 
+ * Represents an InMemoryCache whose key/value pairs must be explicitly added.  Implements the
+ * ConcurrentMap interface: lookups do not block, single-key operations (including putIfAbsent,
+ * replace, and conditional remove) are atomic, and views iterate weakly consistently (i.e. they never
+ * throw ConcurrentModificationException and may or may not reflect modifications made after the
+ * iteration started).  Entries in the ManagedMap are purged using trimming characteristics passed to
+ * constructor, or default if none are passed, so the size of the map stays bounded.
+ *
+ * Note null keys and values are not supported.
+ *
  * @author rdoherty
  *
  * @param <S> type of key
  * @param <T> type of value
  */
-public class ManagedMap<S,T> extends InMemoryCache<S,T> implements Map<S,T> {
+public class ManagedMap<S,T> extends InMemoryCache<S,T> implements ConcurrentMap<S,T> {
 
-  // factory used to insert a new item into the cache
-  private ValueFactory<S,T> getValueFactory(T value){
-    return key -> value;
-  }
-
-  // factory used to create items not found; if item is not found, we throw exception
-  private ValueFactory<S,T> getNotFoundFactory() {
-    return key -> {
-      throw new ValueProductionException("Key not found in managed map.");
-    };
+  // thrown by computeIfAbsent's factory when the mapping function produces no value
+  private static class NoValueException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
   }
 
   /**
@@ -37,7 +41,7 @@ public class ManagedMap<S,T> extends InMemoryCache<S,T> implements Map<S,T> {
 
   /**
    * Creates a managed map with custom capacity and trimming characteristics.
-   * 
+   *
    * @param capacity maximum number of objects that can be cached
    * @param numToTrimOnCapacity number of objects to trim when capacity reached
    */
@@ -45,6 +49,15 @@ public class ManagedMap<S,T> extends InMemoryCache<S,T> implements Map<S,T> {
     super(capacity, numToTrimOnCapacity);
   }
 
+  /**
+   * Creates a managed map with the passed configuration.
+   *
+   * @param config cache configuration
+   */
+  public ManagedMap(CacheConfig<S,T> config) {
+    super(config);
+  }
+
   /**
    * @return number of entries currently stored in the map
    */
@@ -65,81 +78,146 @@ public class ManagedMap<S,T> extends InMemoryCache<S,T> implements Map<S,T> {
    * @param key possible key to value in the map
    * @return true if the passed key represents a value in the map, else false
    */
-  @SuppressWarnings("unchecked")
   @Override
   public boolean containsKey(Object key) {
-    try {
-      getValue((S)key, getNotFoundFactory());
-      return true;
-    }
-    catch (ValueProductionException e) {
-      return false;
-    }
+    return get(key) != null;
   }
 
   /**
-   * Returns the value associated with the passed key
-   * 
+   * Returns the value associated with the passed key.  Does not block.
+   *
    * @param key possible key to value in the map
    * @return the value associated with the passed key, or null if that key does not exist
    */
   @SuppressWarnings("unchecked")
   @Override
   public T get(Object key) {
-    synchronized(this) {
-      try {
-        return getValue((S)key, getNotFoundFactory());
-      }
-      catch (ValueProductionException e) {
-        return null;
-      }
-    }
+    return peekValue((S)Objects.requireNonNull(key));
   }
 
   /**
    * Puts a new entry into the managed map
-   * 
+   *
    * @param key new key
    * @param value new item
    * @return previous value associated with the passed key if one exists, else null
    */
   @Override
   public T put(S key, T value) {
-    synchronized(this) {
-      try {
-        T oldValue = get(key);
-        if (oldValue != null) {
-          remove(key);
+    return updateValue(Objects.requireNonNull(key), current -> true, Objects.requireNonNull(value));
+  }
+
+  /**
+   * Puts a new entry into the managed map only if the passed key is not already present
+   *
+   * @param key new key
+   * @param value new item
+   * @return value already associated with the passed key if one exists, else null
+   */
+  @Override
+  public T putIfAbsent(S key, T value) {
+    return updateValue(Objects.requireNonNull(key), current -> current == null, Objects.requireNonNull(value));
+  }
+
+  /**
+   * Returns the value associated with the passed key, creating it with the passed function if
+   * the key is not present.  Only one thread creates a value for a given key at a time; other
+   * threads requesting that key wait for and return the created value.  If the function returns
+   * null, nothing is stored.  Exceptions thrown by the function are rethrown.
+   *
+   * @param key key of the desired value
+   * @param mappingFunction function producing a value for an absent key
+   * @return current (existing or created) value associated with the key, or null if none
+   */
+  @Override
+  public T computeIfAbsent(S key, Function<? super S, ? extends T> mappingFunction) {
+    Objects.requireNonNull(mappingFunction);
+    T value = get(key);
+    if (value != null) {
+      return value;
+    }
+    try {
+      return getValue(key, k -> {
+        T newValue = mappingFunction.apply(k);
+        if (newValue == null) {
+          throw new NoValueException();
         }
-        getValue(key, getValueFactory(value));
-        return value;
+        return newValue;
+      });
+    }
+    catch (ValueProductionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof NoValueException) {
+        return null;
       }
-      catch (ValueProductionException e) {
-        // this should never happen
-        throw new RuntimeException(e);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
       }
+      if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new RuntimeException(e);
     }
   }
 
   /**
    * Removes the entry associated with the passed key
-   * 
+   *
    * @param key possible key to item in the map
    * @return previous value associated with the passed key if one exists, else null
    */
   @SuppressWarnings("unchecked")
   @Override
   public T remove(Object key) {
-    synchronized(this) {
-      T oldValue = get(key);
-      expireEntries((S)key);
-      return oldValue;
+    return updateValue((S)Objects.requireNonNull(key), current -> true, null);
+  }
+
+  /**
+   * Removes the entry associated with the passed key only if it is currently mapped to the passed value
+   *
+   * @param key possible key to item in the map
+   * @param value value expected to be associated with the key
+   * @return true if the entry was removed, else false
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean remove(Object key, Object value) {
+    if (key == null || value == null) {
+      return false;
     }
+    return value.equals(updateValue((S)key, current -> value.equals(current), null));
+  }
+
+  /**
+   * Replaces the value associated with the passed key only if the key is present
+   *
+   * @param key key of item to replace
+   * @param value new item
+   * @return previous value associated with the passed key if one exists, else null
+   */
+  @Override
+  public T replace(S key, T value) {
+    return updateValue(Objects.requireNonNull(key), current -> current != null, Objects.requireNonNull(value));
+  }
+
+  /**
+   * Replaces the value associated with the passed key only if it is currently mapped to oldValue
+   *
+   * @param key key of item to replace
+   * @param oldValue value expected to be associated with the key
+   * @param newValue new item
+   * @return true if the value was replaced, else false
+   */
+  @Override
+  public boolean replace(S key, T oldValue, T newValue) {
+    Objects.requireNonNull(oldValue);
+    return oldValue.equals(updateValue(Objects.requireNonNull(key),
+        current -> oldValue.equals(current), Objects.requireNonNull(newValue)));
   }
 
   /**
    * Puts all entries in the passed map into this one
-   * 
+   *
    * @param map of values
    */
   @Override
@@ -150,44 +228,109 @@ public class ManagedMap<S,T> extends InMemoryCache<S,T> implements Map<S,T> {
   }
 
   /**
-   * Unsupported due to InMemoryCache limitations
+   * Removes all entries from the map
    */
   @Override
   public void clear() {
-    // TODO: implement - no reason this can't be done relatively easily
-    throw new UnsupportedOperationException();
+    expireAllEntries();
   }
 
   /**
-   * Unsupported due to InMemoryCache limitations
+   * Checks whether any entry has the passed value.  Requires a traversal of the map.
+   *
+   * @param value possible value in the map
+   * @return true if the passed value is found in the map, else false
    */
   @Override
   public boolean containsValue(Object value) {
-    throw new UnsupportedOperationException();
+    Objects.requireNonNull(value);
+    Iterator<Entry<S,T>> entries = entryIterator();
+    while (entries.hasNext()) {
+      if (value.equals(entries.next().getValue())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
-   * Unsupported due to InMemoryCache limitations
+   * @return weakly consistent view of the keys in the map; removal is supported
    */
   @Override
   public Set<S> keySet() {
-    throw new UnsupportedOperationException();
+    return new AbstractSet<S>() {
+      @Override public Iterator<S> iterator() { return new ViewIterator<>(entry -> entry.getKey()); }
+      @Override public int size() { return ManagedMap.this.size(); }
+      @Override public boolean contains(Object key) { return containsKey(key); }
+      @Override public boolean remove(Object key) { return ManagedMap.this.remove(key) != null; }
+      @Override public void clear() { ManagedMap.this.clear(); }
+    };
   }
 
   /**
-   * Unsupported due to InMemoryCache limitations
+   * @return weakly consistent view of the values in the map; removal is supported
    */
   @Override
   public Collection<T> values() {
-    throw new UnsupportedOperationException();
+    return new AbstractCollection<T>() {
+      @Override public Iterator<T> iterator() { return new ViewIterator<>(entry -> entry.getValue()); }
+      @Override public int size() { return ManagedMap.this.size(); }
+      @Override public boolean contains(Object value) { return containsValue(value); }
+      @Override public void clear() { ManagedMap.this.clear(); }
+    };
   }
 
   /**
-   * Unsupported due to InMemoryCache limitations
+   * @return weakly consistent view of the entries in the map; removal is supported, but entries
+   * are snapshots and do not support setValue()
    */
   @Override
-  public Set<java.util.Map.Entry<S, T>> entrySet() {
-    throw new UnsupportedOperationException();
+  public Set<Entry<S,T>> entrySet() {
+    return new AbstractSet<Entry<S,T>>() {
+      @Override public Iterator<Entry<S,T>> iterator() { return new ViewIterator<>(entry -> entry); }
+      @Override public int size() { return ManagedMap.this.size(); }
+      @Override public boolean contains(Object obj) {
+        if (!(obj instanceof Entry)) return false;
+        Entry<?,?> entry = (Entry<?,?>)obj;
+        T value = entry.getKey() == null ? null : get(entry.getKey());
+        return value != null && value.equals(entry.getValue());
+      }
+      @Override public boolean remove(Object obj) {
+        return obj instanceof Entry && ManagedMap.this.remove(((Entry<?,?>)obj).getKey(), ((Entry<?,?>)obj).getValue());
+      }
+      @Override public void clear() { ManagedMap.this.clear(); }
+    };
   }
 
+  // iterates over one aspect of the map's entries; remove() removes the last entry returned
+  private class ViewIterator<R> implements Iterator<R> {
+
+    private final Iterator<Entry<S,T>> _entries = entryIterator();
+    private final Function<Entry<S,T>,R> _converter;
+    private Entry<S,T> _lastReturned = null;
+
+    public ViewIterator(Function<Entry<S,T>,R> converter) {
+      _converter = converter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _entries.hasNext();
+    }
+
+    @Override
+    public R next() {
+      _lastReturned = _entries.next();
+      return _converter.apply(_lastReturned);
+    }
+
+    @Override
+    public void remove() {
+      if (_lastReturned == null) {
+        throw new IllegalStateException();
+      }
+      ManagedMap.this.remove(_lastReturned.getKey());
+      _lastReturned = null;
+    }
+  }
 }
@@ -0,0 +1,14 @@
+package org.gusdb.fgputil.cache;
+
+/**
+ * Implemented by caches that record statistics about their use.
+ */
+@FunctionalInterface
+public interface StatisticsProvider {
+
+  /**
+   * @return snapshot of this cache's statistics
+   */
+  public CacheStats getStatistics();
+
+}
@@ -0,0 +1,41 @@
+package org.gusdb.fgputil.cache;
+
+import org.gusdb.fgputil.runtime.JvmUtil;
+
+/**
+ * Calculates the weight of a cache entry.  Caches configured with a weigher
+ * and maximum weight discard entries (least recently accessed first) to keep
+ * the total weight of their entries under the maximum.  Weights are typically
+ * the number of bytes retained by an entry, but any non-negative measure can
+ * be used as long as it is consistent with the configured maximum.
+ *
+ * @param <S> type of cache key
+ * @param <T> type of cached value
+ */
+@FunctionalInterface
+public interface Weigher<S,T> {
+
+  /**
+   * Returns the weight of the passed entry.  This method is called once each
+   * time a value is created or updated, outside any cache-wide lock.
+   *
+   * @param key key of the entry
+   * @param value value of the entry
+   * @return weight of the entry; must be non-negative
+   */
+  public long weigh(S key, T value);
+
+  /**
+   * Returns a weigher whose weights are the estimated number of bytes retained
+   * by the key and value (see JvmUtil.estimateDeepSize()).  This walks the
+   * entire value each time it is called, so is best suited to values that are
+   * expensive to produce relative to their size (e.g. query results).
+   *
+   * @param <S> type of cache key
+   * @param <T> type of cached value
+   * @return weigher estimating retained heap size of entries
+   */
+  public static <S,T> Weigher<S,T> estimatedHeapSize() {
+    return (key, value) -> JvmUtil.estimateDeepSize(key) + JvmUtil.estimateDeepSize(value);
+  }
+}
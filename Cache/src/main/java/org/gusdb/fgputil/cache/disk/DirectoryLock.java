@@ -1,29 +1,74 @@
 package org.gusdb.fgputil.cache.disk;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.UUID;
 
 import org.gusdb.fgputil.runtime.ThreadUtil;
 
 /**
- * Handles locking a directory for use.  This is not a filesystem lock and
- * only other software using this implementation will respect the lock.  The
- * lock is created by writing a .lock file inside the specified directory;
- * when the lock is released, this file is removed.  Because of this strategy,
- * however, no software locks or synchronization is used so disjoint systems
- * (separate JVMs) using this class can share and respect each other's locks.
+ * Handles locking a directory for use.  Only other software using this
+ * implementation will respect the lock.  Locks are procured in one of two
+ * modes (see LockMode); all processes sharing a directory must use the same
+ * mode.  In the default LOCK_FILE mode, the lock is created by writing a .lock
+ * file inside the specified directory; when the lock is released, this file is
+ * removed.  Because of this strategy, however, no software locks or
+ * synchronization is used so disjoint systems (separate JVMs, even on different
+ * machines sharing a filesystem) using this class can share and respect each
+ * other's locks.
+ *
+ * Locks are either exclusive or shared.  Any number of shared locks may be
+ * held on a directory at once, but an exclusive lock excludes all other locks.
+ * In LOCK_FILE mode, each shared lock holder writes its own .lock.shared.{id}
+ * file.  A shared lock is awarded only when no .lock file exists; an exclusive
+ * lock is awarded once its holder has created the .lock file and all shared
+ * lock files are gone.  Since an exclusive lock waiter holds the .lock file
+ * while waiting for shared holders to finish, new shared lock requests wait
+ * behind it and writers are not starved by a steady stream of readers.
+ * FILE_CHANNEL mode gives the same guarantees using OS locks on a single
+ * .lock.os file.
  */
 public class DirectoryLock implements AutoCloseable {
 
+  /**
+   * Mechanism used to lock directories
+   */
+  public enum LockMode {
+
+    /**
+     * Locks are lock files created atomically; waiters poll for their removal.
+     * Works across machines sharing a filesystem, but the locks of a process
+     * that dies while holding them remain until removed manually.
+     */
+    LOCK_FILE,
+
+    /**
+     * Locks are OS advisory locks (FileChannel.lock), released automatically
+     * if the holding process dies.  Threads in the same process waiting for a
+     * lock are signaled directly when it is released rather than polling.
+     * Only reliable for processes on the same machine.
+     */
+    FILE_CHANNEL
+  }
+
+  private static final String LOCK_FILE = ".lock";
+  private static final String SHARED_LOCK_FILE_PREFIX = LOCK_FILE + ".shared.";
+
+  private final Path _directory;
   private final Path _lockFile;
+  private final boolean _shared;
+  private final FileChannelLocks.Handle _channelLock; // null in LOCK_FILE mode
+  private long _millisWaited = 0;
 
   /**
-   * Creates a lock on the specified directory, waiting if necessary until
-   * any existing lock is released.  Lock access is unfair; there is no
+   * Creates an exclusive lock on the specified directory, waiting if necessary
+   * until any existing locks are released.  Lock access is unfair; there is no
    * guarantee of lock award order.
    *
    * @param directory directory to lock
@@ -32,33 +77,249 @@ public class DirectoryLock implements AutoCloseable {
    * @throws DirectoryLockTimeoutException wait time for a lock has expired
    */
   public DirectoryLock(Path directory, long timeoutMillis, long pollFrequencyMillis) {
+    this(directory, false, timeoutMillis, pollFrequencyMillis);
+  }
 
-    _lockFile = Paths.get(directory.toString(), ".lock");
+  /**
+   * Creates a shared lock on the specified directory, waiting if necessary
+   * until any existing exclusive lock is released.
+   *
+   * @param directory directory to lock
+   * @param timeoutMillis maximum time to wait for a lock before timing out (-1 for no limit)
+   * @param pollFrequencyMillis duration between attempts to procure a lock
+   * @return shared lock on the directory
+   * @throws DirectoryLockTimeoutException wait time for a lock has expired
+   */
+  public static DirectoryLock shared(Path directory, long timeoutMillis, long pollFrequencyMillis) {
+    return new DirectoryLock(directory, true, timeoutMillis, pollFrequencyMillis);
+  }
 
-    // keep trying to create the lock file until successful or timeout
+  /**
+   * Creates an exclusive lock on the specified directory using the passed
+   * lock mode, waiting if necessary until any existing locks are released.
+   *
+   * @param directory directory to lock
+   * @param mode locking mechanism
+   * @param timeoutMillis maximum time to wait for a lock before timing out (-1 for no limit)
+   * @param pollFrequencyMillis duration between attempts to procure a lock (held by
+   * another process, in FILE_CHANNEL mode)
+   * @return exclusive lock on the directory
+   * @throws DirectoryLockTimeoutException wait time for a lock has expired
+   */
+  public static DirectoryLock exclusive(Path directory, LockMode mode, long timeoutMillis, long pollFrequencyMillis) {
+    return mode == LockMode.FILE_CHANNEL ?
+        channelLock(directory, false, timeoutMillis, pollFrequencyMillis) :
+        new DirectoryLock(directory, false, timeoutMillis, pollFrequencyMillis);
+  }
+
+  /**
+   * Creates a shared lock on the specified directory using the passed lock
+   * mode, waiting if necessary until any existing exclusive lock is released.
+   *
+   * @param directory directory to lock
+   * @param mode locking mechanism
+   * @param timeoutMillis maximum time to wait for a lock before timing out (-1 for no limit)
+   * @param pollFrequencyMillis duration between attempts to procure a lock (held by
+   * another process, in FILE_CHANNEL mode)
+   * @return shared lock on the directory
+   * @throws DirectoryLockTimeoutException wait time for a lock has expired
+   */
+  public static DirectoryLock shared(Path directory, LockMode mode, long timeoutMillis, long pollFrequencyMillis) {
+    return mode == LockMode.FILE_CHANNEL ?
+        channelLock(directory, true, timeoutMillis, pollFrequencyMillis) :
+        new DirectoryLock(directory, true, timeoutMillis, pollFrequencyMillis);
+  }
+
+  private static DirectoryLock channelLock(Path directory, boolean shared, long timeoutMillis, long pollFrequencyMillis) {
+    try {
+      FileChannelLocks.Handle handle = FileChannelLocks.acquire(directory, shared, timeoutMillis, pollFrequencyMillis);
+      DirectoryLock lock = new DirectoryLock(directory, handle.getLockFile(), shared, handle);
+      lock._millisWaited = handle.getMillisWaited();
+      return lock;
+    }
+    catch (IOException e) {
+      throw new RuntimeException("Could not lock lock file in directory " + directory, e);
+    }
+  }
+
+  private DirectoryLock(Path directory, boolean shared, long timeoutMillis, long pollFrequencyMillis) {
+
+    _directory = directory;
+    _shared = shared;
+    _channelLock = null;
+    _lockFile = shared ? newSharedLockFile(directory) : Paths.get(directory.toString(), LOCK_FILE);
+
+    // keep trying until successful or timeout
     long millisExpended = 0;
-    while (timeoutMillis < 0 || millisExpended < timeoutMillis) {
-      // try again
-      try {
-        Files.createFile(_lockFile);
-        return; // success; got the lock
-      }
-      catch (FileAlreadyExistsException exists) {
-	// if waiting `pollFrequencyMillis` would cause a timeout, bail now
-	if (millisExpended + pollFrequencyMillis >= timeoutMillis) {
-	  throw new DirectoryLockTimeoutException("Timeout (" + timeoutMillis + "ms) occurred before able to lock directory: " + directory + " (aborting before next retry)");
-	}
+    boolean lockFileCreated = false;
+    boolean acquired = false;
+    try {
+      while (true) {
+        if (!lockFileCreated) {
+          lockFileCreated = createLockFile(_lockFile);
+        }
+        if (lockFileCreated) {
+          if (shared && Files.exists(exclusiveLockFile(directory))) {
+            // an exclusive lock is held or wanted; back off until it is released
+            Files.deleteIfExists(_lockFile);
+            lockFileCreated = false;
+          }
+          else if (shared || !sharedLocksExist(directory)) {
+            acquired = true;
+            return; // success; got the lock
+          }
+          // otherwise hold the exclusive lock file while waiting for shared holders
+        }
+
+        // if waiting `pollFrequencyMillis` would cause a timeout, bail now
+        if (timeoutMillis >= 0 && millisExpended + pollFrequencyMillis >= timeoutMillis) {
+          throw new DirectoryLockTimeoutException("Timeout (" + timeoutMillis + "ms) occurred before able to lock directory: " + directory + " (aborting before next retry)");
+        }
         // otherwise wait, then try again in next iteration of loop
         if (ThreadUtil.sleep(pollFrequencyMillis)) {
           throw new RuntimeException("Thread performing directory lock procurement was interrupted before it could complete.");
         }
         millisExpended += pollFrequencyMillis;
+        _millisWaited = millisExpended;
+      }
+    }
+    catch (IOException e) {
+      throw new RuntimeException("Could not create lock file in directory " + directory, e);
+    }
+    finally {
+      // give up the lock file if we created one but failed to get the lock
+      if (lockFileCreated && !acquired) {
+        try {
+          Files.deleteIfExists(_lockFile);
+        }
+        catch (IOException e) {
+          // nothing more we can do; lock file may need to be removed manually
+        }
+      }
+    }
+  }
+
+  // creates a lock object for an already-procured lock
+  private DirectoryLock(Path directory, Path lockFile, boolean shared, FileChannelLocks.Handle channelLock) {
+    _directory = directory;
+    _lockFile = lockFile;
+    _shared = shared;
+    _channelLock = channelLock;
+  }
+
+  /**
+   * Tries once to exclusively lock the specified directory, without waiting.
+   *
+   * @param directory directory to lock
+   * @return the lock if procured, or an empty optional if the directory is already locked
+   */
+  public static Optional<DirectoryLock> tryLock(Path directory) {
+    return tryLock(directory, LockMode.LOCK_FILE);
+  }
+
+  /**
+   * Tries once to exclusively lock the specified directory using the passed
+   * lock mode, without waiting.
+   *
+   * @param directory directory to lock
+   * @param mode locking mechanism
+   * @return the lock if procured, or an empty optional if the directory is already locked
+   */
+  public static Optional<DirectoryLock> tryLock(Path directory, LockMode mode) {
+    if (mode == LockMode.FILE_CHANNEL) {
+      try {
+        return FileChannelLocks.tryAcquireExclusive(directory)
+            .map(handle -> new DirectoryLock(directory, handle.getLockFile(), false, handle));
       }
       catch (IOException e) {
-        throw new RuntimeException("Could not create lock file in directory " + directory, e);
+        throw new RuntimeException("Could not lock lock file in directory " + directory, e);
       }
     }
-    throw new DirectoryLockTimeoutException("Timeout (" + timeoutMillis + "ms) occurred before able to lock directory: " + directory);
+    Path lockFile = exclusiveLockFile(directory);
+    try {
+      if (!createLockFile(lockFile)) {
+        return Optional.empty();
+      }
+      if (sharedLocksExist(directory)) {
+        Files.delete(lockFile);
+        return Optional.empty();
+      }
+      return Optional.of(new DirectoryLock(directory, lockFile, false, null));
+    }
+    catch (IOException e) {
+      throw new RuntimeException("Could not create lock file in directory " + directory, e);
+    }
+  }
+
+  /**
+   * Converts this exclusive lock to a shared lock without allowing another
+   * exclusive lock to be procured in between.  After this call, this lock
+   * object is released and the returned lock must be released instead.
+   *
+   * @return shared lock on this lock's directory
+   * @throws IOException if unable to convert the lock
+   * @throws IllegalStateException if this lock is already shared
+   */
+  public DirectoryLock downgrade() throws IOException {
+    if (_shared) {
+      throw new IllegalStateException("Only exclusive locks can be downgraded.");
+    }
+    if (_channelLock != null) {
+      return new DirectoryLock(_directory, _lockFile, true, _channelLock.downgrade());
+    }
+    Path sharedLockFile = newSharedLockFile(_directory);
+    Files.createFile(sharedLockFile);
+    release();
+    return new DirectoryLock(_directory, sharedLockFile, true, null);
+  }
+
+  private static Path exclusiveLockFile(Path directory) {
+    return Paths.get(directory.toString(), LOCK_FILE);
+  }
+
+  private static Path newSharedLockFile(Path directory) {
+    return Paths.get(directory.toString(), SHARED_LOCK_FILE_PREFIX + UUID.randomUUID());
+  }
+
+  // returns true if lock file was created, false if it already exists
+  private static boolean createLockFile(Path lockFile) throws IOException {
+    try {
+      Files.createFile(lockFile);
+      return true;
+    }
+    catch (FileAlreadyExistsException exists) {
+      return false;
+    }
+  }
+
+  private static boolean sharedLocksExist(Path directory) throws IOException {
+    try (DirectoryStream<Path> sharedLockFiles = Files.newDirectoryStream(directory, SHARED_LOCK_FILE_PREFIX + "*")) {
+      return sharedLockFiles.iterator().hasNext();
+    }
+  }
+
+  /**
+   * @param fileName name of a file in a locked directory
+   * @return true if the file is a lock file (exclusive or shared)
+   */
+  public static boolean isLockFile(String fileName) {
+    return fileName.equals(LOCK_FILE) || fileName.startsWith(SHARED_LOCK_FILE_PREFIX) ||
+        fileName.equals(FileChannelLocks.LOCK_FILE);
+  }
+
+  /**
+   * @return true if this is a shared lock, false if exclusive
+   */
+  public boolean isShared() {
+    return _shared;
+  }
+
+  /**
+   * @return approximate time spent waiting for another holder to release this
+   * lock before it was procured (0 if it was available immediately)
+   */
+  public long getMillisWaited() {
+    return _millisWaited;
   }
 
   /**
@@ -69,11 +330,16 @@ public class DirectoryLock implements AutoCloseable {
   }
 
   /**
-   * Releases this lock (i.e. deletes the lock file)
+   * Releases this lock (i.e. deletes the lock file, or in FILE_CHANNEL mode,
+   * releases the OS lock; the lock file is left in place)
    *
    * @throws IOException if unable to release the lock
    */
   public void release() throws IOException {
+    if (_channelLock != null) {
+      _channelLock.release();
+      return;
+    }
     try {
       Files.delete(_lockFile);
     }
@@ -0,0 +1,223 @@
+package org.gusdb.fgputil.cache.disk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Tracks the size and last access time of each entry in an OnDiskCache, and
+ * the total size of the cache.  The index is kept in memory and persisted to
+ * a file in the cache's parent directory so last access times survive
+ * restarts (OnDiskCache persists it after each eviction pass and shortly
+ * after populations).  On load, entry directories missing from the index (e.g. created
+ * by another process) are measured and added, and indexed entries whose
+ * directories no longer exist are dropped, so the index need not be persisted
+ * after every change.
+ *
+ * The file contains one line per entry: key, size in bytes, and last access
+ * time in epoch millis, separated by tabs.  Since processes sharing the cache
+ * directory each persist their own index, the file is written to a uniquely
+ * named temporary file and atomically moved into place.  The last process to
+ * persist wins; no locking is needed since the index is reconciled with the
+ * directory on load.
+ */
+class DiskCacheIndex {
+
+  private static final Logger LOG = Logger.getLogger(DiskCacheIndex.class);
+
+  /** Name of the index file; this name cannot be used as a cache key */
+  static final String INDEX_FILE = ".index";
+
+  static class IndexEntry {
+
+    final String key;
+    final long sizeBytes;
+    volatile long lastAccessMillis;
+
+    IndexEntry(String key, long sizeBytes, long lastAccessMillis) {
+      this.key = key;
+      this.sizeBytes = sizeBytes;
+      this.lastAccessMillis = lastAccessMillis;
+    }
+  }
+
+  private final Path _parentDirectory;
+  private final Path _indexFile;
+  private final Map<String, IndexEntry> _entries = new ConcurrentHashMap<>();
+  private final AtomicLong _totalBytes = new AtomicLong(0);
+  // whether the index has changed since it was last persisted
+  private final AtomicBoolean _changed = new AtomicBoolean(false);
+
+  /**
+   * Loads the index for the cache in the passed directory, reconciling it
+   * with the entry directories actually present.
+   *
+   * @param parentDirectory parent directory of the cache
+   * @throws IOException if unable to read the index or list the directory
+   */
+  DiskCacheIndex(Path parentDirectory) throws IOException {
+    _parentDirectory = parentDirectory;
+    _indexFile = parentDirectory.resolve(INDEX_FILE);
+    Map<String, Long> lastAccessTimes = readLastAccessTimes();
+    try (Stream<Path> children = Files.list(parentDirectory)) {
+      for (Path dir : children.filter(Files::isDirectory).collect(Collectors.toList())) {
+        String key = dir.getFileName().toString();
+        try {
+          Long lastAccess = lastAccessTimes.get(key);
+          put(new IndexEntry(key, measure(dir), lastAccess != null ? lastAccess :
+              Files.getLastModifiedTime(dir).toMillis()));
+        }
+        catch (IOException | UncheckedIOException e) {
+          // entry is probably being removed by another process
+          LOG.warn("Unable to index cache entry " + dir + "; skipping", e);
+        }
+      }
+    }
+  }
+
+  // reads last access times from the index file; sizes are remeasured on load
+  private Map<String, Long> readLastAccessTimes() {
+    Map<String, Long> lastAccessTimes = new HashMap<>();
+    if (!Files.exists(_indexFile)) {
+      return lastAccessTimes;
+    }
+    try (BufferedReader in = Files.newBufferedReader(_indexFile)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        int accessTab = line.lastIndexOf('\t');
+        int sizeTab = accessTab < 0 ? -1 : line.lastIndexOf('\t', accessTab - 1);
+        if (sizeTab <= 0) {
+          LOG.warn("Skipping malformed line in cache index " + _indexFile + ": " + line);
+          continue;
+        }
+        lastAccessTimes.put(line.substring(0, sizeTab), Long.parseLong(line.substring(accessTab + 1)));
+      }
+    }
+    catch (IOException | NumberFormatException e) {
+      LOG.warn("Unable to read cache index " + _indexFile + "; last access times will be estimated", e);
+    }
+    return lastAccessTimes;
+  }
+
+  /**
+   * Records that the entry in the passed directory was (re)populated.  Should
+   * be called while the entry is locked so its content is not changing.
+   *
+   * @param key cache key of the entry
+   * @param entryDir directory of the entry
+   * @throws IOException if unable to measure the entry
+   */
+  void recordPopulation(String key, Path entryDir) throws IOException {
+    put(new IndexEntry(key, measure(entryDir), System.currentTimeMillis()));
+  }
+
+  /**
+   * Records an access of the entry in the passed directory, adding it to the
+   * index if it is not yet indexed (e.g. was populated by another process).
+   *
+   * @param key cache key of the entry
+   * @param entryDir directory of the entry
+   * @throws IOException if unable to measure a newly indexed entry
+   */
+  void recordAccess(String key, Path entryDir) throws IOException {
+    IndexEntry entry = _entries.get(key);
+    if (entry != null) {
+      entry.lastAccessMillis = System.currentTimeMillis();
+      _changed.set(true);
+    }
+    else {
+      recordPopulation(key, entryDir);
+    }
+  }
+
+  void remove(String key) {
+    IndexEntry entry = _entries.remove(key);
+    if (entry != null) {
+      _totalBytes.addAndGet(-entry.sizeBytes);
+      _changed.set(true);
+    }
+  }
+
+  private void put(IndexEntry entry) {
+    IndexEntry previous = _entries.put(entry.key, entry);
+    _totalBytes.addAndGet(entry.sizeBytes - (previous == null ? 0 : previous.sizeBytes));
+    _changed.set(true);
+  }
+
+  long getTotalBytes() {
+    return _totalBytes.get();
+  }
+
+  int size() {
+    return _entries.size();
+  }
+
+  /**
+   * @return snapshot of the indexed entries, least recently accessed first
+   */
+  List<IndexEntry> getEntriesByLastAccess() {
+    return _entries.values().stream()
+        .sorted(Comparator.comparingLong(entry -> entry.lastAccessMillis))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Writes the index to its file if it has changed since it was last
+   * written.  The file is replaced atomically so a crash while writing
+   * leaves the previous version intact.
+   *
+   * @throws IOException if unable to write the index file
+   */
+  void persist() throws IOException {
+    if (!_changed.getAndSet(false)) {
+      return;
+    }
+    Path tempFile = Files.createTempFile(_parentDirectory, INDEX_FILE, ".tmp");
+    try {
+      try (BufferedWriter out = Files.newBufferedWriter(tempFile)) {
+        for (IndexEntry entry : _entries.values()) {
+          out.write(entry.key + "\t" + entry.sizeBytes + "\t" + entry.lastAccessMillis);
+          out.newLine();
+        }
+      }
+      Files.move(tempFile, _indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (IOException | RuntimeException e) {
+      // try again next time
+      _changed.set(true);
+      throw e;
+    }
+    finally {
+      // only still present if the move failed
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  // returns the total size of the regular files in the entry directory, excluding lock files
+  private static long measure(Path entryDir) throws IOException {
+    try (Stream<Path> files = Files.walk(entryDir)) {
+      long size = 0;
+      for (Path file : (Iterable<Path>)files::iterator) {
+        if (Files.isRegularFile(file) && !DirectoryLock.isLockFile(file.getFileName().toString())) {
+          size += Files.size(file);
+        }
+      }
+      return size;
+    }
+  }
+}
@@ -0,0 +1,418 @@
+package org.gusdb.fgputil.cache.disk;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.gusdb.fgputil.cache.disk.DirectoryLock.DirectoryLockTimeoutException;
+import org.gusdb.fgputil.runtime.ThreadUtil;
+
+/**
+ * Implements DirectoryLock's FILE_CHANNEL mode.  Between processes, directories
+ * are locked with OS advisory locks (FileChannel.lock) on a .lock.os file in the
+ * directory; the OS releases these automatically if the holding process dies,
+ * so locks are never orphaned.  Within a process, threads coordinate through a
+ * per-directory lock and condition: a thread releasing a directory signals the
+ * waiting threads directly, and only the first in-process holder (or the
+ * exclusive holder) takes the OS lock.
+ *
+ * Two bytes of the lock file are locked.  Readers hold a shared lock on the
+ * data byte; writers hold exclusive locks on both a gate byte and the data byte.
+ * Readers pass through the gate (shared) before locking the data byte, so a
+ * writer waiting for readers to finish blocks new readers, and a writer can
+ * downgrade to a reader without letting another writer in between.
+ *
+ * Waits for other processes are event-driven (blocking FileChannel.lock) when no
+ * timeout is specified; with a timeout, the OS lock is polled for.
+ */
+class FileChannelLocks {
+
+  static final String LOCK_FILE = ".lock.os";
+
+  private static final long GATE_POSITION = 0;
+  private static final long DATA_POSITION = 1;
+
+  // lock state of a directory within this process
+  private static class DirectoryState {
+
+    final Path directory;
+    final Path lockFile;
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition released = lock.newCondition();
+
+    // number of threads holding or waiting for this directory; guarded by STATES
+    int refCount = 0;
+
+    // remaining fields guarded by lock
+    int numShared = 0;
+    boolean exclusive = false;
+    int numExclusiveWaiting = 0;
+    FileChannel channel;
+    Object fileKey;
+    FileLock gateLock;
+    FileLock dataLock;
+
+    DirectoryState(Path directory) {
+      this.directory = directory;
+      this.lockFile = directory.resolve(LOCK_FILE);
+    }
+  }
+
+  private static final Map<Path, DirectoryState> STATES = new ConcurrentHashMap<>();
+
+  /**
+   * Lock held by a single thread on a directory.
+   */
+  static class Handle {
+
+    private final DirectoryState _state;
+    private final boolean _shared;
+    private final long _millisWaited;
+    private boolean _released = false;
+
+    private Handle(DirectoryState state, boolean shared, long millisWaited) {
+      _state = state;
+      _shared = shared;
+      _millisWaited = millisWaited;
+    }
+
+    Path getLockFile() {
+      return _state.lockFile;
+    }
+
+    long getMillisWaited() {
+      return _millisWaited;
+    }
+
+    void release() {
+      if (_released) {
+        return;
+      }
+      _released = true;
+      _state.lock.lock();
+      try {
+        if (_shared) {
+          if (--_state.numShared == 0) {
+            releaseQuietly(_state.dataLock);
+            _state.dataLock = null;
+          }
+        }
+        else {
+          releaseQuietly(_state.dataLock);
+          releaseQuietly(_state.gateLock);
+          _state.dataLock = _state.gateLock = null;
+          _state.exclusive = false;
+        }
+        _state.released.signalAll();
+      }
+      finally {
+        _state.lock.unlock();
+      }
+      dereference(_state);
+    }
+
+    Handle downgrade() throws IOException {
+      if (_shared || _released) {
+        throw new IllegalStateException("Only held exclusive locks can be downgraded.");
+      }
+      _state.lock.lock();
+      try {
+        // nothing else can lock the data byte exclusively while we hold the gate
+        _state.dataLock.release();
+        _state.dataLock = _state.channel.tryLock(DATA_POSITION, 1, true);
+        if (_state.dataLock == null) {
+          _state.dataLock = _state.channel.lock(DATA_POSITION, 1, true);
+        }
+        releaseQuietly(_state.gateLock);
+        _state.gateLock = null;
+        _state.exclusive = false;
+        _state.numShared = 1;
+        _state.released.signalAll();
+      }
+      finally {
+        _state.lock.unlock();
+      }
+      // reference to the directory state passes to the new handle
+      _released = true;
+      return new Handle(_state, true, 0);
+    }
+  }
+
+  /**
+   * Locks the passed directory, waiting if necessary.
+   *
+   * @param directory directory to lock
+   * @param shared whether to take a shared (vs exclusive) lock
+   * @param timeoutMillis maximum time to wait for a lock before timing out (-1 for no limit)
+   * @param pollFrequencyMillis duration between attempts to procure a lock held by another process
+   * @return lock handle
+   * @throws IOException if unable to open or lock the lock file
+   * @throws DirectoryLockTimeoutException if wait time for a lock has expired
+   */
+  static Handle acquire(Path directory, boolean shared, long timeoutMillis, long pollFrequencyMillis) throws IOException {
+    long start = System.nanoTime();
+    long deadline = timeoutMillis < 0 ? Long.MAX_VALUE : start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    DirectoryState state = reference(directory);
+    boolean acquired = false;
+    try {
+      lockUntil(state, deadline, timeoutMillis);
+      try {
+        if (shared) {
+          // wait behind writers, including waiting ones
+          while (state.exclusive || state.numExclusiveWaiting > 0) {
+            awaitUntil(state, deadline, timeoutMillis);
+          }
+          // first in-process reader takes the OS lock for all of them
+          if (state.numShared == 0) {
+            lockOs(state, true, deadline, timeoutMillis, pollFrequencyMillis);
+          }
+          state.numShared++;
+        }
+        else {
+          state.numExclusiveWaiting++;
+          try {
+            while (state.exclusive || state.numShared > 0) {
+              awaitUntil(state, deadline, timeoutMillis);
+            }
+          }
+          finally {
+            state.numExclusiveWaiting--;
+            // readers waiting behind us may be able to proceed if we give up
+            state.released.signalAll();
+          }
+          lockOs(state, false, deadline, timeoutMillis, pollFrequencyMillis);
+          state.exclusive = true;
+        }
+        acquired = true;
+        return new Handle(state, shared, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      }
+      finally {
+        state.lock.unlock();
+      }
+    }
+    finally {
+      if (!acquired) {
+        dereference(state);
+      }
+    }
+  }
+
+  /**
+   * Tries once to exclusively lock the passed directory, without waiting.
+   *
+   * @param directory directory to lock
+   * @return lock handle if procured, else an empty optional
+   * @throws IOException if unable to open or lock the lock file
+   */
+  static Optional<Handle> tryAcquireExclusive(Path directory) throws IOException {
+    DirectoryState state = reference(directory);
+    boolean acquired = false;
+    try {
+      if (!state.lock.tryLock()) {
+        return Optional.empty();
+      }
+      try {
+        if (state.exclusive || state.numShared > 0 || state.numExclusiveWaiting > 0) {
+          return Optional.empty();
+        }
+        openChannel(state);
+        state.gateLock = state.channel.tryLock(GATE_POSITION, 1, false);
+        if (state.gateLock != null) {
+          state.dataLock = state.channel.tryLock(DATA_POSITION, 1, false);
+        }
+        if (state.dataLock == null || !isLockFileUnchanged(state)) {
+          releaseOs(state);
+          return Optional.empty();
+        }
+        state.exclusive = true;
+        acquired = true;
+        return Optional.of(new Handle(state, false, 0));
+      }
+      finally {
+        state.lock.unlock();
+      }
+    }
+    finally {
+      if (!acquired) {
+        dereference(state);
+      }
+    }
+  }
+
+  private static DirectoryState reference(Path directory) {
+    return STATES.compute(directory.toAbsolutePath().normalize(), (dir, state) -> {
+      DirectoryState result = (state == null ? new DirectoryState(dir) : state);
+      result.refCount++;
+      return result;
+    });
+  }
+
+  // once no thread holds or waits for the directory, forget it and close its channel
+  private static void dereference(DirectoryState state) {
+    STATES.computeIfPresent(state.directory, (dir, current) -> {
+      if (--current.refCount > 0) {
+        return current;
+      }
+      closeQuietly(current);
+      return null;
+    });
+  }
+
+  // takes the OS lock(s); assumes state is locked and no other thread in this process holds an OS lock
+  private static void lockOs(DirectoryState state, boolean shared, long deadline,
+      long timeoutMillis, long pollFrequencyMillis) throws IOException {
+    while (true) {
+      openChannel(state);
+      if (shared) {
+        FileLock gate = lockRegion(state, GATE_POSITION, true, deadline, timeoutMillis, pollFrequencyMillis);
+        try {
+          state.dataLock = lockRegion(state, DATA_POSITION, true, deadline, timeoutMillis, pollFrequencyMillis);
+        }
+        finally {
+          releaseQuietly(gate);
+        }
+      }
+      else {
+        state.gateLock = lockRegion(state, GATE_POSITION, false, deadline, timeoutMillis, pollFrequencyMillis);
+        try {
+          state.dataLock = lockRegion(state, DATA_POSITION, false, deadline, timeoutMillis, pollFrequencyMillis);
+        }
+        catch (IOException | RuntimeException e) {
+          releaseOs(state);
+          throw e;
+        }
+      }
+      if (isLockFileUnchanged(state)) {
+        return;
+      }
+      // lock file was deleted (e.g. with its directory) by the previous holder; start over
+      releaseOs(state);
+      closeQuietly(state);
+    }
+  }
+
+  private static FileLock lockRegion(DirectoryState state, long position, boolean shared,
+      long deadline, long timeoutMillis, long pollFrequencyMillis) throws IOException {
+    if (deadline == Long.MAX_VALUE) {
+      // no timeout; let the OS wake us when the lock is available
+      return state.channel.lock(position, 1, shared);
+    }
+    while (true) {
+      FileLock lock = state.channel.tryLock(position, 1, shared);
+      if (lock != null) {
+        return lock;
+      }
+      long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remainingMillis <= 0) {
+        throw timeout(state, timeoutMillis);
+      }
+      if (ThreadUtil.sleep(Math.min(pollFrequencyMillis, remainingMillis))) {
+        throw interrupted();
+      }
+    }
+  }
+
+  // opens the channel to the lock file if not open (it is closed if a thread is interrupted while locking)
+  private static void openChannel(DirectoryState state) throws IOException {
+    if (state.channel == null || !state.channel.isOpen()) {
+      state.channel = FileChannel.open(state.lockFile,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      state.fileKey = readFileKey(state.lockFile);
+    }
+  }
+
+  // returns true if the locked file is still the one at the lock file path
+  private static boolean isLockFileUnchanged(DirectoryState state) throws IOException {
+    try {
+      return state.fileKey == null || Objects.equals(state.fileKey, readFileKey(state.lockFile));
+    }
+    catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  private static Object readFileKey(Path file) throws IOException {
+    return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+  }
+
+  private static void releaseOs(DirectoryState state) {
+    releaseQuietly(state.dataLock);
+    releaseQuietly(state.gateLock);
+    state.dataLock = state.gateLock = null;
+  }
+
+  private static void releaseQuietly(FileLock lock) {
+    try {
+      if (lock != null && lock.isValid()) {
+        lock.release();
+      }
+    }
+    catch (IOException e) {
+      // lock is released when channel is closed in any case
+    }
+  }
+
+  private static void closeQuietly(DirectoryState state) {
+    try {
+      if (state.channel != null) {
+        state.channel.close();
+      }
+    }
+    catch (IOException e) {
+      // nothing more we can do
+    }
+    state.channel = null;
+  }
+
+  private static void lockUntil(DirectoryState state, long deadline, long timeoutMillis) {
+    try {
+      if (deadline == Long.MAX_VALUE) {
+        state.lock.lockInterruptibly();
+      }
+      else if (!state.lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        throw timeout(state, timeoutMillis);
+      }
+    }
+    catch (InterruptedException e) {
+      throw interrupted();
+    }
+  }
+
+  private static void awaitUntil(DirectoryState state, long deadline, long timeoutMillis) {
+    try {
+      if (deadline == Long.MAX_VALUE) {
+        state.released.await();
+        return;
+      }
+      long remainingNanos = deadline - System.nanoTime();
+      if (remainingNanos <= 0) {
+        throw timeout(state, timeoutMillis);
+      }
+      state.released.awaitNanos(remainingNanos);
+    }
+    catch (InterruptedException e) {
+      throw interrupted();
+    }
+  }
+
+  private static DirectoryLockTimeoutException timeout(DirectoryState state, long timeoutMillis) {
+    return new DirectoryLockTimeoutException("Timeout (" + timeoutMillis + "ms) occurred before able to lock directory: " + state.directory);
+  }
+
+  private static RuntimeException interrupted() {
+    Thread.currentThread().interrupt();
+    return new RuntimeException("Thread performing directory lock procurement was interrupted before it could complete.");
+  }
+}
@@ -9,11 +9,25 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import org.apache.log4j.Logger;
 import org.gusdb.fgputil.IoUtil;
+import org.gusdb.fgputil.cache.CacheStats;
+import org.gusdb.fgputil.cache.CacheStatsCounter;
+import org.gusdb.fgputil.cache.StatisticsProvider;
 import org.gusdb.fgputil.cache.disk.DirectoryLock.DirectoryLockTimeoutException;
+import org.gusdb.fgputil.cache.disk.DirectoryLock.LockMode;
+import org.gusdb.fgputil.cache.disk.DiskCacheIndex.IndexEntry;
 import org.gusdb.fgputil.functional.FunctionalInterfaces.ConsumerWithException;
 import org.gusdb.fgputil.functional.FunctionalInterfaces.FunctionWithException;
 
@@ -24,20 +38,33 @@ import org.gusdb.fgputil.functional.FunctionalInterfaces.FunctionWithException;
  * <pre>
  *   {top-level-dir}/
  *   {top-level-dir}/{cache-key}/           // directory where entry content is placed
- *   {top-level-dir}/{cache-key}/.lock      // indicates the entry is locked for read/write
+ *   {top-level-dir}/{cache-key}/.lock      // indicates the entry is locked for write
+ *   {top-level-dir}/{cache-key}/.lock.shared.{id}  // indicates the entry is locked for read
  *   {top-level-dir}/{cache-key}/.complete  // population of this entry completed without exception
  *   {top-level-dir}/{cache-key}/.failed    // population of this entry failed via an exception
+ *   {top-level-dir}/.index                 // size and last access of each entry (budgeted caches only)
  * </pre>
  *
- * Concurrency is managed by .lock files in each entry's directory.  File system writes
- * of these files are atomic, so no software locks or synchronization are used.  The lock
- * file exists for the duration of an entry's population and access; for simplicity,
- * there is no separation between read/write access and these happen (conditionally) in
- * the same operation.
+ * Concurrency is managed by lock files in each entry's directory (see DirectoryLock).  File
+ * system writes of these files are atomic, so no software locks or synchronization are used.
+ * An entry is locked exclusively while it is populated (or overwritten or removed), but any
+ * number of visitors (of this or other processes) may read a populated entry at the same time
+ * under shared locks.  Population and visiting still happen (conditionally) in the same
+ * operation; a request that populates an entry downgrades its lock to a shared one before
+ * visiting so other visitors need not wait for its visit to finish.
+ *
+ * A cache may optionally be given a budget of total bytes and/or number of entries.
+ * Budgeted caches maintain an index of each entry's size and last access time (persisted
+ * in the .index file, whose name therefore cannot be used as a cache key).  When a
+ * population puts the cache over budget, least recently accessed entries are removed on a
+ * background thread until the cache is back within budget.  Entries locked by a populator
+ * or visitor (of this or any other process) are never removed; they are skipped and
+ * considered again on the next eviction pass.  Since entries are only evicted after a
+ * population, the cache may briefly exceed its budget.
  *
  * @author rdoherty
  */
-public class OnDiskCache {
+public class OnDiskCache implements StatisticsProvider {
 
   /**
    * Defines an overwrite strategy when an entry already exists
@@ -86,9 +113,30 @@ public class OnDiskCache {
     return Files.exists(Paths.get(entryDir.toString(), FAILED_FILE));
   }
 
+  private static final Logger LOG = Logger.getLogger(OnDiskCache.class);
+
+  // how long after a population the index is persisted; populations in between share the write
+  private static final long INDEX_PERSIST_DELAY_MILLIS = 5000;
+
+  // evictions and index writes for all budgeted caches run on one daemon thread so
+  //   they do not compete with each other (or with populators) for disk I/O
+  private static final ScheduledExecutorService EVICTION_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "OnDiskCache-eviction");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   private final Path _parentDirectory;
   private final long _defaultLockTryTimeoutMillis;
   private final long _lockPollFrequencyMillis;
+  private final LockMode _lockMode;
+  private final long _maxBytes;
+  private final int _maxEntries;
+  private final DiskCacheIndex _index; // null if no budget
+  private final AtomicBoolean _evictionScheduled = new AtomicBoolean(false);
+  private final AtomicBoolean _indexPersistScheduled = new AtomicBoolean(false);
+  private final Lock _evictionLock = new ReentrantLock();
+  private final CacheStatsCounter _stats = new CacheStatsCounter(true);
 
   /**
    * Creates a new on-disk cache
@@ -99,6 +147,46 @@ public class OnDiskCache {
    * @throws IOException if parent directory does not exist or cannot be read or written to (rwx on unix systems)
    */
   public OnDiskCache(Path parentDirectory, long defaultLockTryTimeoutMillis, long lockPollFrequencyMillis) throws IOException {
+    this(parentDirectory, defaultLockTryTimeoutMillis, lockPollFrequencyMillis, 0, 0);
+  }
+
+  /**
+   * Creates a new on-disk cache limited to the passed number of bytes and entries.  Any
+   * existing entries in the parent directory are indexed (which requires measuring them)
+   * and count against the budget.
+   *
+   * @param parentDirectory parent directory for the cache's storage
+   * @param defaultLockTryTimeoutMillis maximum time to wait for an entry to be unlocked before timing out (-1 for no limit)
+   * @param lockPollFrequencyMillis duration between attempts to procure an entry lock for write/read
+   * @param maxBytes maximum total size of the files in the cache's entries (0 for no limit)
+   * @param maxEntries maximum number of entries in the cache (0 for no limit)
+   * @throws IOException if parent directory does not exist or cannot be read or written to (rwx on unix systems),
+   * or if unable to index existing entries
+   */
+  public OnDiskCache(Path parentDirectory, long defaultLockTryTimeoutMillis, long lockPollFrequencyMillis,
+      long maxBytes, int maxEntries) throws IOException {
+    this(parentDirectory, defaultLockTryTimeoutMillis, lockPollFrequencyMillis, maxBytes, maxEntries, LockMode.LOCK_FILE);
+  }
+
+  /**
+   * Creates a new on-disk cache limited to the passed number of bytes and entries, whose
+   * entries are locked using the passed lock mode.  All processes sharing a cache directory
+   * must use the same lock mode.  FILE_CHANNEL mode hands entries off between threads of the
+   * same process without polling and never leaves entries locked by a process that dies, but
+   * should only be used if all processes sharing the cache run on the same machine.
+   *
+   * @param parentDirectory parent directory for the cache's storage
+   * @param defaultLockTryTimeoutMillis maximum time to wait for an entry to be unlocked before timing out (-1 for no limit)
+   * @param lockPollFrequencyMillis duration between attempts to procure an entry lock for write/read
+   * (in FILE_CHANNEL mode, only used when waiting for other processes)
+   * @param maxBytes maximum total size of the files in the cache's entries (0 for no limit)
+   * @param maxEntries maximum number of entries in the cache (0 for no limit)
+   * @param lockMode mechanism used to lock entries
+   * @throws IOException if parent directory does not exist or cannot be read or written to (rwx on unix systems),
+   * or if unable to index existing entries
+   */
+  public OnDiskCache(Path parentDirectory, long defaultLockTryTimeoutMillis, long lockPollFrequencyMillis,
+      long maxBytes, int maxEntries, LockMode lockMode) throws IOException {
     if (!Files.isDirectory(parentDirectory) ||
         !Files.isReadable(parentDirectory) ||
         !Files.isWritable(parentDirectory) ||
@@ -108,6 +196,41 @@ public class OnDiskCache {
     _parentDirectory = parentDirectory;
     _defaultLockTryTimeoutMillis = defaultLockTryTimeoutMillis;
     _lockPollFrequencyMillis = lockPollFrequencyMillis;
+    _lockMode = Objects.requireNonNull(lockMode);
+    _maxBytes = Math.max(0, maxBytes);
+    _maxEntries = Math.max(0, maxEntries);
+    _index = (_maxBytes > 0 || _maxEntries > 0 ? new DiskCacheIndex(parentDirectory) : null);
+    scheduleEviction();
+  }
+
+  /**
+   * @return maximum total size in bytes of the cache's entries (0 if unlimited)
+   */
+  public long getMaxBytes() {
+    return _maxBytes;
+  }
+
+  /**
+   * @return maximum number of entries in the cache (0 if unlimited)
+   */
+  public int getMaxEntries() {
+    return _maxEntries;
+  }
+
+  /**
+   * @return total size in bytes of the cache's entries as of their last population
+   * (0 if the cache has no budget, since sizes are only tracked for budgeted caches)
+   */
+  public long getTotalBytes() {
+    return _index == null ? 0 : _index.getTotalBytes();
+  }
+
+  /**
+   * @return number of entries tracked by the cache (0 if the cache has no budget,
+   * since entries are only tracked for budgeted caches)
+   */
+  public int getNumEntries() {
+    return _index == null ? 0 : _index.size();
   }
 
   /**
@@ -178,35 +301,267 @@ public class OnDiskCache {
       Predicate<Path> conditionalOverwritePredicate,
       long lockTimeoutMillisOverride) throws Exception {
 
-    // determine path to entry directory and ensure existence (atomic)
+    // determine path to entry directory
     Path path = getEntryPath(cacheKey);
-    IoUtil.ensureCreation(Files::createDirectory, path);
 
-    // get a lock on this entry
-    try (DirectoryLock lock = new DirectoryLock(path, lockTimeoutMillisOverride, _lockPollFrequencyMillis)) {
+    // most requests only visit existing content, which any number of threads can do
+    //   at once, so start with a shared lock on this entry
+    DirectoryLock lock = lockEntry(path, lockTimeoutMillisOverride, true);
+    long millisWaited = lock.getMillisWaited();
+    try {
+      if (needsPopulation(path, conditionalOverwritePredicate)) {
+
+        // trade shared lock for an exclusive one, then decide again since another
+        //   thread may have populated the entry in between
+        lock.release();
+        lock = null;
+        lock = lockEntry(path, lockTimeoutMillisOverride, false);
+        millisWaited += lock.getMillisWaited();
+        if (needsPopulation(path, conditionalOverwritePredicate)) {
+          populate(cacheKey, path, cachePopulator, lock);
+        }
+        else {
+          recordHit(cacheKey, path);
+        }
+
+        // let other visitors in while this one visits
+        lock = lock.downgrade();
+      }
+      else {
+        recordHit(cacheKey, path);
+      }
+      if (millisWaited > 0) {
+        _stats.recordLockWait(TimeUnit.MILLISECONDS.toNanos(millisWaited));
+      }
+
+      // entry population complete (for better or worse); visit the produced files
+      return cacheVisitor.apply(path);
+    }
+    finally {
+      if (lock != null) {
+        lock.release();
+      }
+      // entry is now unlocked and can be evicted if it put the cache over budget
+      scheduleEviction();
+      scheduleIndexPersist();
+    }
+  }
+
+  private static boolean needsPopulation(Path path, Predicate<Path> conditionalOverwritePredicate) {
+    return (!isEntryComplete(path) && !isEntryFailed(path)) // either brand new entry or something has gone wrong
+        || conditionalOverwritePredicate.test(path);        // check if caller wants to overwrite
+  }
+
+  // (re)populates the entry directory; assumes the entry is exclusively locked
+  private void populate(String cacheKey, Path path, ConsumerWithException<Path> cachePopulator,
+      DirectoryLock lock) throws Exception {
+
+    // clear out the directory, except the lock file and the directory itself
+    IoUtil.deleteDirectoryTree(path, path, lock.getLockFile());
+
+    // populate the entry directory
+    _stats.recordMiss();
+    long loadStart = System.nanoTime();
+    try {
+      cachePopulator.accept(path);
+      setEntryComplete(path);
+      _stats.recordLoadSuccess(System.nanoTime() - loadStart);
+    }
+    catch (Exception e) {
+      // populator errored; write error file
+      _stats.recordLoadFailure(System.nanoTime() - loadStart);
+      setEntryFailed(path);
+      throw e;
+    }
+    finally {
+      // failed entries take up space too
+      updateIndex(cacheKey, path, true);
+    }
+  }
+
+  private void recordHit(String cacheKey, Path path) {
+    _stats.recordHit();
+    updateIndex(cacheKey, path, false);
+  }
 
-      // decide whether to overwrite this entry
-      if ((!isEntryComplete(path) && !isEntryFailed(path)) // either brand new entry or something has gone wrong
-          || conditionalOverwritePredicate.test(path)) {   // check if caller wants to overwrite
+  // ensures existence of the entry directory (atomic) and locks it, recreating the
+  //   directory if it is removed (e.g. evicted) while waiting for the lock
+  private DirectoryLock lockEntry(Path path, long lockTimeoutMillis, boolean shared) {
+    while (true) {
+      IoUtil.ensureCreation(Files::createDirectory, path);
+      try {
+        return shared ?
+            DirectoryLock.shared(path, _lockMode, lockTimeoutMillis, _lockPollFrequencyMillis) :
+            DirectoryLock.exclusive(path, _lockMode, lockTimeoutMillis, _lockPollFrequencyMillis);
+      }
+      catch (RuntimeException e) {
+        if (!(e.getCause() instanceof NoSuchFileException)) {
+          throw e;
+        }
+        // directory removed while we waited; try again
+      }
+    }
+  }
+
+  // records a population or access of a locked entry in the index, if the cache has one
+  private void updateIndex(String cacheKey, Path path, boolean populated) {
+    if (_index == null) {
+      return;
+    }
+    try {
+      if (populated) {
+        // index is persisted in the background (see scheduleIndexPersist())
+        _index.recordPopulation(cacheKey, path);
+      }
+      else {
+        _index.recordAccess(cacheKey, path);
+      }
+    }
+    catch (IOException e) {
+      // index is only used for eviction; do not fail the request
+      LOG.warn("Unable to index cache entry at " + path.toAbsolutePath(), e);
+    }
+  }
 
-        // clear out the directory, except the lock file and the directory itself
-        IoUtil.deleteDirectoryTree(path, path, lock.getLockFile());
+  private boolean isOverBudget() {
+    return _index != null && (
+        (_maxBytes > 0 && _index.getTotalBytes() > _maxBytes) ||
+        (_maxEntries > 0 && _index.size() > _maxEntries));
+  }
 
-        // populate the entry directory
+  // schedules a background eviction pass if the cache is over budget and one is not already pending
+  private void scheduleEviction() {
+    if (!isOverBudget() || !_evictionScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      EVICTION_EXECUTOR.execute(() -> {
+        // clear flag first so overages occurring during this pass schedule another
+        _evictionScheduled.set(false);
         try {
-          cachePopulator.accept(path);
-          setEntryComplete(path);
+          evictEntries();
         }
         catch (Exception e) {
-          // populator errored; write error file
-          setEntryFailed(path);
-          throw e;
+          LOG.warn("Unable to evict entries from on-disk cache in " + _parentDirectory, e);
         }
-      }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      _evictionScheduled.set(false);
+      LOG.warn("Unable to schedule eviction for on-disk cache in " + _parentDirectory, e);
+    }
+  }
 
-      // entry population complete (for better or worse); visit the produced files
-      return cacheVisitor.apply(path);
+  // schedules a background write of the index if it has one and a write is not already pending
+  private void scheduleIndexPersist() {
+    if (_index == null || !_indexPersistScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      EVICTION_EXECUTOR.schedule(() -> {
+        _indexPersistScheduled.set(false);
+        try {
+          persistIndex();
+        }
+        catch (Exception e) {
+          LOG.warn("Unable to persist index of on-disk cache in " + _parentDirectory, e);
+        }
+      }, INDEX_PERSIST_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    catch (RejectedExecutionException e) {
+      _indexPersistScheduled.set(false);
+      LOG.warn("Unable to schedule index write for on-disk cache in " + _parentDirectory, e);
+    }
+  }
+
+  /**
+   * Writes this cache's index to its file if it has changed since it was last written.
+   * This happens after each eviction pass and in the background shortly after
+   * populations, but can be called directly (e.g. before shutdown).  Does nothing if
+   * the cache has no budget.
+   *
+   * @throws IOException if unable to write the index
+   */
+  public void persistIndex() throws IOException {
+    if (_index != null) {
+      _index.persist();
+    }
+  }
+
+  /**
+   * Removes least recently accessed entries until the cache is within its budget, skipping
+   * entries that are currently locked, then persists the cache's index.  This normally
+   * happens in the background after a population puts the cache over budget, but can be
+   * called directly.  Does nothing if the cache has no budget.
+   *
+   * @return number of entries removed
+   * @throws IOException if unable to persist the index
+   */
+  public int evictEntries() throws IOException {
+    if (_index == null) {
+      return 0;
+    }
+    _evictionLock.lock();
+    try {
+      int numEvicted = 0;
+      for (IndexEntry entry : _index.getEntriesByLastAccess()) {
+        if (!isOverBudget()) {
+          break;
+        }
+        Path path = getEntryPath(entry.key);
+        if (!Files.isDirectory(path)) {
+          // removed by another process
+          _index.remove(entry.key);
+          continue;
+        }
+        Optional<DirectoryLock> lock = DirectoryLock.tryLock(path, _lockMode);
+        if (lock.isEmpty()) {
+          // in use; leave it for a later pass
+          continue;
+        }
+        // as in removeEntry(), delete everything but the lock first
+        try {
+          IoUtil.deleteDirectoryTree(path, path, lock.get().getLockFile());
+        }
+        catch (IOException e) {
+          lock.get().release();
+          LOG.warn("Unable to evict entry at " + path.toAbsolutePath(), e);
+          continue;
+        }
+        _index.remove(entry.key);
+        numEvicted++;
+        // then the lock and directory; once the lock is deleted another thread may
+        //   lock the directory to repopulate it, in which case it stays
+        try {
+          IoUtil.deleteDirectoryTree(path);
+        }
+        catch (IOException e) {
+          LOG.debug("Evicted entry directory " + path.toAbsolutePath() + " reused before it could be removed");
+        }
+      }
+      _stats.recordEvictions(numEvicted);
+      if (numEvicted > 0) {
+        LOG.debug("Evicted " + numEvicted + " entries from on-disk cache in " + _parentDirectory);
+      }
+      _index.persist();
+      return numEvicted;
     }
+    finally {
+      _evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Returns a snapshot of this cache's statistics.  A hit is a request for
+   * which existing entry content was used; a miss is one that (re)populated
+   * the entry.  Evictions are entries removed to keep the cache within its budget.
+   * Lock wait times are approximate (measured in poll intervals in LOCK_FILE mode).
+   *
+   * @return snapshot of this cache's statistics
+   */
+  @Override
+  public CacheStats getStatistics() {
+    return _stats.snapshot();
   }
 
   /**
@@ -223,6 +578,9 @@ public class OnDiskCache {
    * @throws IllegalArgumentException if cacheKey is not a valid potential cache key value
    */
   public Path getEntryPath(String cacheKey) {
+    if (DiskCacheIndex.INDEX_FILE.equals(cacheKey)) {
+      throw new IllegalArgumentException("Illegal cache key; '" + cacheKey + "' is reserved for the cache index");
+    }
     return mapException(() -> Paths.get(_parentDirectory.toString(), Objects.requireNonNull(cacheKey)),
         e -> new IllegalArgumentException("Illegal cache key; " + e.getMessage()));
   }
@@ -296,11 +654,14 @@ public class OnDiskCache {
     if (!Files.exists(path)) return;
 
     // get a lock on this entry
-    try (DirectoryLock lock = new DirectoryLock(path, _defaultLockTryTimeoutMillis, _lockPollFrequencyMillis)) {
+    try (DirectoryLock lock = DirectoryLock.exclusive(path, _lockMode, _defaultLockTryTimeoutMillis, _lockPollFrequencyMillis)) {
       // to minimize likelihood of a collision, delete everything but the lock in step one
       IoUtil.deleteDirectoryTree(path, path, lock.getLockFile());
       // then delete both the lock file and parent directory
       IoUtil.deleteDirectoryTree(path);
+      if (_index != null) {
+        _index.remove(cacheKey);
+      }
     }
     catch (Exception e) {
       throw (e instanceof RuntimeException) ? (RuntimeException)e :
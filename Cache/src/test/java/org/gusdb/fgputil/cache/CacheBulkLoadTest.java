@@ -0,0 +1,149 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+public class CacheBulkLoadTest {
+
+  // produces values for even keys only, recording each batch of keys requested
+  private static class EvenFactory implements BulkValueFactory<Integer,String> {
+
+    final List<Collection<Integer>> batches = new ArrayList<>();
+    final Map<Integer,AtomicInteger> loadCounts = new ConcurrentHashMap<>();
+    private final long _delayMillis;
+
+    EvenFactory(long delayMillis) {
+      _delayMillis = delayMillis;
+    }
+
+    @Override
+    public Map<Integer,String> getNewValues(Collection<Integer> keys) {
+      synchronized(batches) {
+        batches.add(new ArrayList<>(keys));
+      }
+      ThreadUtil.sleep(_delayMillis);
+      keys.forEach(key -> loadCounts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet());
+      return keys.stream()
+          .filter(key -> key % 2 == 0)
+          .collect(Collectors.toMap(key -> key, key -> String.valueOf(key)));
+    }
+  }
+
+  @Test
+  public void testGetAllWithBulkFactory() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    EvenFactory factory = new EvenFactory(0);
+    cache.getValue(2, factory);
+    cache.getValue(4, factory);
+    assertEquals(2, factory.batches.size());
+
+    Map<Integer,String> results = cache.getAll(Arrays.asList(8, 2, 6, 4, 10, 3), factory);
+
+    // one call for all missing keys; odd keys are omitted, order is preserved
+    assertEquals(3, factory.batches.size());
+    assertEquals(Arrays.asList(8, 6, 10, 3), factory.batches.get(2));
+    assertEquals(Arrays.asList(8, 2, 6, 4, 10), new ArrayList<>(results.keySet()));
+    assertEquals("6", results.get(6));
+    assertEquals(5, cache.getSize());
+    assertEquals(6, cache.getStatistics().getMissCount());
+  }
+
+  @Test
+  public void testSingleKeyWithoutValue() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    EvenFactory factory = new EvenFactory(0);
+    // omitted keys are absent rather than errors, as in getAll()
+    assertNull(cache.getValue(3, factory));
+    assertEquals(0, cache.getSize());
+    assertEquals("2", cache.getValue(2, factory));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void testGetAllWithSingleFactory() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    AtomicInteger numCalls = new AtomicInteger();
+    Map<Integer,String> results = cache.getAll(Arrays.asList(1, 2, 3), key -> {
+      numCalls.incrementAndGet();
+      return String.valueOf(key);
+    });
+    assertEquals(3, numCalls.get());
+    assertEquals(3, results.size());
+  }
+
+  @Test
+  public void testGetAllWaitsForInProgressLoad() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    EvenFactory factory = new EvenFactory(200);
+    Thread loader = new Thread(() -> {
+      try {
+        cache.getValue(2, factory);
+      }
+      catch (ValueProductionException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    loader.start();
+    ThreadUtil.sleep(50);
+    Map<Integer,String> results = cache.getAll(Arrays.asList(2, 4), factory);
+    loader.join();
+    assertEquals(2, results.size());
+    // key 2 was not loaded again by getAll
+    assertEquals(1, factory.loadCounts.get(2).get());
+    assertEquals(1, factory.loadCounts.get(4).get());
+  }
+
+  @Test
+  public void testAsyncLoadsCoalesce() throws Exception {
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      InMemoryCache<Integer,String> cache = new InMemoryCache<>(
+          new CacheConfig<Integer,String>().setExecutor(exec));
+      EvenFactory factory = new EvenFactory(200);
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(cache.getValueAsync(2, factory));
+      }
+      for (CompletableFuture<String> future : futures) {
+        assertEquals("2", future.join());
+      }
+      assertEquals(1, factory.loadCounts.get(2).get());
+
+      // cached value is returned in a completed future
+      CompletableFuture<String> cached = cache.getValueAsync(2, factory);
+      assertTrue(cached.isDone());
+      assertEquals("2", cached.join());
+
+      // keys without values complete with null; failures complete the future exceptionally
+      assertNull(cache.getValueAsync(3, factory).join());
+      try {
+        cache.getValueAsync(5, key -> { throw new ValueProductionException("No value for " + key); }).join();
+        fail("Failed load should complete exceptionally");
+      }
+      catch (CompletionException e) {
+        assertTrue(e.getCause() instanceof ValueProductionException);
+      }
+    }
+    finally {
+      exec.shutdown();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+public class CacheExpirationTest {
+
+  // returns the number of times a value has been produced for the key
+  private static class CountingFactory implements ValueFactory<Integer,String> {
+
+    private final AtomicInteger _numCalls = new AtomicInteger();
+    private final long _delayMillis;
+    private final boolean _supportsUpdates;
+
+    public CountingFactory(long delayMillis, boolean supportsUpdates) {
+      _delayMillis = delayMillis;
+      _supportsUpdates = supportsUpdates;
+    }
+
+    @Override
+    public String getNewValue(Integer key) {
+      ThreadUtil.sleep(_delayMillis);
+      return key + ":" + _numCalls.incrementAndGet();
+    }
+
+    @Override
+    public String getUpdatedValue(Integer key, String previousValue) throws ValueProductionException {
+      if (!_supportsUpdates) {
+        return ValueFactory.super.getUpdatedValue(key, previousValue);
+      }
+      ThreadUtil.sleep(_delayMillis);
+      return key + ":" + _numCalls.incrementAndGet() + ":updated";
+    }
+  }
+
+  @Test
+  public void testExpireAfterWrite() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(
+        new CacheConfig<Integer,String>().setExpireAfterWriteMillis(200));
+    CountingFactory factory = new CountingFactory(0, true);
+    assertEquals("1:1", cache.getValue(1, factory));
+    ThreadUtil.sleep(50);
+    assertEquals("1:1", cache.getValue(1, factory));
+    ThreadUtil.sleep(250);
+    assertEquals("1:2", cache.getValue(1, factory));
+  }
+
+  @Test
+  public void testExpireAfterAccess() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(
+        new CacheConfig<Integer,String>().setExpireAfterAccessMillis(300));
+    CountingFactory factory = new CountingFactory(0, true);
+    assertEquals("1:1", cache.getValue(1, factory));
+    // regular access keeps the value alive past the idle time
+    for (int i = 0; i < 5; i++) {
+      ThreadUtil.sleep(100);
+      assertEquals("1:1", cache.getValue(1, factory));
+    }
+    ThreadUtil.sleep(400);
+    assertEquals("1:2", cache.getValue(1, factory));
+  }
+
+  @Test
+  public void testRefreshAhead() throws Exception {
+    long refreshDelay = 500;
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(new CacheConfig<Integer,String>()
+        .setRefreshAfterWriteMillis(100)
+        .setExpireAfterWriteMillis(5000));
+    CountingFactory factory = new CountingFactory(refreshDelay, true);
+    assertEquals("1:1", cache.getValue(1, factory));
+    ThreadUtil.sleep(150);
+
+    // refresh is due; old value should be returned without waiting for it
+    long start = System.currentTimeMillis();
+    assertEquals("1:1", cache.getValue(1, factory));
+    assertEquals("1:1", cache.getValue(1, factory));
+    assertTrue(System.currentTimeMillis() - start < refreshDelay);
+
+    // once refresh completes, the updated value is returned
+    ThreadUtil.sleep(refreshDelay + 200);
+    assertEquals("1:2:updated", cache.getValue(1, factory));
+  }
+
+  @Test
+  public void testRefreshWithoutUpdateSupport() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(
+        new CacheConfig<Integer,String>().setRefreshAfterWriteMillis(100));
+    CountingFactory factory = new CountingFactory(0, false);
+    assertEquals("1:1", cache.getValue(1, factory));
+    ThreadUtil.sleep(150);
+    assertEquals("1:1", cache.getValue(1, factory));
+    ThreadUtil.sleep(200);
+    assertEquals("1:2", cache.getValue(1, factory));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRefreshAfterExpiration() {
+    new InMemoryCache<Integer,String>(new CacheConfig<Integer,String>()
+        .setRefreshAfterWriteMillis(1000)
+        .setExpireAfterWriteMillis(500));
+  }
+}
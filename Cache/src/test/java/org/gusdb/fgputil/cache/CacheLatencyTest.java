@@ -0,0 +1,81 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Compares getValue() calls on a full cache under bulk and incremental
+ * trimming.  Uses the default capacity and trim size in a single segment,
+ * so a bulk trim removes 700 entries at once.  Latencies are only logged
+ * since they depend on the machine; the test checks how many entries any
+ * single call had to evict.
+ */
+public class CacheLatencyTest {
+
+  private static final Logger LOG = Logger.getLogger(CacheLatencyTest.class);
+
+  private static final int NUM_WARMUP_OPS = 50000;
+  private static final int NUM_MEASURED_OPS = 200000;
+
+  private static final ValueFactory<Integer,String> FACTORY = key -> String.valueOf(key);
+
+  @Test
+  public void testTrimmingLatency() throws Exception {
+    InMemoryCache<Integer,String> bulk = new InMemoryCache<>(new CacheConfig<Integer,String>()
+        .setConcurrencyLevel(1));
+    InMemoryCache<Integer,String> incremental = new InMemoryCache<>(new CacheConfig<Integer,String>()
+        .setConcurrencyLevel(1)
+        .setIncrementalTrimming(true));
+
+    long[] bulkLatencies = new long[NUM_MEASURED_OPS];
+    long[] incrementalLatencies = new long[NUM_MEASURED_OPS];
+    long bulkMaxEvicted = measure(bulk, bulkLatencies);
+    long incrementalMaxEvicted = measure(incremental, incrementalLatencies);
+
+    long bulkP999 = percentile(bulkLatencies, 99.9);
+    long incrementalP999 = percentile(incrementalLatencies, 99.9);
+    LOG.info("Bulk trimming latency (ns): p50=" + percentile(bulkLatencies, 50) +
+        ", p99=" + percentile(bulkLatencies, 99) + ", p99.9=" + bulkP999);
+    LOG.info("Incremental trimming latency (ns): p50=" + percentile(incrementalLatencies, 50) +
+        ", p99=" + percentile(incrementalLatencies, 99) + ", p99.9=" + incrementalP999);
+
+    // incremental trimming keeps the cache full and never makes a single call
+    //   pay for more than one eviction, where bulk trimming drops 700 at once
+    assertEquals(InMemoryCache.DEFAULT_CAPACITY, incremental.getSize());
+    assertEquals(1, incremental.getNumToTrimOnCapacity());
+    assertEquals(1, incrementalMaxEvicted);
+    assertEquals(InMemoryCache.DEFAULT_NUM_TO_TRIM_ON_CAPACITY, bulkMaxEvicted);
+  }
+
+  // every request is for a new key, so every request inserts and, once full,
+  //   trims; fills the passed array with latencies and returns the largest
+  //   number of entries evicted by a single request
+  private static long measure(InMemoryCache<Integer,String> cache, long[] latencies) throws Exception {
+    int key = 0;
+    for (int i = 0; i < NUM_WARMUP_OPS; i++) {
+      cache.getValue(key++, FACTORY);
+    }
+    long maxEvicted = 0;
+    long evictionCount = cache.getStatistics().getEvictionCount();
+    for (int i = 0; i < latencies.length; i++) {
+      long start = System.nanoTime();
+      cache.getValue(key++, FACTORY);
+      latencies[i] = System.nanoTime() - start;
+      long newEvictionCount = cache.getStatistics().getEvictionCount();
+      maxEvicted = Math.max(maxEvicted, newEvictionCount - evictionCount);
+      evictionCount = newEvictionCount;
+    }
+    return maxEvicted;
+  }
+
+  private static long percentile(long[] values, double percentile) {
+    long[] sorted = Arrays.copyOf(values, values.length);
+    Arrays.sort(sorted);
+    int index = (int)Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+}
@@ -0,0 +1,124 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.gusdb.fgputil.IoUtil;
+import org.gusdb.fgputil.cache.disk.OnDiskCache;
+import org.gusdb.fgputil.cache.disk.OnDiskCache.Overwrite;
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+public class CacheStatsTest {
+
+  private static final ValueFactory<Integer,String> FACTORY = key -> String.valueOf(key);
+
+  @Test
+  public void testInMemoryCacheStats() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(10, 5);
+    for (int i = 0; i < 10; i++) {
+      cache.getValue(i, FACTORY);
+    }
+    for (int i = 0; i < 10; i++) {
+      cache.getValue(i, FACTORY);
+    }
+    // 11th entry trims 5
+    cache.getValue(10, FACTORY);
+    try {
+      cache.getValue(11, key -> { throw new ValueProductionException("fail"); });
+    }
+    catch (ValueProductionException e) {
+      // expected
+    }
+
+    CacheStats stats = cache.getStatistics();
+    assertEquals(10, stats.getHitCount());
+    assertEquals(12, stats.getMissCount());
+    assertEquals(22, stats.getRequestCount());
+    assertEquals(11, stats.getLoadSuccessCount());
+    assertEquals(1, stats.getLoadFailureCount());
+    assertEquals(5, stats.getEvictionCount());
+    assertTrue(stats.getTotalLoadTimeNanos() > 0);
+  }
+
+  @Test
+  public void testLockWaits() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    ValueFactory<Integer,String> slowFactory = key -> {
+      ThreadUtil.sleep(200);
+      return String.valueOf(key);
+    };
+    Thread loader = new Thread(() -> {
+      try {
+        cache.getValue(1, slowFactory);
+      }
+      catch (ValueProductionException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    loader.start();
+    ThreadUtil.sleep(50);
+    // waits for loader thread, then gets its value
+    assertEquals("1", cache.getValue(1, slowFactory));
+    loader.join();
+
+    CacheStats stats = cache.getStatistics();
+    assertEquals(1, stats.getMissCount());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getLockWaitCount());
+    assertTrue(stats.getTotalLockWaitTimeNanos() > 50_000_000);
+  }
+
+  @Test
+  public void testDisabledStats() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(
+        new CacheConfig<Integer,String>().setRecordStats(false));
+    cache.getValue(1, FACTORY);
+    cache.getValue(1, FACTORY);
+    assertEquals(0, cache.getStatistics().getRequestCount());
+  }
+
+  @Test
+  public void testJmxRegistration() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    cache.getValue(1, FACTORY);
+    cache.getValue(1, FACTORY);
+    ObjectName name = CacheStatsMXBeans.register("test-cache", cache);
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      assertEquals(1L, server.getAttribute(name, "HitCount"));
+      assertEquals(1L, server.getAttribute(name, "MissCount"));
+      assertEquals(0.5, (Double)server.getAttribute(name, "HitRate"), 0.0001);
+    }
+    finally {
+      CacheStatsMXBeans.unregister("test-cache");
+    }
+    assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+
+  @Test
+  public void testOnDiskCacheStats() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheStatsTest-");
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, 1000, 10);
+      for (int i = 0; i < 3; i++) {
+        cache.populateAndProcessContent("key", dir -> {}, dir -> true, Overwrite.NO);
+      }
+      cache.visitContent("key", dir -> true);
+      CacheStats stats = cache.getStatistics();
+      assertEquals(1, stats.getMissCount());
+      assertEquals(3, stats.getHitCount());
+      assertEquals(1, stats.getLoadSuccessCount());
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+}
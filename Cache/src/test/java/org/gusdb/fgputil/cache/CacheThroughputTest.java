@@ -0,0 +1,195 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.cache.CacheConfig.EvictionPolicy;
+import org.junit.Test;
+
+/**
+ * Compares the multi-threaded throughput of InMemoryCache against the
+ * original single-lock implementation (reproduced below as GlobalLockCache).
+ * Timings are logged rather than asserted since they depend on the machine
+ * running the test; correctness of every returned value is asserted.
+ */
+public class CacheThroughputTest {
+
+  private static final Logger LOG = Logger.getLogger(CacheThroughputTest.class);
+
+  // tuning parameters; for more rigorous testing, edit these values.  Reduced for test runtime.
+  private static final int NUM_THREADS = 8;
+  private static final int NUM_OPS_PER_THREAD = 200000;
+  private static final int NUM_UNIQUE_KEYS = 2500;
+  private static final int CAPACITY = 2000;
+  private static final int NUM_TO_TRIM = 200;
+
+  @FunctionalInterface
+  private interface Cache {
+    String get(Integer key, ValueFactory<Integer,String> factory) throws ValueProductionException;
+  }
+
+  /**
+   * Copy of the original InMemoryCache algorithm: a global lock guards an
+   * access-ordered LinkedHashMap and is taken on every lookup.
+   */
+  private static class GlobalLockCache {
+
+    private static class ValueContainer {
+      Lock lock = new ReentrantLock();
+      String value = null;
+    }
+
+    private final Map<Integer, ValueContainer> _cache = new LinkedHashMap<>();
+    private final Lock _cacheLock = new ReentrantLock();
+
+    public String getValue(Integer key, ValueFactory<Integer,String> factory) throws ValueProductionException {
+      ValueContainer container = getValueContainerById(key);
+      try {
+        container.lock.lock();
+        if (container.value == null) {
+          container.value = factory.getNewValue(key);
+        }
+        try {
+          _cacheLock.lock();
+          _cache.remove(key);
+          _cache.put(key, container);
+        }
+        finally {
+          _cacheLock.unlock();
+        }
+        return container.value;
+      }
+      finally {
+        container.lock.unlock();
+      }
+    }
+
+    private ValueContainer getValueContainerById(Integer key) {
+      ValueContainer container = _cache.get(key);
+      if (container == null) {
+        try {
+          _cacheLock.lock();
+          container = _cache.get(key);
+          if (container == null) {
+            container = new ValueContainer();
+            _cache.put(key, container);
+            if (_cache.size() > CAPACITY) {
+              List<Integer> allKeys = new ArrayList<>(_cache.keySet());
+              for (int i = 0; i < NUM_TO_TRIM; i++) {
+                _cache.remove(allKeys.get(i));
+              }
+            }
+          }
+        }
+        finally {
+          _cacheLock.unlock();
+        }
+      }
+      return container;
+    }
+  }
+
+  @Test
+  public void compareThroughput() throws Exception {
+    GlobalLockCache original = new GlobalLockCache();
+    InMemoryCache<Integer,String> lru = new InMemoryCache<>(CAPACITY, NUM_TO_TRIM);
+    InMemoryCache<Integer,String> slru = new InMemoryCache<>(new CacheConfig<Integer,String>()
+        .setCapacity(CAPACITY)
+        .setNumToTrimOnCapacity(NUM_TO_TRIM)
+        .setEvictionPolicy(EvictionPolicy.SEGMENTED_LRU));
+
+    // warm up all three before measuring
+    runWorkload(original::getValue, new AtomicInteger());
+    runWorkload(lru::getValue, new AtomicInteger());
+    runWorkload(slru::getValue, new AtomicInteger());
+
+    long originalOpsPerSec = measure("original", original::getValue);
+    long lruOpsPerSec = measure("striped LRU", lru::getValue);
+    long slruOpsPerSec = measure("striped SLRU", slru::getValue);
+
+    LOG.info("Speedup over original: LRU " + ((double)lruOpsPerSec / originalOpsPerSec) +
+        "x, SLRU " + ((double)slruOpsPerSec / originalOpsPerSec) + "x");
+  }
+
+  @Test
+  public void testSingleFlightLoading() throws Exception {
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>();
+    AtomicInteger numLoads = new AtomicInteger();
+    ValueFactory<Integer,String> slowFactory = key -> {
+      numLoads.incrementAndGet();
+      try {
+        Thread.sleep(100);
+      }
+      catch (InterruptedException e) {
+        throw new ValueProductionException(e);
+      }
+      return String.valueOf(key);
+    };
+    ExecutorService exec = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < NUM_THREADS; i++) {
+        results.add(exec.submit(() -> cache.getValue(1, slowFactory)));
+      }
+      for (Future<String> result : results) {
+        assertEquals("1", result.get());
+      }
+      assertEquals(1, numLoads.get());
+    }
+    finally {
+      exec.shutdown();
+    }
+  }
+
+  private static long measure(String name, Cache cache) throws Exception {
+    AtomicInteger numLoads = new AtomicInteger();
+    long start = System.nanoTime();
+    runWorkload(cache, numLoads);
+    long durationNanos = System.nanoTime() - start;
+    long opsPerSec = (long)(NUM_THREADS * (double)NUM_OPS_PER_THREAD * 1000000000 / durationNanos);
+    LOG.info(name + ": " + opsPerSec + " ops/sec over " + NUM_THREADS +
+        " threads, " + numLoads.get() + " loads");
+    return opsPerSec;
+  }
+
+  private static void runWorkload(Cache cache, AtomicInteger numLoads) throws Exception {
+    ValueFactory<Integer,String> factory = key -> {
+      numLoads.incrementAndGet();
+      return String.valueOf(key);
+    };
+    ExecutorService exec = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < NUM_THREADS; i++) {
+        long seed = i;
+        results.add(exec.submit(() -> {
+          Random random = new Random(seed);
+          for (int j = 0; j < NUM_OPS_PER_THREAD; j++) {
+            // skew requests toward low keys so some entries are hot
+            int key = (int)(NUM_UNIQUE_KEYS * Math.pow(random.nextDouble(), 3));
+            assertEquals(String.valueOf(key), cache.get(key, factory));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    }
+    finally {
+      exec.shutdown();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CacheWeightTest {
+
+  // values are strings of the length given by the key
+  private static final ValueFactory<Integer,String> FACTORY = length -> "x".repeat(length);
+
+  @Test
+  public void testWeightLimit() throws Exception {
+    // single segment so eviction order is strictly least recently used
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(new CacheConfig<Integer,String>()
+        .setCapacity(Integer.MAX_VALUE)
+        .setConcurrencyLevel(1)
+        .setMaxWeight((key, value) -> value.length(), 1000));
+    for (int i = 1; i <= 100; i++) {
+      cache.getValue(i, FACTORY);
+      assertTrue(cache.getTotalWeight() <= 1000);
+    }
+    // least recently accessed (short) values are discarded first
+    assertEquals(10, cache.getSize());
+    assertEquals(955, cache.getTotalWeight());
+
+    // one large value pushes out everything else
+    cache.getValue(1000, FACTORY);
+    assertEquals(1, cache.getSize());
+    assertEquals(1000, cache.getTotalWeight());
+
+    // removing an entry releases its weight
+    cache.expireEntries(1000);
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  public void testEstimatedHeapSize() throws Exception {
+    long maxBytes = 1024 * 1024;
+    InMemoryCache<Integer,String> cache = new InMemoryCache<>(new CacheConfig<Integer,String>()
+        .setCapacity(Integer.MAX_VALUE)
+        .setMaxWeight(Weigher.estimatedHeapSize(), maxBytes));
+    for (int i = 0; i < 1000; i++) {
+      cache.getValue(10000 + i, FACTORY);
+    }
+    // each value is ~10KB, so around 100 should fit
+    assertTrue(cache.getTotalWeight() <= maxBytes);
+    assertTrue(cache.getSize() > 50 && cache.getSize() < 105);
+  }
+}
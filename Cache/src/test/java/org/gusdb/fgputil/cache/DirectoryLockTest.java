@@ -0,0 +1,238 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.IoUtil;
+import org.gusdb.fgputil.cache.disk.DirectoryLock;
+import org.gusdb.fgputil.cache.disk.DirectoryLock.DirectoryLockTimeoutException;
+import org.gusdb.fgputil.cache.disk.DirectoryLock.LockMode;
+import org.gusdb.fgputil.cache.disk.OnDiskCache;
+import org.gusdb.fgputil.cache.disk.OnDiskCache.Overwrite;
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+public class DirectoryLockTest {
+
+  private static final Logger LOG = Logger.getLogger(DirectoryLockTest.class);
+
+  private static final long TIMEOUT_MILLIS = 5000;
+  private static final long POLL_FREQUENCY_MILLIS = 100;
+  private static final int NUM_HANDOFFS = 20;
+
+  // long enough that a waiter woken by its next poll is easily told apart
+  //   from one signaled on release, even on a loaded machine
+  private static final long SLOW_POLL_FREQUENCY_MILLIS = 5000;
+
+  /**
+   * Run in a separate JVM: locks the passed directory, announces it, then
+   * waits to be killed.
+   */
+  public static class LockHolder {
+    public static void main(String[] args) throws Exception {
+      DirectoryLock.exclusive(Paths.get(args[0]), LockMode.FILE_CHANNEL, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
+      System.out.println("locked");
+      System.out.flush();
+      Thread.sleep(Long.MAX_VALUE);
+    }
+  }
+
+  @Test
+  public void testHandoffLatency() throws Exception {
+    long lockFileNanos = measureHandoffNanos(LockMode.LOCK_FILE);
+    long channelNanos = measureHandoffNanos(LockMode.FILE_CHANNEL);
+    LOG.info("Average handoff latency: LOCK_FILE " + lockFileNanos / 1000 +
+        "us, FILE_CHANNEL " + channelNanos / 1000 + "us");
+  }
+
+  @Test
+  public void testWaitersSignaledOnRelease() throws Exception {
+    Path dir = Files.createTempDirectory("directoryLockTest-");
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      DirectoryLock held = DirectoryLock.exclusive(dir, LockMode.FILE_CHANNEL, 0, SLOW_POLL_FREQUENCY_MILLIS);
+      Future<Long> waiter = exec.submit(() -> {
+        DirectoryLock lock = DirectoryLock.exclusive(dir, LockMode.FILE_CHANNEL,
+            2 * SLOW_POLL_FREQUENCY_MILLIS, SLOW_POLL_FREQUENCY_MILLIS);
+        long acquireTime = System.nanoTime();
+        lock.release();
+        return acquireTime;
+      });
+      // let the waiter fail its first attempt and start waiting for the next poll
+      ThreadUtil.sleep(100);
+      long releaseTime = System.nanoTime();
+      held.release();
+      // in-process waiters are signaled rather than waiting for the next poll
+      long handoffMillis = TimeUnit.NANOSECONDS.toMillis(waiter.get() - releaseTime);
+      assertTrue("Waiter got lock " + handoffMillis + "ms after release",
+          handoffMillis < SLOW_POLL_FREQUENCY_MILLIS / 2);
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(dir);
+    }
+  }
+
+  // returns the average time between one thread releasing a lock and a waiting thread getting it
+  private static long measureHandoffNanos(LockMode mode) throws Exception {
+    Path dir = Files.createTempDirectory("directoryLockTest-");
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      long totalNanos = 0;
+      for (int i = 0; i < NUM_HANDOFFS; i++) {
+        DirectoryLock held = DirectoryLock.exclusive(dir, mode, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
+        AtomicLong releaseTime = new AtomicLong();
+        Future<Long> waiter = exec.submit(() -> {
+          DirectoryLock lock = DirectoryLock.exclusive(dir, mode, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
+          long acquireTime = System.nanoTime();
+          lock.release();
+          return acquireTime;
+        });
+        // vary the point in the waiter's poll interval at which the lock is released
+        ThreadUtil.sleep(10 + (i * POLL_FREQUENCY_MILLIS / NUM_HANDOFFS));
+        releaseTime.set(System.nanoTime());
+        held.release();
+        totalNanos += waiter.get() - releaseTime.get();
+      }
+      return totalNanos / NUM_HANDOFFS;
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(dir);
+    }
+  }
+
+  @Test
+  public void testSharedAndExclusiveLocks() throws Exception {
+    Path dir = Files.createTempDirectory("directoryLockTest-");
+    try {
+      DirectoryLock shared1 = DirectoryLock.shared(dir, LockMode.FILE_CHANNEL, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
+      DirectoryLock shared2 = DirectoryLock.shared(dir, LockMode.FILE_CHANNEL, 0, POLL_FREQUENCY_MILLIS);
+      assertFalse(DirectoryLock.tryLock(dir, LockMode.FILE_CHANNEL).isPresent());
+      shared1.release();
+      assertFalse(DirectoryLock.tryLock(dir, LockMode.FILE_CHANNEL).isPresent());
+      shared2.release();
+
+      // downgraded lock still excludes writers but admits readers
+      Optional<DirectoryLock> exclusive = DirectoryLock.tryLock(dir, LockMode.FILE_CHANNEL);
+      assertTrue(exclusive.isPresent());
+      DirectoryLock downgraded = exclusive.get().downgrade();
+      assertTrue(downgraded.isShared());
+      assertFalse(DirectoryLock.tryLock(dir, LockMode.FILE_CHANNEL).isPresent());
+      DirectoryLock.shared(dir, LockMode.FILE_CHANNEL, 0, POLL_FREQUENCY_MILLIS).release();
+      downgraded.release();
+
+      Optional<DirectoryLock> last = DirectoryLock.tryLock(dir, LockMode.FILE_CHANNEL);
+      assertTrue(last.isPresent());
+      last.get().release();
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(dir);
+    }
+  }
+
+  @Test(expected = DirectoryLockTimeoutException.class)
+  public void testTimeout() throws Exception {
+    Path dir = Files.createTempDirectory("directoryLockTest-");
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try (DirectoryLock lock = DirectoryLock.exclusive(dir, LockMode.FILE_CHANNEL, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS)) {
+      Future<?> waiter = exec.submit(() ->
+          DirectoryLock.exclusive(dir, LockMode.FILE_CHANNEL, 50, POLL_FREQUENCY_MILLIS));
+      try {
+        waiter.get();
+      }
+      catch (Exception e) {
+        throw (Exception)e.getCause();
+      }
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(dir);
+    }
+  }
+
+  @Test
+  public void testLockReleasedWhenProcessDies() throws Exception {
+    Path dir = Files.createTempDirectory("directoryLockTest-");
+    Process holder = new ProcessBuilder(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"),
+        LockHolder.class.getName(), dir.toString())
+        .redirectErrorStream(true)
+        .start();
+    try {
+      BufferedReader out = new BufferedReader(new InputStreamReader(holder.getInputStream()));
+      String line;
+      while ((line = out.readLine()) != null && !line.equals("locked")) {
+        LOG.info("Lock holder: " + line);
+      }
+      assertEquals("locked", line);
+
+      // locked by the other process
+      assertFalse(DirectoryLock.tryLock(dir, LockMode.FILE_CHANNEL).isPresent());
+
+      // kill the holder without letting it release the lock; OS releases it
+      holder.destroyForcibly().waitFor();
+      DirectoryLock lock = DirectoryLock.exclusive(dir, LockMode.FILE_CHANNEL, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
+      lock.release();
+    }
+    finally {
+      holder.destroyForcibly();
+      IoUtil.deleteDirectoryTree(dir);
+    }
+  }
+
+  @Test
+  public void testOnDiskCacheWithFileChannelLocks() throws Exception {
+    Path parentDir = Files.createTempDirectory("directoryLockTest-");
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 2, LockMode.FILE_CHANNEL);
+      cache.populateAndProcessContent("a", dir -> Files.write(dir.resolve("data"), new byte[10]), dir -> true, Overwrite.NO);
+
+      // concurrent visitors overlap
+      CountDownLatch allVisiting = new CountDownLatch(4);
+      Future<?>[] visits = new Future<?>[4];
+      for (int i = 0; i < visits.length; i++) {
+        visits[i] = exec.submit(() -> cache.visitContent("a", dir -> {
+          allVisiting.countDown();
+          assertTrue(allVisiting.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+          return Files.size(dir.resolve("data"));
+        }));
+      }
+      for (Future<?> visit : visits) {
+        assertEquals(10L, visit.get());
+      }
+
+      // eviction and removal lock entries the same way
+      for (String key : new String[]{ "b", "c" }) {
+        ThreadUtil.sleep(5);
+        cache.populateAndProcessContent(key, dir -> {}, dir -> true, Overwrite.NO);
+      }
+      cache.evictEntries();
+      assertFalse(Files.exists(parentDir.resolve("a")));
+      cache.removeEntry("b");
+      assertFalse(Files.exists(parentDir.resolve("b")));
+      assertTrue(cache.populateAndProcessContent("b", dir -> {}, OnDiskCache::isEntryComplete, Overwrite.NO));
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.gusdb.fgputil.IoUtil;
+import org.gusdb.fgputil.cache.disk.OnDiskCache;
+import org.gusdb.fgputil.cache.disk.OnDiskCache.Overwrite;
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+public class DiskCacheEvictionTest {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+  private static final long POLL_FREQUENCY_MILLIS = 10;
+  private static final int ENTRY_SIZE = 1000;
+
+  // populates an entry with a single file of ENTRY_SIZE bytes
+  private static void populate(OnDiskCache cache, String key) throws Exception {
+    cache.populateAndProcessContent(key,
+        dir -> Files.write(dir.resolve("data"), new byte[ENTRY_SIZE]),
+        dir -> true, Overwrite.NO);
+    // keep access times distinct
+    ThreadUtil.sleep(5);
+  }
+
+  private static void visit(OnDiskCache cache, String key) throws Exception {
+    cache.visitContent(key, dir -> true);
+    ThreadUtil.sleep(5);
+  }
+
+  private static boolean exists(Path parentDir, String key) {
+    return Files.isDirectory(parentDir.resolve(key));
+  }
+
+  @Test
+  public void testEntryBudget() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 3);
+      for (String key : new String[]{ "a", "b", "c" }) {
+        populate(cache, key);
+      }
+      // make a the most recently accessed
+      visit(cache, "a");
+      populate(cache, "d");
+      populate(cache, "e");
+      cache.evictEntries();
+
+      assertEquals(3, cache.getNumEntries());
+      assertTrue(exists(parentDir, "a"));
+      assertFalse(exists(parentDir, "b"));
+      assertFalse(exists(parentDir, "c"));
+      assertTrue(exists(parentDir, "d"));
+      assertTrue(exists(parentDir, "e"));
+      assertEquals(2, cache.getStatistics().getEvictionCount());
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test
+  public void testByteBudget() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, (long)(2.5 * ENTRY_SIZE), 0);
+      for (int i = 0; i < 5; i++) {
+        populate(cache, String.valueOf(i));
+      }
+      cache.evictEntries();
+      assertEquals(2 * ENTRY_SIZE, cache.getTotalBytes());
+      for (int i = 0; i < 5; i++) {
+        assertEquals(i >= 3, exists(parentDir, String.valueOf(i)));
+      }
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test
+  public void testBackgroundEviction() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 2);
+      for (int i = 0; i < 10; i++) {
+        populate(cache, String.valueOf(i));
+      }
+      for (int i = 0; i < 100 && cache.getNumEntries() > 2; i++) {
+        ThreadUtil.sleep(20);
+      }
+      assertEquals(2, cache.getNumEntries());
+      assertTrue(exists(parentDir, "9"));
+      assertFalse(exists(parentDir, "0"));
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test
+  public void testLockedEntriesNotEvicted() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 2);
+      populate(cache, "a");
+
+      // hold a visitor open on the oldest entry while the cache goes over budget
+      CountDownLatch visiting = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Future<Boolean> visitor = exec.submit(() -> cache.visitContent("a", dir -> {
+        visiting.countDown();
+        release.await();
+        return Files.exists(dir.resolve("data"));
+      }));
+      visiting.await();
+      ThreadUtil.sleep(5);
+      populate(cache, "b");
+      populate(cache, "c");
+      cache.evictEntries();
+      assertTrue(exists(parentDir, "a"));
+      assertFalse(exists(parentDir, "b"));
+      assertTrue(exists(parentDir, "c"));
+
+      // once released, the visit completes with its content intact
+      release.countDown();
+      assertTrue(visitor.get());
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test
+  public void testPersistentIndex() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 10);
+      populate(cache, "b");
+      populate(cache, "a");
+      // populations do not write the index themselves
+      assertFalse(Files.exists(parentDir.resolve(".index")));
+      cache.persistIndex();
+      // directory times alone would suggest a is older than b
+      setModifiedTime(parentDir.resolve("a"), 0);
+
+      // a new cache instance with a smaller budget uses the persisted access times
+      //   (and starts evicting in the background immediately)
+      OnDiskCache reloaded = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 1);
+      reloaded.evictEntries();
+      assertEquals(1, reloaded.getNumEntries());
+      assertEquals(ENTRY_SIZE, reloaded.getTotalBytes());
+      assertTrue(exists(parentDir, "a"));
+      assertFalse(exists(parentDir, "b"));
+      assertEquals(List.of(".index"), listFiles(parentDir));
+
+      // removing all entries leaves the index file but empties the index
+      reloaded.removeAllEntries();
+      assertEquals(0, reloaded.getNumEntries());
+      assertEquals(0, reloaded.getTotalBytes());
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test
+  public void testConcurrentInstancesPersistIndex() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try {
+      // two instances stand in for two processes sharing the directory
+      List<OnDiskCache> caches = new ArrayList<>();
+      List<Future<?>> populations = new ArrayList<>();
+      for (String prefix : new String[]{ "x", "y" }) {
+        OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 100);
+        caches.add(cache);
+        populations.add(exec.submit(() -> {
+          for (int i = 0; i < 20; i++) {
+            cache.populateAndProcessContent(prefix + i,
+                dir -> Files.write(dir.resolve("data"), new byte[ENTRY_SIZE]),
+                dir -> true, Overwrite.NO);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> population : populations) {
+        population.get();
+      }
+      // each instance writes its own view; the last write wins
+      for (OnDiskCache cache : caches) {
+        cache.persistIndex();
+      }
+      // no temporary index files left behind
+      assertEquals(List.of(".index"), listFiles(parentDir));
+      assertEquals(40, new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 100).getNumEntries());
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIndexFileNameNotAKey() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheEvictionTest-");
+    try {
+      new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS, 0, 10).getEntryPath(".index");
+    }
+    finally {
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  // returns the names of the plain files in the passed directory
+  private static List<String> listFiles(Path dir) throws IOException {
+    try (Stream<Path> children = Files.list(dir)) {
+      return children.filter(Files::isRegularFile)
+          .map(path -> path.getFileName().toString())
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static void setModifiedTime(Path path, long millis) throws IOException {
+    Files.setLastModifiedTime(path, FileTime.fromMillis(millis));
+  }
+}
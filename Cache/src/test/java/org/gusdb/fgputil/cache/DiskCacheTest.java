@@ -12,10 +12,14 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.gusdb.fgputil.IoUtil;
@@ -134,6 +138,88 @@ public class DiskCacheTest {
     System.out.println("Test took " + t.getElapsedString());
   }
 
+  @Test
+  public void testConcurrentVisits() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheTest-");
+    ExecutorService exec = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
+      cache.populateAndProcessContent("key", dir -> {}, dir -> true, Overwrite.NO);
+
+      // each visitor waits inside the entry until all visitors are inside, which
+      //   is only possible if their visits overlap
+      CountDownLatch allVisiting = new CountDownLatch(NUM_THREADS);
+      AtomicInteger numVisiting = new AtomicInteger();
+      AtomicInteger maxVisiting = new AtomicInteger();
+      AtomicLong latestStart = new AtomicLong();
+      AtomicLong earliestEnd = new AtomicLong(Long.MAX_VALUE);
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < NUM_THREADS; i++) {
+        results.add(exec.submit(() -> cache.visitContent("key", dir -> {
+          latestStart.accumulateAndGet(System.nanoTime(), Math::max);
+          maxVisiting.accumulateAndGet(numVisiting.incrementAndGet(), Math::max);
+          allVisiting.countDown();
+          boolean overlapped = allVisiting.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+          numVisiting.decrementAndGet();
+          earliestEnd.accumulateAndGet(System.nanoTime(), Math::min);
+          return overlapped;
+        })));
+      }
+      for (Future<Boolean> result : results) {
+        Assert.assertTrue(result.get());
+      }
+      Assert.assertEquals(NUM_THREADS, maxVisiting.get());
+      Assert.assertTrue(latestStart.get() <= earliestEnd.get());
+      System.out.println("All " + NUM_THREADS + " visits overlapped for " +
+          ((earliestEnd.get() - latestStart.get()) / 1000) + "us");
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
+  @Test
+  public void testPopulationExcludesVisitors() throws Exception {
+    Path parentDir = Files.createTempDirectory("diskCacheTest-");
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try {
+      OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, 10);
+      cache.populateAndProcessContent("key", dir -> {}, dir -> true, Overwrite.NO);
+
+      // hold a visit open, then request an overwrite
+      CountDownLatch visiting = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicLong visitEnd = new AtomicLong();
+      AtomicLong populateStart = new AtomicLong();
+      Future<Boolean> visitor = exec.submit(() -> cache.visitContent("key", dir -> {
+        visiting.countDown();
+        release.await();
+        visitEnd.set(System.nanoTime());
+        return true;
+      }));
+      visiting.await();
+      Future<Boolean> writer = exec.submit(() -> cache.populateAndProcessContent("key",
+          dir -> populateStart.set(System.nanoTime()), dir -> true, Overwrite.YES));
+
+      // writer must wait for the visit to finish
+      ThreadUtil.sleep(100);
+      Assert.assertEquals(0, populateStart.get());
+      release.countDown();
+      Assert.assertTrue(visitor.get());
+      Assert.assertTrue(writer.get());
+      Assert.assertTrue(populateStart.get() > visitEnd.get());
+
+      // no lock files are left behind
+      Assert.assertEquals(0, Files.list(parentDir.resolve("key"))
+          .filter(file -> file.getFileName().toString().startsWith(".lock")).count());
+    }
+    finally {
+      exec.shutdown();
+      IoUtil.deleteDirectoryTree(parentDir);
+    }
+  }
+
   public boolean isValidAndUpToDate(Path parentDir, String cacheKey, String newDataDigestValue) throws Exception {
     OnDiskCache cache = new OnDiskCache(parentDir, TIMEOUT_MILLIS, POLL_FREQUENCY_MILLIS);
     return cache.visitContent(cacheKey, dir -> {
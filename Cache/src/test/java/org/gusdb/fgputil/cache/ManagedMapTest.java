@@ -0,0 +1,182 @@
+package org.gusdb.fgputil.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+public class ManagedMapTest {
+
+  private static final int NUM_THREADS = 8;
+
+  @Test
+  public void testMapOperations() {
+    ManagedMap<Integer,String> map = new ManagedMap<>();
+    assertTrue(map.isEmpty());
+    assertNull(map.put(1, "a"));
+    assertEquals("a", map.put(1, "b"));
+    assertEquals("b", map.get(1));
+    assertTrue(map.containsKey(1));
+    assertFalse(map.containsKey(2));
+    assertTrue(map.containsValue("b"));
+    assertFalse(map.containsValue("a"));
+
+    assertEquals("b", map.putIfAbsent(1, "c"));
+    assertNull(map.putIfAbsent(2, "c"));
+    assertEquals("c", map.get(2));
+
+    assertNull(map.replace(3, "d"));
+    assertFalse(map.containsKey(3));
+    assertEquals("c", map.replace(2, "d"));
+    assertFalse(map.replace(2, "c", "e"));
+    assertTrue(map.replace(2, "d", "e"));
+    assertEquals("e", map.get(2));
+
+    assertFalse(map.remove(2, "d"));
+    assertTrue(map.remove(2, "e"));
+    assertNull(map.remove(2));
+    assertEquals("b", map.remove(1));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testComputeIfAbsent() {
+    ManagedMap<Integer,String> map = new ManagedMap<>();
+    assertEquals("1", map.computeIfAbsent(1, key -> String.valueOf(key)));
+    assertEquals("1", map.computeIfAbsent(1, key -> "other"));
+    // null results are not stored
+    assertNull(map.computeIfAbsent(2, key -> null));
+    assertFalse(map.containsKey(2));
+    assertEquals(1, map.size());
+    // default ConcurrentMap methods build on the atomic operations
+    assertEquals("1!", map.computeIfPresent(1, (key, value) -> value + "!"));
+    assertEquals("x", map.merge(3, "x", (a, b) -> a + b));
+    assertEquals("xy", map.merge(3, "y", (a, b) -> a + b));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testComputeIfAbsentException() {
+    new ManagedMap<Integer,String>().computeIfAbsent(1, key -> {
+      throw new IllegalStateException();
+    });
+  }
+
+  @Test
+  public void testComputeIfAbsentSingleFlight() throws Exception {
+    ManagedMap<Integer,String> map = new ManagedMap<>();
+    AtomicInteger numCalls = new AtomicInteger();
+    ExecutorService exec = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < NUM_THREADS; i++) {
+        results.add(exec.submit(() -> map.computeIfAbsent(1, key -> {
+          numCalls.incrementAndGet();
+          ThreadUtil.sleep(100);
+          return "value";
+        })));
+      }
+      for (Future<String> result : results) {
+        assertEquals("value", result.get());
+      }
+      assertEquals(1, numCalls.get());
+    }
+    finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public void testViews() {
+    ManagedMap<Integer,String> map = new ManagedMap<>();
+    for (int i = 0; i < 10; i++) {
+      map.put(i, String.valueOf(i));
+    }
+    assertEquals(10, map.keySet().size());
+    assertEquals(10, map.entrySet().size());
+    Set<Integer> keys = new HashSet<>(map.keySet());
+    for (int i = 0; i < 10; i++) {
+      assertTrue(keys.contains(i));
+    }
+    for (Entry<Integer,String> entry : map.entrySet()) {
+      assertEquals(String.valueOf(entry.getKey()), entry.getValue());
+    }
+
+    // modifying the map while iterating is allowed
+    Iterator<Integer> iter = map.keySet().iterator();
+    while (iter.hasNext()) {
+      int key = iter.next();
+      if (key % 2 == 0) {
+        iter.remove();
+      }
+      map.put(key + 100, "new");
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i % 2 != 0, map.containsKey(i));
+    }
+    map.values().removeIf("new"::equals);
+    assertEquals(5, map.size());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertFalse(map.entrySet().iterator().hasNext());
+  }
+
+  @Test
+  public void testBoundedSize() {
+    ManagedMap<Integer,String> map = new ManagedMap<>(5, 3);
+    for (int i = 0; i < 6; i++) {
+      map.put(i, String.valueOf(i));
+    }
+    // sixth entry causes the three oldest to be trimmed
+    assertEquals(3, map.size());
+    assertFalse(map.containsKey(0));
+    assertTrue(map.containsKey(5));
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    ManagedMap<Integer,Integer> map = new ManagedMap<>();
+    int numIncrements = 10000;
+    ExecutorService exec = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < NUM_THREADS; i++) {
+        results.add(exec.submit(() -> {
+          for (int j = 0; j < numIncrements; j++) {
+            map.merge(j % 10, 1, Integer::sum);
+            // iteration concurrent with updates must not fail
+            if (j % 1000 == 0) {
+              map.entrySet().forEach(entry -> assertTrue(entry.getValue() > 0));
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+      int total = 0;
+      for (int value : map.values()) {
+        total += value;
+      }
+      assertEquals(NUM_THREADS * numIncrements, total);
+    }
+    finally {
+      exec.shutdown();
+    }
+  }
+}
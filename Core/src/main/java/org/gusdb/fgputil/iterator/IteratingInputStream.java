@@ -2,7 +2,9 @@ package org.gusdb.fgputil.iterator;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
+import java.util.Objects;
 
 import org.apache.log4j.Logger;
 
@@ -61,6 +63,65 @@ public class IteratingInputStream extends InputStream {
 
   @Override
   public int read() throws IOException {
+    if (!fillBuffer()) {
+      return -1;
+    }
+    return Byte.toUnsignedInt(_recordBuffer[_recordBufferIndex++]);
+  }
+
+  /**
+   * Copies as many bytes as are requested (or remain) a whole record buffer at
+   * a time, loading further records as needed.
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    int numCopied = 0;
+    while (numCopied < len && fillBuffer()) {
+      int numToCopy = Math.min(len - numCopied, _recordBuffer.length - _recordBufferIndex);
+      System.arraycopy(_recordBuffer, _recordBufferIndex, b, off + numCopied, numToCopy);
+      _recordBufferIndex += numToCopy;
+      numCopied += numToCopy;
+    }
+    return numCopied == 0 ? -1 : numCopied;
+  }
+
+  /**
+   * Writes the remaining data to the passed stream one whole record buffer at
+   * a time, without copying it into an intermediate buffer.
+   */
+  @Override
+  public long transferTo(OutputStream out) throws IOException {
+    long numTransferred = 0;
+    while (fillBuffer()) {
+      int numToWrite = _recordBuffer.length - _recordBufferIndex;
+      out.write(_recordBuffer, _recordBufferIndex, numToWrite);
+      _recordBufferIndex += numToWrite;
+      numTransferred += numToWrite;
+    }
+    return numTransferred;
+  }
+
+  /**
+   * @return number of bytes remaining in the current record buffer, which
+   * can be read without loading another record
+   */
+  @Override
+  public int available() throws IOException {
+    return _recordBuffer.length - _recordBufferIndex;
+  }
+
+  /**
+   * Ensures unread bytes remain in the record buffer, loading the next value
+   * (header, record, delimiter, or footer) as needed.
+   *
+   * @return true if unread bytes are available, false if the end of the
+   * stream has been reached
+   */
+  private boolean fillBuffer() {
     while (_recordBufferIndex >= _recordBuffer.length) {
       // buffer "empty"; load next value
       _recordBufferIndex = 0;
@@ -102,9 +163,9 @@ public class IteratingInputStream extends InputStream {
           break;
         case END:
           LOG.debug("Streamed " + _recordNum + " records.");
-          return -1;
+          return false;
       }
     }
-    return Byte.toUnsignedInt(_recordBuffer[_recordBufferIndex++]);
+    return true;
   }
 }
@@ -1,6 +1,19 @@
 package org.gusdb.fgputil.runtime;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JvmUtil {
   public static final boolean IS_64BIT;
@@ -24,6 +37,11 @@ public class JvmUtil {
 
   public static final byte REFERENCE_SIZE;
 
+  /**
+   * Estimated size of an array header (object header plus the int length)
+   */
+  public static final byte ARRAY_HEADER_SIZE;
+
   static {
     // Ref https://github.com/OpenHFT/Chronicle-Core/blob/4fc0a5aa9c014db494e66c819745a069ba720e31/src/main/java/net/openhft/chronicle/core/Jvm.java#L156
     IS_64BIT = systemProp("com.ibm.vm.bitmode")
@@ -36,9 +54,171 @@ public class JvmUtil {
     OBJECT_HEADER_SIZE = (byte) (IS_64BIT ? 12 : 8);
     OBJECT_SIZE_PADDING_FACTOR = (byte) (IS_64BIT ? 8 : 4);
     REFERENCE_SIZE = (byte) (IS_64BIT ? Long.BYTES : Integer.BYTES);
+    ARRAY_HEADER_SIZE = (byte) (OBJECT_HEADER_SIZE + Integer.BYTES);
   }
 
   public static Optional<String> systemProp(String key) {
     return Optional.ofNullable(System.getProperty(key));
   }
+
+  /**
+   * Rounds the passed raw object size up to the JVM's padding factor.
+   *
+   * @param rawSize sum of header and field sizes of an object
+   * @return size the object actually occupies on the heap
+   */
+  public static long padObjectSize(long rawSize) {
+    long remainder = rawSize % OBJECT_SIZE_PADDING_FACTOR;
+    return remainder == 0 ? rawSize : rawSize + OBJECT_SIZE_PADDING_FACTOR - remainder;
+  }
+
+  /**
+   * Estimates the size of an array (not including any objects it references).
+   *
+   * @param length number of elements in the array
+   * @param elementSize size of each element (REFERENCE_SIZE for object arrays)
+   * @return estimated heap size of the array
+   */
+  public static long estimateArraySize(int length, int elementSize) {
+    return padObjectSize(ARRAY_HEADER_SIZE + (long)length * elementSize);
+  }
+
+  /**
+   * Estimates the size of a String, including its backing byte array.  Assumes
+   * compact strings (one byte per character if all characters are Latin-1).
+   *
+   * @param value string to measure
+   * @return estimated heap size of the string
+   */
+  public static long estimateStringSize(String value) {
+    int bytesPerChar = 1;
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > 0xFF) {
+        bytesPerChar = 2;
+        break;
+      }
+    }
+    // String fields are byte[] value, int hash, byte coder, boolean hashIsZero
+    return padObjectSize(OBJECT_HEADER_SIZE + REFERENCE_SIZE + Integer.BYTES + 2) +
+        estimateArraySize(value.length(), bytesPerChar);
+  }
+
+  /**
+   * Estimates the total heap size of the passed object and every object
+   * reachable from it, counting each object once.  Fields are read
+   * reflectively; for classes whose fields cannot be read (e.g. JDK classes in
+   * modules not open to this one), collections and maps are measured through
+   * their public interfaces and other objects contribute only their shallow
+   * size.  Class objects are not traversed.  The result is an estimate meant
+   * for relative sizing (e.g. cache weights), not an exact measurement.
+   *
+   * @param obj root of the object graph to measure
+   * @return estimated size in bytes of the object graph
+   */
+  public static long estimateDeepSize(Object obj) {
+    if (obj == null) return 0;
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Object> toVisit = new ArrayDeque<>();
+    toVisit.push(obj);
+    long total = 0;
+    while (!toVisit.isEmpty()) {
+      Object next = toVisit.pop();
+      if (next instanceof Class || !visited.add(next)) continue;
+      total += estimateSize(next, toVisit);
+    }
+    return total;
+  }
+
+  // returns the size of the passed object, adding objects it references to toVisit
+  private static long estimateSize(Object obj, Deque<Object> toVisit) {
+    Class<?> type = obj.getClass();
+    if (obj instanceof String) {
+      return estimateStringSize((String)obj);
+    }
+    if (type.isArray()) {
+      Class<?> componentType = type.getComponentType();
+      int length = Array.getLength(obj);
+      if (componentType.isPrimitive()) {
+        return estimateArraySize(length, primitiveSize(componentType));
+      }
+      for (Object element : (Object[])obj) {
+        if (element != null) toVisit.push(element);
+      }
+      return estimateArraySize(length, REFERENCE_SIZE);
+    }
+    ClassLayout layout = CLASS_LAYOUTS.computeIfAbsent(type, ClassLayout::new);
+    if (layout.isAccessible) {
+      for (Field field : layout.referenceFields) {
+        try {
+          Object value = field.get(obj);
+          if (value != null) toVisit.push(value);
+        }
+        catch (IllegalAccessException e) {
+          // should not happen since field was made accessible; skip
+        }
+      }
+      return layout.shallowSize;
+    }
+    // cannot see inside; use public interfaces of common containers
+    if (obj instanceof Collection) {
+      Collection<?> collection = (Collection<?>)obj;
+      for (Object element : collection) {
+        if (element != null) toVisit.push(element);
+      }
+      // assume an array-like backing store
+      return layout.shallowSize + estimateArraySize(collection.size(), REFERENCE_SIZE);
+    }
+    if (obj instanceof Map) {
+      Map<?,?> map = (Map<?,?>)obj;
+      for (Map.Entry<?,?> entry : map.entrySet()) {
+        if (entry.getKey() != null) toVisit.push(entry.getKey());
+        if (entry.getValue() != null) toVisit.push(entry.getValue());
+      }
+      // assume a hash table with one node (hash, key, value, next) per entry
+      long nodeSize = padObjectSize(OBJECT_HEADER_SIZE + Integer.BYTES + 3 * REFERENCE_SIZE);
+      return layout.shallowSize + estimateArraySize(map.size(), REFERENCE_SIZE) + map.size() * nodeSize;
+    }
+    return layout.shallowSize;
+  }
+
+  private static final Map<Class<?>, ClassLayout> CLASS_LAYOUTS = new ConcurrentHashMap<>();
+
+  // shallow size and reference fields of a class, computed once per class
+  private static class ClassLayout {
+
+    final long shallowSize;
+    final List<Field> referenceFields = new ArrayList<>();
+    final boolean isAccessible;
+
+    ClassLayout(Class<?> type) {
+      long size = OBJECT_HEADER_SIZE;
+      boolean accessible = true;
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) continue;
+          if (field.getType().isPrimitive()) {
+            size += primitiveSize(field.getType());
+          }
+          else {
+            size += REFERENCE_SIZE;
+            if (accessible && field.trySetAccessible()) {
+              referenceFields.add(field);
+            }
+            else {
+              accessible = false;
+            }
+          }
+        }
+      }
+      shallowSize = padObjectSize(size);
+      isAccessible = accessible;
+    }
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) return 8;
+    if (type == int.class || type == float.class) return 4;
+    if (type == short.class || type == char.class) return 2;
+    return 1; // byte, boolean
+  }
 }
@@ -0,0 +1,108 @@
+package org.gusdb.fgputil.iterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.gusdb.fgputil.iterator.IteratingInputStream.DataProvider;
+import org.junit.Test;
+
+/**
+ * Checks that single-byte reads, bulk reads of various sizes, and transferTo()
+ * all produce the same formatted output.
+ */
+public class IteratingInputStreamTest {
+
+  private static DataProvider getProvider(String header, String delimiter, String footer, String... records) {
+    List<byte[]> recordBytes = new ArrayList<>();
+    for (String record : records) {
+      recordBytes.add(record.getBytes(StandardCharsets.UTF_8));
+    }
+    return new DataProvider() {
+      @Override public byte[] getHeader()          { return header.getBytes(StandardCharsets.UTF_8); }
+      @Override public byte[] getRecordDelimiter() { return delimiter.getBytes(StandardCharsets.UTF_8); }
+      @Override public Iterator<byte[]> getRecordIterator() { return recordBytes.iterator(); }
+      @Override public byte[] getFooter()          { return footer.getBytes(StandardCharsets.UTF_8); }
+    };
+  }
+
+  private static byte[] readByteByByte(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != -1) {
+      out.write(b);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] readInChunks(InputStream in, int chunkSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // read into the middle of the buffer to check offsets are honored
+    byte[] buffer = new byte[chunkSize + 2];
+    int numRead;
+    while ((numRead = in.read(buffer, 1, chunkSize)) != -1) {
+      assertTrue(numRead > 0 && numRead <= chunkSize);
+      out.write(buffer, 1, numRead);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] transfer(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long numTransferred = in.transferTo(out);
+    assertEquals(out.size(), numTransferred);
+    return out.toByteArray();
+  }
+
+  private static void checkAllReadMethods(String expected, String header, String delimiter, String footer, String... records) throws IOException {
+    byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expectedBytes, readByteByByte(new IteratingInputStream(getProvider(header, delimiter, footer, records))));
+    assertArrayEquals(expectedBytes, transfer(new IteratingInputStream(getProvider(header, delimiter, footer, records))));
+    for (int chunkSize : new int[] { 1, 2, 3, 7, 64, 8192 }) {
+      assertArrayEquals(expectedBytes, readInChunks(new IteratingInputStream(getProvider(header, delimiter, footer, records)), chunkSize));
+    }
+  }
+
+  @Test
+  public void testFormattedRecords() throws IOException {
+    checkAllReadMethods("[\"one\",\"two\",\"three\"]", "[", ",", "]", "\"one\"", "\"two\"", "\"three\"");
+  }
+
+  @Test
+  public void testEmptyParts() throws IOException {
+    checkAllReadMethods("", "", "", "");
+    checkAllReadMethods("[]", "[", ",", "]");
+    checkAllReadMethods("ab", "", "", "", "a", "", "b", "");
+  }
+
+  @Test
+  public void testMixedReads() throws IOException {
+    InputStream in = new IteratingInputStream(getProvider("<", "|", ">", "abc", "def"));
+    assertEquals('<', in.read());
+    byte[] buffer = new byte[4];
+    assertEquals(4, in.read(buffer, 0, 4));
+    assertArrayEquals("abc|".getBytes(StandardCharsets.UTF_8), buffer);
+    assertEquals(0, in.read(buffer, 0, 0));
+    assertEquals('d', in.read());
+    assertEquals(2, in.available());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(3, in.transferTo(out));
+    assertEquals("ef>", out.toString(StandardCharsets.UTF_8));
+    assertEquals(-1, in.read());
+    assertEquals(-1, in.read(buffer, 0, 4));
+    assertEquals(0, in.transferTo(out));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testBadBounds() throws IOException {
+    new IteratingInputStream(getProvider("", "", "", "a")).read(new byte[4], 2, 3);
+  }
+}
@@ -0,0 +1,55 @@
+package org.gusdb.fgputil.runtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JvmUtilTest {
+
+  private static class Node {
+    long id;
+    Node next;
+    Node(long id, Node next) { this.id = id; this.next = next; }
+  }
+
+  @Test
+  public void testPadding() {
+    Assert.assertEquals(0, JvmUtil.padObjectSize(0) % JvmUtil.OBJECT_SIZE_PADDING_FACTOR);
+    Assert.assertEquals(JvmUtil.OBJECT_SIZE_PADDING_FACTOR, JvmUtil.padObjectSize(1));
+    Assert.assertEquals(JvmUtil.OBJECT_SIZE_PADDING_FACTOR, JvmUtil.padObjectSize(JvmUtil.OBJECT_SIZE_PADDING_FACTOR));
+  }
+
+  @Test
+  public void testArrayAndStringSizes() {
+    Assert.assertTrue(JvmUtil.estimateArraySize(1000, Long.BYTES) >= 8000);
+    Assert.assertEquals(JvmUtil.estimateArraySize(1000, Long.BYTES), JvmUtil.estimateDeepSize(new long[1000]));
+    // non-Latin-1 strings take two bytes per character
+    Assert.assertTrue(JvmUtil.estimateStringSize("中".repeat(100)) > JvmUtil.estimateStringSize("a".repeat(100)));
+    Assert.assertEquals(JvmUtil.estimateStringSize("abc"), JvmUtil.estimateDeepSize("abc"));
+  }
+
+  @Test
+  public void testDeepSize() {
+    // shared and cyclic references are counted once
+    Node last = new Node(2, null);
+    Node first = new Node(1, last);
+    last.next = first;
+    long nodeSize = JvmUtil.estimateDeepSize(new Node(0, null));
+    Assert.assertEquals(2 * nodeSize, JvmUtil.estimateDeepSize(first));
+
+    // contents of JDK collections are counted even if their fields are not accessible
+    List<String> list = new ArrayList<>();
+    Map<String,String> map = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      list.add("value" + i);
+      map.put("key" + i, "value" + i);
+    }
+    Assert.assertTrue(JvmUtil.estimateDeepSize(list) > 100 * JvmUtil.estimateStringSize("value0"));
+    Assert.assertTrue(JvmUtil.estimateDeepSize(map) > 200 * JvmUtil.estimateStringSize("key0"));
+    Assert.assertEquals(0, JvmUtil.estimateDeepSize(null));
+  }
+}
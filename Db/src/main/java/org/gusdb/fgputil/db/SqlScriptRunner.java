@@ -33,11 +33,16 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
 
 import javax.sql.DataSource;
 
@@ -46,11 +51,45 @@ import org.gusdb.fgputil.IoUtil;
 
 /**
  * Tool to run database scripts
+ *
+ * By default each command is run in its own statement.  In batched mode (see
+ * setBatchSize()), consecutive DML commands (INSERT, UPDATE, DELETE, MERGE)
+ * are instead sent to the database in JDBC batches, and the script is run in
+ * a single transaction, committed every commitSize DML commands and at the
+ * end of the script.  Other commands are run individually between batches.
+ * If errors do not stop the script, each batch and each individual command
+ * in batched mode is run after a savepoint; a failed batch is rolled back to
+ * its savepoint and its commands rerun individually, and a failed command is
+ * rolled back to its savepoint, so that the transaction remains usable (on
+ * PostgreSQL, for example, any error otherwise aborts the transaction).
+ * Errors are reported with the line on which the failing command starts.
  */
 public class SqlScriptRunner {
 
   private static final String DEFAULT_DELIMITER = ";";
 
+  private static final Pattern DML_COMMAND = Pattern.compile(
+      "^\\s*(INSERT|UPDATE|DELETE|MERGE)\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * A command read from a script, with the line on which it starts
+   */
+  private static class ScriptCommand {
+
+    private final String _sql;
+    private final int _lineNumber;
+
+    ScriptCommand(String sql, int lineNumber) {
+      _sql = sql;
+      _lineNumber = lineNumber;
+    }
+
+    @Override
+    public String toString() {
+      return "(line " + _lineNumber + ") " + _sql;
+    }
+  }
+
   private Connection connection;
 
   private boolean stopOnError;
@@ -62,6 +101,9 @@ public class SqlScriptRunner {
   private String delimiter = DEFAULT_DELIMITER;
   private boolean fullLineDelimiter = false;
 
+  private int batchSize = 0;
+  private int commitSize = 0;
+
   /**
    * Default constructor
    * 
@@ -82,6 +124,33 @@ public class SqlScriptRunner {
     this.fullLineDelimiter = fullLineDelimiter;
   }
 
+  /**
+   * Turns on batched mode, in which consecutive DML commands are executed in
+   * JDBC batches of up to the passed size.  The script is then run in a
+   * single transaction regardless of the autoCommit value passed to the
+   * constructor; see setCommitSize().  If errors do not stop the script, the
+   * connection must support savepoints.
+   *
+   * @param batchSize maximum number of commands per batch, or 0 to run each
+   * command in its own statement (the default)
+   */
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 0) throw new IllegalArgumentException("Batch size must be >=0. " + batchSize + " passed.");
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * In batched mode, sets how many DML commands are executed between
+   * commits.
+   *
+   * @param commitSize number of DML commands per commit, or 0 to commit only
+   * at the end of the script (the default)
+   */
+  public void setCommitSize(int commitSize) {
+    if (commitSize < 0) throw new IllegalArgumentException("Commit size must be >=0. " + commitSize + " passed.");
+    this.commitSize = commitSize;
+  }
+
   /**
    * Setter for logWriter property
    * 
@@ -113,8 +182,10 @@ public class SqlScriptRunner {
     try {
       boolean originalAutoCommit = connection.getAutoCommit();
       try {
-        if (originalAutoCommit != this.autoCommit) {
-          connection.setAutoCommit(this.autoCommit);
+        // batched mode runs the script as one transaction
+        boolean scriptAutoCommit = this.autoCommit && batchSize == 0;
+        if (originalAutoCommit != scriptAutoCommit) {
+          connection.setAutoCommit(scriptAutoCommit);
         }
         runScript(connection, reader);
       } finally {
@@ -140,89 +211,28 @@ public class SqlScriptRunner {
    */
   private void runScript(Connection conn, Reader reader) throws IOException,
       SQLException {
-    StringBuffer command = null;
+    CommandReader commandReader = new CommandReader(reader);
     try {
-      LineNumberReader lineReader = new LineNumberReader(reader);
-      String line = null;
-      while ((line = lineReader.readLine()) != null) {
-        if (command == null) {
-          command = new StringBuffer();
-        }
-        String trimmedLine = line.trim();
-        if (trimmedLine.startsWith("--")) {
-          printlnError("Skipping line: " + trimmedLine);
-        } else if (trimmedLine.length() < 1 || trimmedLine.startsWith("//")) {
-          // Do nothing
-        } else if (trimmedLine.length() < 1 || trimmedLine.startsWith("--")) {
-          // Do nothing
-        } else if (!fullLineDelimiter && trimmedLine.endsWith(getDelimiter())
-            || fullLineDelimiter && trimmedLine.equals(getDelimiter())) {
-          command.append(line.substring(0, line.lastIndexOf(getDelimiter())));
-          command.append(" ");
-          Statement statement = conn.createStatement();
-
-          printlnError(command);
-
-          boolean hasResults = false;
-          if (stopOnError) {
-            hasResults = statement.execute(command.toString());
-          } else {
-            try {
-              statement.execute(command.toString());
-            } catch (SQLException e) {
-              e.fillInStackTrace();
-              printlnError("Error executing: " + command);
-              printlnError(e);
-            }
-          }
-
-          if (autoCommit && !conn.getAutoCommit()) {
-            conn.commit();
-          }
-
-          ResultSet rs = statement.getResultSet();
-          if (hasResults && rs != null) {
-            ResultSetMetaData md = rs.getMetaData();
-            int cols = md.getColumnCount();
-            for (int i = 0; i < cols; i++) {
-              String name = md.getColumnLabel(i+1);
-              print(name + "\t");
-            }
-            println("");
-            while (rs.next()) {
-              for (int i = 0; i < cols; i++) {
-                String value = rs.getString(i+1);
-                print(value + "\t");
-              }
-              println("");
-            }
-          }
-
-          command = null;
-          try {
-            statement.close();
-          }
-          catch (Exception e) {
-            // Ignore to workaround a bug in Jakarta DBCP
-          }
-          Thread.yield();
-        }
-        else {
-          command.append(line);
-          command.append(" ");
+      if (batchSize > 0) {
+        runBatched(conn, commandReader);
+      }
+      else {
+        ScriptCommand command;
+        while ((command = commandReader.next()) != null) {
+          executeCommand(conn, command, autoCommit);
         }
       }
-      if (!autoCommit) {
+      if (!autoCommit || batchSize > 0) {
         conn.commit();
       }
     }
     catch (SQLException e) {
-      printlnError("Error executing: " + command);
+      // failed command (if any) has already been reported with its line number
       printlnError(FormatUtil.getStackTrace(e));
       throw e;
     }
     catch (IOException e) {
-      printlnError("Error executing: " + command);
+      printlnError("Error reading script after line " + commandReader.getLineNumber());
       printlnError(FormatUtil.getStackTrace(e));
       throw e;
     }
@@ -232,6 +242,203 @@ public class SqlScriptRunner {
     }
   }
 
+  private void runBatched(Connection conn, CommandReader commandReader) throws IOException, SQLException {
+    List<ScriptCommand> batch = new ArrayList<>();
+    int numUncommitted = 0;
+    try (Statement batchStatement = conn.createStatement()) {
+      ScriptCommand command;
+      while ((command = commandReader.next()) != null) {
+        if (!DML_COMMAND.matcher(command._sql).find()) {
+          numUncommitted += executeBatch(conn, batchStatement, batch);
+          executeCommand(conn, command, false);
+          continue;
+        }
+        batchStatement.addBatch(command._sql);
+        batch.add(command);
+        boolean commitDue = commitSize > 0 && numUncommitted + batch.size() >= commitSize;
+        if (batch.size() == batchSize || commitDue) {
+          numUncommitted += executeBatch(conn, batchStatement, batch);
+        }
+        if (commitDue) {
+          conn.commit();
+          numUncommitted = 0;
+        }
+      }
+      executeBatch(conn, batchStatement, batch);
+    }
+  }
+
+  // executes and clears the passed batch; returns the number of commands in it
+  private int executeBatch(Connection conn, Statement statement, List<ScriptCommand> batch) throws SQLException {
+    int numCommands = batch.size();
+    if (numCommands == 0) {
+      return 0;
+    }
+    printlnError("Executing batch of " + numCommands + " commands starting at line " + batch.get(0)._lineNumber);
+    Savepoint savepoint = stopOnError ? null : conn.setSavepoint();
+    try {
+      statement.executeBatch();
+      if (savepoint != null) {
+        releaseSavepoint(conn, savepoint);
+      }
+    }
+    catch (BatchUpdateException e) {
+      if (stopOnError) {
+        int[] counts = e.getUpdateCounts();
+        // drivers either stop at the failed command or continue and mark it failed
+        boolean driverStopped = counts == null || counts.length < numCommands;
+        ScriptCommand failed = batch.get(driverStopped ? (counts == null ? 0 : counts.length) : firstFailure(counts));
+        printlnError("Error executing: " + failed);
+        throw new SQLException("Error executing command at line " + failed._lineNumber +
+            " of script: " + failed._sql, e.getSQLState(), e.getErrorCode(), e);
+      }
+      printlnError(e);
+      // undo whatever part of the batch was applied, then run its commands
+      //   one at a time so each failure is reported and the rest are applied
+      printlnError("Rerunning commands of failed batch individually");
+      conn.rollback(savepoint);
+      for (ScriptCommand command : batch) {
+        executeCommand(conn, command, false);
+      }
+    }
+    finally {
+      statement.clearBatch();
+      batch.clear();
+    }
+    return numCommands;
+  }
+
+  private static int firstFailure(int[] counts) {
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] == Statement.EXECUTE_FAILED) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  // savepoints otherwise last until the end of the transaction; not all drivers
+  //   (e.g. Oracle's) support releasing them early, so failure is ignored
+  private static void releaseSavepoint(Connection conn, Savepoint savepoint) {
+    try {
+      conn.releaseSavepoint(savepoint);
+    }
+    catch (SQLException e) {
+      // savepoint is released when the transaction ends
+    }
+  }
+
+  private void executeCommand(Connection conn, ScriptCommand command, boolean commitAfter) throws SQLException {
+    Statement statement = conn.createStatement();
+
+    printlnError(command._sql);
+
+    boolean hasResults = false;
+    if (stopOnError) {
+      try {
+        hasResults = statement.execute(command._sql);
+      } catch (SQLException e) {
+        printlnError("Error executing: " + command);
+        SqlUtils.closeQuietly(statement);
+        throw e;
+      }
+    } else {
+      // batched mode runs in a transaction, which must be rolled back past a failure to stay usable
+      Savepoint savepoint = batchSize > 0 ? conn.setSavepoint() : null;
+      try {
+        statement.execute(command._sql);
+        if (savepoint != null) {
+          releaseSavepoint(conn, savepoint);
+        }
+      } catch (SQLException e) {
+        e.fillInStackTrace();
+        printlnError("Error executing: " + command);
+        printlnError(e);
+        if (savepoint != null) {
+          conn.rollback(savepoint);
+        }
+      }
+    }
+
+    if (commitAfter && !conn.getAutoCommit()) {
+      conn.commit();
+    }
+
+    ResultSet rs = statement.getResultSet();
+    if (hasResults && rs != null) {
+      ResultSetMetaData md = rs.getMetaData();
+      int cols = md.getColumnCount();
+      for (int i = 0; i < cols; i++) {
+        String name = md.getColumnLabel(i+1);
+        print(name + "\t");
+      }
+      println("");
+      while (rs.next()) {
+        for (int i = 0; i < cols; i++) {
+          String value = rs.getString(i+1);
+          print(value + "\t");
+        }
+        println("");
+      }
+    }
+
+    try {
+      statement.close();
+    }
+    catch (Exception e) {
+      // Ignore to workaround a bug in Jakarta DBCP
+    }
+  }
+
+  /**
+   * Reads commands from a script one at a time, so the script is never held
+   * in memory.  Lines are read with a LineNumberReader so each command knows
+   * the line on which it starts.  Blank lines and lines starting with "--" or
+   * "//" are skipped; a command ends on a line ending with (or, for full line
+   * delimiters, consisting of) the delimiter.  Text after the last delimiter
+   * is ignored.
+   */
+  private class CommandReader {
+
+    private final LineNumberReader _lineReader;
+    // reused for each command
+    private final StringBuilder _command = new StringBuilder();
+
+    CommandReader(Reader reader) {
+      _lineReader = new LineNumberReader(reader);
+    }
+
+    ScriptCommand next() throws IOException {
+      _command.setLength(0);
+      int startLine = -1;
+      String line;
+      while ((line = _lineReader.readLine()) != null) {
+        String trimmedLine = line.trim();
+        if (trimmedLine.startsWith("--")) {
+          printlnError("Skipping line: " + trimmedLine);
+          continue;
+        }
+        if (trimmedLine.isEmpty() || trimmedLine.startsWith("//")) {
+          continue;
+        }
+        if (startLine < 0) {
+          startLine = _lineReader.getLineNumber();
+        }
+        if (!fullLineDelimiter && trimmedLine.endsWith(getDelimiter())
+            || fullLineDelimiter && trimmedLine.equals(getDelimiter())) {
+          _command.append(line, 0, line.lastIndexOf(getDelimiter())).append(' ');
+          return new ScriptCommand(_command.toString(), startLine);
+        }
+        _command.append(line).append(' ');
+      }
+      return null;
+    }
+
+    int getLineNumber() {
+      return _lineReader.getLineNumber();
+    }
+  }
+
   private String getDelimiter() {
     return delimiter;
   }
@@ -264,6 +471,19 @@ public class SqlScriptRunner {
   }
 
   public static void runSqlScript(DataSource ds, String resourcePath) throws SQLException, IOException {
+    runSqlScript(ds, resourcePath, 0, 0);
+  }
+
+  /**
+   * Runs the script at the passed resource path in batched mode
+   *
+   * @param ds data source against which to run the script
+   * @param resourcePath path of script resource
+   * @param batchSize maximum number of DML commands per batch (0 to run each command individually)
+   * @param commitSize number of DML commands per commit (0 to commit only at the end)
+   */
+  public static void runSqlScript(DataSource ds, String resourcePath, int batchSize, int commitSize)
+      throws SQLException, IOException {
     Connection conn = null;
     BufferedReader br = null;
     try {
@@ -274,6 +494,8 @@ public class SqlScriptRunner {
       br = new BufferedReader(new InputStreamReader(in));
       SqlScriptRunner sr = new SqlScriptRunner(conn, true, true);
       sr.setLogWriter(null);
+      sr.setBatchSize(batchSize);
+      sr.setCommitSize(commitSize);
       sr.runScript(br);
     }
     finally {
@@ -0,0 +1,116 @@
+package org.gusdb.fgputil.db.bulk;
+
+/**
+ * Encapsulates settings used by a BulkLoader.  Rows are sent to the database
+ * batchSize at a time and committed every commitInterval rows (or once at the
+ * end of each partition if commitInterval is 0).  Up to parallelism
+ * partitions are loaded at once, each on its own connection.
+ */
+public class BulkLoadOptions {
+
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+  public static final int DEFAULT_ROWS_PER_STATEMENT = 100;
+
+  public enum LoadMethod {
+    /**
+     * JDBC batches of single-row INSERT statements
+     */
+    JDBC_BATCH,
+    /**
+     * JDBC batches of INSERT statements each inserting rowsPerStatement rows
+     * with a multi-row VALUES clause
+     */
+    MULTI_ROW_VALUES,
+    /**
+     * PostgreSQL's COPY FROM STDIN, streaming rows in text format; requires a
+     * connection which unwraps to the PostgreSQL driver's connection
+     */
+    POSTGRES_COPY,
+    /**
+     * fastest method supported by the platform passed to the loader (COPY
+     * for PostgreSQL; JDBC batches otherwise)
+     */
+    PLATFORM_DEFAULT;
+  }
+
+  private int _batchSize = DEFAULT_BATCH_SIZE;
+  private long _commitInterval = 0;
+  private int _parallelism = 1;
+  private LoadMethod _loadMethod = LoadMethod.PLATFORM_DEFAULT;
+  private int _rowsPerStatement = DEFAULT_ROWS_PER_STATEMENT;
+
+  public BulkLoadOptions() { }
+
+  public BulkLoadOptions(BulkLoadOptions options) {
+    _batchSize = options._batchSize;
+    _commitInterval = options._commitInterval;
+    _parallelism = options._parallelism;
+    _loadMethod = options._loadMethod;
+    _rowsPerStatement = options._rowsPerStatement;
+  }
+
+  /**
+   * @param batchSize number of rows sent to the database in each round trip
+   */
+  public BulkLoadOptions setBatchSize(int batchSize) {
+    if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be >0. " + batchSize + " passed.");
+    _batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * @param commitInterval number of rows loaded between commits, or 0 to
+   * commit only once each partition is loaded
+   */
+  public BulkLoadOptions setCommitInterval(long commitInterval) {
+    if (commitInterval < 0) throw new IllegalArgumentException(
+        "Commit interval must be >=0. " + commitInterval + " passed.");
+    _commitInterval = commitInterval;
+    return this;
+  }
+
+  /**
+   * @param parallelism maximum number of partitions loaded at once
+   */
+  public BulkLoadOptions setParallelism(int parallelism) {
+    if (parallelism <= 0) throw new IllegalArgumentException("Parallelism must be >0. " + parallelism + " passed.");
+    _parallelism = parallelism;
+    return this;
+  }
+
+  public BulkLoadOptions setLoadMethod(LoadMethod loadMethod) {
+    _loadMethod = loadMethod;
+    return this;
+  }
+
+  /**
+   * @param rowsPerStatement number of rows inserted by each statement when
+   * using MULTI_ROW_VALUES
+   */
+  public BulkLoadOptions setRowsPerStatement(int rowsPerStatement) {
+    if (rowsPerStatement <= 0) throw new IllegalArgumentException(
+        "Rows per statement must be >0. " + rowsPerStatement + " passed.");
+    _rowsPerStatement = rowsPerStatement;
+    return this;
+  }
+
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
+  public long getCommitInterval() {
+    return _commitInterval;
+  }
+
+  public int getParallelism() {
+    return _parallelism;
+  }
+
+  public LoadMethod getLoadMethod() {
+    return _loadMethod;
+  }
+
+  public int getRowsPerStatement() {
+    return _rowsPerStatement;
+  }
+}
@@ -0,0 +1,268 @@
+package org.gusdb.fgputil.db.bulk;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.SqlUtils;
+import org.gusdb.fgputil.db.bulk.BulkLoadOptions.LoadMethod;
+import org.gusdb.fgputil.db.platform.DBPlatform;
+import org.gusdb.fgputil.db.platform.SupportedPlatform;
+import org.gusdb.fgputil.db.runner.ParamBinder;
+import org.postgresql.PGConnection;
+
+/**
+ * Loads large numbers of rows into a table.  Each column's parameter binder
+ * is resolved once from its SQL type (read from the table if not passed), and
+ * rows are sent in batches using the fastest method the platform supports:
+ * COPY for PostgreSQL, or JDBC batches of single- or multi-row INSERTs (see
+ * BulkLoadOptions.LoadMethod).  Rows are committed at a configurable interval.
+ *
+ * Rows may be passed in several partitions, which are loaded in parallel,
+ * each on its own connection from the data source.  Each partition is
+ * committed separately, so if loading fails, rows committed before the
+ * failure (in any partition) remain; only uncommitted rows are rolled back.
+ * Loading of other partitions is stopped as soon as one fails.  A loader
+ * should run one load at a time.
+ */
+public class BulkLoader {
+
+  private static final Logger LOG = Logger.getLogger(BulkLoader.class);
+
+  private static final AtomicInteger LOADER_THREAD_COUNT = new AtomicInteger(0);
+
+  private final DataSource _dataSource;
+  private final DBPlatform _platform;
+  private final String _table;
+  private final String[] _columns;
+  private final BulkLoadOptions _options;
+
+  // resolved on first load if column types were not passed
+  private volatile Integer[] _columnTypes;
+
+  // set when a partition fails, to stop loading of the others
+  private volatile boolean _failed = false;
+
+  /**
+   * @param dataSource data source providing connections to load on
+   * @param platform platform of the database, or null if not a supported
+   * platform (in which case PLATFORM_DEFAULT loads with JDBC batches)
+   * @param table name of table to load (including schema if needed)
+   * @param columns names of columns each row provides values for, in order
+   * @param columnTypes SQL type (from java.sql.Types) of each column, or null
+   * to read the types from the table
+   * @param options load options
+   */
+  public BulkLoader(DataSource dataSource, DBPlatform platform, String table,
+      String[] columns, Integer[] columnTypes, BulkLoadOptions options) {
+    if (columns.length == 0) throw new IllegalArgumentException("At least one column must be loaded.");
+    if (columnTypes != null && columnTypes.length != columns.length) throw new IllegalArgumentException(
+        columns.length + " columns but " + columnTypes.length + " column types passed.");
+    _dataSource = dataSource;
+    _platform = platform;
+    _table = table;
+    _columns = columns.clone();
+    _columnTypes = columnTypes == null ? null : columnTypes.clone();
+    _options = new BulkLoadOptions(options);
+  }
+
+  /**
+   * Loads the passed rows on the calling thread.
+   *
+   * @param rows rows to load; each must hold one value per column
+   * @return number of rows loaded
+   * @throws SQLException if unable to load
+   */
+  public long load(Iterable<Object[]> rows) throws SQLException {
+    _failed = false;
+    return loadPartition(resolveColumnTypes(), 1, rows);
+  }
+
+  /**
+   * Loads the passed partitions of rows, up to the configured parallelism at
+   * once, each on its own connection.
+   *
+   * @param partitions partitions of rows to load; each row must hold one
+   * value per column
+   * @return total number of rows loaded
+   * @throws SQLException if unable to load a partition
+   */
+  public long loadPartitions(Collection<? extends Iterable<Object[]>> partitions) throws SQLException {
+    _failed = false;
+    Integer[] columnTypes = resolveColumnTypes();
+    int numThreads = Math.min(_options.getParallelism(), partitions.size());
+    if (numThreads <= 1) {
+      long numRows = 0;
+      int partitionNum = 1;
+      for (Iterable<Object[]> partition : partitions) {
+        numRows += loadPartition(columnTypes, partitionNum++, partition);
+      }
+      return numRows;
+    }
+    ExecutorService exec = Executors.newFixedThreadPool(numThreads, runnable -> {
+      Thread thread = new Thread(runnable, "bulk-loader-" + LOADER_THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      int partitionNum = 1;
+      for (Iterable<Object[]> partition : partitions) {
+        int num = partitionNum++;
+        results.add(exec.submit(() -> loadPartition(columnTypes, num, partition)));
+      }
+      return collectResults(results);
+    }
+    finally {
+      exec.shutdownNow();
+    }
+  }
+
+  // waits for all partitions; throws the first failure
+  private static long collectResults(List<Future<Long>> results) throws SQLException {
+    long numRows = 0;
+    Exception failure = null;
+    for (Future<Long> result : results) {
+      try {
+        numRows += result.get();
+      }
+      catch (ExecutionException e) {
+        // partitions stopped because of another's failure are not the cause
+        if (failure == null && !(e.getCause() instanceof CancellationException)) {
+          failure = (Exception)e.getCause();
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for partitions to load.", e);
+      }
+    }
+    if (failure instanceof SQLException) throw (SQLException)failure;
+    if (failure instanceof RuntimeException) throw (RuntimeException)failure;
+    if (failure != null) throw new SQLException("Unable to load partition.", failure);
+    return numRows;
+  }
+
+  private long loadPartition(Integer[] columnTypes, int partitionNum, Iterable<Object[]> rows) throws SQLException {
+    long startTime = System.currentTimeMillis();
+    long commitInterval = _options.getCommitInterval();
+    long numRows = 0;
+    try (Connection conn = _dataSource.getConnection()) {
+      boolean autoCommit = conn.getAutoCommit();
+      try {
+        conn.setAutoCommit(false);
+        try (RowWriter writer = createWriter(conn, columnTypes)) {
+          Iterator<Object[]> iterator = rows.iterator();
+          while (iterator.hasNext()) {
+            if (_failed) {
+              throw new CancellationException("Another partition failed to load.");
+            }
+            Object[] row = iterator.next();
+            if (row.length != _columns.length) {
+              throw new IllegalArgumentException("Row " + (numRows + 1) + " of partition " + partitionNum +
+                  " has " + row.length + " values; " + _columns.length + " columns are loaded.");
+            }
+            writer.write(row);
+            numRows++;
+            if (commitInterval > 0 && numRows % commitInterval == 0) {
+              writer.flush();
+              conn.commit();
+              LOG.debug("Committed " + numRows + " rows of partition " + partitionNum + " into " + _table);
+            }
+          }
+          writer.flush();
+        }
+        conn.commit();
+        LOG.debug("Loaded " + numRows + " rows of partition " + partitionNum + " into " + _table +
+            " in " + (System.currentTimeMillis() - startTime) + " ms");
+        return numRows;
+      }
+      catch (SQLException | RuntimeException e) {
+        _failed = true;
+        SqlUtils.attemptRollback(conn);
+        throw e;
+      }
+      finally {
+        try {
+          conn.setAutoCommit(autoCommit);
+        }
+        catch (SQLException e) {
+          LOG.warn("Unable to restore auto-commit on connection", e);
+        }
+      }
+    }
+  }
+
+  private RowWriter createWriter(Connection conn, Integer[] columnTypes) throws SQLException {
+    int batchSize = _options.getBatchSize();
+    switch (resolveLoadMethod(conn)) {
+      case POSTGRES_COPY:
+        return new PostgresCopyWriter(conn, _table, _columns, batchSize);
+      case MULTI_ROW_VALUES:
+        return new MultiRowValuesWriter(conn, _table, _columns,
+            ParamBinder.forTypes(columnTypes, _columns.length), batchSize, _options.getRowsPerStatement());
+      default:
+        return new JdbcBatchWriter(conn, _table, _columns,
+            ParamBinder.forTypes(columnTypes, _columns.length), batchSize);
+    }
+  }
+
+  private LoadMethod resolveLoadMethod(Connection conn) throws SQLException {
+    LoadMethod method = _options.getLoadMethod();
+    if (method != LoadMethod.PLATFORM_DEFAULT) {
+      return method;
+    }
+    if (_platform != null && _platform.getPlatformEnum() == SupportedPlatform.POSTGRESQL) {
+      if (conn.isWrapperFor(PGConnection.class)) {
+        return LoadMethod.POSTGRES_COPY;
+      }
+      // pool does not expose the driver's connection; next fastest method
+      return LoadMethod.MULTI_ROW_VALUES;
+    }
+    // Oracle does not support multi-row VALUES; its driver sends batches efficiently
+    return LoadMethod.JDBC_BATCH;
+  }
+
+  private Integer[] resolveColumnTypes() throws SQLException {
+    if (_columnTypes == null) {
+      String sql = "SELECT " + String.join(", ", _columns) + " FROM " + _table + " WHERE 1 = 0";
+      try (Connection conn = _dataSource.getConnection();
+           PreparedStatement stmt = conn.prepareStatement(sql);
+           ResultSet rs = stmt.executeQuery()) {
+        ResultSetMetaData meta = rs.getMetaData();
+        Integer[] types = new Integer[_columns.length];
+        for (int i = 0; i < types.length; i++) {
+          types[i] = meta.getColumnType(i + 1);
+        }
+        _columnTypes = types;
+      }
+    }
+    return _columnTypes;
+  }
+
+  static String getInsertSql(String table, String[] columns, int numRows) {
+    String rowParams = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+    StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+        .append(" (").append(String.join(", ", columns)).append(") VALUES ").append(rowParams);
+    for (int i = 1; i < numRows; i++) {
+      sql.append(", ").append(rowParams);
+    }
+    return sql.toString();
+  }
+}
@@ -0,0 +1,48 @@
+package org.gusdb.fgputil.db.bulk;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.gusdb.fgputil.db.runner.ParamBinder;
+
+/**
+ * Writes rows with JDBC batches of a single-row INSERT statement.
+ */
+class JdbcBatchWriter implements RowWriter {
+
+  private final PreparedStatement _stmt;
+  private final ParamBinder[] _binders;
+  private final int _batchSize;
+  private int _numPending = 0;
+
+  JdbcBatchWriter(Connection conn, String table, String[] columns, ParamBinder[] binders, int batchSize) throws SQLException {
+    _stmt = conn.prepareStatement(BulkLoader.getInsertSql(table, columns, 1));
+    _binders = binders;
+    _batchSize = batchSize;
+  }
+
+  @Override
+  public void write(Object[] row) throws SQLException {
+    for (int i = 0; i < _binders.length; i++) {
+      _binders[i].bind(_stmt, i + 1, row[i]);
+    }
+    _stmt.addBatch();
+    if (++_numPending == _batchSize) {
+      flush();
+    }
+  }
+
+  @Override
+  public void flush() throws SQLException {
+    if (_numPending > 0) {
+      _stmt.executeBatch();
+      _numPending = 0;
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    _stmt.close();
+  }
+}
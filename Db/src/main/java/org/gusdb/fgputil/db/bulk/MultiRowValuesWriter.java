@@ -0,0 +1,87 @@
+package org.gusdb.fgputil.db.bulk;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.gusdb.fgputil.db.runner.ParamBinder;
+
+/**
+ * Writes rows with JDBC batches of an INSERT statement whose VALUES clause
+ * holds many rows, reducing the number of statements the database must
+ * execute.  Rows left over when a batch is flushed are inserted by a
+ * statement sized to fit them.
+ */
+class MultiRowValuesWriter implements RowWriter {
+
+  // lowest limit on bind parameters per statement among supported databases (PostgreSQL)
+  private static final int MAX_PARAMS_PER_STATEMENT = 32767;
+
+  private final Connection _conn;
+  private final String _table;
+  private final String[] _columns;
+  private final ParamBinder[] _binders;
+  private final int _rowsPerStatement;
+  private final int _statementsPerBatch;
+  private final PreparedStatement _stmt;
+
+  // rows not yet bound to a statement
+  private final Object[][] _rows;
+  private int _numRows = 0;
+  private int _numPendingStatements = 0;
+
+  MultiRowValuesWriter(Connection conn, String table, String[] columns, ParamBinder[] binders,
+      int batchSize, int rowsPerStatement) throws SQLException {
+    _conn = conn;
+    _table = table;
+    _columns = columns;
+    _binders = binders;
+    _rowsPerStatement = Math.max(1, Math.min(rowsPerStatement, MAX_PARAMS_PER_STATEMENT / columns.length));
+    _statementsPerBatch = Math.max(1, batchSize / _rowsPerStatement);
+    _stmt = conn.prepareStatement(BulkLoader.getInsertSql(table, columns, _rowsPerStatement));
+    _rows = new Object[_rowsPerStatement][];
+  }
+
+  @Override
+  public void write(Object[] row) throws SQLException {
+    _rows[_numRows++] = row;
+    if (_numRows == _rowsPerStatement) {
+      bindRows(_stmt);
+      _stmt.addBatch();
+      if (++_numPendingStatements == _statementsPerBatch) {
+        _stmt.executeBatch();
+        _numPendingStatements = 0;
+      }
+    }
+  }
+
+  private void bindRows(PreparedStatement stmt) throws SQLException {
+    int paramIndex = 1;
+    for (int r = 0; r < _numRows; r++) {
+      for (int i = 0; i < _binders.length; i++) {
+        _binders[i].bind(stmt, paramIndex++, _rows[r][i]);
+      }
+      _rows[r] = null;
+    }
+    _numRows = 0;
+  }
+
+  @Override
+  public void flush() throws SQLException {
+    if (_numPendingStatements > 0) {
+      _stmt.executeBatch();
+      _numPendingStatements = 0;
+    }
+    if (_numRows > 0) {
+      try (PreparedStatement remainderStmt = _conn.prepareStatement(BulkLoader.getInsertSql(_table, _columns, _numRows))) {
+        bindRows(remainderStmt);
+        remainderStmt.executeUpdate();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    _stmt.close();
+  }
+}
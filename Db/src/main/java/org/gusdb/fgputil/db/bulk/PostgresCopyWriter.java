@@ -0,0 +1,131 @@
+package org.gusdb.fgputil.db.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.gusdb.fgputil.IoUtil;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Writes rows with PostgreSQL's COPY FROM STDIN in text format.  Rows are
+ * encoded into a buffer which is sent to the server every batchSize rows; the
+ * COPY is ended on flush, after which the caller may commit.  Values are
+ * written as text PostgreSQL parses into the column type: booleans as t/f,
+ * binary data in bytea hex format, dates and timestamps in JDBC escape format,
+ * and everything else by its string value.
+ */
+class PostgresCopyWriter implements RowWriter {
+
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final CopyManager _copyManager;
+  private final String _copySql;
+  private final int _batchSize;
+
+  private final StringBuilder _text = new StringBuilder();
+  private int _numPending = 0;
+
+  // null if no COPY is in progress
+  private CopyIn _copyIn;
+
+  PostgresCopyWriter(Connection conn, String table, String[] columns, int batchSize) throws SQLException {
+    _copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+    _copySql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN";
+    _batchSize = batchSize;
+  }
+
+  @Override
+  public void write(Object[] row) throws SQLException {
+    for (int i = 0; i < row.length; i++) {
+      if (i > 0) _text.append('\t');
+      appendValue(row[i]);
+    }
+    _text.append('\n');
+    if (++_numPending == _batchSize) {
+      sendPending();
+    }
+  }
+
+  private void sendPending() throws SQLException {
+    if (_copyIn == null) {
+      _copyIn = _copyManager.copyIn(_copySql);
+    }
+    byte[] bytes = _text.toString().getBytes(StandardCharsets.UTF_8);
+    _copyIn.writeToCopy(bytes, 0, bytes.length);
+    _text.setLength(0);
+    _numPending = 0;
+  }
+
+  @Override
+  public void flush() throws SQLException {
+    if (_numPending > 0) {
+      sendPending();
+    }
+    if (_copyIn != null) {
+      _copyIn.endCopy();
+      _copyIn = null;
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    if (_copyIn != null && _copyIn.isActive()) {
+      _copyIn.cancelCopy();
+    }
+    _copyIn = null;
+  }
+
+  private void appendValue(Object value) throws SQLException {
+    if (value == null) {
+      _text.append("\\N");
+    }
+    else if (value instanceof Boolean) {
+      _text.append((Boolean)value ? 't' : 'f');
+    }
+    else if (value instanceof Number) {
+      _text.append(value instanceof BigDecimal ? ((BigDecimal)value).toPlainString() : value.toString());
+    }
+    else if (value instanceof byte[]) {
+      // bytea hex format; the leading backslash must itself be escaped
+      _text.append("\\\\x");
+      for (byte b : (byte[])value) {
+        _text.append((char)HEX_DIGITS[(b >> 4) & 0xf]).append((char)HEX_DIGITS[b & 0xf]);
+      }
+    }
+    else if (value instanceof Date && !(value instanceof java.sql.Date) && !(value instanceof Timestamp)) {
+      _text.append(new Timestamp(((Date)value).getTime()));
+    }
+    else if (value instanceof Reader) {
+      try (Reader reader = (Reader)value) {
+        appendEscaped(IoUtil.readAllChars(reader));
+      }
+      catch (IOException e) {
+        throw new SQLException("Unable to read character data for COPY", e);
+      }
+    }
+    else {
+      appendEscaped(value.toString());
+    }
+  }
+
+  private void appendEscaped(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\': _text.append("\\\\"); break;
+        case '\t': _text.append("\\t"); break;
+        case '\n': _text.append("\\n"); break;
+        case '\r': _text.append("\\r"); break;
+        default: _text.append(c);
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.gusdb.fgputil.db.bulk;
+
+import java.sql.SQLException;
+
+/**
+ * Writes rows to a table over a single connection using one load method.
+ * Rows may be held until a batch is full; flush() sends any held rows, after
+ * which the caller may commit.
+ */
+interface RowWriter extends AutoCloseable {
+
+  void write(Object[] row) throws SQLException;
+
+  void flush() throws SQLException;
+
+  @Override
+  void close() throws SQLException;
+
+}
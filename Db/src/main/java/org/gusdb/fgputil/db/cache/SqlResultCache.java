@@ -5,6 +5,7 @@ import java.util.function.Function;
 
 import javax.sql.DataSource;
 
+import org.gusdb.fgputil.cache.CacheConfig;
 import org.gusdb.fgputil.cache.InMemoryCache;
 import org.gusdb.fgputil.cache.ValueFactory;
 import org.gusdb.fgputil.cache.ValueProductionException;
@@ -16,6 +17,11 @@ public class SqlResultCache<T> extends InMemoryCache<String,T> {
   private final Function<ResultSet, T> _resultParser;
 
   public SqlResultCache(DataSource ds, Function<ResultSet,T> resultParser) {
+    this(ds, resultParser, new CacheConfig<>());
+  }
+
+  public SqlResultCache(DataSource ds, Function<ResultSet,T> resultParser, CacheConfig<String,T> config) {
+    super(config);
     _ds = ds;
     _resultParser = resultParser;
   }
@@ -0,0 +1,20 @@
+package org.gusdb.fgputil.db.leakmonitor;
+
+/**
+ * Determines how much an UnclosedObjectMonitor records about each object
+ * opened.  Unclosed objects are always counted and listed with their age and
+ * request ID; the level only controls how many of them have the stack trace
+ * of the code that opened them captured.
+ */
+public enum LeakTrackingLevel {
+
+  /** No stack traces are captured */
+  OFF,
+
+  /** The stack trace of every Nth object opened is captured */
+  SAMPLED,
+
+  /** The stack trace of every object opened is captured (the default) */
+  FULL;
+
+}
@@ -11,41 +11,84 @@ import org.gusdb.fgputil.logging.ThreadLocalLoggingVars;
 
 public class UnclosedObjectInfo {
 
-  private String _dbName;
-  private CloseableObjectType<?> _type;
-  private Date _timeOpened;
-  private String _requestId;
-  private String _stackTrace;
-  private String _stackTraceHash;
+  // shared by all objects opened without a stack trace capture so they are reported together
+  static final String NO_STACK_TRACE_HASH = "stack-trace-not-captured";
+  static final String NO_STACK_TRACE = "Stack trace not captured; raise the leak tracking level to see where these were opened.";
+
+  /**
+   * Records where an object was opened.  Filling in a Throwable's backtrace is
+   * comparatively cheap; the expensive parts (building StackTraceElements,
+   * rendering them to a String, and hashing the result) are deferred until a
+   * leak is actually reported.
+   */
+  private static class OpenedAt extends Throwable {
+    private static final long serialVersionUID = 1L;
+    OpenedAt() { super(null, null, false, true); }
+  }
+
+  private final String _dbName;
+  private final CloseableObjectType<?> _type;
+  private final long _timeOpened;
+  private final String _requestId;
+  private final Throwable _openedAt;
+
+  // rendered lazily from _openedAt; races only result in duplicate work
+  private volatile String _stackTrace;
+  private volatile String _stackTraceHash;
 
   public UnclosedObjectInfo(String dbName, CloseableObjectType<?> type) {
     this(dbName, type, null);
   }
 
   public UnclosedObjectInfo(String dbName, CloseableObjectType<?> type, Map<String, String> globalStacktraceMap) {
+    this(dbName, type, true, globalStacktraceMap);
+  }
+
+  /**
+   * @param captureStackTrace whether to capture the stack trace of the caller
+   * @param globalStacktraceMap if non-null, the (rendered) stack trace is
+   * added to this map immediately, keyed by its hash
+   */
+  UnclosedObjectInfo(String dbName, CloseableObjectType<?> type,
+      boolean captureStackTrace, Map<String, String> globalStacktraceMap) {
     _dbName = dbName;
     _type = type;
-    _timeOpened = new Date();
+    _timeOpened = System.currentTimeMillis();
     _requestId = ThreadLocalLoggingVars.getRequestId();
-    _stackTrace = FormatUtil.getCurrentStackTrace();
-    _stackTraceHash = EncryptionUtil.encrypt(_stackTrace);
+    _openedAt = captureStackTrace ? new OpenedAt() : null;
     // only add stack trace to global map if specified
-    if (globalStacktraceMap != null) {
-      globalStacktraceMap.put(_stackTraceHash, _stackTrace);
+    if (globalStacktraceMap != null && hasStackTrace()) {
+      globalStacktraceMap.put(getStackTraceHash(), getStackTrace());
     }
   }
 
+  boolean hasStackTrace() {
+    return _openedAt != null;
+  }
+
   public String getStackTraceHash() {
+    if (!hasStackTrace()) {
+      return NO_STACK_TRACE_HASH;
+    }
+    if (_stackTraceHash == null) {
+      _stackTraceHash = EncryptionUtil.encrypt(getStackTrace());
+    }
     return _stackTraceHash;
   }
 
   public String getStackTrace() {
+    if (!hasStackTrace()) {
+      return NO_STACK_TRACE;
+    }
+    if (_stackTrace == null) {
+      _stackTrace = FormatUtil.getStackTrace(_openedAt);
+    }
     return _stackTrace;
   }
 
   public String getBasicInfo() {
-    String timeOpenedStr = FormatUtil.formatDateTime(_timeOpened);
-    double secondsOpen = ((double)(new Date().getTime() - _timeOpened.getTime())) / 1000;
+    String timeOpenedStr = FormatUtil.formatDateTime(new Date(_timeOpened));
+    double secondsOpen = ((double)(System.currentTimeMillis() - _timeOpened)) / 1000;
     String requestIdStr = _requestId == null ? "" : " during request with ID " + _requestId;
     return new StringBuilder()
         .append(_type)
@@ -24,15 +24,33 @@ public class UnclosedObjectMonitor<T> {
      * Creates a "map" where a key of type CloseableObjectType&lt;T&gt; can be used to
      * look up a UnclosedObjectMonitor&lt;T&gt;, where T is one of the types being
      * monitored (e.g. java.sql.Connection).  It is not an implementation of Map
-     * so it can provide this sort of multi-typed lookup.
+     * so it can provide this sort of multi-typed lookup.  The stack trace of
+     * every object opened is captured.
      *
      * @param dbName database this unclosed object monitor is associated with
      * @param recordAllStacktraces whether to record stack traces for every object
      * ever opened and retain them for later logging (even if they have been closed)
      */
     public UnclosedObjectMonitorMap(String dbName, boolean recordAllStacktraces) {
+      this(dbName, LeakTrackingLevel.FULL, 1, recordAllStacktraces);
+    }
+
+    /**
+     * Creates a "map" of monitors which capture stack traces according to the
+     * passed level.
+     *
+     * @param dbName database this unclosed object monitor is associated with
+     * @param level how many of the objects opened have their stack traces captured
+     * @param sampleInterval if level is SAMPLED, the stack trace of one in this
+     * many objects opened (of each type) is captured
+     * @param recordAllStacktraces whether to record stack traces for every object
+     * ever opened and retain them for later logging (even if they have been
+     * closed); overrides level
+     */
+    public UnclosedObjectMonitorMap(String dbName, LeakTrackingLevel level,
+        int sampleInterval, boolean recordAllStacktraces) {
       for (CloseableObjectType<?> type : CloseableObjectType.values()) {
-        add(new UnclosedObjectMonitor<>(type, dbName, recordAllStacktraces));
+        add(new UnclosedObjectMonitor<>(type, dbName, level, sampleInterval, recordAllStacktraces));
       }
     }
 
@@ -46,15 +64,20 @@ public class UnclosedObjectMonitor<T> {
 
   private final CloseableObjectType<T> _type;
   private final String _dbName;
+  private final LeakTrackingLevel _level;
+  private final int _sampleInterval;
   private final boolean _recordAllStacktraces;
   private final Map<T, UnclosedObjectInfo> _unclosedObjectMap = new ConcurrentHashMap<>();
   private final Map<String, String> _globalStacktraceMap = new ConcurrentHashMap<>();
   private final AtomicInteger _numOpened = new AtomicInteger(0);
   private final AtomicInteger _numClosed = new AtomicInteger(0);
 
-  private UnclosedObjectMonitor(CloseableObjectType<T> type, String dbName, boolean recordAllStacktraces) {
+  private UnclosedObjectMonitor(CloseableObjectType<T> type, String dbName,
+      LeakTrackingLevel level, int sampleInterval, boolean recordAllStacktraces) {
     _type = type;
     _dbName = dbName;
+    _level = recordAllStacktraces ? LeakTrackingLevel.FULL : level;
+    _sampleInterval = Math.max(1, sampleInterval);
     _recordAllStacktraces = recordAllStacktraces;
   }
 
@@ -62,11 +85,19 @@ public class UnclosedObjectMonitor<T> {
     return _type;
   }
 
+  public LeakTrackingLevel getLeakTrackingLevel() {
+    return _level;
+  }
+
   public void registerOpenedObject(T obj) {
 
-    UnclosedObjectInfo info = (_recordAllStacktraces ?
-        new UnclosedObjectInfo(_dbName, _type, _globalStacktraceMap) :
-        new UnclosedObjectInfo(_dbName, _type));
+    int openedCount = _numOpened.incrementAndGet();
+    boolean captureStackTrace =
+        _level == LeakTrackingLevel.FULL ||
+        (_level == LeakTrackingLevel.SAMPLED && openedCount % _sampleInterval == 0);
+
+    UnclosedObjectInfo info = new UnclosedObjectInfo(_dbName, _type,
+        captureStackTrace, _recordAllStacktraces ? _globalStacktraceMap : null);
 
     if (LOG.isTraceEnabled()) {
       // log hash for this object; let caller know what was opened
@@ -75,7 +106,6 @@ public class UnclosedObjectMonitor<T> {
     }
 
     _unclosedObjectMap.put(obj, info);
-    _numOpened.incrementAndGet();
   }
 
   public void unregisterClosedObject(T obj) {
@@ -128,7 +158,8 @@ public class UnclosedObjectMonitor<T> {
         .append("================================").append(NL).append(NL)
         .append("  ").append(_numOpened.get()).append(" " + typeNamePlural + " opened").append(NL)
         .append("  ").append(_numClosed.get()).append(" " + typeNamePlural + " closed").append(NL)
-        .append("  ").append(rawInfoList.size()).append(" currently open " + typeNamePlural).append(NL).append(NL);
+        .append("  ").append(rawInfoList.size()).append(" currently open " + typeNamePlural).append(NL)
+        .append("  Stack traces captured: ").append(describeLevel(typeNamePlural)).append(NL).append(NL);
 
     // if no unclosed objects exist, skip unclosed section
     if (!rawInfoList.isEmpty()) {
@@ -174,6 +205,19 @@ public class UnclosedObjectMonitor<T> {
     return sb.toString();
   }
 
+  private String describeLevel(String typeNamePlural) {
+    switch (_level) {
+      case OFF: return "none";
+      case SAMPLED: return "one in every " + _sampleInterval + " " + typeNamePlural;
+      default: return "all";
+    }
+  }
+
+  // package-private for testing
+  Collection<UnclosedObjectInfo> getUnclosedObjects() {
+    return _unclosedObjectMap.values();
+  }
+
   public int getNumOpened() {
     return _numOpened.get();
   }
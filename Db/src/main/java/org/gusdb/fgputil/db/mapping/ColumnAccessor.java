@@ -0,0 +1,95 @@
+package org.gusdb.fgputil.db.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Reads the value of a single, already-resolved column from the current row
+ * of a ResultSet.  Accessors are created once per column (typically from
+ * ResultSetMetaData) so that the choice of getter and the column index lookup
+ * are not repeated for every value read.
+ */
+@FunctionalInterface
+public interface ColumnAccessor {
+
+  /**
+   * @param rs result set positioned on a row
+   * @return value of this accessor's column in the current row, or null if
+   * the value is SQL NULL
+   * @throws SQLException if unable to read the value
+   */
+  Object get(ResultSet rs) throws SQLException;
+
+  /**
+   * Creates an accessor for the column at the passed index which calls the
+   * typed getter for the passed SQL type, producing the same Java types that
+   * ResultSet.getObject() is specified to return for that SQL type.  Types
+   * without a specific getter are read with getObject().  Where a driver's
+   * getObject() departs from the spec, values may differ from what it would
+   * return; e.g. Oracle DATE columns carry a time of day, which getObject()
+   * keeps (as a Timestamp) but getDate() drops.
+   *
+   * @param columnIndex 1-based index of the column to read
+   * @param sqlType SQL type of the column (see {@link java.sql.Types})
+   * @return accessor for the column
+   */
+  static ColumnAccessor forColumn(int columnIndex, int sqlType) {
+    switch (sqlType) {
+
+      case Types.BOOLEAN:
+      case Types.BIT:
+        return rs -> { boolean value = rs.getBoolean(columnIndex); return rs.wasNull() ? null : value; };
+
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        return rs -> { int value = rs.getInt(columnIndex); return rs.wasNull() ? null : value; };
+
+      case Types.BIGINT:
+        return rs -> { long value = rs.getLong(columnIndex); return rs.wasNull() ? null : value; };
+
+      case Types.REAL:
+        return rs -> { float value = rs.getFloat(columnIndex); return rs.wasNull() ? null : value; };
+
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return rs -> { double value = rs.getDouble(columnIndex); return rs.wasNull() ? null : value; };
+
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        return rs -> rs.getBigDecimal(columnIndex);
+
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return rs -> rs.getString(columnIndex);
+
+      case Types.DATE:
+        return rs -> rs.getDate(columnIndex);
+
+      case Types.TIME:
+        return rs -> rs.getTime(columnIndex);
+
+      case Types.TIMESTAMP:
+        return rs -> rs.getTimestamp(columnIndex);
+
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+        return rs -> rs.getBytes(columnIndex);
+
+      case Types.CLOB:
+        return rs -> rs.getClob(columnIndex);
+
+      case Types.BLOB:
+        return rs -> rs.getBlob(columnIndex);
+
+      default:
+        return rs -> rs.getObject(columnIndex);
+    }
+  }
+}
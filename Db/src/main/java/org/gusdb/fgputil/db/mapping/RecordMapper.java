@@ -0,0 +1,54 @@
+package org.gusdb.fgputil.db.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Fills caller-supplied record objects from result rows.  Created by
+ * RecordMapping.compile(), which resolves each mapped column to its index
+ * once; reading a row then costs one getter and one setter call per mapped
+ * column.  May be used by many threads at once if the setters allow it.
+ */
+public class RecordMapper<R> {
+
+  @FunctionalInterface
+  interface FieldReader<R> {
+    void read(ResultSet rs, R record) throws SQLException;
+  }
+
+  private final Supplier<R> _recordFactory;
+  private final FieldReader<R>[] _fields;
+
+  @SuppressWarnings("unchecked")
+  RecordMapper(Supplier<R> recordFactory, List<FieldReader<R>> fields) {
+    _recordFactory = recordFactory;
+    _fields = fields.toArray(new FieldReader[0]);
+  }
+
+  /**
+   * @param rs result set positioned on a row
+   * @return new record filled from the current row
+   * @throws SQLException if unable to read the row
+   */
+  public R readRecord(ResultSet rs) throws SQLException {
+    R record = _recordFactory.get();
+    readRecord(rs, record);
+    return record;
+  }
+
+  /**
+   * Fills the passed record from the current row, e.g. to reuse one record
+   * object across rows.
+   *
+   * @param rs result set positioned on a row
+   * @param record record to fill
+   * @throws SQLException if unable to read the row
+   */
+  public void readRecord(ResultSet rs, R record) throws SQLException {
+    for (FieldReader<R> field : _fields) {
+      field.read(rs, record);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package org.gusdb.fgputil.db.mapping;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import org.gusdb.fgputil.Tuples.TwoTuple;
+import org.gusdb.fgputil.db.mapping.RecordMapper.FieldReader;
+import org.gusdb.fgputil.db.stream.ResultSetIterator.RowConverter;
+
+/**
+ * Describes how result columns map onto fields of a caller-supplied record
+ * type: a factory for new records plus a setter for each column of interest,
+ * identified by (case-insensitive) column label.  Compiling a mapping against
+ * a result's metadata produces a RecordMapper.  For example:
+ *
+ * <pre>
+ * RecordMapping&lt;Person&gt; mapping = new RecordMapping&lt;&gt;(Person::new)
+ *     .mapInt("id", Person::setId)
+ *     .mapString("name", Person::setName);
+ * </pre>
+ *
+ * Primitive mappings follow JDBC getter semantics (SQL NULL is read as 0 or
+ * false); use mapValue() to receive nulls.
+ */
+public class RecordMapping<R> {
+
+  // creates a field reader once the index and SQL type of its column are known
+  @FunctionalInterface
+  private interface FieldBinding<R> {
+    FieldReader<R> bind(int columnIndex, int sqlType);
+  }
+
+  private final Supplier<R> _recordFactory;
+  private final List<TwoTuple<String,FieldBinding<R>>> _bindings = new ArrayList<>();
+
+  public RecordMapping(Supplier<R> recordFactory) {
+    _recordFactory = recordFactory;
+  }
+
+  private RecordMapping<R> map(String columnLabel, FieldBinding<R> binding) {
+    _bindings.add(new TwoTuple<>(columnLabel, binding));
+    return this;
+  }
+
+  public RecordMapping<R> mapInt(String columnLabel, ObjIntConsumer<R> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getInt(i)));
+  }
+
+  public RecordMapping<R> mapLong(String columnLabel, ObjLongConsumer<R> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getLong(i)));
+  }
+
+  public RecordMapping<R> mapDouble(String columnLabel, ObjDoubleConsumer<R> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getDouble(i)));
+  }
+
+  public RecordMapping<R> mapBoolean(String columnLabel, BiConsumer<R,Boolean> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getBoolean(i)));
+  }
+
+  public RecordMapping<R> mapString(String columnLabel, BiConsumer<R,String> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getString(i)));
+  }
+
+  public RecordMapping<R> mapBigDecimal(String columnLabel, BiConsumer<R,BigDecimal> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getBigDecimal(i)));
+  }
+
+  public RecordMapping<R> mapTimestamp(String columnLabel, BiConsumer<R,Timestamp> setter) {
+    return map(columnLabel, (i, type) -> (rs, record) -> setter.accept(record, rs.getTimestamp(i)));
+  }
+
+  /**
+   * Maps a column to a setter receiving the value RowMapper would produce
+   * for it (see ColumnAccessor.forColumn()), or null for SQL NULL.
+   */
+  public RecordMapping<R> mapValue(String columnLabel, BiConsumer<R,Object> setter) {
+    return map(columnLabel, (i, type) -> {
+      ColumnAccessor accessor = ColumnAccessor.forColumn(i, type);
+      return (rs, record) -> setter.accept(record, accessor.get(rs));
+    });
+  }
+
+  /**
+   * Resolves each mapped column against the passed metadata
+   *
+   * @param meta metadata of the results to be read
+   * @return mapper for results with the passed metadata
+   * @throws SQLException if unable to read metadata
+   * @throws IllegalArgumentException if a mapped column is not present
+   */
+  public RecordMapper<R> compile(ResultSetMetaData meta) throws SQLException {
+    List<FieldReader<R>> fields = new ArrayList<>(_bindings.size());
+    for (TwoTuple<String,FieldBinding<R>> binding : _bindings) {
+      int columnIndex = findColumn(meta, binding.getFirst());
+      fields.add(binding.getSecond().bind(columnIndex, meta.getColumnType(columnIndex)));
+    }
+    return new RecordMapper<>(_recordFactory, fields);
+  }
+
+  private static int findColumn(ResultSetMetaData meta, String columnLabel) throws SQLException {
+    String upperLabel = columnLabel.toUpperCase(Locale.ROOT);
+    for (int i = 1; i <= meta.getColumnCount(); i++) {
+      if (meta.getColumnLabel(i).toUpperCase(Locale.ROOT).equals(upperLabel)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Column " + columnLabel + " is not present.");
+  }
+
+  /**
+   * @return a row converter producing a new record per row.  The mapping is
+   * compiled against the metadata of the first row converted, so a converter
+   * should only be used with results of a single query.
+   */
+  public RowConverter<R> toRowConverter() {
+    return new RowConverter<R>() {
+
+      private volatile RecordMapper<R> _mapper;
+
+      @Override
+      public Optional<R> convert(ResultSet rs) throws SQLException {
+        return Optional.of(convertOrNull(rs));
+      }
+
+      @Override
+      public R convertOrNull(ResultSet rs) throws SQLException {
+        RecordMapper<R> mapper = _mapper;
+        if (mapper == null) {
+          // racing threads compile equivalent mappers; any may be kept
+          _mapper = mapper = compile(rs.getMetaData());
+        }
+        return mapper.readRecord(rs);
+      }
+    };
+  }
+}
@@ -0,0 +1,295 @@
+package org.gusdb.fgputil.db.mapping;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A map from column key to value for one result row, stored compactly as an
+ * array of values plus a key index shared by all rows read by the same
+ * RowMapper (much like InitialSizeStringMap).  Values are also accessible by
+ * 1-based column index.
+ *
+ * If a key appears for more than one column, the map holds the value of the
+ * last such column (as when values are put into a map in column order).
+ * Entries beyond the columns can be added, but no more efficiently than a
+ * regular LinkedHashMap.  Removing a column key removes it from the map
+ * (getValue() then returns null for its column) until it is put again.
+ * keySet(), values() and entrySet() are views backed by the row.
+ */
+public class ResultRow extends AbstractMap<String,Object> {
+
+  /**
+   * Keys of a set of rows, mapped to the index of the value each refers to
+   */
+  static class Keys {
+
+    private final List<String> _keys;
+    private final Map<String,Integer> _valueIndexes;
+
+    Keys(String[] columnKeys) {
+      _valueIndexes = new HashMap<>(columnKeys.length * 2);
+      List<String> keys = new ArrayList<>(columnKeys.length);
+      for (int i = 0; i < columnKeys.length; i++) {
+        if (columnKeys[i] == null)
+          throw new IllegalArgumentException("No keys can be null.");
+        if (_valueIndexes.put(columnKeys[i], i) == null) {
+          keys.add(columnKeys[i]);
+        }
+      }
+      _keys = Collections.unmodifiableList(keys);
+    }
+
+    List<String> getKeys() {
+      return _keys;
+    }
+  }
+
+  // marks the value of a column whose key has been removed from the map
+  private static final Object ABSENT = new Object();
+
+  private final Keys _keys;
+  private final Object[] _values;
+  private int _numRemoved = 0;
+
+  private Map<String,Object> _supplementalEntries;
+  private Set<Entry<String,Object>> _entrySet;
+
+  ResultRow(Keys keys, Object[] values) {
+    _keys = keys;
+    _values = values;
+  }
+
+  private static Object unmask(Object value) {
+    return value == ABSENT ? null : value;
+  }
+
+  /**
+   * @param columnIndex 1-based index of a column
+   * @return value of the column in this row
+   */
+  public Object getValue(int columnIndex) {
+    return unmask(_values[columnIndex - 1]);
+  }
+
+  /**
+   * @return number of columns in this row (may differ from size() if keys
+   * were repeated, removed or entries added)
+   */
+  public int getColumnCount() {
+    return _values.length;
+  }
+
+  /**
+   * @return copy of the values in this row, in column order
+   */
+  public Object[] toArray() {
+    Object[] values = new Object[_values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = unmask(_values[i]);
+    }
+    return values;
+  }
+
+  @Override
+  public int size() {
+    return _keys._keys.size() - _numRemoved + (_supplementalEntries == null ? 0 : _supplementalEntries.size());
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    Integer index = _keys._valueIndexes.get(key);
+    if (index != null) {
+      return _values[index] != ABSENT;
+    }
+    return _supplementalEntries != null && _supplementalEntries.containsKey(key);
+  }
+
+  @Override
+  public Object get(Object key) {
+    Integer index = _keys._valueIndexes.get(key);
+    if (index != null) {
+      return unmask(_values[index]);
+    }
+    return _supplementalEntries == null ? null : _supplementalEntries.get(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    Integer index = _keys._valueIndexes.get(key);
+    if (index != null) {
+      Object oldValue = _values[index];
+      _values[index] = value;
+      if (oldValue == ABSENT) {
+        _numRemoved--;
+        return null;
+      }
+      return oldValue;
+    }
+    if (_supplementalEntries == null) {
+      _supplementalEntries = new LinkedHashMap<>();
+    }
+    return _supplementalEntries.put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    Integer index = _keys._valueIndexes.get(key);
+    if (index != null) {
+      return removeColumnValue(index);
+    }
+    return _supplementalEntries == null ? null : _supplementalEntries.remove(key);
+  }
+
+  private Object removeColumnValue(int index) {
+    Object oldValue = _values[index];
+    if (oldValue == ABSENT) {
+      return null;
+    }
+    _values[index] = ABSENT;
+    _numRemoved++;
+    return oldValue;
+  }
+
+  @Override
+  public void clear() {
+    for (int index : _keys._valueIndexes.values()) {
+      removeColumnValue(index);
+    }
+    if (_supplementalEntries != null)
+      _supplementalEntries.clear();
+  }
+
+  /**
+   * @return view of the entries of this row: column keys in column order,
+   * then added entries.  keySet() and values() (as implemented by
+   * AbstractMap) are backed by this view.
+   */
+  @Override
+  public Set<Entry<String,Object>> entrySet() {
+    if (_entrySet == null) {
+      _entrySet = new AbstractSet<Entry<String,Object>>() {
+        @Override
+        public Iterator<Entry<String,Object>> iterator() {
+          return new EntryIterator();
+        }
+        @Override
+        public int size() {
+          return ResultRow.this.size();
+        }
+        @Override
+        public void clear() {
+          ResultRow.this.clear();
+        }
+      };
+    }
+    return _entrySet;
+  }
+
+  private class ColumnEntry implements Entry<String,Object> {
+
+    private final String _key;
+    private final int _index;
+
+    ColumnEntry(String key, int index) {
+      _key = key;
+      _index = index;
+    }
+
+    @Override
+    public String getKey() {
+      return _key;
+    }
+
+    @Override
+    public Object getValue() {
+      return unmask(_values[_index]);
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      return put(_key, value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Entry)) return false;
+      Entry<?,?> entry = (Entry<?,?>)obj;
+      return _key.equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return _key.hashCode() ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return _key + "=" + getValue();
+    }
+  }
+
+  private class EntryIterator implements Iterator<Entry<String,Object>> {
+
+    private int _nextKey = 0;
+    // value index of the last column entry returned, or -1 if none or removed
+    private int _lastIndex = -1;
+    private Iterator<Entry<String,Object>> _supplemental;
+    private boolean _lastWasSupplemental = false;
+
+    @Override
+    public boolean hasNext() {
+      List<String> keys = _keys._keys;
+      while (_nextKey < keys.size() && _values[_keys._valueIndexes.get(keys.get(_nextKey))] == ABSENT) {
+        _nextKey++;
+      }
+      if (_nextKey < keys.size()) {
+        return true;
+      }
+      if (_supplemental == null) {
+        if (_supplementalEntries == null) {
+          return false;
+        }
+        _supplemental = _supplementalEntries.entrySet().iterator();
+      }
+      return _supplemental.hasNext();
+    }
+
+    @Override
+    public Entry<String,Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (_supplemental == null) {
+        String key = _keys._keys.get(_nextKey++);
+        _lastIndex = _keys._valueIndexes.get(key);
+        return new ColumnEntry(key, _lastIndex);
+      }
+      _lastIndex = -1;
+      _lastWasSupplemental = true;
+      return _supplemental.next();
+    }
+
+    @Override
+    public void remove() {
+      if (_lastWasSupplemental) {
+        _supplemental.remove();
+        return;
+      }
+      if (_lastIndex < 0) {
+        throw new IllegalStateException();
+      }
+      removeColumnValue(_lastIndex);
+      _lastIndex = -1;
+    }
+  }
+}
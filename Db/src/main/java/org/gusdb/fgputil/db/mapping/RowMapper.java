@@ -0,0 +1,156 @@
+package org.gusdb.fgputil.db.mapping;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+import org.gusdb.fgputil.db.stream.ResultSetIterator.RowConverter;
+
+/**
+ * Reads result rows into compact ResultRow maps (or caller-supplied arrays).
+ * Result metadata is read once, when the mapper is created, to build an
+ * index-based ColumnAccessor for each column; reading a row then costs only
+ * the getter calls for its values.  A mapper may be used for any result set
+ * with the same columns, and by many threads at once.
+ *
+ * By default columns are read with the typed getter matching their SQL type
+ * (see ColumnAccessor.forColumn()); usingGetObject() creates a mapper which
+ * reads them with getObject() instead.
+ */
+public class RowMapper {
+
+  private final ResultRow.Keys _keys;
+  private final ColumnAccessor[] _accessors;
+
+  /**
+   * Creates a mapper whose rows are keyed by column label
+   *
+   * @param meta metadata of the results to be read
+   * @throws SQLException if unable to read metadata
+   */
+  public RowMapper(ResultSetMetaData meta) throws SQLException {
+    this(meta, getColumnLabels(meta));
+  }
+
+  /**
+   * Creates a mapper whose rows are keyed by the passed keys
+   *
+   * @param meta metadata of the results to be read
+   * @param keys key for each column, in column order
+   * @throws SQLException if unable to read metadata
+   */
+  public RowMapper(ResultSetMetaData meta, String[] keys) throws SQLException {
+    this(meta, keys, true);
+  }
+
+  private RowMapper(ResultSetMetaData meta, String[] keys, boolean useTypedGetters) throws SQLException {
+    int numColumns = meta.getColumnCount();
+    if (keys.length != numColumns)
+      throw new IllegalArgumentException("Expected " + numColumns + " keys but " + keys.length + " were passed.");
+    _keys = new ResultRow.Keys(keys);
+    _accessors = new ColumnAccessor[numColumns];
+    for (int i = 1; i <= numColumns; i++) {
+      int columnIndex = i;
+      _accessors[i - 1] = useTypedGetters ? ColumnAccessor.forColumn(i, meta.getColumnType(i)) :
+          rs -> rs.getObject(columnIndex);
+    }
+  }
+
+  /**
+   * Creates a mapper whose rows are keyed by the passed keys and which reads
+   * every column with ResultSet.getObject(), so rows hold exactly the values
+   * the driver returns for the column (e.g. Oracle DATE columns as
+   * Timestamps, which the typed getters would truncate to the day).
+   *
+   * @param meta metadata of the results to be read
+   * @param keys key for each column, in column order
+   * @return mapper which reads values with getObject()
+   * @throws SQLException if unable to read metadata
+   */
+  public static RowMapper usingGetObject(ResultSetMetaData meta, String[] keys) throws SQLException {
+    return new RowMapper(meta, keys, false);
+  }
+
+  private static String[] getColumnLabels(ResultSetMetaData meta) throws SQLException {
+    String[] labels = new String[meta.getColumnCount()];
+    for (int i = 1; i <= labels.length; i++) {
+      labels[i - 1] = meta.getColumnLabel(i);
+    }
+    return labels;
+  }
+
+  /**
+   * @return a row converter which maps rows keyed by column label.  The
+   * mapper is built from the metadata of the first row converted, so a
+   * converter should only be used with results of a single query.
+   */
+  public static RowConverter<ResultRow> toRowConverter() {
+    return new RowConverter<ResultRow>() {
+
+      private volatile RowMapper _mapper;
+
+      @Override
+      public Optional<ResultRow> convert(ResultSet rs) throws SQLException {
+        return Optional.of(convertOrNull(rs));
+      }
+
+      @Override
+      public ResultRow convertOrNull(ResultSet rs) throws SQLException {
+        RowMapper mapper = _mapper;
+        if (mapper == null) {
+          // racing threads build equivalent mappers; any may be kept
+          _mapper = mapper = new RowMapper(rs.getMetaData());
+        }
+        return mapper.readRow(rs);
+      }
+    };
+  }
+
+  public int getColumnCount() {
+    return _accessors.length;
+  }
+
+  /**
+   * @return keys of rows produced by this mapper, in column order (repeated
+   * keys appear once)
+   */
+  public List<String> getKeys() {
+    return _keys.getKeys();
+  }
+
+  /**
+   * @param rs result set positioned on a row
+   * @return the current row of the result set
+   * @throws SQLException if unable to read the row
+   */
+  public ResultRow readRow(ResultSet rs) throws SQLException {
+    return new ResultRow(_keys, readValues(rs));
+  }
+
+  /**
+   * @param rs result set positioned on a row
+   * @return values of the current row of the result set, in column order
+   * @throws SQLException if unable to read the row
+   */
+  public Object[] readValues(ResultSet rs) throws SQLException {
+    Object[] values = new Object[_accessors.length];
+    readValues(rs, values);
+    return values;
+  }
+
+  /**
+   * Reads the values of the current row into the passed array, which may be
+   * reused across rows.
+   *
+   * @param rs result set positioned on a row
+   * @param values array of at least getColumnCount() elements to fill
+   * @throws SQLException if unable to read the row
+   */
+  public void readValues(ResultSet rs, Object[] values) throws SQLException {
+    for (int i = 0; i < _accessors.length; i++) {
+      values[i] = _accessors[i].get(rs);
+    }
+  }
+}
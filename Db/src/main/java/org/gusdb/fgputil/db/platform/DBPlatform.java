@@ -6,7 +6,6 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -228,23 +227,18 @@ public abstract class DBPlatform {
     }
 
     /**
-     * Return a list of unique IDs fetched from the DB's next value mechanism
-     * TODO: make Postgres version as efficient as Oracle version and make this method abstract
+     * Return a list of unique IDs fetched from the DB's next value mechanism.
+     * Implementations fetch all IDs in a single round trip to the database.
+     * See IdBlockAllocator to hand out IDs fetched this way.
      * 
      * @param dataSource data source providing IDs
      * @param schema schema containing sequence
      * @param table table name (sequence name will match
-     * @param numIds number of IDs to fetch
-     * @return
-     * @throws SQLException
+     * @param numIds number of IDs to fetch; must be greater than zero
+     * @return list of fetched IDs
+     * @throws SQLException if unable to fetch IDs
      */
-    public List<Long> getNextNIds(DataSource dataSource, String schema, String table, int numIds) throws SQLException {
-      List<Long> ids = new ArrayList<>();
-      for (int i = 0; i < numIds; i++) {
-        ids.add(getNextId(dataSource, schema, table));
-      }
-      return ids;
-    }
+    public abstract List<Long> getNextNIds(DataSource dataSource, String schema, String table, int numIds) throws SQLException;
 
     /**
      * Returns a SQL value containing a call to the DB's to_date() function
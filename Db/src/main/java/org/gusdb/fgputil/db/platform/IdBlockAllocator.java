@@ -0,0 +1,116 @@
+package org.gusdb.fgputil.db.platform;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * Hands out IDs from a table's primary key sequence, fetching them from the
+ * database in blocks via DBPlatform.getNextNIds() so that most calls need no
+ * database round trip at all.  Safe for use by many threads: IDs are claimed
+ * from the current block with a single atomic increment, and only the thread
+ * that finds a block exhausted fetches the next one (others needing IDs at
+ * that moment wait for it).
+ *
+ * Note IDs fetched but not handed out before the allocator is discarded are
+ * never used, leaving gaps in the sequence; IDs are unique but not
+ * necessarily handed out in increasing order.
+ */
+public class IdBlockAllocator {
+
+  private static class IdBlock {
+
+    private final long[] _ids;
+    private final AtomicInteger _nextIndex = new AtomicInteger(0);
+
+    IdBlock(List<Long> ids) {
+      _ids = ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // returns the index of the first of numIds claimed IDs; check against length for exhaustion
+    int claim(int numIds) {
+      return _nextIndex.getAndAdd(numIds);
+    }
+  }
+
+  private static final IdBlock EMPTY_BLOCK = new IdBlock(List.of());
+
+  private final DBPlatform _platform;
+  private final DataSource _dataSource;
+  private final String _schema;
+  private final String _table;
+  private final int _blockSize;
+  private final Object _fetchLock = new Object();
+
+  private volatile IdBlock _currentBlock = EMPTY_BLOCK;
+
+  /**
+   * @param platform platform of the database holding the sequence
+   * @param dataSource data source providing IDs
+   * @param schema schema containing the sequence
+   * @param table table whose ID sequence should be used
+   * @param blockSize number of IDs to fetch in each round trip
+   */
+  public IdBlockAllocator(DBPlatform platform, DataSource dataSource, String schema, String table, int blockSize) {
+    if (blockSize <= 0) throw new IllegalArgumentException("Block size must be >0. " + blockSize + " passed.");
+    _platform = platform;
+    _dataSource = dataSource;
+    _schema = schema;
+    _table = table;
+    _blockSize = blockSize;
+  }
+
+  /**
+   * @return an unused ID
+   * @throws SQLException if more IDs were needed but could not be fetched
+   */
+  public long getNextId() throws SQLException {
+    while (true) {
+      IdBlock block = _currentBlock;
+      int index = block.claim(1);
+      if (index < block._ids.length) {
+        return block._ids[index];
+      }
+      fetchBlock(block, _blockSize);
+    }
+  }
+
+  /**
+   * Returns the requested number of unused IDs.  When possible, all are
+   * claimed from the current block at once.
+   *
+   * @param numIds number of IDs to return
+   * @return array of unused IDs
+   * @throws SQLException if more IDs were needed but could not be fetched
+   */
+  public long[] getNextIds(int numIds) throws SQLException {
+    long[] ids = new long[numIds];
+    int numFilled = 0;
+    while (numFilled < numIds) {
+      IdBlock block = _currentBlock;
+      int numWanted = numIds - numFilled;
+      int index = block.claim(numWanted);
+      int numClaimed = Math.max(0, Math.min(numWanted, block._ids.length - index));
+      if (numClaimed > 0) {
+        System.arraycopy(block._ids, index, ids, numFilled, numClaimed);
+        numFilled += numClaimed;
+      }
+      if (numFilled < numIds) {
+        // large requests are fetched in one round trip rather than block by block
+        fetchBlock(block, Math.max(_blockSize, numIds - numFilled));
+      }
+    }
+    return ids;
+  }
+
+  private void fetchBlock(IdBlock exhaustedBlock, int numIds) throws SQLException {
+    synchronized (_fetchLock) {
+      // another thread may have replaced the block while this one waited
+      if (_currentBlock == exhaustedBlock) {
+        _currentBlock = new IdBlock(_platform.getNextNIds(_dataSource, _schema, _table, numIds));
+      }
+    }
+  }
+}
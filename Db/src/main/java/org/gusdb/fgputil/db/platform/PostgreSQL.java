@@ -126,6 +126,27 @@ public class PostgreSQL extends DBPlatform {
     return new SQLRunner(dataSource, sql, "select-next-id").executeQuery(new SingleLongResultSetHandler()).get();
   }
 
+  /**
+   * Fetches all requested IDs in a single round trip by calling nextval()
+   * once per row of a generated series.
+   */
+  @Override
+  public List<Long> getNextNIds(DataSource dataSource, String schema, String table, int numIds) throws SQLException {
+    if (numIds <= 0) throw new IllegalArgumentException("Must request >0 IDs. " + numIds + " passed.");
+    String sql = new StringBuilder()
+      .append("SELECT ")
+      .append(getNextIdSqlExpression(schema, table))
+      .append(" FROM generate_series(1, ?)")
+      .toString();
+    return new SQLRunner(dataSource, sql, "select-next-n-ids").executeQuery(new Object[]{ numIds }, new Integer[]{ Types.INTEGER }, rs -> {
+      List<Long> ids = new ArrayList<>(numIds);
+      while (rs.next()) {
+        ids.add(rs.getLong(1));
+      }
+      return ids;
+    });
+  }
+
   @Override
   public String getNextIdSqlExpression(String schema, String table) {
     return getNextValExpression(schema, table, ID_SEQUENCE_SUFFIX);
@@ -1,5 +1,6 @@
 package org.gusdb.fgputil.db.pool;
 
+import org.gusdb.fgputil.db.leakmonitor.LeakTrackingLevel;
 import org.gusdb.fgputil.db.platform.SupportedPlatform;
 import org.json.JSONObject;
 
@@ -10,6 +11,21 @@ import org.json.JSONObject;
  */
 public interface ConnectionPoolConfig {
 
+  // connections idle longer than this are validated on borrow unless overridden
+  long DEFAULT_VALIDATION_IDLE_THRESHOLD = 5000;
+
+  // maximum time a validation check may take unless overridden
+  long DEFAULT_VALIDATION_TIMEOUT = 5000;
+
+  // maximum number of prepared statements cached per connection unless overridden
+  int DEFAULT_MAX_PREPARED_STATEMENTS = 0;
+
+  // minimum idle time before the background evictor may close a connection unless overridden
+  long DEFAULT_MIN_EVICTABLE_IDLE_TIME = 30 * 60 * 1000;
+
+  // one in this many opened objects has its stack trace captured under sampled leak tracking
+  int DEFAULT_LEAK_TRACKING_SAMPLE_INTERVAL = 20;
+
   String getLogin();
   String getPassword();
   String getConnectionUrl();
@@ -29,6 +45,107 @@ public interface ConnectionPoolConfig {
   long getShowConnectionsInterval();
   long getShowConnectionsDuration();
 
+  /**
+   * Determines when connections are validated as they are borrowed from the
+   * pool.  A connection that was returned to the pool more recently than this
+   * many milliseconds ago is handed out without a validation round trip.
+   *
+   * @return idle threshold in milliseconds; 0 validates on every borrow, a
+   * negative value never validates on borrow
+   */
+  default long getValidationIdleThreshold() {
+    return DEFAULT_VALIDATION_IDLE_THRESHOLD;
+  }
+
+  /**
+   * @return true if connections should also be validated as they are returned
+   * to the pool
+   */
+  default boolean isValidateOnReturn() {
+    return false;
+  }
+
+  /**
+   * @return true to validate connections with the JDBC4 Connection.isValid()
+   * call instead of running the platform's validation query
+   */
+  default boolean isUseJdbcValidation() {
+    return false;
+  }
+
+  /**
+   * @return maximum number of milliseconds a single validation may take before
+   * the connection is deemed invalid (rounded up to whole seconds)
+   */
+  default long getValidationTimeout() {
+    return DEFAULT_VALIDATION_TIMEOUT;
+  }
+
+  /**
+   * @return number of milliseconds between runs of the background idle
+   * connection evictor, which also validates idle connections; 0 or less
+   * disables the evictor
+   */
+  default long getIdleEvictionInterval() {
+    return 0;
+  }
+
+  /**
+   * @return number of milliseconds a connection must sit idle before the
+   * background evictor may close it
+   */
+  default long getMinEvictableIdleTime() {
+    return DEFAULT_MIN_EVICTABLE_IDLE_TIME;
+  }
+
+  /**
+   * Determines the size of the per-connection prepared statement cache,
+   * which is disabled by default.  Closing a prepared (or callable) statement
+   * returns it to its connection's cache, and preparing the same SQL again on
+   * that connection reuses it instead of having the driver and server parse
+   * it again.  Note:
+   * <ul>
+   *   <li>this limit includes statements currently open, so it must exceed the
+   *   number of statements client code holds open at once on a single
+   *   connection, or further prepares will fail</li>
+   *   <li>a statement's query timeout, max rows, max field size, fetch
+   *   direction and escape processing are restored before it is returned to
+   *   the cache, but closeOnCompletion() cannot be undone, so code calling it
+   *   should not be run with caching enabled</li>
+   *   <li>some drivers cache execution plans with their statements; e.g. on
+   *   PostgreSQL, a cached statement can fail with "cached plan must not
+   *   change result type" after DDL alters a table it reads</li>
+   * </ul>
+   *
+   * @return maximum number of prepared statements cached per connection; 0
+   * (the default) or less disables statement caching
+   */
+  default int getMaxPreparedStatements() {
+    return DEFAULT_MAX_PREPARED_STATEMENTS;
+  }
+
+  /**
+   * Determines how many of the connections, statements and result sets opened
+   * through the pool have the stack trace of the opening code captured for
+   * leak reports.  Unclosed objects are counted and listed at every level.
+   * Defaults to FULL so every leaked object in a pool exhaustion report shows
+   * where it was opened; SAMPLED trades most of those traces for lower
+   * overhead on pools opening many objects.
+   *
+   * @return leak tracking level
+   */
+  default LeakTrackingLevel getLeakTrackingLevel() {
+    return LeakTrackingLevel.FULL;
+  }
+
+  /**
+   * @return if leak tracking is SAMPLED, the stack trace of one in this many
+   * objects opened (of each type) is captured
+   */
+  default int getLeakTrackingSampleInterval() {
+    return DEFAULT_LEAK_TRACKING_SAMPLE_INTERVAL;
+  }
+
   default JSONObject toJson() {
     return new JSONObject()
       .put("login", getLogin())
@@ -44,6 +161,15 @@ public interface ConnectionPoolConfig {
       .put("maxWait", getMaxWait())
       .put("showConnections", isShowConnections())
       .put("showConnectionsInterval", getShowConnectionsInterval())
-      .put("showConnectionsDuration", getShowConnectionsDuration());
+      .put("showConnectionsDuration", getShowConnectionsDuration())
+      .put("validationIdleThreshold", getValidationIdleThreshold())
+      .put("validateOnReturn", isValidateOnReturn())
+      .put("useJdbcValidation", isUseJdbcValidation())
+      .put("validationTimeout", getValidationTimeout())
+      .put("idleEvictionInterval", getIdleEvictionInterval())
+      .put("minEvictableIdleTime", getMinEvictableIdleTime())
+      .put("maxPreparedStatements", getMaxPreparedStatements())
+      .put("leakTrackingLevel", getLeakTrackingLevel())
+      .put("leakTrackingSampleInterval", getLeakTrackingSampleInterval());
   }
 }
@@ -99,7 +99,7 @@ public class DatabaseInstance implements Wrapper, AutoCloseable {
     if (testOnInitialize) runValidationQuery();
   }
 
-  // since testOnBorrow and testOnReturn are set to true, need only fetch a connection to test
+  // validation on borrow depends on configuration, so explicitly run the validation query
   private void runValidationQuery() {
     LOG.info("Testing connection to " + getIdentifier() + "...");
     Connection conn = null;
@@ -203,7 +203,8 @@ public class DatabaseInstance implements Wrapper, AutoCloseable {
 
           _connectionPool = createConnectionPool(_dbConfig, _platform);
 
-          _dataSource = new DataSourceWrapper(_identifier, _connectionPool, _dbConfig);
+          _dataSource = new DataSourceWrapper(_identifier, _connectionPool, _dbConfig, false, true,
+              IdleConnectionValidator.create(_connectionPool, _dbConfig, _platform.getValidationQuery()).orElse(null));
 
           // start the connection monitor if needed
           if (_dbConfig.isShowConnections()) {
@@ -247,15 +248,58 @@ public class DatabaseInstance implements Wrapper, AutoCloseable {
     connectionPool.setMinIdle(dbConfig.getMinIdle());
     connectionPool.setMaxTotal(dbConfig.getMaxActive());
 
-    // configure validationQuery tests
-    connectionPool.setValidationQuery(platform.getValidationQuery());
-    connectionPool.setTestOnBorrow(true);
-    connectionPool.setTestOnReturn(true);
+    // configure per-connection prepared statement cache
+    configureStatementPool(connectionPool, dbConfig);
+
+    // configure connection validation and idle eviction
+    configureValidation(connectionPool, dbConfig, platform.getValidationQuery());
     connectionPool.setAccessToUnderlyingConnectionAllowed(true);
 
     return connectionPool;
   }
 
+  /**
+   * Enables the per-connection prepared statement cache if configured.  The
+   * cache sits beneath the statement wrappers, so leak tracking still sees
+   * each prepare and close.
+   *
+   * @param connectionPool pool to configure
+   * @param dbConfig pool configuration
+   */
+  static void configureStatementPool(BasicDataSource connectionPool, ConnectionPoolConfig dbConfig) {
+    if (dbConfig.getMaxPreparedStatements() > 0) {
+      connectionPool.setPoolPreparedStatements(true);
+      connectionPool.setMaxOpenPreparedStatements(dbConfig.getMaxPreparedStatements());
+    }
+  }
+
+  /**
+   * Applies the validation policy in the passed config to the passed pool.
+   * DBCP validates on every borrow only if the idle threshold is zero; a
+   * positive threshold is handled by IdleConnectionValidator instead.  If JDBC
+   * validation is configured, no validation query is set, which causes DBCP to
+   * call Connection.isValid() with the validation timeout.
+   *
+   * @param connectionPool pool to configure
+   * @param dbConfig pool configuration
+   * @param validationQuery platform validation query
+   */
+  static void configureValidation(BasicDataSource connectionPool, ConnectionPoolConfig dbConfig, String validationQuery) {
+    connectionPool.setValidationQuery(dbConfig.isUseJdbcValidation() ? null : validationQuery);
+    connectionPool.setValidationQueryTimeout(Duration.ofSeconds(
+        IdleConnectionValidator.toTimeoutSeconds(dbConfig.getValidationTimeout())));
+    connectionPool.setTestOnBorrow(dbConfig.getValidationIdleThreshold() == 0);
+    connectionPool.setTestOnReturn(dbConfig.isValidateOnReturn());
+
+    // background evictor closes long-idle connections and validates the rest
+    if (dbConfig.getIdleEvictionInterval() > 0) {
+      connectionPool.setDurationBetweenEvictionRuns(Duration.ofMillis(dbConfig.getIdleEvictionInterval()));
+      connectionPool.setMinEvictableIdle(Duration.ofMillis(dbConfig.getMinEvictableIdleTime()));
+      connectionPool.setNumTestsPerEvictionRun(Math.max(1, dbConfig.getMaxIdle()));
+      connectionPool.setTestWhileIdle(true);
+    }
+  }
+
   private static String getPropertyString(Properties props) {
     StringBuilder str = new StringBuilder();
     for (Entry<Object,Object> prop : props.entrySet()) {
@@ -0,0 +1,138 @@
+package org.gusdb.fgputil.db.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.DelegatingConnection;
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.functional.FunctionalInterfaces.SupplierWithException;
+
+/**
+ * Validates pooled connections on borrow only if they have sat idle in the
+ * pool longer than a configured threshold.  DBCP can only validate on every
+ * borrow or never; this class sits between the two so that busy pools skip
+ * the validation round trip while connections left idle long enough to have
+ * been dropped by the server (or a firewall) are still checked.
+ *
+ * Return times are tracked per physical connection, so a connection is
+ * handed out unchecked the first time after it is created.
+ */
+public class IdleConnectionValidator {
+
+  private static final Logger LOG = Logger.getLogger(IdleConnectionValidator.class);
+
+  private final BasicDataSource _pool;
+  private final long _idleThresholdMillis;
+  private final int _timeoutSeconds;
+  private final String _validationQuery;
+
+  // physical connection -> time it was last returned to the pool
+  private final Map<Connection, Long> _lastReturned = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Creates a validator for the passed pool if the config calls for
+   * idle-threshold validation (i.e. a positive validation idle threshold).
+   *
+   * @param pool pool connections are borrowed from
+   * @param dbConfig pool configuration
+   * @param validationQuery query used to validate connections; ignored if the
+   * config specifies JDBC validation
+   * @return validator, or an empty optional if none is needed
+   */
+  public static Optional<IdleConnectionValidator> create(BasicDataSource pool,
+      ConnectionPoolConfig dbConfig, String validationQuery) {
+    return dbConfig.getValidationIdleThreshold() <= 0 ? Optional.empty() :
+      Optional.of(new IdleConnectionValidator(pool, dbConfig.getValidationIdleThreshold(),
+          toTimeoutSeconds(dbConfig.getValidationTimeout()),
+          dbConfig.isUseJdbcValidation() ? null : validationQuery));
+  }
+
+  static int toTimeoutSeconds(long timeoutMillis) {
+    return (int)Math.ceil(Math.max(0, timeoutMillis) / 1000.0);
+  }
+
+  private IdleConnectionValidator(BasicDataSource pool, long idleThresholdMillis,
+      int timeoutSeconds, String validationQuery) {
+    _pool = pool;
+    _idleThresholdMillis = idleThresholdMillis;
+    _timeoutSeconds = timeoutSeconds;
+    _validationQuery = validationQuery;
+  }
+
+  /**
+   * Borrows connections from the passed supplier until one is either fresh
+   * enough to skip validation or passes validation.  Connections that fail
+   * are invalidated so the pool destroys them.  This terminates because each
+   * failed connection is removed from the pool, and newly created connections
+   * are never validated.
+   *
+   * @param borrower supplier of pooled connections
+   * @return valid connection
+   * @throws Exception if unable to borrow a connection
+   */
+  public Connection borrowValidConnection(SupplierWithException<Connection> borrower) throws Exception {
+    while (true) {
+      Connection conn = borrower.get();
+      Connection physical = getPhysicalConnection(conn);
+      if (!needsValidation(physical) || isValid(conn)) {
+        return conn;
+      }
+      LOG.warn("Pooled connection failed validation after sitting idle; invalidating and trying another.");
+      _lastReturned.remove(physical);
+      _pool.invalidateConnection(conn);
+    }
+  }
+
+  /**
+   * Records that the passed connection is being returned to the pool.  Must
+   * be called before the connection is closed since the physical connection
+   * is no longer reachable afterward.
+   *
+   * @param conn pooled connection about to be returned
+   */
+  public void recordReturn(Connection conn) {
+    Connection physical = getPhysicalConnection(conn);
+    if (physical != null) {
+      _lastReturned.put(physical, System.currentTimeMillis());
+    }
+  }
+
+  private boolean needsValidation(Connection physical) {
+    if (physical == null) {
+      // cannot tell how long this connection was idle
+      return true;
+    }
+    Long lastReturned = _lastReturned.get(physical);
+    return lastReturned != null &&
+        System.currentTimeMillis() - lastReturned > _idleThresholdMillis;
+  }
+
+  private boolean isValid(Connection conn) {
+    try {
+      if (_validationQuery == null) {
+        return conn.isValid(_timeoutSeconds);
+      }
+      try (Statement stmt = conn.createStatement()) {
+        stmt.setQueryTimeout(_timeoutSeconds);
+        stmt.executeQuery(_validationQuery).close();
+        return true;
+      }
+    }
+    catch (SQLException e) {
+      LOG.debug("Connection validation failed", e);
+      return false;
+    }
+  }
+
+  // returns null if the pool does not allow access to underlying connections
+  private static Connection getPhysicalConnection(Connection conn) {
+    return conn instanceof DelegatingConnection ?
+        ((DelegatingConnection<?>)conn).getInnermostDelegate() : conn;
+  }
+}
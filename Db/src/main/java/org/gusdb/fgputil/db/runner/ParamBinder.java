@@ -0,0 +1,135 @@
+package org.gusdb.fgputil.db.runner;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.gusdb.fgputil.db.SqlUtils;
+
+/**
+ * Binds a value to one parameter of a PreparedStatement.  Binders are
+ * resolved once per parameter from its SQL type, so statements executed many
+ * times (e.g. in batches) need not re-examine the type of each value.  Values
+ * are bound as SqlUtils.bindParamValues() would bind them, but through the
+ * typed setter (setInt(), setString(), etc.) when the value is of the Java
+ * type a driver expects for the SQL type; other values are passed to
+ * setObject() with the SQL type for the driver to convert.
+ */
+@FunctionalInterface
+public interface ParamBinder {
+
+  void bind(PreparedStatement stmt, int paramIndex, Object value) throws SQLException;
+
+  /**
+   * @param sqlTypes SQL type (from java.sql.Types) of each parameter; null
+   * (or a null element) means the driver will guess from the value
+   * @param numParams number of parameters
+   * @return binder for each parameter (0-based)
+   */
+  static ParamBinder[] forTypes(Integer[] sqlTypes, int numParams) {
+    ParamBinder[] binders = new ParamBinder[numParams];
+    for (int i = 0; i < numParams; i++) {
+      binders[i] = forType(sqlTypes == null ? null : sqlTypes[i]);
+    }
+    return binders;
+  }
+
+  /**
+   * @param sqlType SQL type (from java.sql.Types) of the parameter, or null
+   * if the driver should guess from the value
+   * @return binder for parameters of the passed type
+   */
+  static ParamBinder forType(Integer sqlType) {
+
+    if (sqlType == null) {
+      return (stmt, i, value) -> stmt.setObject(i, value);
+    }
+
+    int type = sqlType;
+    switch (type) {
+
+      case Types.CLOB:
+      case Types.LONGVARCHAR:
+        return (stmt, i, value) -> SqlUtils.setClobData(stmt, i, value, type);
+
+      case Types.BLOB:
+      case Types.LONGVARBINARY:
+        return (stmt, i, value) -> SqlUtils.setBinaryData(stmt, i, (byte[])value, type);
+
+      case Types.BOOLEAN:
+      case Types.BIT:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Boolean) stmt.setBoolean(i, (Boolean)value); else stmt.setObject(i, value, type);
+        });
+
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+            stmt.setInt(i, ((Number)value).intValue());
+          else
+            stmt.setObject(i, value, type);
+        });
+
+      case Types.BIGINT:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            stmt.setLong(i, ((Number)value).longValue());
+          else
+            stmt.setObject(i, value, type);
+        });
+
+      case Types.REAL:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Float) stmt.setFloat(i, (Float)value); else stmt.setObject(i, value, type);
+        });
+
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Double || value instanceof Float)
+            stmt.setDouble(i, ((Number)value).doubleValue());
+          else
+            stmt.setObject(i, value, type);
+        });
+
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof BigDecimal) stmt.setBigDecimal(i, (BigDecimal)value); else stmt.setObject(i, value, type);
+        });
+
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof String) stmt.setString(i, (String)value); else stmt.setObject(i, value, type);
+        });
+
+      case Types.DATE:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Date) stmt.setDate(i, (Date)value); else stmt.setObject(i, value, type);
+        });
+
+      case Types.TIMESTAMP:
+        return typed(type, (stmt, i, value) -> {
+          if (value instanceof Timestamp) stmt.setTimestamp(i, (Timestamp)value); else stmt.setObject(i, value, type);
+        });
+
+      default:
+        return typed(type, (stmt, i, value) -> stmt.setObject(i, value, type));
+    }
+  }
+
+  // wraps a binder of non-null values with null handling for the passed type
+  private static ParamBinder typed(int sqlType, ParamBinder nonNullBinder) {
+    return (stmt, i, value) -> {
+      if (value == null) stmt.setNull(i, sqlType); else nonNullBinder.bind(stmt, i, value);
+    };
+  }
+}
@@ -4,8 +4,8 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import org.apache.log4j.Logger;
-import org.gusdb.fgputil.db.SqlUtils;
 import org.gusdb.fgputil.db.runner.ArgumentBatch;
+import org.gusdb.fgputil.db.runner.ParamBinder;
 import org.gusdb.fgputil.db.runner.SQLRunnerException;
 
 /**
@@ -44,8 +44,15 @@ public class BatchUpdateExecutor extends PreparedStatementExecutor<Integer> {
     _lastExecutionTime = 0;
     int numBatches = 0;
     int numUnexecuted = 0;
+    // binders are resolved once from the parameter types rather than per value
+    ParamBinder[] binders = null;
     for (Object[] args : _argBatch) {
-      SqlUtils.bindParamValues(stmt, _argBatch.getParameterTypes(), args);
+      if (binders == null || binders.length != args.length) {
+        binders = ParamBinder.forTypes(_argBatch.getParameterTypes(), args.length);
+      }
+      for (int i = 0; i < args.length; i++) {
+        binders[i].bind(stmt, i + 1, args[i]);
+      }
       stmt.addBatch();
       numUnexecuted++;
       if (numUnexecuted == _argBatch.getBatchSize()) {
@@ -4,10 +4,11 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.gusdb.fgputil.db.mapping.RowMapper;
+
 /**
  * Collects the results of an SQL query into an in-memory data structure.
  * 
@@ -36,17 +37,12 @@ public class BasicResultSetHandler implements ResultSetHandler<BasicResultSetHan
       _columnNames.add(meta.getColumnName(i));
       _columnTypes.add(meta.getColumnType(i));
     }
+    // rows share a single key index and hold the values getObject() returns; null is stored
+    //  if DB column empty for a row, so caller can determine if column name is legitimate
+    //  by checking column names here
+    RowMapper mapper = RowMapper.usingGetObject(meta, _columnNames.toArray(new String[0]));
     while (rs.next()) {
-      Map<String, Object> row = new LinkedHashMap<>();
-      for (int i = 1; i <= getNumCols(); i++) {
-        row.put(_columnNames.get(i-1), rs.getObject(i));
-        if (rs.wasNull()) {
-          // add null if DB column empty for this row; caller can determine if column name
-          //  is legitimate by checking column names in this result handler
-          row.put(_columnNames.get(i-1), null);
-        }
-      }
-      _results.add(row);
+      _results.add(mapper.readRow(rs));
     }
     return this;
   }
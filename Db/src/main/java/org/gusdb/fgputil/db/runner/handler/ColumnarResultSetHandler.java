@@ -0,0 +1,556 @@
+package org.gusdb.fgputil.db.runner.handler;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Collects the results of an SQL query into memory column by column, storing
+ * numbers and booleans in primitive arrays, nulls in bitmaps, and strings
+ * dictionary-encoded (as long as most values repeat).  This takes a small
+ * fraction of the memory of BasicResultSetHandler's boxed row maps, and
+ * creates far fewer objects for the GC to track.  Column arrays grow as rows
+ * arrive and are trimmed to size once the result is read.
+ *
+ * Column storage is chosen from the SQL type of each column:
+ * <ul>
+ *   <li>integer types, and DECIMAL/NUMERIC with scale 0 and precision up to 18: LongColumn</li>
+ *   <li>floating point types: DoubleColumn</li>
+ *   <li>BOOLEAN and BIT: BooleanColumn</li>
+ *   <li>character types: StringColumn</li>
+ *   <li>all others: ObjectColumn (values as ResultSet.getObject() returns them)</li>
+ * </ul>
+ *
+ * Values can be read by row and column index through the typed column
+ * classes, or through getResults(), a row view compatible with
+ * BasicResultSetHandler.getResults() whose values are boxed on access to the
+ * types ResultSet.getObject() is specified to return.
+ */
+public class ColumnarResultSetHandler implements ResultSetHandler<ColumnarResultSetHandler> {
+
+  public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+  /**
+   * Values of a single result column.  Row indexes are 0-based.
+   */
+  public static abstract class Column {
+
+    private long[] _nulls;
+
+    protected Column(int capacity) {
+      _nulls = new long[bitmapLength(capacity)];
+    }
+
+    /**
+     * @param row 0-based row index
+     * @return true if the value in the passed row is SQL NULL
+     */
+    public boolean isNull(int row) {
+      return (_nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param row 0-based row index
+     * @return boxed value in the passed row, or null if the value is SQL NULL
+     */
+    public abstract Object getValue(int row);
+
+    protected void setNull(int row) {
+      _nulls[row >>> 6] |= 1L << row;
+    }
+
+    // reads the value of the column at columnIndex in the current row into the passed row
+    protected abstract void read(ResultSet rs, int columnIndex, int row) throws SQLException;
+
+    protected void resize(int capacity) {
+      _nulls = Arrays.copyOf(_nulls, bitmapLength(capacity));
+    }
+
+    private static int bitmapLength(int capacity) {
+      return (capacity + 63) >>> 6;
+    }
+  }
+
+  public static class LongColumn extends Column {
+
+    private final LongFunction<Object> _boxer;
+    private long[] _values;
+
+    private LongColumn(int capacity, LongFunction<Object> boxer) {
+      super(capacity);
+      _values = new long[capacity];
+      _boxer = boxer;
+    }
+
+    /** @return value in the passed row (0 if SQL NULL) */
+    public long getLong(int row) {
+      return _values[row];
+    }
+
+    /** @return backing array of values (not copied; 0 where SQL NULL) */
+    public long[] getValues() {
+      return _values;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return isNull(row) ? null : _boxer.apply(_values[row]);
+    }
+
+    @Override
+    protected void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      _values[row] = rs.getLong(columnIndex);
+      if (rs.wasNull()) setNull(row);
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      super.resize(capacity);
+      _values = Arrays.copyOf(_values, capacity);
+    }
+  }
+
+  public static class DoubleColumn extends Column {
+
+    private final boolean _isFloat;
+    private double[] _values;
+
+    private DoubleColumn(int capacity, boolean isFloat) {
+      super(capacity);
+      _values = new double[capacity];
+      _isFloat = isFloat;
+    }
+
+    /** @return value in the passed row (0 if SQL NULL) */
+    public double getDouble(int row) {
+      return _values[row];
+    }
+
+    /** @return backing array of values (not copied; 0 where SQL NULL) */
+    public double[] getValues() {
+      return _values;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return isNull(row) ? null : _isFloat ? (Object)(float)_values[row] : (Object)_values[row];
+    }
+
+    @Override
+    protected void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      _values[row] = rs.getDouble(columnIndex);
+      if (rs.wasNull()) setNull(row);
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      super.resize(capacity);
+      _values = Arrays.copyOf(_values, capacity);
+    }
+  }
+
+  public static class BooleanColumn extends Column {
+
+    private long[] _values;
+
+    private BooleanColumn(int capacity) {
+      super(capacity);
+      _values = new long[Column.bitmapLength(capacity)];
+    }
+
+    /** @return value in the passed row (false if SQL NULL) */
+    public boolean getBoolean(int row) {
+      return (_values[row >>> 6] & (1L << row)) != 0;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return isNull(row) ? null : getBoolean(row);
+    }
+
+    @Override
+    protected void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      if (rs.getBoolean(columnIndex)) _values[row >>> 6] |= 1L << row;
+      if (rs.wasNull()) setNull(row);
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      super.resize(capacity);
+      _values = Arrays.copyOf(_values, Column.bitmapLength(capacity));
+    }
+  }
+
+  /**
+   * Stores each row's string as an index into a dictionary of distinct
+   * values.  Once enough rows have been read to judge, if most values are
+   * distinct the column switches to storing strings directly, since the
+   * dictionary would then cost more than it saves.
+   */
+  public static class StringColumn extends Column {
+
+    // minimum rows read before deciding dictionary encoding is not worthwhile
+    private static final int MIN_ROWS_TO_ABANDON_DICTIONARY = 1024;
+
+    private int[] _codes;
+    private List<String> _dictionary = new ArrayList<>();
+    private Map<String,Integer> _codesByValue = new HashMap<>();
+
+    // non-null once dictionary encoding is abandoned
+    private String[] _values;
+
+    private StringColumn(int capacity) {
+      super(capacity);
+      _codes = new int[capacity];
+    }
+
+    /** @return value in the passed row (null if SQL NULL) */
+    public String getString(int row) {
+      return _values != null ? _values[row] : isNull(row) ? null : _dictionary.get(_codes[row]);
+    }
+
+    public boolean isDictionaryEncoded() {
+      return _values == null;
+    }
+
+    /** @return distinct non-null values, or an empty list if not dictionary encoded */
+    public List<String> getDictionary() {
+      return _values == null ? Collections.unmodifiableList(_dictionary) : Collections.emptyList();
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return getString(row);
+    }
+
+    @Override
+    protected void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      String value = rs.getString(columnIndex);
+      if (value == null) {
+        setNull(row);
+        if (_values == null) _codes[row] = -1;
+        return;
+      }
+      if (_values != null) {
+        _values[row] = value;
+        return;
+      }
+      Integer code = _codesByValue.get(value);
+      if (code == null) {
+        code = _dictionary.size();
+        _dictionary.add(value);
+        _codesByValue.put(value, code);
+        if (row >= MIN_ROWS_TO_ABANDON_DICTIONARY && _dictionary.size() > (row + 1) / 2) {
+          abandonDictionary(row);
+          _values[row] = value;
+          return;
+        }
+      }
+      _codes[row] = code;
+    }
+
+    // switches to plain storage; values of rows before the passed row are decoded
+    private void abandonDictionary(int row) {
+      _values = new String[_codes.length];
+      for (int i = 0; i < row; i++) {
+        _values[i] = isNull(i) ? null : _dictionary.get(_codes[i]);
+      }
+      _codes = null;
+      _dictionary = null;
+      _codesByValue = null;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      super.resize(capacity);
+      if (_values == null) {
+        if (capacity < _codes.length) {
+          // trimming after the last row; lookup map is no longer needed
+          _codesByValue = null;
+        }
+        _codes = Arrays.copyOf(_codes, capacity);
+      }
+      else {
+        _values = Arrays.copyOf(_values, capacity);
+      }
+    }
+  }
+
+  public static class ObjectColumn extends Column {
+
+    private Object[] _values;
+
+    private ObjectColumn(int capacity) {
+      super(capacity);
+      _values = new Object[capacity];
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return _values[row];
+    }
+
+    @Override
+    protected void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+      _values[row] = rs.getObject(columnIndex);
+      if (_values[row] == null) setNull(row);
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      super.resize(capacity);
+      _values = Arrays.copyOf(_values, capacity);
+    }
+  }
+
+  private final int _initialCapacity;
+
+  private List<String> _columnNames = new ArrayList<>();
+  private List<Integer> _columnTypes = new ArrayList<>();
+  // distinct column names; a name used by several columns refers to the last
+  private List<String> _rowKeys = new ArrayList<>();
+  private Map<String,Integer> _columnIndexes = new HashMap<>();
+  private Column[] _columns = new Column[0];
+  private int _numRows = 0;
+
+  public ColumnarResultSetHandler() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param initialCapacity number of rows to allocate space for before
+   * growing column arrays; an estimate of the result size avoids copying
+   */
+  public ColumnarResultSetHandler(int initialCapacity) {
+    if (initialCapacity <= 0)
+      throw new IllegalArgumentException("Initial capacity must be >0. " + initialCapacity + " passed.");
+    _initialCapacity = initialCapacity;
+  }
+
+  /**
+   * Reads the entire result set and its meta data into memory for later access.
+   *
+   * @param rs ResultSet to be handled
+   */
+  @Override
+  public ColumnarResultSetHandler handleResult(ResultSet rs) throws SQLException {
+    // clear data structures in case this object is being reused
+    _columnNames.clear();
+    _columnTypes.clear();
+    _rowKeys.clear();
+    _columnIndexes.clear();
+    _numRows = 0;
+
+    ResultSetMetaData meta = rs.getMetaData();
+    int numColumns = meta.getColumnCount();
+    int capacity = _initialCapacity;
+    _columns = new Column[numColumns];
+    for (int i = 1; i <= numColumns; i++) {
+      _columnNames.add(meta.getColumnName(i));
+      _columnTypes.add(meta.getColumnType(i));
+      if (_columnIndexes.put(meta.getColumnName(i), i) == null) {
+        _rowKeys.add(meta.getColumnName(i));
+      }
+      _columns[i - 1] = createColumn(meta, i, capacity);
+    }
+
+    while (rs.next()) {
+      if (_numRows == capacity) {
+        capacity = capacity + (capacity >> 1);
+        for (Column column : _columns) {
+          column.resize(capacity);
+        }
+      }
+      for (int i = 0; i < numColumns; i++) {
+        _columns[i].read(rs, i + 1, _numRows);
+      }
+      _numRows++;
+    }
+
+    // release unused capacity
+    if (_numRows < capacity) {
+      for (Column column : _columns) {
+        column.resize(_numRows);
+      }
+    }
+    return this;
+  }
+
+  private static Column createColumn(ResultSetMetaData meta, int columnIndex, int capacity) throws SQLException {
+    int sqlType = meta.getColumnType(columnIndex);
+    switch (sqlType) {
+
+      case Types.BOOLEAN:
+      case Types.BIT:
+        return new BooleanColumn(capacity);
+
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        return new LongColumn(capacity, value -> (int)value);
+
+      case Types.BIGINT:
+        return new LongColumn(capacity, value -> value);
+
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        int precision = meta.getPrecision(columnIndex);
+        if (meta.getScale(columnIndex) == 0 && precision > 0 && precision <= 18) {
+          return new LongColumn(capacity, BigDecimal::valueOf);
+        }
+        break;
+
+      case Types.REAL:
+        return new DoubleColumn(capacity, true);
+
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return new DoubleColumn(capacity, false);
+
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return new StringColumn(capacity);
+    }
+    return new ObjectColumn(capacity);
+  }
+
+  /**
+   * @return number of rows read from the result set
+   */
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  /**
+   * @return number of columns returned as part of the result set
+   */
+  public int getNumCols() {
+    return _columnNames.size();
+  }
+
+  /**
+   * @return list of the column names returned as the result set
+   */
+  public List<String> getColumnNames() {
+    return _columnNames;
+  }
+
+  /**
+   * @return list of the data types of each column (can be compared to values
+   * in {@link java.sql.Types})
+   */
+  public List<Integer> getColumnTypes() {
+    return _columnTypes;
+  }
+
+  /**
+   * @param columnIndex 1-based index of a column
+   * @return values of the column; cast to the Column subclass for typed access
+   */
+  public Column getColumn(int columnIndex) {
+    return _columns[columnIndex - 1];
+  }
+
+  /**
+   * @param columnName name of a column
+   * @return values of the column; cast to the Column subclass for typed access
+   * @throws IllegalArgumentException if no column has the passed name
+   */
+  public Column getColumn(String columnName) {
+    Integer index = _columnIndexes.get(columnName);
+    if (index == null) {
+      throw new IllegalArgumentException("Column " + columnName + " is not present.");
+    }
+    return getColumn(index);
+  }
+
+  /**
+   * @param row 0-based row index
+   * @return read-only map view of the passed row; columns can be iterated
+   * over in original query selection order
+   */
+  public Map<String,Object> getRow(int row) {
+    if (row < 0 || row >= _numRows) {
+      throw new IndexOutOfBoundsException("Row " + row + " requested; " + _numRows + " rows present.");
+    }
+    return new RowView(row);
+  }
+
+  /**
+   * @return read-only row-based view of the results, like
+   * BasicResultSetHandler.getResults().  Values are boxed each time they are
+   * accessed.
+   */
+  public List<Map<String,Object>> getResults() {
+    return new AbstractList<Map<String,Object>>() {
+      @Override public Map<String,Object> get(int row) { return getRow(row); }
+      @Override public int size() { return _numRows; }
+    };
+  }
+
+  private class RowView extends AbstractMap<String,Object> {
+
+    private final int _row;
+
+    RowView(int row) {
+      _row = row;
+    }
+
+    @Override
+    public int size() {
+      return _rowKeys.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return _columnIndexes.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+      Integer index = _columnIndexes.get(key);
+      return index == null ? null : _columns[index - 1].getValue(_row);
+    }
+
+    @Override
+    public Set<Entry<String,Object>> entrySet() {
+      return new AbstractSet<Entry<String,Object>>() {
+
+        @Override
+        public int size() {
+          return _rowKeys.size();
+        }
+
+        @Override
+        public Iterator<Entry<String,Object>> iterator() {
+          Iterator<String> keys = _rowKeys.iterator();
+          return new Iterator<Entry<String,Object>>() {
+            @Override public boolean hasNext() { return keys.hasNext(); }
+            @Override public Entry<String,Object> next() {
+              String key = keys.next();
+              return new SimpleImmutableEntry<>(key, get(key));
+            }
+          };
+        }
+      };
+    }
+  }
+}
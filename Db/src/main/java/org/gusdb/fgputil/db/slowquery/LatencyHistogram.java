@@ -0,0 +1,153 @@
+package org.gusdb.fgputil.db.slowquery;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size, thread-safe histogram of durations in milliseconds.  Buckets are
+ * log-linear: each power-of-two range of values is split into a fixed number
+ * of equal-width sub-buckets, so any percentile read from the histogram is
+ * within 12.5% of the true value while memory use stays constant no matter
+ * how many values are recorded or how large they are.  Recording a value is
+ * lock-free.
+ */
+public class LatencyHistogram {
+
+  // each power-of-two range of values is split into 2^SUB_BUCKET_BITS linear sub-buckets
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  // values of 2^MAX_EXPONENT ms (about 25 days) or more are counted in the last bucket
+  private static final int MAX_EXPONENT = 31;
+
+  private static final int NUM_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+  /**
+   * Immutable view of a histogram's contents at a point in time
+   */
+  public static class Snapshot {
+
+    private final long[] _counts;
+    private final long _count;
+    private final long _totalMillis;
+    private final long _maxMillis;
+
+    private Snapshot(long[] counts, long totalMillis, long maxMillis) {
+      long count = 0;
+      for (long bucketCount : counts) {
+        count += bucketCount;
+      }
+      _counts = counts;
+      _count = count;
+      _totalMillis = totalMillis;
+      _maxMillis = maxMillis;
+    }
+
+    public long getCount() {
+      return _count;
+    }
+
+    public long getTotalMillis() {
+      return _totalMillis;
+    }
+
+    public double getMeanMillis() {
+      return _count == 0 ? 0 : (double)_totalMillis / _count;
+    }
+
+    public long getMaxMillis() {
+      return _maxMillis;
+    }
+
+    public long getP50Millis() { return getPercentileMillis(50); }
+    public long getP95Millis() { return getPercentileMillis(95); }
+    public long getP99Millis() { return getPercentileMillis(99); }
+
+    /**
+     * @param percentile percentile to look up, between 0 and 100
+     * @return upper bound of the bucket holding the passed percentile (never
+     * more than the maximum value recorded), or 0 if no values were recorded
+     */
+    public long getPercentileMillis(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Percentile must be between 0 and 100, not " + percentile);
+      }
+      long rank = Math.max(1, (long)Math.ceil(_count * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < _counts.length; i++) {
+        seen += _counts[i];
+        if (seen >= rank) {
+          return Math.min(getBucketUpperBound(i), _maxMillis);
+        }
+      }
+      return _maxMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.1fms p50=%dms p95=%dms p99=%dms max=%dms",
+          _count, getMeanMillis(), getP50Millis(), getP95Millis(), getP99Millis(), _maxMillis);
+    }
+  }
+
+  private final AtomicLongArray _counts = new AtomicLongArray(NUM_BUCKETS);
+  private final LongAdder _totalMillis = new LongAdder();
+  private final AtomicLong _maxMillis = new AtomicLong();
+
+  /**
+   * @param millis duration to record; negative values (e.g. from a clock
+   * adjustment) are recorded as 0
+   */
+  public void record(long millis) {
+    long value = Math.max(0, millis);
+    _counts.incrementAndGet(getBucketIndex(value));
+    _totalMillis.add(value);
+    if (value > _maxMillis.get()) {
+      _maxMillis.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Returns a copy of this histogram's contents.  Values recorded while the
+   * copy is made may or may not be included.
+   *
+   * @return snapshot of this histogram
+   */
+  public Snapshot getSnapshot() {
+    long[] counts = new long[NUM_BUCKETS];
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      counts[i] = _counts.get(i);
+    }
+    return new Snapshot(counts, _totalMillis.sum(), _maxMillis.get());
+  }
+
+  public void reset() {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      _counts.set(i, 0);
+    }
+    _totalMillis.reset();
+    _maxMillis.set(0);
+  }
+
+  static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int)value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent >= MAX_EXPONENT) {
+      return NUM_BUCKETS - 1;
+    }
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int)((value >>> shift) - SUB_BUCKET_COUNT);
+  }
+
+  static long getBucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long lowerBound = (long)(SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,42 @@
+package org.gusdb.fgputil.db.slowquery;
+
+import java.util.List;
+
+/**
+ * Management interface exposing QueryLogger's per-query latency statistics
+ * over JMX.  Enable with QueryLogConfig.isRegisterLatencyMXBean().
+ */
+public interface QueryLatencyMXBean {
+
+  /**
+   * Latency statistics for one phase of one named query
+   */
+  public static class PhaseLatency {
+
+    private final String _queryName;
+    private final String _phase;
+    private final LatencyHistogram.Snapshot _snapshot;
+
+    public PhaseLatency(String queryName, String phase, LatencyHistogram.Snapshot snapshot) {
+      _queryName = queryName;
+      _phase = phase;
+      _snapshot = snapshot;
+    }
+
+    public String getQueryName()  { return _queryName; }
+    public String getPhase()      { return _phase; }
+    public long getCount()        { return _snapshot.getCount(); }
+    public double getMeanMillis() { return _snapshot.getMeanMillis(); }
+    public long getP50Millis()    { return _snapshot.getP50Millis(); }
+    public long getP95Millis()    { return _snapshot.getP95Millis(); }
+    public long getP99Millis()    { return _snapshot.getP99Millis(); }
+    public long getMaxMillis()    { return _snapshot.getMaxMillis(); }
+  }
+
+  int getTrackedQueryCount();
+
+  List<PhaseLatency> getLatencies();
+
+  void reset();
+
+}
@@ -0,0 +1,77 @@
+package org.gusdb.fgputil.db.slowquery;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.gusdb.fgputil.db.slowquery.LatencyHistogram.Snapshot;
+import org.gusdb.fgputil.db.slowquery.QueryLatencyStats.Phase;
+
+/**
+ * Registers QueryLogger's latency statistics with the platform MBean server so
+ * they can be viewed with JMX tools (e.g. jconsole) under the name
+ * <code>org.gusdb.fgputil.db:type=QueryLatency</code>.
+ */
+public class QueryLatencyMXBeans {
+
+  private static final String OBJECT_NAME = "org.gusdb.fgputil.db:type=QueryLatency";
+
+  private static class QueryLatencyView implements QueryLatencyMXBean {
+
+    @Override
+    public int getTrackedQueryCount() {
+      return QueryLogger.getLatencySnapshot().size();
+    }
+
+    @Override
+    public List<PhaseLatency> getLatencies() {
+      List<PhaseLatency> latencies = new ArrayList<>();
+      for (Entry<String, Map<Phase, Snapshot>> query : QueryLogger.getLatencySnapshot().entrySet()) {
+        for (Entry<Phase, Snapshot> phase : query.getValue().entrySet()) {
+          latencies.add(new PhaseLatency(query.getKey(), phase.getKey().name(), phase.getValue()));
+        }
+      }
+      return latencies;
+    }
+
+    @Override
+    public void reset() {
+      QueryLogger.resetLatencyStats();
+    }
+  }
+
+  /**
+   * Registers QueryLogger's latency statistics with the platform MBean server.
+   *
+   * @return name under which the statistics were registered
+   * @throws JMException if the statistics are already registered
+   */
+  public static ObjectName register() throws JMException {
+    ObjectName name = getObjectName();
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new QueryLatencyView(), name);
+    return name;
+  }
+
+  /**
+   * Removes the registered latency statistics, if present.
+   *
+   * @throws JMException if unregistration fails
+   */
+  public static void unregister() throws JMException {
+    ObjectName name = getObjectName();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+  }
+
+  public static ObjectName getObjectName() throws JMException {
+    return new ObjectName(OBJECT_NAME);
+  }
+}
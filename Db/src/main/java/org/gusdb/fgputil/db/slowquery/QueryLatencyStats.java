@@ -0,0 +1,80 @@
+package org.gusdb.fgputil.db.slowquery;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.gusdb.fgputil.db.slowquery.LatencyHistogram.Snapshot;
+import org.gusdb.fgputil.db.slowquery.SqlTimer.SqlTimerEvents;
+
+/**
+ * Latency histograms for the executions of a single named query, kept
+ * separately for each phase of execution.
+ */
+public class QueryLatencyStats {
+
+  public enum Phase {
+    /** preparation of the statement */
+    PREPARE,
+    /** assignment of parameter values */
+    BIND,
+    /** execution of the SQL, up to the first page of results */
+    EXECUTE,
+    /** processing of the results */
+    HANDLE,
+    /** start of preparation to completion */
+    TOTAL;
+  }
+
+  private final Map<Phase, LatencyHistogram> _histograms = new EnumMap<>(Phase.class);
+
+  public QueryLatencyStats() {
+    for (Phase phase : Phase.values()) {
+      _histograms.put(phase, new LatencyHistogram());
+    }
+  }
+
+  public void record(Phase phase, long millis) {
+    _histograms.get(phase).record(millis);
+  }
+
+  /**
+   * Records the phases timed by an SqlTimer.  Phases whose start or end was
+   * not reached (e.g. because the SQL failed) are skipped.
+   *
+   * @param times times (ms since start) at which each SqlTimerEvent occurred
+   */
+  public void record(Long[] times) {
+    recordInterval(Phase.PREPARE, 0L, times[SqlTimerEvents.STATEMENT_PREPARED.ordinal()]);
+    recordInterval(Phase.BIND, times[SqlTimerEvents.STATEMENT_PREPARED.ordinal()], times[SqlTimerEvents.PARAMS_ASSIGNED.ordinal()]);
+    recordInterval(Phase.EXECUTE, times[SqlTimerEvents.PARAMS_ASSIGNED.ordinal()], times[SqlTimerEvents.SQL_EXECUTED.ordinal()]);
+    recordInterval(Phase.HANDLE, times[SqlTimerEvents.SQL_EXECUTED.ordinal()], times[SqlTimerEvents.RESULTS_HANDLED.ordinal()]);
+    recordInterval(Phase.TOTAL, 0L, times[SqlTimerEvents.COMPLETE.ordinal()]);
+  }
+
+  private void recordInterval(Phase phase, Long start, Long end) {
+    if (start != null && end != null) {
+      record(phase, end - start);
+    }
+  }
+
+  /**
+   * @return snapshots of the phases with at least one recorded value
+   */
+  public Map<Phase, Snapshot> getSnapshot() {
+    Map<Phase, Snapshot> snapshot = new EnumMap<>(Phase.class);
+    for (Map.Entry<Phase, LatencyHistogram> entry : _histograms.entrySet()) {
+      Snapshot phaseSnapshot = entry.getValue().getSnapshot();
+      if (phaseSnapshot.getCount() > 0) {
+        snapshot.put(entry.getKey(), phaseSnapshot);
+      }
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+
+  public void reset() {
+    for (LatencyHistogram histogram : _histograms.values()) {
+      histogram.reset();
+    }
+  }
+}
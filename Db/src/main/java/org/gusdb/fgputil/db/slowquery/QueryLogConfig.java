@@ -4,6 +4,9 @@ public interface QueryLogConfig {
 
   public static final double DEFAULT_BASELINE = 0.1;
   public static final double DEFAULT_SLOW = 5;
+  public static final int DEFAULT_MAX_LATENCY_TRACKED_QUERIES = 256;
+  public static final long DEFAULT_ORPHAN_SWEEP_INTERVAL = 5 * 60 * 1000;
+  public static final long DEFAULT_ORPHANED_RESULT_SET_AGE = 60 * 60 * 1000;
 
   default double getBaseline() { return DEFAULT_BASELINE; }
 
@@ -19,4 +22,36 @@ public interface QueryLogConfig {
    */
   default boolean isIgnoredBaseline(String sql) { return false; }
 
+  /**
+   * @return number of milliseconds between background checks for result sets
+   * whose processing was started but never ended; 0 or less disables checks
+   */
+  default long getOrphanSweepInterval() { return DEFAULT_ORPHAN_SWEEP_INTERVAL; }
+
+  /**
+   * @return number of milliseconds after which a result set still being
+   * processed is logged as a leak and no longer tracked
+   */
+  default long getOrphanedResultSetAge() { return DEFAULT_ORPHANED_RESULT_SET_AGE; }
+
+  /**
+   * @return whether to keep latency histograms for each named query,
+   * available through QueryLogger.getLatencySnapshot()
+   */
+  default boolean isTrackLatencies() { return true; }
+
+  /**
+   * Bounds the memory used by latency tracking.  Once this many distinct query
+   * names have been seen, latencies of queries with new names are combined
+   * under QueryLogger.OTHER_QUERIES_NAME.
+   *
+   * @return maximum number of query names tracked separately
+   */
+  default int getMaxLatencyTrackedQueries() { return DEFAULT_MAX_LATENCY_TRACKED_QUERIES; }
+
+  /**
+   * @return whether to expose latency statistics over JMX (see QueryLatencyMXBeans)
+   */
+  default boolean isRegisterLatencyMXBean() { return false; }
+
 }
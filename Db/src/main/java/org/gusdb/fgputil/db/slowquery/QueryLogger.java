@@ -3,21 +3,34 @@ package org.gusdb.fgputil.db.slowquery;
 import static org.gusdb.fgputil.FormatUtil.getInnerClassLog4jName;
 
 import java.sql.ResultSet;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import javax.management.JMException;
+
 import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.slowquery.LatencyHistogram.Snapshot;
+import org.gusdb.fgputil.db.slowquery.QueryLatencyStats.Phase;
 import org.gusdb.fgputil.db.slowquery.SqlTimer.SqlTimerEvents;
 
 public class QueryLogger {
 
   private static final Logger LOG = Logger.getLogger(QueryLogger.class);
 
+  /** name under which latencies of unnamed queries are tracked */
+  public static final String UNNAMED_QUERY_NAME = "(unnamed)";
+
+  /** name under which latencies are tracked once the configured number of query names is reached */
+  public static final String OTHER_QUERIES_NAME = "(other)";
+
   /*****************************************************************************
    *
    * QueryLogger is a singleton that should be initialized exactly once on startup
@@ -26,6 +39,13 @@ public class QueryLogger {
 
   private static QueryLogger _instance;
 
+  // orphaned result set sweeps run on a single daemon thread, off the query path
+  private static final ScheduledExecutorService SWEEP_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "QueryLogger-orphan-sweep");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   public static synchronized void initialize(QueryLogConfig config) {
     if (_instance != null) {
       LOG.warn("Multiple calls to initialize().  Ignoring...");
@@ -35,6 +55,14 @@ public class QueryLogger {
       ExampleQueryLog.getLogger().debug("Initializing example query log");
       SlowQueryLog.getLogger().debug("Initializing slow query log");
       _instance = new QueryLogger(config);
+      if (config.isTrackLatencies() && config.isRegisterLatencyMXBean()) {
+        try {
+          QueryLatencyMXBeans.register();
+        }
+        catch (JMException e) {
+          LOG.warn("Unable to register query latency MXBean", e);
+        }
+      }
     }
   }
 
@@ -49,12 +77,17 @@ public class QueryLogger {
    ****************************************************************************/
 
   private final QueryLogConfig _config;
-  private final Set<String> _queryNames = new HashSet<>();
-  private final Map<ResultSet, QueryLogInfo> _queryLogInfos =
-      Collections.synchronizedMap(new HashMap<ResultSet, QueryLogInfo>());
+  private final Set<String> _queryNames = ConcurrentHashMap.newKeySet();
+  private final Map<ResultSet, QueryLogInfo> _queryLogInfos = new ConcurrentHashMap<>();
+  private final Map<String, QueryLatencyStats> _latencyStats = new ConcurrentHashMap<>();
 
-  private QueryLogger(QueryLogConfig config) {
+  QueryLogger(QueryLogConfig config) {
     _config = config;
+    long sweepInterval = config.getOrphanSweepInterval();
+    if (sweepInterval > 0) {
+      SWEEP_EXECUTOR.scheduleWithFixedDelay(this::logOrphanedResultSets,
+          sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
   }
 
   /** 
@@ -65,9 +98,12 @@ public class QueryLogger {
    * @param startTime start time in ms of operation to be compared to "now" (the end time)
    */
   public static void logEndStatementExecution(String sql, String name, long startTime) {
-    performIfPresent(ql ->
-      ql.logQueryTime(sql, name, startTime, -1, System.currentTimeMillis(), false)
-    );
+    performIfPresent(ql -> {
+      long completionTime = System.currentTimeMillis();
+      ql.recordLatency(name, Phase.EXECUTE, completionTime - startTime);
+      ql.recordLatency(name, Phase.TOTAL, completionTime - startTime);
+      ql.logQueryTime(sql, name, startTime, -1, completionTime, false);
+    });
   }
 
   /** 
@@ -81,9 +117,7 @@ public class QueryLogger {
    */
   public static void logStartResultsProcessing(String sql, String name,
       long startTime, ResultSet resultSet) {
-    performIfPresent(ql ->
-      ql._queryLogInfos.put(resultSet, new QueryLogInfo(sql, name, startTime, System.currentTimeMillis()))
-    );
+    performIfPresent(ql -> ql.startResultsProcessing(sql, name, startTime, resultSet));
   }
 
   /**
@@ -92,25 +126,92 @@ public class QueryLogger {
    * @param resultSet
    */
   public static void logEndResultsProcessing(ResultSet resultSet) {
-    performIfPresent(ql -> {
-      QueryLogInfo info = ql._queryLogInfos.get(resultSet);
-      ql._queryLogInfos.remove(resultSet);
-      if (info != null) {
-        ql.logQueryTime(info.sql, info.name, info.startTime, info.firstPageTime, System.currentTimeMillis(), false);
-      }
-      ql.logOrphanedResultSets();
-    });
+    performIfPresent(ql -> ql.endResultsProcessing(resultSet));
+  }
+
+  void startResultsProcessing(String sql, String name, long startTime, ResultSet resultSet) {
+    _queryLogInfos.put(resultSet, new QueryLogInfo(sql, name, startTime, System.currentTimeMillis()));
+  }
+
+  void endResultsProcessing(ResultSet resultSet) {
+    QueryLogInfo info = _queryLogInfos.remove(resultSet);
+    if (info != null) {
+      long completionTime = System.currentTimeMillis();
+      recordLatency(info.name, Phase.EXECUTE, info.firstPageTime - info.startTime);
+      recordLatency(info.name, Phase.HANDLE, completionTime - info.firstPageTime);
+      recordLatency(info.name, Phase.TOTAL, completionTime - info.startTime);
+      logQueryTime(info.sql, info.name, info.startTime, info.firstPageTime, completionTime, false);
+    }
+  }
+
+  int getNumResultSetsInProcess() {
+    return _queryLogInfos.size();
   }
 
   public static void submitTimer(SqlTimer timer) {
     performIfPresent(ql -> {
       Long[] times = timer.getTimes();
+      ql.getLatencyStats(timer.getSqlName()).ifPresent(stats -> stats.record(times));
       ql.logQueryTime(timer.getSql(), timer.getSqlName(), 0,
           times[SqlTimerEvents.SQL_EXECUTED.ordinal()],
           times[SqlTimerEvents.COMPLETE.ordinal()], false);
     });
   }
 
+  /**
+   * Logs (at debug level) the fetch statistics of a result set read with an
+   * adaptive fetch size: rows and bytes per round trip, and each fetch size
+   * applied.
+   *
+   * @param timer timer to which fetches were reported
+   */
+  public static void submitFetchStats(SqlTimer timer) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(String.format("FETCH STATS [%s] rows: %d round trips: %d bytes: %d (avg %d, max %d per round trip) fetch sizes: %s",
+          timer.getSqlName(), timer.getNumRowsFetched(), timer.getNumRoundTrips(), timer.getNumBytesFetched(),
+          timer.getAverageBytesPerRoundTrip(), timer.getMaxBytesPerRoundTrip(), timer.getFetchSizeChanges()));
+    }
+  }
+
+  /**
+   * Returns the latency distributions of queries run since startup (or the
+   * last reset), keyed by query name.  Returns an empty map if QueryLogger has
+   * not been initialized or latency tracking is disabled.
+   *
+   * @return map from query name to snapshots of each phase's latencies
+   */
+  public static Map<String, Map<Phase, Snapshot>> getLatencySnapshot() {
+    Map<String, Map<Phase, Snapshot>> snapshot = new TreeMap<>();
+    performIfPresent(ql -> ql._latencyStats.forEach((name, stats) -> snapshot.put(name, stats.getSnapshot())));
+    return snapshot;
+  }
+
+  /**
+   * Discards all latencies recorded so far.
+   */
+  public static void resetLatencyStats() {
+    performIfPresent(ql -> ql._latencyStats.clear());
+  }
+
+  private Optional<QueryLatencyStats> getLatencyStats(String name) {
+    if (!_config.isTrackLatencies()) {
+      return Optional.empty();
+    }
+    String key = name == null ? UNNAMED_QUERY_NAME : name;
+    QueryLatencyStats stats = _latencyStats.get(key);
+    if (stats == null) {
+      if (_latencyStats.size() >= _config.getMaxLatencyTrackedQueries()) {
+        key = OTHER_QUERIES_NAME;
+      }
+      stats = _latencyStats.computeIfAbsent(key, k -> new QueryLatencyStats());
+    }
+    return Optional.of(stats);
+  }
+
+  private void recordLatency(String name, Phase phase, long millis) {
+    getLatencyStats(name).ifPresent(stats -> stats.record(phase, millis));
+  }
+
   private void logQueryTime(String sql, String name, long startTime, long firstPageTime, long completionTime, boolean isLeak) {
 
     double lastPageSeconds = (completionTime - startTime) / 1000D;
@@ -130,39 +231,31 @@ public class QueryLogger {
     else if (lastPageSeconds >= _config.getBaseline() && !_config.isIgnoredBaseline(sql)) {
       SlowQueryLog.getLogger().warn("     QUERY LOG" + details);
 
-      synchronized (_queryNames) {
-        if (!_queryNames.contains(name)) {
-          _queryNames.add(name);
-          ExampleQueryLog.getLogger().info("EXAMPLE QUERY" + details + "\n" + sql);
-        }
+      if (_queryNames.add(name == null ? UNNAMED_QUERY_NAME : name)) {
+        ExampleQueryLog.getLogger().info("EXAMPLE QUERY" + details + "\n" + sql);
       }
     }
   }
 
   /**
-   * Log orphaned result sets, ie, those that are closed but still in hash
+   * Log orphaned result sets, ie, those whose processing started long ago but
+   * never ended, and stop tracking them.  Runs periodically in the background.
    */
-  private void logOrphanedResultSets() {
-    Map<ResultSet,QueryLogInfo> closedResultSets = null; 
-    synchronized ( _queryLogInfos ){
-      if (_queryLogInfos.size() != 0) {
-        closedResultSets = new HashMap<>(); 
-        Set<ResultSet> resultSets = new HashSet<>(_queryLogInfos.keySet()); 
-        for (ResultSet rs : resultSets) {
-          QueryLogInfo info = _queryLogInfos.get(rs);
-          // consider a leak if open for more than an hour
-          if (System.currentTimeMillis() - info.startTime > 1000 * 3600) {
-            closedResultSets.put(rs, _queryLogInfos.get(rs));
-            _queryLogInfos.remove(rs);
-          }
+  void logOrphanedResultSets() {
+    try {
+      long now = System.currentTimeMillis();
+      long maxAge = _config.getOrphanedResultSetAge();
+      for (Entry<ResultSet, QueryLogInfo> entry : _queryLogInfos.entrySet()) {
+        QueryLogInfo info = entry.getValue();
+        // only log if processing was not ended while this sweep ran
+        if (now - info.startTime > maxAge && _queryLogInfos.remove(entry.getKey(), info)) {
+          logQueryTime(info.sql, info.name, info.startTime, info.firstPageTime, now, true);
         }
       }
     }
-    if (closedResultSets != null) {
-      for (ResultSet rs : closedResultSets.keySet()) {
-        QueryLogInfo info = closedResultSets.get(rs);
-        logQueryTime(info.sql, info.name, info.startTime, info.firstPageTime, System.currentTimeMillis(), true);
-      }
+    catch (Exception e) {
+      // an exception would cancel future sweeps
+      LOG.error("Unable to check for orphaned result sets", e);
     }
   }
 
@@ -170,10 +263,10 @@ public class QueryLogger {
    * Helper class containing data about a single SQL execution
    */
   private static class QueryLogInfo {
-    String sql;
-    String name;
-    long startTime;
-    long firstPageTime;
+    final String sql;
+    final String name;
+    final long startTime;
+    final long firstPageTime;
 
     public QueryLogInfo(String sql, String name, long startTime, long firstPageTime) {
       this.sql = sql;
@@ -1,11 +1,19 @@
 package org.gusdb.fgputil.db.slowquery;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.gusdb.fgputil.Timer;
 
 /**
  * An extension of the Timer class that records timestamps of each step in the
- * sequence of operations that occur over the course of an SQL statement
- * 
+ * sequence of operations that occur over the course of an SQL statement.
+ * For results read with an adaptive fetch size, also records each change in
+ * fetch size and the number of rows and (estimated) bytes fetched per round
+ * trip.
+ *
  * @author rdoherty
  */
 public class SqlTimer extends Timer {
@@ -21,8 +29,42 @@ public class SqlTimer extends Timer {
   private String _sql;
   private String _sqlName;
   private Long[] _times = new Long[SqlTimerEvents.values().length];
+  private List<FetchSizeChange> _fetchSizeChanges = new ArrayList<>();
+  private int _numRoundTrips = 0;
+  private long _numRowsFetched = 0;
+  private long _numBytesFetched = 0;
+  private long _maxBytesPerRoundTrip = 0;
+
+  /**
+   * A change in the fetch size applied to a result set
+   */
+  public static class FetchSizeChange {
+
+    private final long _elapsed;
+    private final int _fetchSize;
+
+    public FetchSizeChange(long elapsed, int fetchSize) {
+      _elapsed = elapsed;
+      _fetchSize = fetchSize;
+    }
+
+    /** @return time (ms since start) at which the fetch size was applied */
+    public long getElapsed() { return _elapsed; }
+
+    public int getFetchSize() { return _fetchSize; }
+
+    @Override
+    public String toString() {
+      return _fetchSize + "@" + _elapsed + "ms";
+    }
+  }
 
   public SqlTimer(String sql, String sqlName) {
+    this(sql, sqlName, Clock.systemUTC());
+  }
+
+  public SqlTimer(String sql, String sqlName, Clock clock) {
+    super(clock);
     _sql = sql;
     _sqlName = sqlName;
   }
@@ -31,6 +73,11 @@ public class SqlTimer extends Timer {
   public void restart() {
     super.restart();
     _times = new Long[SqlTimerEvents.values().length];
+    _fetchSizeChanges = new ArrayList<>();
+    _numRoundTrips = 0;
+    _numRowsFetched = 0;
+    _numBytesFetched = 0;
+    _maxBytesPerRoundTrip = 0;
   }
 
   public void statementPrepared() {
@@ -53,6 +100,23 @@ public class SqlTimer extends Timer {
     _times[SqlTimerEvents.COMPLETE.ordinal()] = getElapsed();
   }
 
+  public void fetchSizeChanged(int fetchSize) {
+    _fetchSizeChanges.add(new FetchSizeChange(getElapsed(), fetchSize));
+  }
+
+  /**
+   * Records the rows read from one fetch of a result set
+   *
+   * @param numRows number of rows in the fetch
+   * @param numBytes estimated size of those rows in bytes
+   */
+  public void roundTripCompleted(int numRows, long numBytes) {
+    _numRoundTrips++;
+    _numRowsFetched += numRows;
+    _numBytesFetched += numBytes;
+    _maxBytesPerRoundTrip = Math.max(_maxBytesPerRoundTrip, numBytes);
+  }
+
   public String getSql() {
     return _sql;
   }
@@ -64,4 +128,28 @@ public class SqlTimer extends Timer {
   public Long[] getTimes() {
     return _times;
   }
+
+  public List<FetchSizeChange> getFetchSizeChanges() {
+    return Collections.unmodifiableList(_fetchSizeChanges);
+  }
+
+  public int getNumRoundTrips() {
+    return _numRoundTrips;
+  }
+
+  public long getNumRowsFetched() {
+    return _numRowsFetched;
+  }
+
+  public long getNumBytesFetched() {
+    return _numBytesFetched;
+  }
+
+  public long getMaxBytesPerRoundTrip() {
+    return _maxBytesPerRoundTrip;
+  }
+
+  public long getAverageBytesPerRoundTrip() {
+    return _numRoundTrips == 0 ? 0 : _numBytesFetched / _numRoundTrips;
+  }
 }
@@ -0,0 +1,173 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.gusdb.fgputil.db.SqlRuntimeException;
+import org.gusdb.fgputil.db.slowquery.QueryLogger;
+import org.gusdb.fgputil.db.slowquery.SqlTimer;
+import org.gusdb.fgputil.db.stream.ResultSetRowBatch.Columns;
+import org.gusdb.fgputil.runtime.JvmUtil;
+
+/**
+ * Adjusts the fetch size of a result set as it is read, so that each round
+ * trip to the database brings back about a configured number of bytes: many
+ * narrow rows per fetch for large exports, few wide rows where a large fixed
+ * fetch size would exhaust the heap.  The pool-wide default fetch size
+ * (ConnectionPoolConfig.getDefaultFetchSize()) is replaced by the initial
+ * fetch size in the passed options.
+ *
+ * The code reading the result set reports each row (or batch of rows) read.
+ * Row width is estimated from a sample of rows using JvmUtil.estimateDeepSize()
+ * on raw row data, never on converted objects: the bytes written for a row,
+ * the copied values of a batch of rows, or (via currentRowRead()) the values of
+ * the current row, copied as ParallelResultSetIterator copies rows.  Each time a
+ * full fetch of rows has been read, the fetch size for the next fetch is
+ * recalculated from the memory budget; it is changed (via
+ * ResultSet.setFetchSize(), a hint most drivers apply to subsequent fetches)
+ * only if it differs from the current size by more than a quarter, to avoid
+ * churn.  Round trips are inferred from the fetch size rather than observed.
+ *
+ * Fetch size changes and the rows and bytes of each round trip are recorded in
+ * an SqlTimer, whose statistics are submitted to QueryLogger once reading is
+ * complete.  Instances are not thread-safe; rows must be reported by the
+ * thread reading the cursor.
+ */
+public class AdaptiveFetchSizeController {
+
+  // a new fetch size is applied only if it differs from the current by more than 1/this
+  private static final int CHANGE_THRESHOLD_DIVISOR = 4;
+
+  private final ResultSet _rs;
+  private final AdaptiveFetchSizeOptions _options;
+  private final SqlTimer _timer;
+
+  private int _fetchSize;
+  private int _rowsInFetch = 0;
+  private long _rowsSinceSample = 0;
+  // estimated bytes per row, or -1 if no row has been measured
+  private double _rowBytes = -1;
+  private boolean _complete = false;
+  // columns of the result set, read when currentRowRead() first samples a row
+  private Columns _columns;
+
+  /**
+   * @param rs result set to control; its statement should have been executed
+   * with the initial fetch size in the passed options
+   * @param sql SQL that produced the result set
+   * @param sqlName name of the query (for logging)
+   * @param options fetch size options
+   */
+  public AdaptiveFetchSizeController(ResultSet rs, String sql, String sqlName, AdaptiveFetchSizeOptions options) {
+    _rs = rs;
+    _options = new AdaptiveFetchSizeOptions(options);
+    _timer = new SqlTimer(sql, sqlName);
+    _fetchSize = _options.getInitialFetchSize();
+    _rowsSinceSample = _options.getSampleInterval();
+    _timer.fetchSizeChanged(_fetchSize);
+  }
+
+  /**
+   * Reports that the row the result set is positioned on was read, measuring
+   * its column values if a sample is due.  Call this before the row is
+   * converted: values of LONG columns, which drivers may allow to be read
+   * only once, are not measured, but other columns of a sampled row are read
+   * again by the conversion.
+   */
+  public void currentRowRead() {
+    Object[] values = null;
+    if (_rowsSinceSample + 1 >= _options.getSampleInterval()) {
+      try {
+        if (_columns == null) {
+          _columns = new Columns(_rs.getMetaData());
+        }
+        values = _columns.copyCurrentRow(_rs, true);
+      }
+      catch (SQLException e) {
+        throw new SqlRuntimeException(e);
+      }
+    }
+    rowsRead(1, values);
+  }
+
+  /**
+   * Reports that a row was read.
+   *
+   * @param row raw data of the row (e.g. bytes written for it) to measure if a
+   * sample is due; may be null if the row was skipped
+   */
+  public void rowRead(Object row) {
+    rowsRead(1, row);
+  }
+
+  /**
+   * Reports that rows were read.
+   *
+   * @param numRows number of rows read
+   * @param rows raw data of the rows (e.g. their copied values) to measure if a
+   * sample is due; may be null if the rows were skipped
+   */
+  public void rowsRead(int numRows, Object rows) {
+    if (numRows <= 0) return;
+    _rowsSinceSample += numRows;
+    if (rows != null && _rowsSinceSample >= _options.getSampleInterval()) {
+      double sampledBytes = (double)JvmUtil.estimateDeepSize(rows) / numRows;
+      // weight recent samples more heavily so the estimate follows changes in width
+      _rowBytes = _rowBytes < 0 ? sampledBytes : (_rowBytes * 3 + sampledBytes) / 4;
+      _rowsSinceSample = 0;
+    }
+    _rowsInFetch += numRows;
+    if (_rowsInFetch >= _fetchSize) {
+      completeRoundTrip();
+      adjustFetchSize();
+    }
+  }
+
+  private void completeRoundTrip() {
+    _timer.roundTripCompleted(_rowsInFetch, (long)(Math.max(_rowBytes, 0) * _rowsInFetch));
+    _rowsInFetch = 0;
+  }
+
+  private void adjustFetchSize() {
+    if (_rowBytes <= 0) return;
+    int targetSize = (int)Math.max(_options.getMinFetchSize(), Math.min(_options.getMaxFetchSize(),
+        _options.getMemoryBudget() / _rowBytes));
+    if (Math.abs(targetSize - _fetchSize) > _fetchSize / CHANGE_THRESHOLD_DIVISOR) {
+      try {
+        _rs.setFetchSize(targetSize);
+      }
+      catch (SQLException e) {
+        throw new SqlRuntimeException(e);
+      }
+      _fetchSize = targetSize;
+      _timer.fetchSizeChanged(targetSize);
+    }
+  }
+
+  /**
+   * Records the final (possibly partial) round trip and submits fetch
+   * statistics to QueryLogger.  Calls after the first have no effect.
+   */
+  public void complete() {
+    if (_complete) return;
+    _complete = true;
+    if (_rowsInFetch > 0) {
+      completeRoundTrip();
+    }
+    QueryLogger.submitFetchStats(_timer);
+  }
+
+  /**
+   * @return fetch size currently applied to the result set
+   */
+  public int getFetchSize() {
+    return _fetchSize;
+  }
+
+  /**
+   * @return timer to which fetch size changes and round trips are reported
+   */
+  public SqlTimer getTimer() {
+    return _timer;
+  }
+}
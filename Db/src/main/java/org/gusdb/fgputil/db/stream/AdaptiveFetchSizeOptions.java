@@ -0,0 +1,87 @@
+package org.gusdb.fgputil.db.stream;
+
+/**
+ * Encapsulates settings used by an AdaptiveFetchSizeController.  The fetch
+ * size of a result set starts at initialFetchSize and is then set so that one
+ * fetch of rows of the observed width takes about memoryBudget bytes, within
+ * the range [minFetchSize, maxFetchSize].  Row width is measured on one row in
+ * every sampleInterval.
+ */
+public class AdaptiveFetchSizeOptions {
+
+  public static final long DEFAULT_MEMORY_BUDGET = 8 * 1024 * 1024;
+  public static final int DEFAULT_INITIAL_FETCH_SIZE = 100;
+  public static final int DEFAULT_MIN_FETCH_SIZE = 10;
+  public static final int DEFAULT_MAX_FETCH_SIZE = 20000;
+  public static final int DEFAULT_SAMPLE_INTERVAL = 100;
+
+  private long _memoryBudget = DEFAULT_MEMORY_BUDGET;
+  private int _initialFetchSize = DEFAULT_INITIAL_FETCH_SIZE;
+  private int _minFetchSize = DEFAULT_MIN_FETCH_SIZE;
+  private int _maxFetchSize = DEFAULT_MAX_FETCH_SIZE;
+  private int _sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+  public AdaptiveFetchSizeOptions() { }
+
+  public AdaptiveFetchSizeOptions(AdaptiveFetchSizeOptions options) {
+    _memoryBudget = options._memoryBudget;
+    _initialFetchSize = options._initialFetchSize;
+    _minFetchSize = options._minFetchSize;
+    _maxFetchSize = options._maxFetchSize;
+    _sampleInterval = options._sampleInterval;
+  }
+
+  /**
+   * @param memoryBudget approximate number of bytes the rows of a single fetch should occupy
+   */
+  public AdaptiveFetchSizeOptions setMemoryBudget(long memoryBudget) {
+    if (memoryBudget <= 0) throw new IllegalArgumentException("Memory budget must be >0. " + memoryBudget + " passed.");
+    _memoryBudget = memoryBudget;
+    return this;
+  }
+
+  /**
+   * @param initialFetchSize fetch size applied to the statement, used until row width is known
+   */
+  public AdaptiveFetchSizeOptions setInitialFetchSize(int initialFetchSize) {
+    if (initialFetchSize <= 0) throw new IllegalArgumentException(
+        "Initial fetch size must be >0. " + initialFetchSize + " passed.");
+    _initialFetchSize = initialFetchSize;
+    return this;
+  }
+
+  public AdaptiveFetchSizeOptions setFetchSizeRange(int minFetchSize, int maxFetchSize) {
+    if (minFetchSize <= 0 || maxFetchSize < minFetchSize) throw new IllegalArgumentException(
+        "Fetch size range must be >0 and non-empty. [" + minFetchSize + "," + maxFetchSize + "] passed.");
+    _minFetchSize = minFetchSize;
+    _maxFetchSize = maxFetchSize;
+    return this;
+  }
+
+  public AdaptiveFetchSizeOptions setSampleInterval(int sampleInterval) {
+    if (sampleInterval <= 0) throw new IllegalArgumentException(
+        "Sample interval must be >0. " + sampleInterval + " passed.");
+    _sampleInterval = sampleInterval;
+    return this;
+  }
+
+  public long getMemoryBudget() {
+    return _memoryBudget;
+  }
+
+  public int getInitialFetchSize() {
+    return Math.max(_minFetchSize, Math.min(_maxFetchSize, _initialFetchSize));
+  }
+
+  public int getMinFetchSize() {
+    return _minFetchSize;
+  }
+
+  public int getMaxFetchSize() {
+    return _maxFetchSize;
+  }
+
+  public int getSampleInterval() {
+    return _sampleInterval;
+  }
+}
@@ -0,0 +1,750 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+
+import org.gusdb.fgputil.db.stream.ResultSetRowBatch.Cell;
+import org.gusdb.fgputil.db.stream.ResultSetRowBatch.Columns;
+
+/**
+ * Read-only, forward-only ResultSet over rows copied by ResultSetRowBatch.
+ * getObject() and getString() return the values the driver returned for them
+ * when the rows were copied; the other supported typed getters convert from
+ * those values.  Calendar and type-map variants, LOB locators, scrolling and
+ * updates throw SQLFeatureNotSupportedException.
+ */
+final class CopiedRowsResultSet implements ResultSet {
+
+  private final Columns _columns;
+  private final List<Object[]> _rows;
+  private final int _firstRowNum;
+
+  private int _rowIndex = -1;
+  private boolean _wasNull = false;
+  private boolean _closed = false;
+
+  CopiedRowsResultSet(Columns columns, List<Object[]> rows, int firstRowNum) {
+    _columns = columns;
+    _rows = rows;
+    _firstRowNum = firstRowNum;
+  }
+
+  // returns the copied value (possibly a Cell) of the passed column in the current row
+  private Object getValue(int columnIndex) throws SQLException {
+    checkOpen();
+    if (_rowIndex < 0 || _rowIndex >= _rows.size()) {
+      throw new SQLException("Result set is not positioned on a row.");
+    }
+    if (columnIndex < 1 || columnIndex > _columns.getColumnCount()) {
+      throw new SQLException("Column index " + columnIndex + " is out of range.");
+    }
+    Object value = _rows.get(_rowIndex)[columnIndex - 1];
+    _wasNull = value == null;
+    return value;
+  }
+
+  private void checkOpen() throws SQLException {
+    if (_closed) {
+      throw new SQLException("Result set is closed.");
+    }
+  }
+
+  private static Object objectOf(Object value) {
+    return value instanceof Cell ? ((Cell)value).object : value;
+  }
+
+  private static Number toNumber(int columnIndex, Object value) throws SQLException {
+    Object object = objectOf(value);
+    if (object instanceof Number) return (Number)object;
+    if (object instanceof Boolean) return (Boolean)object ? 1 : 0;
+    String text = value instanceof Cell ? ((Cell)value).string : object.toString();
+    try {
+      return new BigDecimal(text.trim());
+    }
+    catch (NumberFormatException e) {
+      throw conversionError(columnIndex, object, "number");
+    }
+  }
+
+  private static Timestamp toTimestamp(int columnIndex, Object value) throws SQLException {
+    if (value instanceof Cell && ((Cell)value).timestamp != null) return ((Cell)value).timestamp;
+    Object object = objectOf(value);
+    if (object instanceof Timestamp) return (Timestamp)object;
+    if (object instanceof java.util.Date) return new Timestamp(((java.util.Date)object).getTime());
+    if (object instanceof LocalDateTime) return Timestamp.valueOf((LocalDateTime)object);
+    if (object instanceof LocalDate) return Timestamp.valueOf(((LocalDate)object).atStartOfDay());
+    throw conversionError(columnIndex, object, "Timestamp");
+  }
+
+  private static SQLException conversionError(int columnIndex, Object value, String targetType) {
+    return new SQLException("Value of type " + value.getClass().getName() +
+        " in column " + columnIndex + " cannot be converted to " + targetType + ".");
+  }
+
+  private static SQLException unsupported(String methodName) {
+    return new SQLFeatureNotSupportedException(methodName + "() is not supported by copied result rows.");
+  }
+
+  //*********************************************************************
+  //  Cursor and metadata
+  //*********************************************************************
+
+  @Override
+  public boolean next() throws SQLException {
+    checkOpen();
+    if (_rowIndex < _rows.size()) _rowIndex++;
+    return _rowIndex < _rows.size();
+  }
+
+  @Override
+  public void close() {
+    _closed = true;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return _closed;
+  }
+
+  @Override
+  public boolean wasNull() {
+    return _wasNull;
+  }
+
+  @Override
+  public int getRow() {
+    return _rowIndex >= 0 && _rowIndex < _rows.size() ? _firstRowNum + _rowIndex : 0;
+  }
+
+  @Override
+  public boolean isBeforeFirst() {
+    return _rowIndex < 0 && !_rows.isEmpty();
+  }
+
+  @Override
+  public boolean isAfterLast() {
+    return _rowIndex >= _rows.size() && !_rows.isEmpty();
+  }
+
+  @Override
+  public boolean isFirst() {
+    return _rowIndex == 0 && !_rows.isEmpty();
+  }
+
+  @Override
+  public boolean isLast() {
+    return _rowIndex == _rows.size() - 1;
+  }
+
+  @Override
+  public int findColumn(String columnLabel) throws SQLException {
+    return _columns.findColumn(columnLabel);
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() {
+    return _columns.getMetaData();
+  }
+
+  @Override
+  public Statement getStatement() {
+    return null;
+  }
+
+  @Override
+  public int getType() {
+    return TYPE_FORWARD_ONLY;
+  }
+
+  @Override
+  public int getConcurrency() {
+    return CONCUR_READ_ONLY;
+  }
+
+  @Override
+  public int getHoldability() {
+    return HOLD_CURSORS_OVER_COMMIT;
+  }
+
+  @Override
+  public int getFetchDirection() {
+    return FETCH_FORWARD;
+  }
+
+  @Override
+  public int getFetchSize() {
+    return _rows.size();
+  }
+
+  @Override
+  public SQLWarning getWarnings() {
+    return null;
+  }
+
+  @Override
+  public void clearWarnings() {
+    // copied rows carry no warnings
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) return iface.cast(this);
+    throw new SQLException("Copied result rows do not wrap " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return iface.isInstance(this);
+  }
+
+  @Override
+  public String toString() {
+    return "Copied result rows " + _firstRowNum + "-" + (_firstRowNum + _rows.size() - 1);
+  }
+
+  //*********************************************************************
+  //  Supported getters
+  //*********************************************************************
+
+  @Override
+  public Object getObject(int columnIndex) throws SQLException {
+    return objectOf(getValue(columnIndex));
+  }
+
+  @Override
+  public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null) return null;
+    Object object = objectOf(value);
+    if (type.isInstance(object)) return type.cast(object);
+    if (type == String.class) return type.cast(getString(columnIndex));
+    if (type == Boolean.class) return type.cast(getBoolean(columnIndex));
+    if (type == Byte.class) return type.cast(getByte(columnIndex));
+    if (type == Short.class) return type.cast(getShort(columnIndex));
+    if (type == Integer.class) return type.cast(getInt(columnIndex));
+    if (type == Long.class) return type.cast(getLong(columnIndex));
+    if (type == Float.class) return type.cast(getFloat(columnIndex));
+    if (type == Double.class) return type.cast(getDouble(columnIndex));
+    if (type == BigDecimal.class) return type.cast(getBigDecimal(columnIndex));
+    if (type == Date.class) return type.cast(getDate(columnIndex));
+    if (type == Time.class) return type.cast(getTime(columnIndex));
+    if (type == Timestamp.class) return type.cast(getTimestamp(columnIndex));
+    if (type == LocalDateTime.class) return type.cast(getTimestamp(columnIndex).toLocalDateTime());
+    if (type == LocalDate.class) return type.cast(getDate(columnIndex).toLocalDate());
+    if (type == LocalTime.class) return type.cast(getTime(columnIndex).toLocalTime());
+    throw conversionError(columnIndex, object, type.getSimpleName());
+  }
+
+  @Override
+  public String getString(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null) return null;
+    if (value instanceof Cell) return ((Cell)value).string;
+    if (value instanceof byte[]) throw conversionError(columnIndex, value, "String");
+    return value.toString();
+  }
+
+  @Override
+  public String getNString(int columnIndex) throws SQLException {
+    return getString(columnIndex);
+  }
+
+  @Override
+  public boolean getBoolean(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null) return false;
+    Object object = objectOf(value);
+    if (object instanceof Boolean) return (Boolean)object;
+    if (object instanceof Number) return ((Number)object).doubleValue() != 0;
+    String text = getString(columnIndex).trim();
+    return text.equalsIgnoreCase("true") || text.equals("1") || text.equalsIgnoreCase("y");
+  }
+
+  @Override
+  public byte getByte(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? 0 : toNumber(columnIndex, value).byteValue();
+  }
+
+  @Override
+  public short getShort(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? 0 : toNumber(columnIndex, value).shortValue();
+  }
+
+  @Override
+  public int getInt(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? 0 : toNumber(columnIndex, value).intValue();
+  }
+
+  @Override
+  public long getLong(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? 0 : toNumber(columnIndex, value).longValue();
+  }
+
+  @Override
+  public float getFloat(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? 0 : toNumber(columnIndex, value).floatValue();
+  }
+
+  @Override
+  public double getDouble(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? 0 : toNumber(columnIndex, value).doubleValue();
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null) return null;
+    Number number = toNumber(columnIndex, value);
+    return number instanceof BigDecimal ? (BigDecimal)number : new BigDecimal(number.toString());
+  }
+
+  @Override
+  public byte[] getBytes(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null || value instanceof byte[]) return (byte[])value;
+    throw conversionError(columnIndex, objectOf(value), "byte[]");
+  }
+
+  @Override
+  public Date getDate(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null) return null;
+    Object object = objectOf(value);
+    return object instanceof Date ? (Date)object : new Date(toTimestamp(columnIndex, value).getTime());
+  }
+
+  @Override
+  public Time getTime(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null) return null;
+    Object object = objectOf(value);
+    return object instanceof Time ? (Time)object : new Time(toTimestamp(columnIndex, value).getTime());
+  }
+
+  @Override
+  public Timestamp getTimestamp(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    return value == null ? null : toTimestamp(columnIndex, value);
+  }
+
+  @Override
+  public Array getArray(int columnIndex) throws SQLException {
+    Object value = getValue(columnIndex);
+    if (value == null || value instanceof Array) return (Array)value;
+    throw conversionError(columnIndex, objectOf(value), "Array");
+  }
+
+  @Override
+  public Reader getCharacterStream(int columnIndex) throws SQLException {
+    String value = getString(columnIndex);
+    return value == null ? null : new StringReader(value);
+  }
+
+  @Override
+  public Reader getNCharacterStream(int columnIndex) throws SQLException {
+    return getCharacterStream(columnIndex);
+  }
+
+  @Override
+  public InputStream getBinaryStream(int columnIndex) throws SQLException {
+    byte[] value = getBytes(columnIndex);
+    return value == null ? null : new ByteArrayInputStream(value);
+  }
+
+  @Override
+  public Object getObject(String columnLabel) throws SQLException {
+    return getObject(findColumn(columnLabel));
+  }
+
+  @Override
+  public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+    return getObject(findColumn(columnLabel), type);
+  }
+
+  @Override
+  public String getString(String columnLabel) throws SQLException {
+    return getString(findColumn(columnLabel));
+  }
+
+  @Override
+  public String getNString(String columnLabel) throws SQLException {
+    return getNString(findColumn(columnLabel));
+  }
+
+  @Override
+  public boolean getBoolean(String columnLabel) throws SQLException {
+    return getBoolean(findColumn(columnLabel));
+  }
+
+  @Override
+  public byte getByte(String columnLabel) throws SQLException {
+    return getByte(findColumn(columnLabel));
+  }
+
+  @Override
+  public short getShort(String columnLabel) throws SQLException {
+    return getShort(findColumn(columnLabel));
+  }
+
+  @Override
+  public int getInt(String columnLabel) throws SQLException {
+    return getInt(findColumn(columnLabel));
+  }
+
+  @Override
+  public long getLong(String columnLabel) throws SQLException {
+    return getLong(findColumn(columnLabel));
+  }
+
+  @Override
+  public float getFloat(String columnLabel) throws SQLException {
+    return getFloat(findColumn(columnLabel));
+  }
+
+  @Override
+  public double getDouble(String columnLabel) throws SQLException {
+    return getDouble(findColumn(columnLabel));
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+    return getBigDecimal(findColumn(columnLabel));
+  }
+
+  @Override
+  public byte[] getBytes(String columnLabel) throws SQLException {
+    return getBytes(findColumn(columnLabel));
+  }
+
+  @Override
+  public Date getDate(String columnLabel) throws SQLException {
+    return getDate(findColumn(columnLabel));
+  }
+
+  @Override
+  public Time getTime(String columnLabel) throws SQLException {
+    return getTime(findColumn(columnLabel));
+  }
+
+  @Override
+  public Timestamp getTimestamp(String columnLabel) throws SQLException {
+    return getTimestamp(findColumn(columnLabel));
+  }
+
+  @Override
+  public Array getArray(String columnLabel) throws SQLException {
+    return getArray(findColumn(columnLabel));
+  }
+
+  @Override
+  public Reader getCharacterStream(String columnLabel) throws SQLException {
+    return getCharacterStream(findColumn(columnLabel));
+  }
+
+  @Override
+  public Reader getNCharacterStream(String columnLabel) throws SQLException {
+    return getNCharacterStream(findColumn(columnLabel));
+  }
+
+  @Override
+  public InputStream getBinaryStream(String columnLabel) throws SQLException {
+    return getBinaryStream(findColumn(columnLabel));
+  }
+
+  //*********************************************************************
+  //  Unsupported operations
+  //*********************************************************************
+
+  @Override
+  public boolean absolute(int row) throws SQLException { throw unsupported("absolute"); }
+  @Override
+  public void afterLast() throws SQLException { throw unsupported("afterLast"); }
+  @Override
+  public void beforeFirst() throws SQLException { throw unsupported("beforeFirst"); }
+  @Override
+  public void cancelRowUpdates() throws SQLException { throw unsupported("cancelRowUpdates"); }
+  @Override
+  public void deleteRow() throws SQLException { throw unsupported("deleteRow"); }
+  @Override
+  public boolean first() throws SQLException { throw unsupported("first"); }
+  @Override
+  public InputStream getAsciiStream(String columnLabel) throws SQLException { throw unsupported("getAsciiStream"); }
+  @Override
+  public InputStream getAsciiStream(int columnIndex) throws SQLException { throw unsupported("getAsciiStream"); }
+  @Override
+  public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException { throw unsupported("getBigDecimal"); }
+  @Override
+  public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException { throw unsupported("getBigDecimal"); }
+  @Override
+  public Blob getBlob(String columnLabel) throws SQLException { throw unsupported("getBlob"); }
+  @Override
+  public Blob getBlob(int columnIndex) throws SQLException { throw unsupported("getBlob"); }
+  @Override
+  public Clob getClob(String columnLabel) throws SQLException { throw unsupported("getClob"); }
+  @Override
+  public Clob getClob(int columnIndex) throws SQLException { throw unsupported("getClob"); }
+  @Override
+  public String getCursorName() throws SQLException { throw unsupported("getCursorName"); }
+  @Override
+  public Date getDate(String columnLabel, Calendar cal) throws SQLException { throw unsupported("getDate"); }
+  @Override
+  public Date getDate(int columnIndex, Calendar cal) throws SQLException { throw unsupported("getDate"); }
+  @Override
+  public NClob getNClob(String columnLabel) throws SQLException { throw unsupported("getNClob"); }
+  @Override
+  public NClob getNClob(int columnIndex) throws SQLException { throw unsupported("getNClob"); }
+  @Override
+  public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException { throw unsupported("getObject"); }
+  @Override
+  public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException { throw unsupported("getObject"); }
+  @Override
+  public Ref getRef(String columnLabel) throws SQLException { throw unsupported("getRef"); }
+  @Override
+  public Ref getRef(int columnIndex) throws SQLException { throw unsupported("getRef"); }
+  @Override
+  public RowId getRowId(String columnLabel) throws SQLException { throw unsupported("getRowId"); }
+  @Override
+  public RowId getRowId(int columnIndex) throws SQLException { throw unsupported("getRowId"); }
+  @Override
+  public SQLXML getSQLXML(String columnLabel) throws SQLException { throw unsupported("getSQLXML"); }
+  @Override
+  public SQLXML getSQLXML(int columnIndex) throws SQLException { throw unsupported("getSQLXML"); }
+  @Override
+  public Time getTime(String columnLabel, Calendar cal) throws SQLException { throw unsupported("getTime"); }
+  @Override
+  public Time getTime(int columnIndex, Calendar cal) throws SQLException { throw unsupported("getTime"); }
+  @Override
+  public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException { throw unsupported("getTimestamp"); }
+  @Override
+  public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException { throw unsupported("getTimestamp"); }
+  @Override
+  public URL getURL(String columnLabel) throws SQLException { throw unsupported("getURL"); }
+  @Override
+  public URL getURL(int columnIndex) throws SQLException { throw unsupported("getURL"); }
+  @Override
+  public InputStream getUnicodeStream(String columnLabel) throws SQLException { throw unsupported("getUnicodeStream"); }
+  @Override
+  public InputStream getUnicodeStream(int columnIndex) throws SQLException { throw unsupported("getUnicodeStream"); }
+  @Override
+  public void insertRow() throws SQLException { throw unsupported("insertRow"); }
+  @Override
+  public boolean last() throws SQLException { throw unsupported("last"); }
+  @Override
+  public void moveToCurrentRow() throws SQLException { throw unsupported("moveToCurrentRow"); }
+  @Override
+  public void moveToInsertRow() throws SQLException { throw unsupported("moveToInsertRow"); }
+  @Override
+  public boolean previous() throws SQLException { throw unsupported("previous"); }
+  @Override
+  public void refreshRow() throws SQLException { throw unsupported("refreshRow"); }
+  @Override
+  public boolean relative(int rows) throws SQLException { throw unsupported("relative"); }
+  @Override
+  public boolean rowDeleted() throws SQLException { throw unsupported("rowDeleted"); }
+  @Override
+  public boolean rowInserted() throws SQLException { throw unsupported("rowInserted"); }
+  @Override
+  public boolean rowUpdated() throws SQLException { throw unsupported("rowUpdated"); }
+  @Override
+  public void setFetchDirection(int direction) throws SQLException { throw unsupported("setFetchDirection"); }
+  @Override
+  public void setFetchSize(int rows) throws SQLException { throw unsupported("setFetchSize"); }
+  @Override
+  public void updateArray(String columnLabel, Array x) throws SQLException { throw unsupported("updateArray"); }
+  @Override
+  public void updateArray(int columnIndex, Array x) throws SQLException { throw unsupported("updateArray"); }
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException { throw unsupported("updateAsciiStream"); }
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException { throw unsupported("updateAsciiStream"); }
+  @Override
+  public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException { throw unsupported("updateAsciiStream"); }
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException { throw unsupported("updateAsciiStream"); }
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException { throw unsupported("updateAsciiStream"); }
+  @Override
+  public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException { throw unsupported("updateAsciiStream"); }
+  @Override
+  public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException { throw unsupported("updateBigDecimal"); }
+  @Override
+  public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException { throw unsupported("updateBigDecimal"); }
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException { throw unsupported("updateBinaryStream"); }
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException { throw unsupported("updateBinaryStream"); }
+  @Override
+  public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException { throw unsupported("updateBinaryStream"); }
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException { throw unsupported("updateBinaryStream"); }
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException { throw unsupported("updateBinaryStream"); }
+  @Override
+  public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException { throw unsupported("updateBinaryStream"); }
+  @Override
+  public void updateBlob(String columnLabel, Blob x) throws SQLException { throw unsupported("updateBlob"); }
+  @Override
+  public void updateBlob(String columnLabel, InputStream inputStream) throws SQLException { throw unsupported("updateBlob"); }
+  @Override
+  public void updateBlob(String columnLabel, InputStream inputStream, long length) throws SQLException { throw unsupported("updateBlob"); }
+  @Override
+  public void updateBlob(int columnIndex, Blob x) throws SQLException { throw unsupported("updateBlob"); }
+  @Override
+  public void updateBlob(int columnIndex, InputStream inputStream) throws SQLException { throw unsupported("updateBlob"); }
+  @Override
+  public void updateBlob(int columnIndex, InputStream inputStream, long length) throws SQLException { throw unsupported("updateBlob"); }
+  @Override
+  public void updateBoolean(String columnLabel, boolean x) throws SQLException { throw unsupported("updateBoolean"); }
+  @Override
+  public void updateBoolean(int columnIndex, boolean x) throws SQLException { throw unsupported("updateBoolean"); }
+  @Override
+  public void updateByte(String columnLabel, byte x) throws SQLException { throw unsupported("updateByte"); }
+  @Override
+  public void updateByte(int columnIndex, byte x) throws SQLException { throw unsupported("updateByte"); }
+  @Override
+  public void updateBytes(String columnLabel, byte[] x) throws SQLException { throw unsupported("updateBytes"); }
+  @Override
+  public void updateBytes(int columnIndex, byte[] x) throws SQLException { throw unsupported("updateBytes"); }
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader x) throws SQLException { throw unsupported("updateCharacterStream"); }
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException { throw unsupported("updateCharacterStream"); }
+  @Override
+  public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException { throw unsupported("updateCharacterStream"); }
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x) throws SQLException { throw unsupported("updateCharacterStream"); }
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException { throw unsupported("updateCharacterStream"); }
+  @Override
+  public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException { throw unsupported("updateCharacterStream"); }
+  @Override
+  public void updateClob(String columnLabel, Clob x) throws SQLException { throw unsupported("updateClob"); }
+  @Override
+  public void updateClob(String columnLabel, Reader reader) throws SQLException { throw unsupported("updateClob"); }
+  @Override
+  public void updateClob(String columnLabel, Reader reader, long length) throws SQLException { throw unsupported("updateClob"); }
+  @Override
+  public void updateClob(int columnIndex, Clob x) throws SQLException { throw unsupported("updateClob"); }
+  @Override
+  public void updateClob(int columnIndex, Reader reader) throws SQLException { throw unsupported("updateClob"); }
+  @Override
+  public void updateClob(int columnIndex, Reader reader, long length) throws SQLException { throw unsupported("updateClob"); }
+  @Override
+  public void updateDate(String columnLabel, Date x) throws SQLException { throw unsupported("updateDate"); }
+  @Override
+  public void updateDate(int columnIndex, Date x) throws SQLException { throw unsupported("updateDate"); }
+  @Override
+  public void updateDouble(String columnLabel, double x) throws SQLException { throw unsupported("updateDouble"); }
+  @Override
+  public void updateDouble(int columnIndex, double x) throws SQLException { throw unsupported("updateDouble"); }
+  @Override
+  public void updateFloat(String columnLabel, float x) throws SQLException { throw unsupported("updateFloat"); }
+  @Override
+  public void updateFloat(int columnIndex, float x) throws SQLException { throw unsupported("updateFloat"); }
+  @Override
+  public void updateInt(String columnLabel, int x) throws SQLException { throw unsupported("updateInt"); }
+  @Override
+  public void updateInt(int columnIndex, int x) throws SQLException { throw unsupported("updateInt"); }
+  @Override
+  public void updateLong(String columnLabel, long x) throws SQLException { throw unsupported("updateLong"); }
+  @Override
+  public void updateLong(int columnIndex, long x) throws SQLException { throw unsupported("updateLong"); }
+  @Override
+  public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException { throw unsupported("updateNCharacterStream"); }
+  @Override
+  public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException { throw unsupported("updateNCharacterStream"); }
+  @Override
+  public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException { throw unsupported("updateNCharacterStream"); }
+  @Override
+  public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException { throw unsupported("updateNCharacterStream"); }
+  @Override
+  public void updateNClob(String columnLabel, NClob x) throws SQLException { throw unsupported("updateNClob"); }
+  @Override
+  public void updateNClob(String columnLabel, Reader reader) throws SQLException { throw unsupported("updateNClob"); }
+  @Override
+  public void updateNClob(String columnLabel, Reader reader, long length) throws SQLException { throw unsupported("updateNClob"); }
+  @Override
+  public void updateNClob(int columnIndex, NClob x) throws SQLException { throw unsupported("updateNClob"); }
+  @Override
+  public void updateNClob(int columnIndex, Reader reader) throws SQLException { throw unsupported("updateNClob"); }
+  @Override
+  public void updateNClob(int columnIndex, Reader reader, long length) throws SQLException { throw unsupported("updateNClob"); }
+  @Override
+  public void updateNString(String columnLabel, String x) throws SQLException { throw unsupported("updateNString"); }
+  @Override
+  public void updateNString(int columnIndex, String x) throws SQLException { throw unsupported("updateNString"); }
+  @Override
+  public void updateNull(String columnLabel) throws SQLException { throw unsupported("updateNull"); }
+  @Override
+  public void updateNull(int columnIndex) throws SQLException { throw unsupported("updateNull"); }
+  @Override
+  public void updateObject(String columnLabel, Object x) throws SQLException { throw unsupported("updateObject"); }
+  @Override
+  public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException { throw unsupported("updateObject"); }
+  @Override
+  public void updateObject(int columnIndex, Object x) throws SQLException { throw unsupported("updateObject"); }
+  @Override
+  public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException { throw unsupported("updateObject"); }
+  @Override
+  public void updateRef(String columnLabel, Ref x) throws SQLException { throw unsupported("updateRef"); }
+  @Override
+  public void updateRef(int columnIndex, Ref x) throws SQLException { throw unsupported("updateRef"); }
+  @Override
+  public void updateRow() throws SQLException { throw unsupported("updateRow"); }
+  @Override
+  public void updateRowId(String columnLabel, RowId x) throws SQLException { throw unsupported("updateRowId"); }
+  @Override
+  public void updateRowId(int columnIndex, RowId x) throws SQLException { throw unsupported("updateRowId"); }
+  @Override
+  public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException { throw unsupported("updateSQLXML"); }
+  @Override
+  public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException { throw unsupported("updateSQLXML"); }
+  @Override
+  public void updateShort(String columnLabel, short x) throws SQLException { throw unsupported("updateShort"); }
+  @Override
+  public void updateShort(int columnIndex, short x) throws SQLException { throw unsupported("updateShort"); }
+  @Override
+  public void updateString(String columnLabel, String x) throws SQLException { throw unsupported("updateString"); }
+  @Override
+  public void updateString(int columnIndex, String x) throws SQLException { throw unsupported("updateString"); }
+  @Override
+  public void updateTime(String columnLabel, Time x) throws SQLException { throw unsupported("updateTime"); }
+  @Override
+  public void updateTime(int columnIndex, Time x) throws SQLException { throw unsupported("updateTime"); }
+  @Override
+  public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException { throw unsupported("updateTimestamp"); }
+  @Override
+  public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException { throw unsupported("updateTimestamp"); }
+}
@@ -0,0 +1,207 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import org.gusdb.fgputil.FormatUtil;
+import org.gusdb.fgputil.db.ResultSetColumnInfo;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes ResultSet rows as JSON objects (column label to value) directly to a
+ * Jackson JsonGenerator, without building an intermediate object per row.
+ * How each column is read and written is resolved once from the result's
+ * metadata, and column labels are pre-encoded.  CLOB and BLOB values are
+ * streamed through the generator in chunks (BLOBs as base64 strings) rather
+ * than read into memory first.
+ *
+ * Numbers are written with the precision of their SQL type: integer types as
+ * longs, floating point types as doubles, and DECIMAL/NUMERIC as exact
+ * decimals.  Dates and timestamps are written as ISO-8601 local date-times.
+ * Columns of other types (e.g. arrays, TIME) are not supported.
+ */
+public class JsonRowWriter {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  @FunctionalInterface
+  private interface ColumnWriter {
+    void write(ResultSet rs, int columnIndex, JsonGenerator gen) throws SQLException, IOException;
+  }
+
+  private final SerializableString[] _labels;
+  private final ColumnWriter[] _writers;
+
+  /**
+   * @param meta metadata of the result set whose rows will be written
+   * @throws IllegalArgumentException if a column is of an unsupported type
+   */
+  public JsonRowWriter(ResultSetColumnInfo meta) {
+    int numColumns = meta.getColumnCount();
+    _labels = new SerializableString[numColumns];
+    _writers = new ColumnWriter[numColumns];
+    for (int i = 1; i <= numColumns; i++) {
+      _labels[i - 1] = new SerializedString(meta.getColumnLabel(i));
+      _writers[i - 1] = getColumnWriter(meta.getColumnType(i), meta.getColumnLabel(i));
+    }
+  }
+
+  /**
+   * Creates a generator suitable for writing rows to the passed stream.  The
+   * stream is not closed when the generator is.
+   *
+   * @param out stream to write to
+   * @param rowSeparator string written between top-level rows, or null for none
+   * @return new generator
+   * @throws IOException if unable to create the generator
+   */
+  public static JsonGenerator createGenerator(OutputStream out, String rowSeparator) throws IOException {
+    JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    gen.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+    gen.setRootValueSeparator(rowSeparator == null ? null : new SerializedString(rowSeparator));
+    return gen;
+  }
+
+  /**
+   * Writes all remaining rows of the passed result set to the passed stream
+   * as a JSON array.
+   *
+   * @return number of rows written
+   */
+  public static long writeJsonArray(ResultSet rs, OutputStream out) throws SQLException, IOException {
+    JsonRowWriter rowWriter = new JsonRowWriter(new ResultSetColumnInfo(rs));
+    try (JsonGenerator gen = createGenerator(out, null)) {
+      gen.writeStartArray();
+      long numRows = rowWriter.writeRows(rs, gen);
+      gen.writeEndArray();
+      return numRows;
+    }
+  }
+
+  /**
+   * Writes all remaining rows of the passed result set to the passed stream
+   * as newline-delimited JSON (one object per line).
+   *
+   * @return number of rows written
+   */
+  public static long writeNdJson(ResultSet rs, OutputStream out) throws SQLException, IOException {
+    JsonRowWriter rowWriter = new JsonRowWriter(new ResultSetColumnInfo(rs));
+    try (JsonGenerator gen = createGenerator(out, FormatUtil.NL)) {
+      return rowWriter.writeRows(rs, gen);
+    }
+  }
+
+  private long writeRows(ResultSet rs, JsonGenerator gen) throws SQLException, IOException {
+    long numRows = 0;
+    while (rs.next()) {
+      writeRow(rs, gen);
+      numRows++;
+    }
+    return numRows;
+  }
+
+  /**
+   * Writes the current row of the passed result set as a JSON object
+   *
+   * @param rs result set positioned on the row to write
+   * @param gen generator to write to
+   */
+  public void writeRow(ResultSet rs, JsonGenerator gen) throws SQLException, IOException {
+    gen.writeStartObject();
+    for (int i = 0; i < _writers.length; i++) {
+      gen.writeFieldName(_labels[i]);
+      _writers[i].write(rs, i + 1, gen);
+    }
+    gen.writeEndObject();
+  }
+
+  private static ColumnWriter getColumnWriter(int sqlType, String columnLabel) {
+    switch (sqlType) {
+
+      case Types.BOOLEAN:
+      case Types.BIT:
+        return (rs, i, gen) -> {
+          boolean value = rs.getBoolean(i);
+          if (rs.wasNull()) gen.writeNull(); else gen.writeBoolean(value);
+        };
+
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+        return (rs, i, gen) -> {
+          long value = rs.getLong(i);
+          if (rs.wasNull()) gen.writeNull(); else gen.writeNumber(value);
+        };
+
+      case Types.FLOAT:
+      case Types.REAL:
+      case Types.DOUBLE:
+        return (rs, i, gen) -> {
+          double value = rs.getDouble(i);
+          if (rs.wasNull()) gen.writeNull(); else gen.writeNumber(value);
+        };
+
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        return (rs, i, gen) -> {
+          BigDecimal value = rs.getBigDecimal(i);
+          if (value == null) gen.writeNull(); else gen.writeNumber(value);
+        };
+
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return (rs, i, gen) -> {
+          String value = rs.getString(i);
+          if (value == null) gen.writeNull(); else gen.writeString(value);
+        };
+
+      case Types.CLOB:
+      case Types.NCLOB:
+        return (rs, i, gen) -> {
+          try (Reader value = rs.getCharacterStream(i)) {
+            if (value == null) gen.writeNull(); else gen.writeString(value, -1);
+          }
+        };
+
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+      case Types.BLOB:
+        return (rs, i, gen) -> {
+          try (InputStream value = rs.getBinaryStream(i)) {
+            if (value == null) gen.writeNull(); else gen.writeBinary(value, -1);
+          }
+        };
+
+      case Types.DATE:
+      case Types.TIMESTAMP:
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return (rs, i, gen) -> {
+          Timestamp value = rs.getTimestamp(i);
+          if (value == null) gen.writeNull(); else gen.writeString(FormatUtil.formatDateTime(value.toLocalDateTime()));
+        };
+
+      default:
+        throw new IllegalArgumentException("Column '" + columnLabel +
+            "' has SQL type " + sqlType + ", which cannot be converted to JSON.");
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Encapsulates settings used when the rows of a ResultSetStream are converted
+ * in parallel.  One thread reads the cursor, copying rows into batches of
+ * batchSize; each batch is converted by a task submitted to the executor.
+ * The reader stops reading (backpressure) whenever maxBatchesInMemory batches
+ * have been read but not yet taken by the consumer of the stream.
+ *
+ * Converters read the copied rows through a read-only, forward-only ResultSet
+ * whose getObject(), getString() and getTimestamp() return what the driver
+ * returned for the row, and which supports the other common single-argument
+ * typed getters; Calendar getters, unwrapping to driver types, and LOB objects
+ * (which are read into memory as Strings and byte arrays) are not available.
+ */
+public class ParallelConversionOptions {
+
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  public enum RowOrder {
+    /**
+     * Rows are delivered in result set order.  A slow batch holds up delivery
+     * of batches after it.
+     */
+    RESULT_SET_ORDER,
+    /**
+     * Batches are delivered as soon as they are converted; rows within a
+     * batch remain in result set order.
+     */
+    COMPLETION_ORDER;
+  }
+
+  private int _batchSize = DEFAULT_BATCH_SIZE;
+  private int _maxBatchesInMemory = Runtime.getRuntime().availableProcessors() * 2;
+  private RowOrder _rowOrder = RowOrder.RESULT_SET_ORDER;
+  // null to use the conversion pool shared by parallel result set streams
+  private Executor _executor = null;
+
+  public ParallelConversionOptions() { }
+
+  public ParallelConversionOptions(ParallelConversionOptions options) {
+    _batchSize = options._batchSize;
+    _maxBatchesInMemory = options._maxBatchesInMemory;
+    _rowOrder = options._rowOrder;
+    _executor = options._executor;
+  }
+
+  public ParallelConversionOptions setBatchSize(int batchSize) {
+    if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be >0. " + batchSize + " passed.");
+    _batchSize = batchSize;
+    return this;
+  }
+
+  public ParallelConversionOptions setMaxBatchesInMemory(int maxBatchesInMemory) {
+    if (maxBatchesInMemory <= 0) throw new IllegalArgumentException(
+        "Max batches in memory must be >0. " + maxBatchesInMemory + " passed.");
+    _maxBatchesInMemory = maxBatchesInMemory;
+    return this;
+  }
+
+  public ParallelConversionOptions setRowOrder(RowOrder rowOrder) {
+    _rowOrder = rowOrder;
+    return this;
+  }
+
+  /**
+   * @param executor executor to run conversion tasks, or null (the default) to
+   * use a pool dedicated to result set conversion, with one daemon thread per
+   * processor; converters passed to the stream must be thread-safe
+   */
+  public ParallelConversionOptions setExecutor(Executor executor) {
+    _executor = executor;
+    return this;
+  }
+
+  public int getBatchSize() {
+    return _batchSize;
+  }
+
+  public int getMaxBatchesInMemory() {
+    return _maxBatchesInMemory;
+  }
+
+  public RowOrder getRowOrder() {
+    return _rowOrder;
+  }
+
+  public Executor getExecutor() {
+    return _executor;
+  }
+}
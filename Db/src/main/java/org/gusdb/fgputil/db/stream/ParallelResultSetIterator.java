@@ -0,0 +1,275 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.SqlRuntimeException;
+import org.gusdb.fgputil.db.stream.ParallelConversionOptions.RowOrder;
+import org.gusdb.fgputil.db.stream.ResultSetRowBatch.Columns;
+
+/**
+ * ResultSetIterator which converts rows in parallel.  A dedicated reader
+ * thread copies rows from the cursor into batches (see ResultSetRowBatch)
+ * and submits a conversion task for each batch to the configured executor;
+ * this iterator hands out the converted rows.  The RowConverter is therefore
+ * called concurrently on many threads, never with the original ResultSet but
+ * with a read-only view of the copied rows, and must be thread-safe.
+ *
+ * The reader is started on first access and blocks once the configured number
+ * of batches are waiting to be consumed.  Errors in reading or converting are
+ * thrown (as runtime exceptions) from hasNext() or next() when the failed
+ * batch is reached.  close() stops the reader before closing the result set.
+ * If a fetch size controller is set, the reader reports each batch to it,
+ * measuring row width on the copied values.
+ */
+public class ParallelResultSetIterator<T> extends ResultSetIterator<T> {
+
+  private static final Logger LOG = Logger.getLogger(ParallelResultSetIterator.class);
+
+  private static final AtomicInteger READER_THREAD_COUNT = new AtomicInteger(0);
+
+  private static final long CONVERTER_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  // conversion pool shared by streams not given an executor; created on first use
+  private static class DefaultExecutorHolder {
+    private static final Executor EXECUTOR = createDefaultExecutor();
+  }
+
+  private final ResultSet _rs;
+  private final RowConverter<T> _converter;
+  private final ParallelConversionOptions _options;
+  private final Executor _executor;
+
+  // one permit per batch which may be read before the consumer takes earlier batches
+  private final Semaphore _batchPermits;
+  private final BlockingQueue<CompletableFuture<List<T>>> _batches = new LinkedBlockingQueue<>();
+  private final CompletableFuture<List<T>> _endOfResults = new CompletableFuture<>();
+
+  private Thread _readerThread;
+  private volatile boolean _closed = false;
+
+  // written by reader thread before it queues _endOfResults
+  private int _numBatchesSubmitted = 0;
+
+  // consumer state
+  private boolean _endOfResultsTaken = false;
+  private int _numBatchesTaken = 0;
+  private Iterator<T> _currentBatch = Collections.emptyIterator();
+
+  public ParallelResultSetIterator(ResultSet rs, RowConverter<T> converter, ParallelConversionOptions options) {
+    super(rs, converter);
+    _rs = rs;
+    _converter = converter;
+    _options = new ParallelConversionOptions(options);
+    _executor = _options.getExecutor() != null ? _options.getExecutor() : DefaultExecutorHolder.EXECUTOR;
+    _batchPermits = new Semaphore(_options.getMaxBatchesInMemory());
+  }
+
+  @Override
+  public boolean hasNext() {
+    startReader();
+    while (!_currentBatch.hasNext()) {
+      List<T> batch = takeNextBatch();
+      if (batch == null) {
+        return false;
+      }
+      _currentBatch = batch.iterator();
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more elements.");
+    }
+    return _currentBatch.next();
+  }
+
+  /**
+   * Counts remaining rows by batch, without handing out each converted row.
+   */
+  @Override
+  public int numRemaining() {
+    startReader();
+    int count = 0;
+    while (_currentBatch.hasNext()) {
+      _currentBatch.next();
+      count++;
+    }
+    List<T> batch;
+    while ((batch = takeNextBatch()) != null) {
+      count += batch.size();
+    }
+    return count;
+  }
+
+  // started here rather than in the constructor to avoid exceptions that could
+  //   lead to a connection leak if this is instantiated in a try-with-resources
+  private void startReader() {
+    if (_readerThread == null) {
+      _readerThread = new Thread(this::readBatches, "result-set-reader-" + READER_THREAD_COUNT.incrementAndGet());
+      _readerThread.setDaemon(true);
+      _readerThread.start();
+    }
+  }
+
+  private void readBatches() {
+    try {
+      Columns columns = new Columns(_rs.getMetaData());
+      int batchSize = _options.getBatchSize();
+      int nextRowNum = 1;
+      AdaptiveFetchSizeController fetchSizeController = getFetchSizeController();
+      while (true) {
+        _batchPermits.acquire();
+        if (_closed) {
+          break;
+        }
+        ResultSetRowBatch batch = ResultSetRowBatch.read(_rs, columns, nextRowNum, batchSize);
+        if (fetchSizeController != null) {
+          // copied rows hold the raw values, so measure rows as fetched
+          fetchSizeController.rowsRead(batch.size(), batch.getRows());
+        }
+        if (batch.size() > 0) {
+          submit(batch);
+          nextRowNum += batch.size();
+        }
+        if (batch.size() < batchSize) {
+          // cursor exhausted
+          if (fetchSizeController != null) {
+            fetchSizeController.complete();
+          }
+          break;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      LOG.warn("Interrupted while waiting to read more rows.", e);
+      submitFailure(e);
+    }
+    catch (SQLException | RuntimeException e) {
+      submitFailure(e);
+    }
+    finally {
+      _batches.add(_endOfResults);
+    }
+  }
+
+  private void submit(ResultSetRowBatch batch) {
+    CompletableFuture<List<T>> converted = CompletableFuture.supplyAsync(() -> convert(batch), _executor);
+    _numBatchesSubmitted++;
+    if (_options.getRowOrder() == RowOrder.RESULT_SET_ORDER) {
+      _batches.add(converted);
+    }
+    else {
+      converted.whenComplete((rows, e) -> _batches.add(converted));
+    }
+  }
+
+  private void submitFailure(Exception e) {
+    _numBatchesSubmitted++;
+    _batches.add(CompletableFuture.failedFuture(e));
+  }
+
+  private List<T> convert(ResultSetRowBatch batch) {
+    try {
+      List<T> rows = new ArrayList<>(batch.size());
+      ResultSet batchRows = batch.asResultSet();
+      while (batchRows.next()) {
+        T row = _converter.convertOrNull(batchRows);
+        if (row != null) {
+          rows.add(row);
+        }
+      }
+      return rows;
+    }
+    catch (SQLException e) {
+      throw new SqlRuntimeException(e);
+    }
+  }
+
+  /**
+   * Creates the pool used to convert batches when no executor is specified:
+   * one daemon thread per processor, which exit when idle, so conversion
+   * neither competes with other users of the common fork/join pool nor keeps
+   * the JVM alive.
+   */
+  private static Executor createDefaultExecutor() {
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger(0);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        numThreads, numThreads, CONVERTER_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "result-set-converter-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  // returns null once all batches have been taken
+  private List<T> takeNextBatch() {
+    try {
+      // in completion order, batches may still arrive after the end marker
+      while (!_endOfResultsTaken || _numBatchesTaken < _numBatchesSubmitted) {
+        CompletableFuture<List<T>> batch = _batches.take();
+        if (batch == _endOfResults) {
+          _endOfResultsTaken = true;
+          continue;
+        }
+        _numBatchesTaken++;
+        _batchPermits.release();
+        return batch.join();
+      }
+      return null;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for converted rows.", e);
+    }
+    catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      if (cause instanceof SQLException) throw new SqlRuntimeException((SQLException)cause);
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /**
+   * Stops the reader thread (waiting for any row read in progress) and then
+   * closes the result set as ResultSetIterator does.  Conversion tasks
+   * already submitted are allowed to finish but their results are discarded.
+   */
+  @Override
+  public void close() {
+    _closed = true;
+    if (_readerThread != null) {
+      // wake the reader if it is waiting for the consumer
+      _batchPermits.release();
+      try {
+        _readerThread.join();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    super.close();
+  }
+}
@@ -48,6 +48,30 @@ public class ResultSetInputStream extends IteratingInputStream implements Wrappe
    */
   public static ResultSetInputStream getResultSetStream(String sql, String queryName,
       DataSource ds, int fetchSize, ResultSetRowConverter converter) throws SQLException {
+    return getResultSetStream(sql, queryName, ds, fetchSize, null, converter);
+  }
+
+  /**
+   * Creates a ResultSetInputStream as above, but whose fetch size starts at
+   * the initial fetch size in the passed options and is adjusted as rows are
+   * read (see AdaptiveFetchSizeController), with row width measured by the
+   * number of bytes each row is converted to.
+   *
+   * @param sql SQL query to run
+   * @param queryName name of query (applied in SQLLogger)
+   * @param ds data source against which to run query
+   * @param fetchSizeOptions options for adjusting fetch size
+   * @param converter row converter to transform data to bytes
+   * @return the created stream
+   * @throws SQLException if unable to establish connection or run query
+   */
+  public static ResultSetInputStream getResultSetStream(String sql, String queryName,
+      DataSource ds, AdaptiveFetchSizeOptions fetchSizeOptions, ResultSetRowConverter converter) throws SQLException {
+    return getResultSetStream(sql, queryName, ds, fetchSizeOptions.getInitialFetchSize(), fetchSizeOptions, converter);
+  }
+
+  private static ResultSetInputStream getResultSetStream(String sql, String queryName, DataSource ds,
+      int fetchSize, AdaptiveFetchSizeOptions fetchSizeOptions, ResultSetRowConverter converter) throws SQLException {
 
     /* TODO: Convert to the following code.  Cannot yet do because then we lose QueryLogger completion
      *       Need a new API on executeQuery that takes a BiFunction (querytimer, resultset)
@@ -80,7 +104,9 @@ public class ResultSetInputStream extends IteratingInputStream implements Wrappe
       }
       ResultSet rs = stmt.executeQuery();
       QueryLogger.logStartResultsProcessing(sql, queryName, startTime, rs);
-      return new ResultSetInputStream(rs, stmt, conn, converter);
+      AdaptiveFetchSizeController fetchSizeController = fetchSizeOptions == null ? null :
+          new AdaptiveFetchSizeController(rs, sql, queryName, fetchSizeOptions);
+      return new ResultSetInputStream(rs, stmt, conn, converter, fetchSizeController);
     }
     catch (SQLException e) {
       closeDbObjects = true;
@@ -96,17 +122,19 @@ public class ResultSetInputStream extends IteratingInputStream implements Wrappe
   private final ResultSet _rs;
   private final Statement _stmt;
   private final Connection _conn;
+  private final AdaptiveFetchSizeController _fetchSizeController;
 
   private ResultSetInputStream(ResultSet resultSet, Statement statement, Connection connection,
-      ResultSetRowConverter resultConverter) throws SQLException {
-    super(buildDataProvider(resultSet, resultConverter));
+      ResultSetRowConverter resultConverter, AdaptiveFetchSizeController fetchSizeController) throws SQLException {
+    super(buildDataProvider(resultSet, resultConverter, fetchSizeController));
     _rs = resultSet;
     _stmt = statement;
     _conn = connection;
+    _fetchSizeController = fetchSizeController;
   }
 
   private static DataProvider buildDataProvider(ResultSet resultSet,
-      ResultSetRowConverter resultConverter) throws SQLException {
+      ResultSetRowConverter resultConverter, AdaptiveFetchSizeController fetchSizeController) throws SQLException {
     ResultSetColumnInfo columnInfo = new ResultSetColumnInfo(resultSet);
     return new DataProvider() {
 
@@ -119,7 +147,13 @@ public class ResultSetInputStream extends IteratingInputStream implements Wrappe
       public Iterator<byte[]> getRecordIterator() {
         return IteratorUtil.toIterator(SqlUtils.toCursor(
             resultSet, rs -> Functions.mapException(
-                () -> resultConverter.getRow(rs, columnInfo),
+                () -> {
+                  byte[] row = resultConverter.getRow(rs, columnInfo);
+                  if (fetchSizeController != null) {
+                    fetchSizeController.rowRead(row);
+                  }
+                  return row;
+                },
                 e -> new RuntimeException(e))));
       }
     };
@@ -130,6 +164,9 @@ public class ResultSetInputStream extends IteratingInputStream implements Wrappe
    */
   @Override
   public void close() throws IOException {
+    if (_fetchSizeController != null) {
+      _fetchSizeController.complete();
+    }
     QueryLogger.logEndResultsProcessing(_rs);
     SqlUtils.closeQuietly(_rs, _stmt, _conn);
   }
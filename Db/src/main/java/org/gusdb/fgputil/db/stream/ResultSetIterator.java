@@ -15,7 +15,18 @@ import org.gusdb.fgputil.db.slowquery.QueryLogger;
 public class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
 
   public interface RowConverter<T> {
+
     Optional<T> convert(ResultSet rs) throws SQLException;
+
+    /**
+     * Converts the current row as convert() does, but returns null rather
+     * than an empty Optional if the row should be skipped.  Iterators call
+     * this method; converters which never skip rows can override it to
+     * avoid allocating an Optional per row.
+     */
+    default T convertOrNull(ResultSet rs) throws SQLException {
+      return convert(rs).orElse(null);
+    }
   }
 
   private final ResultSet _rs;
@@ -31,6 +42,9 @@ public class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
   // results in a silent connection leak.
   private boolean _isResponsibleForConnection = true;
 
+  // null if the fetch size is not adjusted while reading
+  private AdaptiveFetchSizeController _fetchSizeController;
+
   private boolean _firstRowLoaded = false;
   private boolean _hasNext = true;
 
@@ -69,14 +83,20 @@ public class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
     var out = _next;
     try {
       while (_rs.next()) {
-        var tmp = _converter.convert(_rs);
-        if (tmp.isPresent()) {
-          _next = tmp.get();
+        if (_fetchSizeController != null) {
+          _fetchSizeController.currentRowRead();
+        }
+        var tmp = _converter.convertOrNull(_rs);
+        if (tmp != null) {
+          _next = tmp;
           return out;
         }
       }
 
       _hasNext = false;
+      if (_fetchSizeController != null) {
+        _fetchSizeController.complete();
+      }
       return out;
     }
     catch (SQLException e) {
@@ -98,8 +118,28 @@ public class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
     return this;
   }
 
+  /**
+   * Has the fetch size of the result set adjusted as rows are read, with row
+   * width estimated from the converted rows.  Must be set before iteration
+   * begins.
+   *
+   * @param fetchSizeController controller for this iterator's result set
+   * @return this iterator
+   */
+  public ResultSetIterator<T> setFetchSizeController(AdaptiveFetchSizeController fetchSizeController) {
+    _fetchSizeController = fetchSizeController;
+    return this;
+  }
+
+  AdaptiveFetchSizeController getFetchSizeController() {
+    return _fetchSizeController;
+  }
+
   @Override
   public void close() {
+    if (_fetchSizeController != null) {
+      _fetchSizeController.complete();
+    }
     try {
       Statement statement = _rs.getStatement();
       Connection conn = statement.getConnection();
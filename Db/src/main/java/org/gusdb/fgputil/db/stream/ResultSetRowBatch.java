@@ -0,0 +1,257 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.serial.SerialArray;
+
+/**
+ * A batch of rows copied out of a ResultSet.  Since a batch holds no
+ * reference to the cursor, its connection, or its statement, it can be
+ * converted on another thread while the original cursor moves on.
+ *
+ * Each column is copied with the accessor chosen for its SQL type when the
+ * Columns are created: character and LOB columns with getString(), binary
+ * columns with getBytes(), arrays as SerialArrays, and integer columns with
+ * getObject().  Numeric, boolean and temporal columns keep the driver's
+ * getObject() and getString() values (and, for temporal columns, its
+ * getTimestamp() value) so that converters see what they would have seen on
+ * the original cursor.  Converters read a batch through a read-only,
+ * forward-only ResultSet (see asResultSet() and CopiedRowsResultSet).
+ */
+class ResultSetRowBatch {
+
+  /**
+   * How a column's values are copied out of the cursor
+   */
+  enum CopyMode {
+    STRING, BYTES, ARRAY, SQLXML, OBJECT, OBJECT_AND_STRING, TEMPORAL;
+
+    static CopyMode forSqlType(int sqlType) {
+      switch (sqlType) {
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+        case Types.LONGNVARCHAR:
+        case Types.CLOB:
+        case Types.NCLOB:
+          return STRING;
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+          return BYTES;
+        case Types.ARRAY:
+          return ARRAY;
+        case Types.SQLXML:
+          return SQLXML;
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+          return OBJECT;
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+        case Types.FLOAT:
+        case Types.REAL:
+        case Types.DOUBLE:
+        case Types.BIT:
+        case Types.BOOLEAN:
+          return OBJECT_AND_STRING;
+        case Types.DATE:
+        case Types.TIME:
+        case Types.TIMESTAMP:
+        case Types.TIME_WITH_TIMEZONE:
+        case Types.TIMESTAMP_WITH_TIMEZONE:
+          return TEMPORAL;
+        default:
+          return OBJECT;
+      }
+    }
+  }
+
+  /**
+   * Copied value of a column whose driver getObject(), getString() and
+   * getTimestamp() results cannot be derived from one another (e.g. Oracle
+   * DATE and TIMESTAMP, or the driver's formatting of a NUMERIC).  Null
+   * values are copied as null, not as a Cell.
+   */
+  static final class Cell {
+
+    final Object object;
+    final String string;
+    final Timestamp timestamp;
+
+    Cell(Object object, String string, Timestamp timestamp) {
+      this.object = object;
+      this.string = string;
+      this.timestamp = timestamp;
+    }
+  }
+
+  /**
+   * Column metadata copied from a ResultSet, shared by all batches read from
+   * it, so that it can be read by any thread without touching the original.
+   */
+  static class Columns {
+
+    private final RowSetMetaDataImpl _metaData = new RowSetMetaDataImpl();
+    private final Map<String, Integer> _indexesByLabel = new HashMap<>();
+    private final CopyMode[] _copyModes;
+    // LONG columns, whose values drivers may allow to be read only once
+    private final boolean[] _longColumns;
+
+    Columns(ResultSetMetaData metaData) throws SQLException {
+      int numColumns = metaData.getColumnCount();
+      _copyModes = new CopyMode[numColumns];
+      _longColumns = new boolean[numColumns];
+      _metaData.setColumnCount(numColumns);
+      for (int i = 1; i <= numColumns; i++) {
+        int sqlType = metaData.getColumnType(i);
+        _copyModes[i - 1] = CopyMode.forSqlType(sqlType);
+        _longColumns[i - 1] = sqlType == Types.LONGVARCHAR ||
+            sqlType == Types.LONGNVARCHAR || sqlType == Types.LONGVARBINARY;
+        _metaData.setColumnLabel(i, metaData.getColumnLabel(i));
+        _metaData.setColumnName(i, metaData.getColumnName(i));
+        _metaData.setColumnType(i, metaData.getColumnType(i));
+        _metaData.setColumnTypeName(i, metaData.getColumnTypeName(i));
+        // some drivers report negative values (e.g. Oracle NUMBER scale), which the copy rejects
+        _metaData.setPrecision(i, Math.max(0, metaData.getPrecision(i)));
+        _metaData.setScale(i, Math.max(0, metaData.getScale(i)));
+        _metaData.setColumnDisplaySize(i, Math.max(0, metaData.getColumnDisplaySize(i)));
+        _metaData.setNullable(i, metaData.isNullable(i));
+        _metaData.setSigned(i, metaData.isSigned(i));
+        _metaData.setTableName(i, metaData.getTableName(i));
+        _metaData.setSchemaName(i, metaData.getSchemaName(i));
+        _metaData.setCatalogName(i, metaData.getCatalogName(i));
+        // first column wins when labels repeat, as with driver result sets
+        _indexesByLabel.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+      }
+    }
+
+    int findColumn(String columnLabel) throws SQLException {
+      Integer index = _indexesByLabel.get(columnLabel.toLowerCase(Locale.ROOT));
+      if (index == null) {
+        throw new SQLException("No column with label '" + columnLabel + "'.");
+      }
+      return index;
+    }
+
+    /**
+     * Copies the values of the row the passed result set is positioned on, as
+     * read() copies each row of a batch.
+     *
+     * @param rs result set positioned on a row
+     * @param skipLongColumns if true, LONG columns (whose values drivers may
+     * allow to be read only once) are not read and are copied as null
+     * @return copied values, one value (or Cell) per column
+     * @throws SQLException if unable to read from rs
+     */
+    Object[] copyCurrentRow(ResultSet rs, boolean skipLongColumns) throws SQLException {
+      Object[] row = new Object[_copyModes.length];
+      for (int i = 0; i < row.length; i++) {
+        if (!skipLongColumns || !_longColumns[i]) {
+          row[i] = copy(rs, i + 1, _copyModes[i]);
+        }
+      }
+      return row;
+    }
+
+    int getColumnCount() {
+      return _copyModes.length;
+    }
+
+    ResultSetMetaData getMetaData() {
+      return _metaData;
+    }
+  }
+
+  private final Columns _columns;
+  private final List<Object[]> _rows;
+  private final int _firstRowNum;
+
+  private ResultSetRowBatch(Columns columns, List<Object[]> rows, int firstRowNum) {
+    _columns = columns;
+    _rows = rows;
+    _firstRowNum = firstRowNum;
+  }
+
+  /**
+   * Copies up to maxRows rows from the passed result set, advancing its
+   * cursor past them.
+   *
+   * @param rs result set to read; the caller must not be reading it on another thread
+   * @param columns columns copied from rs
+   * @param firstRowNum 1-based row number (in rs) of the first row to be copied
+   * @param maxRows maximum number of rows to copy
+   * @return batch of copied rows; empty if rs had no more rows
+   * @throws SQLException if unable to read from rs
+   */
+  static ResultSetRowBatch read(ResultSet rs, Columns columns, int firstRowNum, int maxRows) throws SQLException {
+    List<Object[]> rows = new ArrayList<>(maxRows);
+    while (rows.size() < maxRows && rs.next()) {
+      rows.add(columns.copyCurrentRow(rs, false));
+    }
+    return new ResultSetRowBatch(columns, rows, firstRowNum);
+  }
+
+  // copies with the column's accessor; LOB and array values are read into memory since
+  // they may only be readable while the cursor is on their row
+  private static Object copy(ResultSet rs, int column, CopyMode mode) throws SQLException {
+    switch (mode) {
+      case STRING:
+        return rs.getString(column);
+      case BYTES:
+        return rs.getBytes(column);
+      case ARRAY:
+        Array array = rs.getArray(column);
+        return array == null ? null : new SerialArray(array);
+      case SQLXML:
+        SQLXML xml = rs.getSQLXML(column);
+        return xml == null ? null : xml.getString();
+      case OBJECT_AND_STRING:
+        Object number = rs.getObject(column);
+        return number == null ? null : new Cell(number, rs.getString(column), null);
+      case TEMPORAL:
+        Object time = rs.getObject(column);
+        return time == null ? null : new Cell(time, rs.getString(column), rs.getTimestamp(column));
+      default:
+        return rs.getObject(column);
+    }
+  }
+
+  /**
+   * @return number of rows in this batch
+   */
+  int size() {
+    return _rows.size();
+  }
+
+  /**
+   * @return copied rows, one value (or Cell) per column
+   */
+  List<Object[]> getRows() {
+    return _rows;
+  }
+
+  /**
+   * @return new read-only ResultSet positioned before the first row of this
+   * batch; each call returns an independent cursor
+   */
+  ResultSet asResultSet() {
+    return new CopiedRowsResultSet(_columns, _rows, _firstRowNum);
+  }
+}
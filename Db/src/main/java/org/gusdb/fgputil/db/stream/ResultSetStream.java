@@ -28,14 +28,37 @@ import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import org.gusdb.fgputil.db.stream.ParallelConversionOptions.RowOrder;
 import org.gusdb.fgputil.db.stream.ResultSetIterator.RowConverter;
 
+/**
+ * Stream of the rows of a ResultSet, each converted by a RowConverter.  By
+ * default, rows are converted sequentially on the thread consuming the
+ * stream.  Calling parallel() (or withParallelConversion() to specify
+ * options) before the stream is consumed instead has one thread read the
+ * cursor into batches which are converted in parallel (see
+ * ParallelResultSetIterator); unordered() then allows converted batches to be
+ * delivered as soon as they are ready.  Only conversion is parallel: stream
+ * operations chained after parallel() run sequentially on the consuming
+ * thread.
+ */
 public class ResultSetStream<T> implements Stream<T> {
 
-  private final ResultSetIterator<T> _iterator;
+  private final ResultSet _rs;
+  private final RowConverter<T> _converter;
+
+  // null if rows are to be converted sequentially
+  private ParallelConversionOptions _parallelOptions;
+  // null if the fetch size is not adjusted while reading
+  private AdaptiveFetchSizeController _fetchSizeController;
+  private boolean _isResponsibleForConnection = true;
+
+  // created on first use, after which the conversion mode cannot change
+  private ResultSetIterator<T> _iterator;
 
   public ResultSetStream(ResultSet rs, RowConverter<T> converter) {
-    _iterator = new ResultSetIterator<>(rs, converter);
+    _rs = rs;
+    _converter = converter;
   }
 
   @Override
@@ -123,12 +146,12 @@ public class ResultSetStream<T> implements Stream<T> {
 
   @Override
   public void forEach(Consumer<? super T> action) {
-    _iterator.forEachRemaining(action);
+    getIterator().forEachRemaining(action);
   }
 
   @Override
   public void forEachOrdered(Consumer<? super T> action) {
-    _iterator.forEachRemaining(action);
+    getIterator().forEachRemaining(action);
   }
 
   @Override
@@ -191,7 +214,7 @@ public class ResultSetStream<T> implements Stream<T> {
 
   @Override
   public long count() {
-    return _iterator.numRemaining();
+    return getIterator().numRemaining();
   }
 
   @Override
@@ -224,38 +247,86 @@ public class ResultSetStream<T> implements Stream<T> {
   @Override
   @SuppressWarnings("NullableProblems")
   public Iterator<T> iterator() {
-    return _iterator;
+    return getIterator();
   }
 
   @Override
   @SuppressWarnings("NullableProblems")
   public Spliterator<T> spliterator() {
-    return Spliterators.spliteratorUnknownSize(_iterator, SORTED | ORDERED | IMMUTABLE);
+    return isOrdered()
+      ? Spliterators.spliteratorUnknownSize(getIterator(), SORTED | ORDERED | IMMUTABLE)
+      : Spliterators.spliteratorUnknownSize(getIterator(), IMMUTABLE);
   }
 
   @Override
   public boolean isParallel() {
-    return false;
+    return _parallelOptions != null;
   }
 
   @Override
   @SuppressWarnings("NullableProblems")
   public Stream<T> sequential() {
+    if (_parallelOptions != null) {
+      checkConversionModeChangeable();
+      _parallelOptions = null;
+    }
     return this;
   }
 
+  /**
+   * Has rows converted in parallel using default options.  Must be called
+   * before the stream is consumed.
+   */
   @Override
   @SuppressWarnings("NullableProblems")
   public Stream<T> parallel() {
-    throw new UnsupportedOperationException(
-      "Parallel ResultSet streams are not supported");
+    return _parallelOptions != null ? this :
+      withParallelConversion(new ParallelConversionOptions());
   }
 
+  /**
+   * If rows are converted in parallel, allows converted batches to be
+   * delivered in completion order; sequential streams are unaffected.  Must be
+   * called before the stream is consumed.
+   */
   @Override
   @SuppressWarnings("NullableProblems")
   public Stream<T> unordered() {
-    throw new UnsupportedOperationException(
-      "Unordered ResultSet streams are not supported");
+    if (_parallelOptions != null && _parallelOptions.getRowOrder() != RowOrder.COMPLETION_ORDER) {
+      checkConversionModeChangeable();
+      _parallelOptions = new ParallelConversionOptions(_parallelOptions)
+        .setRowOrder(RowOrder.COMPLETION_ORDER);
+    }
+    return this;
+  }
+
+  /**
+   * Has rows converted in parallel using the passed options.  Must be called
+   * before the stream is consumed.  The converter passed to this stream must
+   * be thread-safe.
+   *
+   * @param options options for parallel conversion
+   * @return this stream
+   * @throws IllegalStateException if the stream has already been consumed
+   */
+  public ResultSetStream<T> withParallelConversion(ParallelConversionOptions options) {
+    checkConversionModeChangeable();
+    _parallelOptions = new ParallelConversionOptions(options);
+    return this;
+  }
+
+  /**
+   * Has the fetch size of the result set adjusted as rows are read.  Must be
+   * called before the stream is consumed.
+   *
+   * @param fetchSizeController controller for this stream's result set
+   * @return this stream
+   * @throws IllegalStateException if the stream has already been consumed
+   */
+  public ResultSetStream<T> withAdaptiveFetchSize(AdaptiveFetchSizeController fetchSizeController) {
+    checkConversionModeChangeable();
+    _fetchSizeController = fetchSizeController;
+    return this;
   }
 
   @Override
@@ -266,20 +337,46 @@ public class ResultSetStream<T> implements Stream<T> {
 
   @Override
   public void close() {
-    _iterator.close();
+    getIterator().close();
   }
 
   public boolean isClosed() {
-    return _iterator.isClosed();
+    return getIterator().isClosed();
   }
 
+  // parallel conversion happens in the iterator; the stages chained after it
+  //   run sequentially on the consuming thread
   private Stream<T> subStream() {
     return StreamSupport.stream(spliterator(), false)
       .onClose(this::close);
   }
 
   public ResultSetStream<T> setResponsibleForConnection(boolean isResponsibleForConnection) {
-    _iterator.setResponsibleForConnection(isResponsibleForConnection);
+    _isResponsibleForConnection = isResponsibleForConnection;
+    if (_iterator != null) {
+      _iterator.setResponsibleForConnection(isResponsibleForConnection);
+    }
     return this;
   }
+
+  private boolean isOrdered() {
+    return _parallelOptions == null || _parallelOptions.getRowOrder() == RowOrder.RESULT_SET_ORDER;
+  }
+
+  private void checkConversionModeChangeable() {
+    if (_iterator != null) {
+      throw new IllegalStateException("Cannot change how rows are converted once the stream has been consumed.");
+    }
+  }
+
+  private ResultSetIterator<T> getIterator() {
+    if (_iterator == null) {
+      _iterator = (_parallelOptions == null
+          ? new ResultSetIterator<>(_rs, _converter)
+          : new ParallelResultSetIterator<>(_rs, _converter, _parallelOptions))
+        .setResponsibleForConnection(_isResponsibleForConnection)
+        .setFetchSizeController(_fetchSizeController);
+    }
+    return _iterator;
+  }
 }
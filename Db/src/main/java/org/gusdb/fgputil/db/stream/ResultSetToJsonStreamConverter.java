@@ -0,0 +1,63 @@
+package org.gusdb.fgputil.db.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.gusdb.fgputil.db.ResultSetColumnInfo;
+import org.gusdb.fgputil.db.stream.ResultSetInputStream.ResultSetRowConverter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Converts rows to JSON objects using a JsonRowWriter.  Unlike
+ * ResultSetToJsonConverter, each row is written once, directly to a reused
+ * buffer, and column types are resolved only once per result set.  Also
+ * unlike ResultSetToJsonConverter, BLOB columns are supported (written as
+ * base64 strings) and numbers keep the precision of their SQL type.
+ *
+ * To write rows straight to an OutputStream without an intermediate
+ * InputStream, use JsonRowWriter.writeJsonArray() instead.
+ */
+public class ResultSetToJsonStreamConverter implements ResultSetRowConverter {
+
+  private final ByteArrayOutputStream _rowBuffer = new ByteArrayOutputStream(1024);
+  private ResultSetColumnInfo _meta;
+  private JsonRowWriter _rowWriter;
+  private JsonGenerator _generator;
+
+  @Override
+  public byte[] getHeader() {
+    return "[".getBytes();
+  }
+
+  @Override
+  public byte[] getRowDelimiter() {
+    return ",".getBytes();
+  }
+
+  @Override
+  public byte[] getRow(ResultSet rs, ResultSetColumnInfo meta) throws SQLException {
+    try {
+      if (meta != _meta) {
+        _meta = meta;
+        _rowWriter = new JsonRowWriter(meta);
+        // rows are separated by the row delimiter, not the generator
+        _generator = JsonRowWriter.createGenerator(_rowBuffer, null);
+      }
+      _rowBuffer.reset();
+      _rowWriter.writeRow(rs, _generator);
+      _generator.flush();
+      return _rowBuffer.toByteArray();
+    }
+    catch (IOException e) {
+      throw new SQLException("Unable to write row as JSON", e);
+    }
+  }
+
+  @Override
+  public byte[] getFooter() {
+    return "]".getBytes();
+  }
+}
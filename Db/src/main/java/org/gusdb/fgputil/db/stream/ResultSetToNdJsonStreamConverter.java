@@ -0,0 +1,19 @@
+package org.gusdb.fgputil.db.stream;
+
+import org.gusdb.fgputil.FormatUtil;
+
+/**
+ * Converts rows to newline-delimited JSON using a JsonRowWriter.  To write
+ * rows straight to an OutputStream without an intermediate InputStream, use
+ * JsonRowWriter.writeNdJson() instead.
+ */
+public class ResultSetToNdJsonStreamConverter extends ResultSetToJsonStreamConverter {
+
+  private static final byte[] EMPTY_BYTES = new byte[0];
+  private static final byte[] NEWLINE_BYTES = FormatUtil.NL.getBytes();
+
+  @Override public byte[] getHeader()       { return EMPTY_BYTES; }
+  @Override public byte[] getRowDelimiter() { return NEWLINE_BYTES; }
+  @Override public byte[] getFooter()       { return EMPTY_BYTES; }
+
+}
@@ -38,6 +38,20 @@ public class ResultSets {
         rs -> new ResultSetStream<T>(rs, converter));
   }
 
+  /**
+   * Opens a stream over the results of the passed SQL whose fetch size is
+   * adjusted as rows are read (see AdaptiveFetchSizeController).
+   */
+  public static <T> ResultSetStream<T> openStream(
+      DataSource ds, String sql, String sqlName, Object[] argValues, Integer[] argTypes,
+      AdaptiveFetchSizeOptions fetchSizeOptions, RowConverter<T> converter) {
+    return new SQLRunner(ds, sql, sqlName).executeQuery(
+        getAdaptiveQueryFlags(fetchSizeOptions),
+        argValues, argTypes,
+        rs -> new ResultSetStream<T>(rs, converter)
+          .withAdaptiveFetchSize(new AdaptiveFetchSizeController(rs, sql, sqlName, fetchSizeOptions)));
+  }
+
   public static <T> ResultSetIterator<T> openIterator(
       DataSource ds, String sql, RowConverter<T> converter) {
     return openIterator(ds, sql, SQLRunner.generateName(sql), converter);
@@ -61,4 +75,24 @@ public class ResultSets {
         rs -> new ResultSetIterator<T>(rs, converter));
   }
 
+  /**
+   * Opens an iterator over the results of the passed SQL whose fetch size is
+   * adjusted as rows are read (see AdaptiveFetchSizeController).
+   */
+  public static <T> ResultSetIterator<T> openIterator(
+      DataSource ds, String sql, String sqlName, Object[] argValues, Integer[] argTypes,
+      AdaptiveFetchSizeOptions fetchSizeOptions, RowConverter<T> converter) {
+    return new SQLRunner(ds, sql, sqlName).executeQuery(
+        getAdaptiveQueryFlags(fetchSizeOptions),
+        argValues, argTypes,
+        rs -> new ResultSetIterator<T>(rs, converter)
+          .setFetchSizeController(new AdaptiveFetchSizeController(rs, sql, sqlName, fetchSizeOptions)));
+  }
+
+  private static QueryFlags getAdaptiveQueryFlags(AdaptiveFetchSizeOptions fetchSizeOptions) {
+    return new QueryFlags()
+        .setCommitAndCloseFlag(CommitAndClose.CALLER_IS_RESPONSIBLE)
+        .setFetchSize(fetchSizeOptions.getInitialFetchSize());
+  }
+
 }
@@ -11,9 +11,11 @@ import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMoni
 
 public class CallableStatementWrapper extends AbstractCallableStatement implements AnyStatementWrapper {
 
-  private final Connection _parentConnection;
+  private final ConnectionWrapper _parentConnection;
   private final UnclosedObjectMonitorMap _unclosedObjectMonitorMap;
   private final UnclosedObjectMonitor<CallableStatement> _unclosedObjectMonitor;
+  private boolean _closed = false;
+  private final StatementSettings _settings = new StatementSettings();
 
   public CallableStatementWrapper(CallableStatement underlyingStatement, ConnectionWrapper parentConnection) {
     super(underlyingStatement);
@@ -21,6 +23,7 @@ public class CallableStatementWrapper extends AbstractCallableStatement implemen
     _unclosedObjectMonitorMap = parentConnection.getUnclosedObjectMonitorMap();
     _unclosedObjectMonitor = _unclosedObjectMonitorMap.get(CloseableObjectType.CallableStatement);
     _unclosedObjectMonitor.registerOpenedObject(underlyingStatement);
+    _parentConnection.statementOpened();
   }
 
   @Override
@@ -30,8 +33,59 @@ public class CallableStatementWrapper extends AbstractCallableStatement implemen
 
   @Override
   public void close() throws SQLException {
+    if (!_closed) {
+      _closed = true;
+      _parentConnection.statementClosed();
+    }
     _unclosedObjectMonitor.unregisterClosedObject(_underlyingCallableStatement);
-    super.close();
+    try {
+      // statement may be returned to a statement pool; don't pass on changes
+      _settings.restore(_underlyingCallableStatement);
+    }
+    finally {
+      super.close();
+    }
+  }
+
+  @Override
+  public void setQueryTimeout(int seconds) throws SQLException {
+    _settings.beforeQueryTimeoutChange(_underlyingCallableStatement);
+    super.setQueryTimeout(seconds);
+  }
+
+  @Override
+  public void setMaxRows(int max) throws SQLException {
+    _settings.beforeMaxRowsChange(_underlyingCallableStatement);
+    super.setMaxRows(max);
+  }
+
+  @Override
+  public void setLargeMaxRows(long max) throws SQLException {
+    _settings.beforeMaxRowsChange(_underlyingCallableStatement);
+    _underlyingCallableStatement.setLargeMaxRows(max);
+  }
+
+  @Override
+  public long getLargeMaxRows() throws SQLException {
+    return _underlyingCallableStatement.getLargeMaxRows();
+  }
+
+  @Override
+  public void setMaxFieldSize(int max) throws SQLException {
+    _settings.beforeMaxFieldSizeChange(_underlyingCallableStatement);
+    super.setMaxFieldSize(max);
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    _settings.beforeFetchDirectionChange(_underlyingCallableStatement);
+    super.setFetchDirection(direction);
+  }
+
+  @Override
+  public void setEscapeProcessing(boolean enable) throws SQLException {
+    _settings.beforeEscapeProcessingChange();
+    super.setEscapeProcessing(enable);
   }
 
   @Override
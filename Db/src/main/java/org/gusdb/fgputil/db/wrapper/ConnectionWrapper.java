@@ -2,9 +2,13 @@ package org.gusdb.fgputil.db.wrapper;
 
 import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 import org.gusdb.fgputil.db.SqlUtils;
@@ -12,7 +16,6 @@ import org.gusdb.fgputil.db.UncommittedChangesException;
 import org.gusdb.fgputil.db.leakmonitor.CloseableObjectType;
 import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor;
 import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMonitorMap;
-import org.gusdb.fgputil.db.platform.DBPlatform;
 import org.gusdb.fgputil.db.pool.ConnectionPoolConfig;
 import org.gusdb.fgputil.db.pool.DbDriverInitializer;
 
@@ -23,69 +26,165 @@ public class ConnectionWrapper extends AbstractConnectionWrapper {
   private static final boolean PERFORM_UNCOMMITTED_CHANGES_CHECK = false;
 
   private final ConnectionPoolConfig _dbConfig;
-  private final DBPlatform _underlyingPlatform;
   private final UnclosedObjectMonitorMap _unclosedObjectMonitorMap;
   private final UnclosedObjectMonitor<Connection> _unclosedObjectMonitor;
+  private final DbDriverInitializer _driverInitializer;
+  private final Consumer<Connection> _returnListener;
+
+  // state changes made by client code; close() only undoes what was done
+  private boolean _autoCommitChanged = false;
+  private boolean _readOnlyChanged = false;
+  // true if work may have been done since the last commit or rollback
+  private volatile boolean _uncommittedWork = false;
+  // number of statements created by this connection and not yet closed
+  private final AtomicInteger _numOpenStatements = new AtomicInteger(0);
 
   public ConnectionWrapper(Connection underlyingConnection, ConnectionPoolConfig dbConfig, UnclosedObjectMonitorMap unclosedObjectMonitorMap) {
+    this(underlyingConnection, dbConfig, unclosedObjectMonitorMap,
+        DbDriverInitializer.getInstance(dbConfig.getDriverInitClass()), null);
+  }
+
+  /**
+   * @param driverInitializer initializer used to close the underlying connection
+   * @param returnListener if non-null, passed the underlying connection just
+   * before it is closed (i.e. returned to the pool)
+   */
+  ConnectionWrapper(Connection underlyingConnection, ConnectionPoolConfig dbConfig,
+      UnclosedObjectMonitorMap unclosedObjectMonitorMap, DbDriverInitializer driverInitializer,
+      Consumer<Connection> returnListener) {
     super(underlyingConnection);
     _dbConfig = dbConfig;
-    _underlyingPlatform = dbConfig.getPlatformEnum().getPlatformInstance();
     _unclosedObjectMonitorMap = unclosedObjectMonitorMap;
     _unclosedObjectMonitor = unclosedObjectMonitorMap.get(CloseableObjectType.Connection);
     _unclosedObjectMonitor.registerOpenedObject(underlyingConnection);
+    _driverInitializer = driverInitializer;
+    _returnListener = returnListener;
   }
 
   UnclosedObjectMonitorMap getUnclosedObjectMonitorMap() {
     return _unclosedObjectMonitorMap;
   }
 
+  void statementOpened() {
+    _numOpenStatements.incrementAndGet();
+    _uncommittedWork = true;
+  }
+
+  void statementClosed() {
+    _numOpenStatements.decrementAndGet();
+  }
+
+  /**
+   * Returns the connection to the pool, first issuing only the calls needed
+   * to complete any work done on it and to restore the pool's default state.
+   * A connection on which no statements were created and no state was
+   * changed is closed without any other calls to the driver.
+   */
   @Override
   public void close() throws SQLException {
     boolean uncommittedChangesPresent = false;
     try {
       _unclosedObjectMonitor.unregisterClosedObject(_underlyingConnection);
-  
-      // check to see if uncommitted changes are present in this connection
-      uncommittedChangesPresent =
-          PERFORM_UNCOMMITTED_CHANGES_CHECK ? checkForUncommittedChanges() : false;
-  
-      // roll back any changes before returning connection to pool
-      if (uncommittedChangesPresent) {
-        SqlUtils.attemptRollback(_underlyingConnection);
+
+      if (_uncommittedWork) {
+
+        // check to see if uncommitted changes are present in this connection
+        uncommittedChangesPresent =
+            PERFORM_UNCOMMITTED_CHANGES_CHECK ? checkForUncommittedChanges() : false;
+
+        // roll back any changes before returning connection to pool
+        if (uncommittedChangesPresent) {
+          SqlUtils.attemptRollback(_underlyingConnection);
+        }
+
+        // committing will cause op completion on the DB side (e.g. of in-use DB links)
+        if (_underlyingConnection.getAutoCommit()) {
+          // must turn auto-commit off to explicitly commit per JDBC spec
+          _underlyingConnection.setAutoCommit(false);
+          _underlyingConnection.commit();
+          _underlyingConnection.setAutoCommit(true);
+        }
+        else {
+          _underlyingConnection.commit();
+        }
       }
-  
-      // committing will cause op completion on the DB side (e.g. of in-use DB links)
-      if (_underlyingConnection.getAutoCommit()) {
-        // must turn auto-commit off to explicitly commit per JDBC spec
-        _underlyingConnection.setAutoCommit(false);
-        _underlyingConnection.commit();
-        _underlyingConnection.setAutoCommit(true);
+
+      // reset connection-specific values back to default if client code changed them
+      if (_autoCommitChanged) {
+        _underlyingConnection.setAutoCommit(_dbConfig.getDefaultAutoCommit());
       }
-      else {
-        _underlyingConnection.commit();
+      if (_readOnlyChanged) {
+        _underlyingConnection.setReadOnly(_dbConfig.getDefaultReadOnly());
       }
-  
-      // reset connection-specific values back to default in case client code changed them
-      _underlyingConnection.setAutoCommit(_dbConfig.getDefaultAutoCommit());
-      _underlyingConnection.setReadOnly(_dbConfig.getDefaultReadOnly());
-  
+
     }
     catch (Exception e) {
       LOG.error("Error during pre-close logic for DB connections", e);
       throw e;
     }
     finally {
+      if (_returnListener != null) {
+        _returnListener.accept(_underlyingConnection);
+      }
       // close the underlying connection using possibly custom logic
-      DbDriverInitializer dbManager = DbDriverInitializer.getInstance(_dbConfig.getDriverInitClass());
-      dbManager.closeConnection(_underlyingConnection, _dbConfig);
+      _driverInitializer.closeConnection(_underlyingConnection, _dbConfig);
     }
-  
+
     if (uncommittedChangesPresent) {
       throw new UncommittedChangesException("Connection returned to pool with active transaction and uncommitted changes.");
     }
   }
 
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    _autoCommitChanged = true;
+    super.setAutoCommit(autoCommit);
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    _readOnlyChanged = true;
+    super.setReadOnly(readOnly);
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    super.commit();
+    transactionEnded();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    super.rollback();
+    transactionEnded();
+  }
+
+  // open statements may still do more work, so only consider work complete if none remain
+  private void transactionEnded() {
+    if (_numOpenStatements.get() == 0) {
+      _uncommittedWork = false;
+    }
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    _uncommittedWork = true;
+    return super.setSavepoint();
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    _uncommittedWork = true;
+    return super.setSavepoint(name);
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    // metadata lookups run queries on the DB
+    _uncommittedWork = true;
+    return super.getMetaData();
+  }
+
   /*
    *  Please see Redmine #18073 for why we do this check and why it is handled the way it is
    */
@@ -93,7 +192,7 @@ public class ConnectionWrapper extends AbstractConnectionWrapper {
     boolean uncommittedChangesPresent = false;
     try {
       if (!_underlyingConnection.getAutoCommit() &&
-          _underlyingPlatform.containsUncommittedActions(_underlyingConnection)) {
+          _dbConfig.getPlatformEnum().getPlatformInstance().containsUncommittedActions(_underlyingConnection)) {
         uncommittedChangesPresent = true;
       }
     }
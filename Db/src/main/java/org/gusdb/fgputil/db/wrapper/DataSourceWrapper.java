@@ -11,6 +11,8 @@ import org.gusdb.fgputil.db.leakmonitor.CloseableObjectType;
 import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor;
 import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMonitorMap;
 import org.gusdb.fgputil.db.pool.ConnectionPoolConfig;
+import org.gusdb.fgputil.db.pool.DbDriverInitializer;
+import org.gusdb.fgputil.db.pool.IdleConnectionValidator;
 import org.gusdb.fgputil.functional.FunctionalInterfaces.SupplierWithException;
 
 public class DataSourceWrapper extends AbstractDataSourceWrapper {
@@ -23,6 +25,8 @@ public class DataSourceWrapper extends AbstractDataSourceWrapper {
   private final ConnectionPoolConfig _dbConfig;
   private final UnclosedObjectMonitorMap _unclosedObjectMonitorMap;
   private final boolean _dumpStackTracesOnPoolExhaustion;
+  private final IdleConnectionValidator _validator;
+  private final DbDriverInitializer _driverInitializer;
 
   public DataSourceWrapper(String dbName, DataSource underlyingDataSource, ConnectionPoolConfig dbConfig) {
     this(dbName, underlyingDataSource, dbConfig, false, true);
@@ -30,23 +34,43 @@ public class DataSourceWrapper extends AbstractDataSourceWrapper {
 
   public DataSourceWrapper(String dbName, DataSource underlyingDataSource,
       ConnectionPoolConfig dbConfig, boolean recordAllStacktraces, boolean dumpStackTracesOnPoolExhaustion) {
+    this(dbName, underlyingDataSource, dbConfig, recordAllStacktraces, dumpStackTracesOnPoolExhaustion, null);
+  }
+
+  /**
+   * @param validator if non-null, used to validate connections which have sat
+   * idle in the pool before they are handed out
+   */
+  public DataSourceWrapper(String dbName, DataSource underlyingDataSource,
+      ConnectionPoolConfig dbConfig, boolean recordAllStacktraces, boolean dumpStackTracesOnPoolExhaustion,
+      IdleConnectionValidator validator) {
     super(underlyingDataSource);
     _dbName = dbName;
     _dbConfig = dbConfig;
-    _unclosedObjectMonitorMap = new UnclosedObjectMonitorMap(dbName, recordAllStacktraces);
+    _unclosedObjectMonitorMap = new UnclosedObjectMonitorMap(dbName,
+        dbConfig.getLeakTrackingLevel(), dbConfig.getLeakTrackingSampleInterval(), recordAllStacktraces);
     _dumpStackTracesOnPoolExhaustion = dumpStackTracesOnPoolExhaustion;
+    _validator = validator;
+    _driverInitializer = DbDriverInitializer.getInstance(dbConfig.getDriverInitClass());
   }
 
   @Override
   public Connection getConnection() throws SQLException {
-    return checkExhaustedPool(() ->
-      new ConnectionWrapper(super.getConnection(), _dbConfig, _unclosedObjectMonitorMap));
+    return checkExhaustedPool(() -> wrap(borrow(() -> super.getConnection())));
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
-    return checkExhaustedPool(() ->
-      new ConnectionWrapper(super.getConnection(username, password), _dbConfig, _unclosedObjectMonitorMap));
+    return checkExhaustedPool(() -> wrap(borrow(() -> super.getConnection(username, password))));
+  }
+
+  private Connection borrow(SupplierWithException<Connection> borrower) throws Exception {
+    return _validator == null ? borrower.get() : _validator.borrowValidConnection(borrower);
+  }
+
+  private Connection wrap(Connection connection) {
+    return new ConnectionWrapper(connection, _dbConfig, _unclosedObjectMonitorMap,
+        _driverInitializer, _validator == null ? null : _validator::recordReturn);
   }
 
   private Connection checkExhaustedPool(SupplierWithException<Connection> connectionSupplier) throws SQLException {
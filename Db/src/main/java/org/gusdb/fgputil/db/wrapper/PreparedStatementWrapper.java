@@ -11,9 +11,11 @@ import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMoni
 
 public class PreparedStatementWrapper extends AbstractPreparedStatementWrapper implements AnyStatementWrapper {
 
-  private final Connection _parentConnection;
+  private final ConnectionWrapper _parentConnection;
   private final UnclosedObjectMonitorMap _unclosedObjectMonitorMap;
   private final UnclosedObjectMonitor<PreparedStatement> _unclosedObjectMonitor;
+  private boolean _closed = false;
+  private final StatementSettings _settings = new StatementSettings();
 
   public PreparedStatementWrapper(PreparedStatement underlyingStatement, ConnectionWrapper parentConnection) {
     super(underlyingStatement);
@@ -21,6 +23,7 @@ public class PreparedStatementWrapper extends AbstractPreparedStatementWrapper i
     _unclosedObjectMonitorMap = parentConnection.getUnclosedObjectMonitorMap();
     _unclosedObjectMonitor = _unclosedObjectMonitorMap.get(CloseableObjectType.PreparedStatement);
     _unclosedObjectMonitor.registerOpenedObject(underlyingStatement);
+    _parentConnection.statementOpened();
   }
 
   @Override
@@ -30,8 +33,59 @@ public class PreparedStatementWrapper extends AbstractPreparedStatementWrapper i
 
   @Override
   public void close() throws SQLException {
+    if (!_closed) {
+      _closed = true;
+      _parentConnection.statementClosed();
+    }
     _unclosedObjectMonitor.unregisterClosedObject(_underlyingPreparedStatement);
-    super.close();
+    try {
+      // statement may be returned to a statement pool; don't pass on changes
+      _settings.restore(_underlyingPreparedStatement);
+    }
+    finally {
+      super.close();
+    }
+  }
+
+  @Override
+  public void setQueryTimeout(int seconds) throws SQLException {
+    _settings.beforeQueryTimeoutChange(_underlyingPreparedStatement);
+    super.setQueryTimeout(seconds);
+  }
+
+  @Override
+  public void setMaxRows(int max) throws SQLException {
+    _settings.beforeMaxRowsChange(_underlyingPreparedStatement);
+    super.setMaxRows(max);
+  }
+
+  @Override
+  public void setLargeMaxRows(long max) throws SQLException {
+    _settings.beforeMaxRowsChange(_underlyingPreparedStatement);
+    _underlyingPreparedStatement.setLargeMaxRows(max);
+  }
+
+  @Override
+  public long getLargeMaxRows() throws SQLException {
+    return _underlyingPreparedStatement.getLargeMaxRows();
+  }
+
+  @Override
+  public void setMaxFieldSize(int max) throws SQLException {
+    _settings.beforeMaxFieldSizeChange(_underlyingPreparedStatement);
+    super.setMaxFieldSize(max);
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    _settings.beforeFetchDirectionChange(_underlyingPreparedStatement);
+    super.setFetchDirection(direction);
+  }
+
+  @Override
+  public void setEscapeProcessing(boolean enable) throws SQLException {
+    _settings.beforeEscapeProcessingChange();
+    super.setEscapeProcessing(enable);
   }
 
   @Override
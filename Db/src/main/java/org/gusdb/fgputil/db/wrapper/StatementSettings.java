@@ -0,0 +1,73 @@
+package org.gusdb.fgputil.db.wrapper;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Remembers the original values of statement settings changed by client code
+ * so they can be restored before the statement is closed.  When prepared
+ * statement pooling is enabled, closing a statement returns it to a
+ * per-connection cache, and settings left behind would otherwise carry over
+ * to the next caller preparing the same SQL.  Fetch size is not tracked since
+ * ConnectionWrapper applies it to every statement it hands out.
+ *
+ * Statement has no getter for escape processing, so if it is changed it is
+ * restored to the JDBC default (enabled).  Large max rows share the max rows
+ * limit and are restored with it.  Note closeOnCompletion() cannot be undone
+ * through JDBC and so is not restored (see
+ * ConnectionPoolConfig.getMaxPreparedStatements()).
+ */
+class StatementSettings {
+
+  private Integer _originalQueryTimeout;
+  private Integer _originalMaxRows;
+  private Integer _originalMaxFieldSize;
+  private Integer _originalFetchDirection;
+  private boolean _escapeProcessingChanged = false;
+
+  void beforeQueryTimeoutChange(Statement stmt) throws SQLException {
+    if (_originalQueryTimeout == null) {
+      _originalQueryTimeout = stmt.getQueryTimeout();
+    }
+  }
+
+  void beforeMaxRowsChange(Statement stmt) throws SQLException {
+    if (_originalMaxRows == null) {
+      _originalMaxRows = stmt.getMaxRows();
+    }
+  }
+
+  void beforeMaxFieldSizeChange(Statement stmt) throws SQLException {
+    if (_originalMaxFieldSize == null) {
+      _originalMaxFieldSize = stmt.getMaxFieldSize();
+    }
+  }
+
+  void beforeFetchDirectionChange(Statement stmt) throws SQLException {
+    if (_originalFetchDirection == null) {
+      _originalFetchDirection = stmt.getFetchDirection();
+    }
+  }
+
+  void beforeEscapeProcessingChange() {
+    _escapeProcessingChanged = true;
+  }
+
+  void restore(Statement stmt) throws SQLException {
+    if (_originalQueryTimeout != null) {
+      stmt.setQueryTimeout(_originalQueryTimeout);
+    }
+    if (_originalMaxRows != null) {
+      stmt.setMaxRows(_originalMaxRows);
+    }
+    if (_originalMaxFieldSize != null) {
+      stmt.setMaxFieldSize(_originalMaxFieldSize);
+    }
+    if (_originalFetchDirection != null) {
+      stmt.setFetchDirection(_originalFetchDirection);
+    }
+    if (_escapeProcessingChanged) {
+      stmt.setEscapeProcessing(true);
+    }
+  }
+}
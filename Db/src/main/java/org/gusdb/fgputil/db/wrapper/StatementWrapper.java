@@ -11,9 +11,10 @@ import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMoni
 
 public class StatementWrapper extends AbstractStatementWrapper implements AnyStatementWrapper {
 
-  private final Connection _parentConnection;
+  private final ConnectionWrapper _parentConnection;
   private final UnclosedObjectMonitorMap _unclosedObjectMonitorMap;
   private final UnclosedObjectMonitor<Statement> _unclosedObjectMonitor;
+  private boolean _closed = false;
 
   public StatementWrapper(Statement underlyingStatement, ConnectionWrapper parentConnection) {
     super(underlyingStatement);
@@ -21,6 +22,7 @@ public class StatementWrapper extends AbstractStatementWrapper implements AnySta
     _unclosedObjectMonitorMap = parentConnection.getUnclosedObjectMonitorMap();
     _unclosedObjectMonitor = _unclosedObjectMonitorMap.get(CloseableObjectType.Statement);
     _unclosedObjectMonitor.registerOpenedObject(underlyingStatement);
+    _parentConnection.statementOpened();
   }
 
   @Override
@@ -30,6 +32,10 @@ public class StatementWrapper extends AbstractStatementWrapper implements AnySta
 
   @Override
   public void close() throws SQLException {
+    if (!_closed) {
+      _closed = true;
+      _parentConnection.statementClosed();
+    }
     _unclosedObjectMonitor.unregisterClosedObject(_underlyingStatement);
     super.close();
   }
@@ -0,0 +1,106 @@
+package org.gusdb.fgputil.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.runner.handler.SingleLongResultSetHandler;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.Test;
+
+/**
+ * Runs generated scripts against the local HSQL test database with and
+ * without batched mode, checking the results, the line numbers reported for
+ * failed commands, and logging run times (not asserted since they depend on
+ * the machine running the test).
+ */
+public class SqlScriptRunnerTest {
+
+  private static final Logger LOG = Logger.getLogger(SqlScriptRunnerTest.class);
+
+  // tuning parameter; for more rigorous testing, edit this value.  Reduced for test runtime.
+  private static final int NUM_INSERTS = 20000;
+
+  // script creating a table and filling it with rows; line numbers of
+  //   inserts are 3 + row ID, since the table is created by lines 2-3
+  private static String createScript(String table, int numRows) {
+    StringBuilder script = new StringBuilder()
+        .append("-- generated script").append(System.lineSeparator())
+        .append("CREATE TABLE ").append(table).append(" (").append(System.lineSeparator())
+        .append("  id INTEGER, name VARCHAR(50));").append(System.lineSeparator());
+    for (int i = 1; i <= numRows; i++) {
+      script.append("INSERT INTO ").append(table).append(" VALUES (").append(i)
+          .append(", 'row number ").append(i).append("');").append(System.lineSeparator());
+    }
+    return script.append("UPDATE ").append(table).append(" SET name = 'first' WHERE id = 1;")
+        .append(System.lineSeparator()).toString();
+  }
+
+  private static long countRows(DataSource ds, String table) {
+    return new SQLRunner(ds, "SELECT COUNT(*) FROM " + table)
+        .executeQuery(new SingleLongResultSetHandler()).orElseThrow();
+  }
+
+  private static void runScript(DataSource ds, String script, int batchSize, int commitSize,
+      boolean stopOnError) throws Exception {
+    try (Connection conn = ds.getConnection()) {
+      SqlScriptRunner runner = new SqlScriptRunner(conn, true, stopOnError);
+      runner.setLogWriter(null);
+      runner.setErrorLogWriter(null);
+      runner.setBatchSize(batchSize);
+      runner.setCommitSize(commitSize);
+      runner.runScript(new StringReader(script));
+    }
+  }
+
+  @Test
+  public void testBatchedRunTime() throws Exception {
+    DataSource ds = TestUtil.getTestDataSource("SqlScriptRunnerTest");
+    for (int batchSize : new int[] { 0, 500 }) {
+      String table = "script_rows_" + batchSize;
+      long start = System.currentTimeMillis();
+      runScript(ds, createScript(table, NUM_INSERTS), batchSize, 5000, true);
+      LOG.info("Ran script of " + NUM_INSERTS + " inserts with batch size " + batchSize +
+          " in " + (System.currentTimeMillis() - start) + "ms");
+      assertEquals(NUM_INSERTS, countRows(ds, table));
+      assertEquals(1, (long)new SQLRunner(ds, "SELECT COUNT(*) FROM " + table + " WHERE name = 'first'")
+          .executeQuery(new SingleLongResultSetHandler()).orElseThrow());
+    }
+  }
+
+  @Test
+  public void testErrorLineNumber() throws Exception {
+    DataSource ds = TestUtil.getTestDataSource("SqlScriptRunnerErrorTest");
+    String script = createScript("bad_rows", 100).replace("VALUES (60,", "VALUES ('sixty',");
+    try {
+      runScript(ds, script, 25, 50, true);
+      fail("Script with bad insert should fail.");
+    }
+    catch (SQLException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Error executing command at line 63 of script"));
+    }
+    // first 50 inserts were committed before the failure
+    assertEquals(50, countRows(ds, "bad_rows"));
+  }
+
+  @Test
+  public void testContinueOnError() throws Exception {
+    DataSource ds = TestUtil.getTestDataSource("SqlScriptRunnerContinueTest");
+    String script = createScript("continue_rows", 100).replace("VALUES (60,", "VALUES ('sixty',")
+        .replace("INSERT INTO continue_rows VALUES (80,", "DROP TABLE no_such_table;" + System.lineSeparator() +
+            "INSERT INTO continue_rows VALUES (80,");
+    runScript(ds, script, 25, 0, false);
+    // all but the bad insert and drop were run, including those after them in the same transaction
+    assertEquals(99, countRows(ds, "continue_rows"));
+    assertEquals(1, (long)new SQLRunner(ds, "SELECT COUNT(*) FROM continue_rows WHERE id = 100")
+        .executeQuery(new SingleLongResultSetHandler()).orElseThrow());
+  }
+}
@@ -0,0 +1,167 @@
+package org.gusdb.fgputil.db.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.bulk.BulkLoadOptions.LoadMethod;
+import org.gusdb.fgputil.db.runner.ListArgumentBatch;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.runner.handler.SingleLongResultSetHandler;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Loads rows into the local HSQL test database with each BulkLoader method,
+ * checking the loaded rows and logging load times next to those of
+ * SQLRunner.executeUpdateBatch() with untyped parameters.  Timings are
+ * logged rather than asserted since they depend on the machine running the
+ * test.
+ */
+public class BulkLoaderTest {
+
+  private static final Logger LOG = Logger.getLogger(BulkLoaderTest.class);
+
+  // tuning parameters; for more rigorous testing, edit these values.  Reduced for test runtime.
+  private static final int NUM_ROWS = 100000;
+  private static final int NUM_PARTITIONS = 4;
+
+  private static final String TABLE = "bulk_rows";
+  private static final String[] COLUMNS = { "id", "name", "score", "created", "flag" };
+  private static final Integer[] TYPES = { Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.TIMESTAMP, Types.BOOLEAN };
+  private static final String INSERT_SQL = "INSERT INTO bulk_rows VALUES (?, ?, ?, ?, ?)";
+
+  private static DataSource _ds;
+
+  @BeforeClass
+  public static void setUpDb() {
+    _ds = TestUtil.getTestDataSource("BulkLoaderTest");
+    new SQLRunner(_ds, "CREATE TABLE bulk_rows (id BIGINT, name VARCHAR(50), score DOUBLE, " +
+        "created TIMESTAMP, flag BOOLEAN)").executeStatement();
+  }
+
+  @Before
+  public void clearTable() {
+    new SQLRunner(_ds, "DELETE FROM bulk_rows").executeUpdate();
+  }
+
+  private static Object[] createRow(long id) {
+    return new Object[] { id, "row number " + id, id / 7.0, new Timestamp(id * 1000), id % 2 == 0 };
+  }
+
+  // rows with IDs in [first, last), created as they are iterated over
+  private static Iterable<Object[]> rows(long first, long last) {
+    return () -> new Iterator<Object[]>() {
+      private long _next = first;
+      @Override public boolean hasNext() { return _next < last; }
+      @Override public Object[] next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return createRow(_next++);
+      }
+    };
+  }
+
+  private static List<Iterable<Object[]>> partitions(int numRows, int numPartitions) {
+    List<Iterable<Object[]>> partitions = new ArrayList<>();
+    int partitionSize = numRows / numPartitions;
+    for (int p = 0; p < numPartitions; p++) {
+      partitions.add(rows((long)p * partitionSize, p == numPartitions - 1 ? numRows : (long)(p + 1) * partitionSize));
+    }
+    return partitions;
+  }
+
+  private static long queryLong(String sql) {
+    return new SQLRunner(_ds, sql).executeQuery(new SingleLongResultSetHandler()).orElseThrow();
+  }
+
+  private static void checkLoadedRows(int numRows) {
+    assertEquals(numRows, queryLong("SELECT COUNT(*) FROM bulk_rows"));
+    assertEquals((long)numRows * (numRows - 1) / 2, queryLong("SELECT SUM(id) FROM bulk_rows"));
+    assertEquals(numRows / 2, queryLong("SELECT COUNT(*) FROM bulk_rows WHERE flag = TRUE"));
+    assertEquals(1, queryLong("SELECT COUNT(*) FROM bulk_rows WHERE id = 1234 AND name = 'row number 1234' " +
+        "AND created = TIMESTAMP '" + new Timestamp(1234000) + "'"));
+  }
+
+  private static void logTime(String loadType, long startTime) {
+    LOG.info(loadType + ": loaded " + NUM_ROWS + " rows in " + (System.currentTimeMillis() - startTime) + "ms");
+  }
+
+  private static BulkLoader createLoader(Integer[] types, BulkLoadOptions options) {
+    return new BulkLoader(_ds, null, TABLE, COLUMNS, types, options);
+  }
+
+  @Test
+  public void testUntypedBatchBaseline() {
+    long start = System.currentTimeMillis();
+    ListArgumentBatch batch = new ListArgumentBatch();
+    batch.setBatchSize(BulkLoadOptions.DEFAULT_BATCH_SIZE);
+    rows(0, NUM_ROWS).forEach(batch::add);
+    new SQLRunner(_ds, INSERT_SQL).executeUpdateBatch(batch);
+    logTime("SQLRunner untyped batch", start);
+    checkLoadedRows(NUM_ROWS);
+  }
+
+  @Test
+  public void testJdbcBatch() throws Exception {
+    long start = System.currentTimeMillis();
+    assertEquals(NUM_ROWS, createLoader(TYPES, new BulkLoadOptions()
+        .setLoadMethod(LoadMethod.JDBC_BATCH)).load(rows(0, NUM_ROWS)));
+    logTime("JDBC batch", start);
+    checkLoadedRows(NUM_ROWS);
+  }
+
+  @Test
+  public void testMultiRowValues() throws Exception {
+    long start = System.currentTimeMillis();
+    // rows per statement which does not divide the row count evenly
+    assertEquals(NUM_ROWS, createLoader(TYPES, new BulkLoadOptions()
+        .setLoadMethod(LoadMethod.MULTI_ROW_VALUES).setRowsPerStatement(64)).load(rows(0, NUM_ROWS)));
+    logTime("multi-row VALUES", start);
+    checkLoadedRows(NUM_ROWS);
+  }
+
+  @Test
+  public void testParallelPartitions() throws Exception {
+    long start = System.currentTimeMillis();
+    assertEquals(NUM_ROWS, createLoader(TYPES, new BulkLoadOptions()
+        .setLoadMethod(LoadMethod.MULTI_ROW_VALUES)
+        .setParallelism(NUM_PARTITIONS)
+        .setCommitInterval(10000)).loadPartitions(partitions(NUM_ROWS, NUM_PARTITIONS)));
+    logTime(NUM_PARTITIONS + " parallel partitions", start);
+    checkLoadedRows(NUM_ROWS);
+  }
+
+  @Test
+  public void testTypesReadFromTable() throws Exception {
+    // platform default for an unknown platform is JDBC batches
+    assertEquals(1000, createLoader(null, new BulkLoadOptions()).load(rows(0, 1000)));
+    checkLoadedRows(1000);
+  }
+
+  @Test
+  public void testFailureKeepsCommittedRows() throws Exception {
+    List<Object[]> rows = new ArrayList<>();
+    rows(0, 2500).forEach(rows::add);
+    rows.get(2400)[0] = "not a number";
+    try {
+      createLoader(TYPES, new BulkLoadOptions().setBatchSize(100).setCommitInterval(1000)).load(rows);
+      fail("Load of bad row should fail.");
+    }
+    catch (SQLException e) {
+      // expected
+    }
+    assertEquals(2000, queryLong("SELECT COUNT(*) FROM bulk_rows"));
+  }
+}
@@ -0,0 +1,119 @@
+package org.gusdb.fgputil.db.leakmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Collection;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMonitorMap;
+import org.junit.Test;
+
+/**
+ * Measures the per-object cost of registering and unregistering an opened
+ * object at each leak tracking level, and checks which objects have their
+ * stack traces captured.  Timings are logged rather than asserted since they
+ * depend on the machine running the test.
+ */
+public class LeakTrackingOverheadTest {
+
+  private static final Logger LOG = Logger.getLogger(LeakTrackingOverheadTest.class);
+
+  // tuning parameters; for more rigorous testing, edit these values.  Reduced for test runtime.
+  private static final int NUM_WARMUP_OPS = 10000;
+  private static final int NUM_TIMED_OPS = 40000;
+  private static final int SAMPLE_INTERVAL = 20;
+
+  // opened objects are registered this many frames down the stack, roughly
+  //   what a query made from a web service action looks like
+  private static final int CALL_DEPTH = 60;
+
+  private static UnclosedObjectMonitor<Object> createMonitor(LeakTrackingLevel level) {
+    return createMonitor(level, false);
+  }
+
+  private static UnclosedObjectMonitor<Object> createMonitor(LeakTrackingLevel level, boolean recordAllStacktraces) {
+    @SuppressWarnings("unchecked")
+    UnclosedObjectMonitor<Object> monitor = (UnclosedObjectMonitor<Object>)(UnclosedObjectMonitor<?>)
+        new UnclosedObjectMonitorMap("leakTrackingTest", level, SAMPLE_INTERVAL, recordAllStacktraces)
+            .get(CloseableObjectType.Connection);
+    return monitor;
+  }
+
+  private static long registerAndUnregister(UnclosedObjectMonitor<Object> monitor, int numOps, int depth) {
+    if (depth > 0) {
+      return registerAndUnregister(monitor, numOps, depth - 1);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < numOps; i++) {
+      Object obj = new Object();
+      monitor.registerOpenedObject(obj);
+      monitor.unregisterClosedObject(obj);
+    }
+    return System.nanoTime() - start;
+  }
+
+  @Test
+  public void testOverheadPerLevel() {
+    for (LeakTrackingLevel level : LeakTrackingLevel.values()) {
+      timeOpenClose("Leak tracking level " + level, createMonitor(level));
+    }
+    // recording all stack traces renders and hashes every one as it is
+    //   captured, which is what every level used to do
+    timeOpenClose("Recording all stack traces", createMonitor(LeakTrackingLevel.FULL, true));
+  }
+
+  private static void timeOpenClose(String description, UnclosedObjectMonitor<Object> monitor) {
+    registerAndUnregister(monitor, NUM_WARMUP_OPS, CALL_DEPTH);
+    long duration = registerAndUnregister(monitor, NUM_TIMED_OPS, CALL_DEPTH);
+    LOG.info(description + ": " + (duration / NUM_TIMED_OPS) + " ns per open/close");
+    assertEquals(NUM_WARMUP_OPS + NUM_TIMED_OPS, monitor.getNumClosed());
+    assertEquals(0, monitor.getNumCurrentlyOpen());
+  }
+
+  @Test
+  public void testStackTracesCaptured() {
+    int numOpened = 10 * SAMPLE_INTERVAL;
+    assertEquals(0, countStackTraces(LeakTrackingLevel.OFF, numOpened));
+    assertEquals(numOpened / SAMPLE_INTERVAL, countStackTraces(LeakTrackingLevel.SAMPLED, numOpened));
+    assertEquals(numOpened, countStackTraces(LeakTrackingLevel.FULL, numOpened));
+  }
+
+  private static int countStackTraces(LeakTrackingLevel level, int numOpened) {
+    UnclosedObjectMonitor<Object> monitor = createMonitor(level);
+    for (int i = 0; i < numOpened; i++) {
+      monitor.registerOpenedObject(new Object());
+    }
+    Collection<UnclosedObjectInfo> infos = monitor.getUnclosedObjects();
+    assertEquals(numOpened, infos.size());
+    return (int)infos.stream().filter(UnclosedObjectInfo::hasStackTrace).count();
+  }
+
+  @Test
+  public void testReportRendersCapturedStackTraces() {
+    UnclosedObjectMonitor<Connection> monitor =
+        new UnclosedObjectMonitorMap("leakTrackingTest", LeakTrackingLevel.SAMPLED, 2, false)
+            .get(CloseableObjectType.Connection);
+    for (int i = 0; i < 4; i++) {
+      // every second connection has its stack trace captured
+      registerLeakedConnection(monitor);
+    }
+    String report = monitor.getUnclosedObjectInfo();
+    assertTrue(report.contains("one in every 2 Connections"));
+    assertTrue(report.contains(UnclosedObjectInfo.NO_STACK_TRACE));
+    assertTrue(report.contains("registerLeakedConnection"));
+  }
+
+  private static void registerLeakedConnection(UnclosedObjectMonitor<Connection> monitor) {
+    monitor.registerOpenedObject(newMockConnection());
+  }
+
+  private static Connection newMockConnection() {
+    return (Connection)Proxy.newProxyInstance(
+        LeakTrackingOverheadTest.class.getClassLoader(), new Class<?>[]{ Connection.class },
+        (proxy, method, args) -> method.getName().equals("hashCode") ? System.identityHashCode(proxy) :
+          method.getName().equals("equals") ? proxy == args[0] : null);
+  }
+}
@@ -0,0 +1,190 @@
+package org.gusdb.fgputil.db.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.stream.ResultSetStream;
+import org.gusdb.fgputil.db.stream.ResultSets;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that RowMapper and RecordMapping read the same values JDBC's
+ * getObject() and typed getters do, and that ResultRow behaves as a map.
+ */
+public class RowMapperTest {
+
+  private static final String SELECT_SQL = "SELECT * FROM mapped_rows ORDER BY id";
+
+  private static DataSource _ds;
+
+  public static class Person {
+    private long _id;
+    private String _name;
+    private double _score;
+    private boolean _active;
+    private Object _amount;
+    public void setId(long id) { _id = id; }
+    public void setName(String name) { _name = name; }
+    public void setScore(double score) { _score = score; }
+    public void setActive(boolean active) { _active = active; }
+    public void setAmount(Object amount) { _amount = amount; }
+    @Override public String toString() { return _id + ":" + _name + ":" + _score + ":" + _active + ":" + _amount; }
+  }
+
+  private static final RecordMapping<Person> PERSON_MAPPING = new RecordMapping<>(Person::new)
+      .mapLong("ID", Person::setId)
+      .mapString("name", Person::setName)
+      .mapDouble("Score", Person::setScore)
+      .mapBoolean("active", Person::setActive)
+      .mapValue("amount", Person::setAmount);
+
+  @BeforeClass
+  public static void setUpDb() throws Exception {
+    _ds = TestUtil.getTestDataSource("RowMapperTest");
+    new SQLRunner(_ds, "CREATE TABLE mapped_rows (id BIGINT, name VARCHAR(20), score DOUBLE, " +
+        "active BOOLEAN, amount DECIMAL(10,2), small SMALLINT, created TIMESTAMP, data VARBINARY(10))").executeStatement();
+    new SQLRunner(_ds, "INSERT INTO mapped_rows VALUES (1, 'alpha', 1.5, TRUE, 12.5, 3, " +
+        "TIMESTAMP '2020-01-02 03:04:05', X'0102')").executeStatement();
+    new SQLRunner(_ds, "INSERT INTO mapped_rows (id) VALUES (2)").executeStatement();
+  }
+
+  @Test
+  public void testValuesMatchGetObject() throws Exception {
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement(SELECT_SQL);
+         ResultSet rs = stmt.executeQuery()) {
+      RowMapper mapper = new RowMapper(rs.getMetaData());
+      assertEquals(Arrays.asList("ID", "NAME", "SCORE", "ACTIVE", "AMOUNT", "SMALL", "CREATED", "DATA"), mapper.getKeys());
+      Object[] reused = new Object[mapper.getColumnCount()];
+      while (rs.next()) {
+        ResultRow row = mapper.readRow(rs);
+        mapper.readValues(rs, reused);
+        for (int i = 1; i <= mapper.getColumnCount(); i++) {
+          Object expected = rs.getObject(i);
+          if (expected instanceof byte[]) {
+            assertArrayEquals((byte[])expected, (byte[])row.getValue(i));
+          }
+          else {
+            assertEquals(expected, row.getValue(i));
+            assertEquals(expected, row.get(mapper.getKeys().get(i - 1)));
+            assertEquals(expected, reused[i - 1]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRecordMapping() {
+    try (ResultSetStream<Person> people = ResultSets.openStream(_ds, SELECT_SQL, PERSON_MAPPING.toRowConverter())) {
+      assertEquals(Arrays.asList("1:alpha:1.5:true:12.50", "2:null:0.0:false:null"),
+          people.map(Person::toString).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testRowConverter() {
+    try (ResultSetStream<ResultRow> rows = ResultSets.openStream(_ds,
+        "SELECT id AS person_id, name FROM mapped_rows ORDER BY id", RowMapper.toRowConverter())) {
+      List<ResultRow> list = rows.collect(Collectors.toList());
+      assertEquals(2, list.size());
+      assertEquals(1L, list.get(0).get("PERSON_ID"));
+      assertEquals("alpha", list.get(0).get("NAME"));
+      assertTrue(list.get(1).containsKey("NAME"));
+      assertNull(list.get(1).get("NAME"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingColumn() throws Exception {
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement(SELECT_SQL)) {
+      new RecordMapping<>(Person::new).mapString("nickname", Person::setName).compile(stmt.getMetaData());
+    }
+  }
+
+  @Test
+  public void testResultRowAsMap() {
+    ResultRow.Keys keys = new ResultRow.Keys(new String[] { "a", "b", "a" });
+    ResultRow row = new ResultRow(keys, new Object[] { 1, 2, 3 });
+
+    // repeated key holds the last column's value, as with LinkedHashMap.put() in column order
+    Map<String,Object> expected = new LinkedHashMap<>();
+    expected.put("a", 1);
+    expected.put("b", 2);
+    expected.put("a", 3);
+    assertEquals(expected, row);
+    assertEquals(row, expected);
+    assertEquals(expected.hashCode(), row.hashCode());
+    assertEquals(Arrays.asList("a", "b"), Arrays.asList(row.keySet().toArray()));
+    assertEquals(3, row.getColumnCount());
+
+    assertEquals(2, row.put("b", 4));
+    assertEquals(4, row.getValue(2));
+    assertNull(row.put("c", 5));
+    assertEquals(3, row.size());
+    assertEquals(5, row.get("c"));
+    assertEquals(5, row.remove("c"));
+    assertFalse(row.containsKey("c"));
+    assertEquals(3, row.remove("a"));
+    assertFalse(row.containsKey("a"));
+    assertNull(row.get("a"));
+    assertNull(row.getValue(3));
+    assertEquals(1, row.size());
+    assertEquals(Collections.singletonMap("b", 4), row);
+    assertNull(row.put("a", 6));
+    assertEquals(2, row.size());
+    assertEquals(6, row.getValue(3));
+  }
+
+  @Test
+  public void testResultRowViews() {
+    ResultRow row = new ResultRow(new ResultRow.Keys(new String[] { "a", "b", "c" }), new Object[] { 1, 2, 3 });
+    row.put("d", 4);
+
+    // views are backed by the row
+    Set<String> keys = row.keySet();
+    Collection<Object> values = row.values();
+    assertTrue(keys.remove("b"));
+    assertFalse(row.containsKey("b"));
+    assertEquals(Arrays.asList("a", "c", "d"), new ArrayList<>(keys));
+    assertTrue(values.remove(4));
+    assertFalse(row.containsKey("d"));
+    for (Map.Entry<String,Object> entry : row.entrySet()) {
+      entry.setValue((Integer)entry.getValue() * 10);
+    }
+    assertEquals(10, row.get("a"));
+    assertEquals(30, row.getValue(3));
+    Iterator<Map.Entry<String,Object>> entries = row.entrySet().iterator();
+    entries.next();
+    entries.remove();
+    assertEquals(Collections.singletonMap("c", 30), row);
+    row.put("b", 5);
+    assertEquals(Arrays.asList("b", "c"), new ArrayList<>(keys));
+    values.clear();
+    assertTrue(row.isEmpty());
+    assertArrayEquals(new Object[3], row.toArray());
+  }
+}
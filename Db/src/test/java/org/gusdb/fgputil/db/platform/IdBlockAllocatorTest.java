@@ -0,0 +1,105 @@
+package org.gusdb.fgputil.db.platform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+/**
+ * Checks that IdBlockAllocator hands out each fetched ID exactly once across
+ * threads, and fetches blocks of IDs no more often than necessary.
+ */
+public class IdBlockAllocatorTest {
+
+  private static final int BLOCK_SIZE = 100;
+
+  // platform whose sequence lives in memory; counts round trips
+  private static class InMemorySequencePlatform extends PostgreSQL {
+
+    private final AtomicLong _sequence = new AtomicLong(0);
+    private final AtomicInteger _numFetches = new AtomicInteger(0);
+
+    @Override
+    public List<Long> getNextNIds(DataSource dataSource, String schema, String table, int numIds) {
+      _numFetches.incrementAndGet();
+      List<Long> ids = new ArrayList<>();
+      for (int i = 0; i < numIds; i++) {
+        ids.add(_sequence.incrementAndGet());
+      }
+      return ids;
+    }
+  }
+
+  private final InMemorySequencePlatform _platform = new InMemorySequencePlatform();
+  private final IdBlockAllocator _allocator = new IdBlockAllocator(_platform, null, "test", "things", BLOCK_SIZE);
+
+  @Test
+  public void testSingleIds() throws Exception {
+    for (long expected = 1; expected <= 250; expected++) {
+      assertEquals(expected, _allocator.getNextId());
+    }
+    assertEquals(3, _platform._numFetches.get());
+  }
+
+  @Test
+  public void testIdRanges() throws Exception {
+    long[] first = _allocator.getNextIds(60);
+    long[] second = _allocator.getNextIds(60);
+    long[] large = _allocator.getNextIds(500);
+    assertEquals(1, first[0]);
+    assertEquals(60, first[59]);
+    // remainder of first block, then a new block
+    assertEquals(61, second[0]);
+    assertEquals(101, second[40]);
+    assertEquals(121, large[0]);
+    assertEquals(3, _platform._numFetches.get());
+  }
+
+  @Test
+  public void testConcurrentAllocation() throws Exception {
+    int numThreads = 8;
+    int idsPerThread = 10000;
+    Set<Long> allocated = ConcurrentHashMap.newKeySet();
+    ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+    List<Future<?>> results = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      boolean useRanges = t % 2 == 0;
+      results.add(exec.submit(() -> {
+        for (int i = 0; i < idsPerThread; ) {
+          if (useRanges) {
+            for (long id : _allocator.getNextIds(7)) {
+              assertTrue(allocated.add(id));
+            }
+            i += 7;
+          }
+          else {
+            assertTrue(allocated.add(_allocator.getNextId()));
+            i++;
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+    exec.shutdown();
+    // every ID fetched was handed out at most once, and few were left over
+    long numFetched = _platform._sequence.get();
+    assertTrue(allocated.size() >= numThreads * idsPerThread);
+    assertTrue(numFetched - allocated.size() < BLOCK_SIZE);
+    assertEquals(numFetched / BLOCK_SIZE + (numFetched % BLOCK_SIZE == 0 ? 0 : 1), _platform._numFetches.get());
+  }
+}
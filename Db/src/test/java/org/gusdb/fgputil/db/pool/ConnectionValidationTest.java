@@ -0,0 +1,137 @@
+package org.gusdb.fgputil.db.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.gusdb.fgputil.db.platform.SupportedPlatform;
+import org.gusdb.fgputil.db.wrapper.DataSourceWrapper;
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Counts validation round trips made per borrow under the various validation
+ * policies in ConnectionPoolConfig.
+ */
+public class ConnectionValidationTest {
+
+  private static final String VALIDATION_QUERY = "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+  private static final int NUM_BORROWS = 10;
+  private static final AtomicInteger DB_ID_SEQ = new AtomicInteger();
+
+  private CountingDriver _driver;
+  private BasicDataSource _pool;
+
+  @Before
+  public void setUp() {
+    _driver = new CountingDriver(VALIDATION_QUERY);
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    if (_pool != null) _pool.close();
+  }
+
+  private DataSource createDataSource(long idleThreshold, boolean validateOnReturn, boolean useJdbcValidation) throws SQLException {
+    String connectionUrl = "jdbc:hsqldb:mem:validationTest" + DB_ID_SEQ.incrementAndGet();
+    SimpleDbConfig config = new SimpleDbConfig() {
+      @Override public SupportedPlatform getPlatformEnum()   { return SupportedPlatform.POSTGRESQL; }
+      @Override public int getConnectionPoolSize()           { return 1; }
+      @Override public String getLogin()                     { return "SA"; }
+      @Override public String getPassword()                  { return ""; }
+      @Override public String getConnectionUrl()             { return connectionUrl; }
+      @Override public int getDefaultFetchSize()             { return 0; }
+      @Override public long getValidationIdleThreshold()     { return idleThreshold; }
+      @Override public boolean isValidateOnReturn()          { return validateOnReturn; }
+      @Override public boolean isUseJdbcValidation()         { return useJdbcValidation; }
+    };
+    _pool = new BasicDataSource();
+    _pool.setDriver(_driver);
+    _pool.setUrl(config.getConnectionUrl());
+    _pool.setUsername(config.getLogin());
+    _pool.setPassword(config.getPassword());
+    _pool.setMaxTotal(config.getMaxActive());
+    _pool.setAccessToUnderlyingConnectionAllowed(true);
+    DatabaseInstance.configureValidation(_pool, config, VALIDATION_QUERY);
+    DataSource ds = new DataSourceWrapper("validationTest", _pool, config, false, false,
+        IdleConnectionValidator.create(_pool, config, VALIDATION_QUERY).orElse(null));
+
+    // the pool validates a connection when it starts up; do not count that one
+    ds.getConnection().close();
+    _driver.resetCounts();
+    return ds;
+  }
+
+  private static void borrowAndReturn(DataSource ds, int times) throws SQLException {
+    for (int i = 0; i < times; i++) {
+      try (Connection conn = ds.getConnection()) {
+        conn.getAutoCommit();
+      }
+    }
+  }
+
+  @Test
+  public void testValidateEveryBorrow() throws Exception {
+    DataSource ds = createDataSource(0, false, false);
+    borrowAndReturn(ds, NUM_BORROWS);
+    assertEquals(NUM_BORROWS, _driver.getNumQueryValidations());
+    assertEquals(0, _driver.getNumIsValidCalls());
+  }
+
+  @Test
+  public void testValidateOnBorrowAndReturn() throws Exception {
+    // the old hard-coded policy: two round trips per borrow
+    DataSource ds = createDataSource(0, true, false);
+    borrowAndReturn(ds, NUM_BORROWS);
+    assertEquals(2 * NUM_BORROWS, _driver.getNumValidations());
+  }
+
+  @Test
+  public void testJdbcValidation() throws Exception {
+    DataSource ds = createDataSource(0, false, true);
+    borrowAndReturn(ds, NUM_BORROWS);
+    assertEquals(0, _driver.getNumQueryValidations());
+    assertEquals(NUM_BORROWS, _driver.getNumIsValidCalls());
+  }
+
+  @Test
+  public void testNoValidation() throws Exception {
+    DataSource ds = createDataSource(-1, false, false);
+    borrowAndReturn(ds, NUM_BORROWS);
+    assertEquals(0, _driver.getNumValidations());
+  }
+
+  @Test
+  public void testValidateOnlyIdleConnections() throws Exception {
+    DataSource ds = createDataSource(50, false, false);
+
+    // connections in frequent use are not validated
+    borrowAndReturn(ds, NUM_BORROWS);
+    assertEquals(0, _driver.getNumValidations());
+
+    // a connection left idle past the threshold is validated once
+    ThreadUtil.sleep(100);
+    borrowAndReturn(ds, NUM_BORROWS);
+    assertEquals(1, _driver.getNumValidations());
+  }
+
+  @Test
+  public void testIdleConnectionReplacedIfInvalid() throws Exception {
+    DataSource ds = createDataSource(50, false, true);
+    Connection original = _driver.getLastCreated();
+    _driver.markBroken(original);
+
+    ThreadUtil.sleep(100);
+    borrowAndReturn(ds, 1);
+    assertEquals(1, _driver.getNumIsValidCalls());
+    assertNotSame(original, _driver.getLastCreated());
+  }
+}
@@ -0,0 +1,128 @@
+package org.gusdb.fgputil.db.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.hsqldb.jdbc.JDBCDriver;
+
+/**
+ * Delegates to the HSQL driver, counting the driver calls made on the
+ * connections it creates: validation queries, isValid() calls, and prepares
+ * of other SQL.  Connections marked broken fail validation.
+ */
+class CountingDriver implements Driver {
+
+  // returned by an interceptor to pass the call through to the proxied object
+  private static final Object PASS = new Object();
+
+  @FunctionalInterface
+  private interface Interceptor {
+    // returns the result of the call, or PASS to call the proxied object
+    Object intercept(Method method, Object[] args) throws Exception;
+  }
+
+  private final Driver _hsqlDriver = new JDBCDriver();
+  private final String _validationQuery;
+  private final AtomicInteger _numQueryValidations = new AtomicInteger();
+  private final AtomicInteger _numIsValidCalls = new AtomicInteger();
+  private final AtomicInteger _numPrepares = new AtomicInteger();
+  private final List<Connection> _created = new CopyOnWriteArrayList<>();
+  private final Set<Connection> _broken = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  CountingDriver(String validationQuery) {
+    _validationQuery = validationQuery;
+  }
+
+  int getNumQueryValidations() { return _numQueryValidations.get(); }
+  int getNumIsValidCalls()     { return _numIsValidCalls.get(); }
+  int getNumValidations()      { return getNumQueryValidations() + getNumIsValidCalls(); }
+  int getNumPrepares()         { return _numPrepares.get(); }
+
+  void resetCounts() {
+    _numQueryValidations.set(0);
+    _numIsValidCalls.set(0);
+    _numPrepares.set(0);
+  }
+
+  Connection getLastCreated() {
+    return _created.get(_created.size() - 1);
+  }
+
+  void markBroken(Connection conn) {
+    _broken.add(conn);
+  }
+
+  @Override
+  public Connection connect(String url, Properties info) throws SQLException {
+    Connection conn = _hsqlDriver.connect(url, info);
+    Connection[] self = new Connection[1];
+    self[0] = proxy(Connection.class, conn, (method, args) -> {
+      switch (method.getName()) {
+        case "isValid":
+          _numIsValidCalls.incrementAndGet();
+          return !_broken.contains(self[0]) && conn.isValid((Integer)args[0]);
+        case "createStatement":
+          return proxy(Statement.class, method.invoke(conn, args), (stmtMethod, stmtArgs) ->
+            stmtMethod.getName().equals("executeQuery") && _validationQuery.equals(stmtArgs[0]) ?
+                validate(self[0]) : PASS);
+        case "prepareStatement":
+          if (!_validationQuery.equals(args[0])) {
+            _numPrepares.incrementAndGet();
+            return PASS;
+          }
+          return proxy(PreparedStatement.class, method.invoke(conn, args), (stmtMethod, stmtArgs) ->
+            stmtMethod.getName().equals("executeQuery") && stmtArgs == null ?
+                validate(self[0]) : PASS);
+        default:
+          return PASS;
+      }
+    });
+    _created.add(self[0]);
+    return self[0];
+  }
+
+  private Object validate(Connection conn) throws SQLException {
+    _numQueryValidations.incrementAndGet();
+    if (_broken.contains(conn)) {
+      throw new SQLException("Connection is broken");
+    }
+    return PASS; // run the real query
+  }
+
+  private static <T> T proxy(Class<T> iface, Object target, Interceptor interceptor) {
+    InvocationHandler handler = (proxy, method, args) -> {
+      try {
+        Object result = interceptor.intercept(method, args);
+        return result != PASS ? result : method.invoke(target, args);
+      }
+      catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    };
+    return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{ iface }, handler));
+  }
+
+  @Override public boolean acceptsURL(String url) throws SQLException { return _hsqlDriver.acceptsURL(url); }
+  @Override public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException { return _hsqlDriver.getPropertyInfo(url, info); }
+  @Override public int getMajorVersion() { return _hsqlDriver.getMajorVersion(); }
+  @Override public int getMinorVersion() { return _hsqlDriver.getMinorVersion(); }
+  @Override public boolean jdbcCompliant() { return _hsqlDriver.jdbcCompliant(); }
+  @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException { return _hsqlDriver.getParentLogger(); }
+}
@@ -0,0 +1,117 @@
+package org.gusdb.fgputil.db.pool;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.gusdb.fgputil.db.platform.SupportedPlatform;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.wrapper.DataSourceWrapper;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Counts driver prepares made when the same SQL is run repeatedly with and
+ * without the per-connection prepared statement cache.
+ */
+public class StatementPoolingTest {
+
+  private static final String VALIDATION_QUERY = "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+  private static final String INSERT_SQL = "INSERT INTO numbers VALUES (?)";
+  private static final String SELECT_SQL = "SELECT n FROM numbers";
+  private static final int NUM_RUNS = 20;
+  private static final AtomicInteger DB_ID_SEQ = new AtomicInteger();
+
+  private final CountingDriver _driver = new CountingDriver(VALIDATION_QUERY);
+  private BasicDataSource _pool;
+
+  @After
+  public void tearDown() throws SQLException {
+    if (_pool != null) _pool.close();
+  }
+
+  private DataSource createDataSource(int maxPreparedStatements) throws SQLException {
+    String connectionUrl = "jdbc:hsqldb:mem:statementPoolingTest" + DB_ID_SEQ.incrementAndGet();
+    SimpleDbConfig config = new SimpleDbConfig() {
+      @Override public SupportedPlatform getPlatformEnum()   { return SupportedPlatform.POSTGRESQL; }
+      @Override public int getConnectionPoolSize()           { return 1; }
+      @Override public String getLogin()                     { return "SA"; }
+      @Override public String getPassword()                  { return ""; }
+      @Override public String getConnectionUrl()             { return connectionUrl; }
+      @Override public int getDefaultFetchSize()             { return 0; }
+      @Override public int getMaxPreparedStatements()        { return maxPreparedStatements; }
+    };
+    _pool = new BasicDataSource();
+    _pool.setDriver(_driver);
+    _pool.setUrl(config.getConnectionUrl());
+    _pool.setUsername(config.getLogin());
+    _pool.setPassword(config.getPassword());
+    _pool.setMaxTotal(config.getMaxActive());
+    DatabaseInstance.configureStatementPool(_pool, config);
+    DataSource ds = new DataSourceWrapper("statementPoolingTest", _pool, config);
+    new SQLRunner(ds, "CREATE TABLE numbers (n INTEGER)").executeStatement();
+    _driver.resetCounts();
+    return ds;
+  }
+
+  private static void runStatements(DataSource ds) {
+    for (int i = 0; i < NUM_RUNS; i++) {
+      new SQLRunner(ds, INSERT_SQL).executeUpdate(new Object[]{ i });
+    }
+  }
+
+  @Test
+  public void testWithoutStatementPool() throws Exception {
+    runStatements(createDataSource(0));
+    assertEquals(NUM_RUNS, _driver.getNumPrepares());
+  }
+
+  @Test
+  public void testWithStatementPool() throws Exception {
+    runStatements(createDataSource(10));
+    assertEquals(1, _driver.getNumPrepares());
+  }
+
+  @Test
+  public void testSettingsNotPassedToNextUser() throws Exception {
+    DataSource ds = createDataSource(10);
+    try (Connection conn = ds.getConnection()) {
+      int defaultMaxFieldSize;
+      int defaultFetchDirection;
+      try (PreparedStatement stmt = conn.prepareStatement(SELECT_SQL)) {
+        defaultMaxFieldSize = stmt.getMaxFieldSize();
+        defaultFetchDirection = stmt.getFetchDirection();
+        stmt.setQueryTimeout(7);
+        stmt.setLargeMaxRows(3);
+        stmt.setMaxFieldSize(10);
+        stmt.setFetchDirection(ResultSet.FETCH_REVERSE);
+        stmt.setEscapeProcessing(false);
+      }
+      try (PreparedStatement stmt = conn.prepareStatement(SELECT_SQL)) {
+        assertEquals(0, stmt.getQueryTimeout());
+        assertEquals(0, stmt.getMaxRows());
+        assertEquals(defaultMaxFieldSize, stmt.getMaxFieldSize());
+        assertEquals(defaultFetchDirection, stmt.getFetchDirection());
+      }
+    }
+    assertEquals(1, _driver.getNumPrepares());
+  }
+
+  @Test
+  public void testOpenStatementsNotShared() throws Exception {
+    DataSource ds = createDataSource(10);
+    try (Connection conn = ds.getConnection();
+         PreparedStatement stmt1 = conn.prepareStatement(SELECT_SQL);
+         PreparedStatement stmt2 = conn.prepareStatement(SELECT_SQL)) {
+      // the same SQL open twice at once needs two statements
+      assertEquals(2, _driver.getNumPrepares());
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package org.gusdb.fgputil.db.runner.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.runner.handler.ColumnarResultSetHandler.BooleanColumn;
+import org.gusdb.fgputil.db.runner.handler.ColumnarResultSetHandler.DoubleColumn;
+import org.gusdb.fgputil.db.runner.handler.ColumnarResultSetHandler.LongColumn;
+import org.gusdb.fgputil.db.runner.handler.ColumnarResultSetHandler.ObjectColumn;
+import org.gusdb.fgputil.db.runner.handler.ColumnarResultSetHandler.StringColumn;
+import org.gusdb.fgputil.runtime.JvmUtil;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Reads the same result from the local HSQL test database with
+ * ColumnarResultSetHandler and BasicResultSetHandler, checking that the
+ * columnar row view matches the row maps and that the columnar form takes
+ * much less memory (as estimated by JvmUtil).
+ */
+public class ColumnarResultSetHandlerTest {
+
+  private static final Logger LOG = Logger.getLogger(ColumnarResultSetHandlerTest.class);
+
+  private static final int NUM_ROWS = 50000;
+  private static final int INSERT_BATCH_SIZE = 1000;
+  private static final String[] CATEGORIES = { "red", "green", "blue", "yellow" };
+
+  private static final String SELECT_SQL = "SELECT * FROM columnar_rows ORDER BY id";
+
+  private static DataSource _ds;
+
+  @BeforeClass
+  public static void setUpDb() throws Exception {
+    _ds = TestUtil.getTestDataSource("ColumnarResultSetHandlerTest");
+    new SQLRunner(_ds, "CREATE TABLE columnar_rows (id BIGINT, count INTEGER, score DOUBLE, " +
+        "category VARCHAR(20), label VARCHAR(50), flag BOOLEAN)").executeStatement();
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("INSERT INTO columnar_rows VALUES (?, ?, ?, ?, ?, ?)")) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        stmt.setLong(1, i);
+        if (i % 10 == 0) stmt.setNull(2, Types.INTEGER); else stmt.setInt(2, i % 1000);
+        stmt.setDouble(3, i / 7.0);
+        stmt.setString(4, CATEGORIES[i % CATEGORIES.length]);
+        if (i % 3 == 0) stmt.setNull(5, Types.VARCHAR); else stmt.setString(5, "label " + i);
+        stmt.setBoolean(6, i % 2 == 0);
+        stmt.addBatch();
+        if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+          stmt.executeBatch();
+        }
+      }
+      stmt.executeBatch();
+    }
+    new SQLRunner(_ds, "CREATE TABLE columnar_dates (id INTEGER, day DATE, moment TIMESTAMP)").executeStatement();
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("INSERT INTO columnar_dates VALUES (?, ?, ?)")) {
+      for (int i = 0; i < 100; i++) {
+        // date and time values with a time of day
+        Timestamp time = Timestamp.valueOf(LocalDateTime.of(2020, 3, 1, 13, 45, 30).plusDays(i));
+        stmt.setInt(1, i);
+        stmt.setTimestamp(2, time);
+        stmt.setTimestamp(3, time);
+        stmt.addBatch();
+      }
+      stmt.executeBatch();
+    }
+  }
+
+  @Test
+  public void testColumnStorage() {
+    ColumnarResultSetHandler handler = new ColumnarResultSetHandler(100);
+    new SQLRunner(_ds, SELECT_SQL).executeQuery(handler);
+    assertEquals(NUM_ROWS, handler.getNumRows());
+    assertEquals(6, handler.getNumCols());
+
+    LongColumn ids = (LongColumn)handler.getColumn("ID");
+    assertEquals(NUM_ROWS, ids.getValues().length);
+    assertEquals(12345L, ids.getLong(12345));
+
+    LongColumn counts = (LongColumn)handler.getColumn(2);
+    assertTrue(counts.isNull(10));
+    assertNull(counts.getValue(10));
+    assertEquals(Integer.valueOf(11), counts.getValue(11));
+
+    DoubleColumn scores = (DoubleColumn)handler.getColumn("SCORE");
+    assertEquals(3.0, scores.getDouble(21), 0);
+
+    StringColumn categories = (StringColumn)handler.getColumn("CATEGORY");
+    assertTrue(categories.isDictionaryEncoded());
+    assertEquals(CATEGORIES.length, categories.getDictionary().size());
+    assertEquals("blue", categories.getString(6));
+
+    // mostly distinct values are stored directly
+    StringColumn labels = (StringColumn)handler.getColumn("LABEL");
+    assertFalse(labels.isDictionaryEncoded());
+    assertNull(labels.getString(3));
+    assertEquals("label 4", labels.getString(4));
+
+    BooleanColumn flags = (BooleanColumn)handler.getColumn("FLAG");
+    assertTrue(flags.getBoolean(64));
+    assertFalse(flags.getBoolean(65));
+  }
+
+  @Test
+  public void testRowViewAndFootprint() {
+    ColumnarResultSetHandler columnar = new ColumnarResultSetHandler();
+    BasicResultSetHandler basic = new BasicResultSetHandler();
+    new SQLRunner(_ds, SELECT_SQL).executeQuery(columnar);
+    new SQLRunner(_ds, SELECT_SQL).executeQuery(basic);
+
+    assertEquals(basic.getColumnNames(), columnar.getColumnNames());
+    assertEquals(basic.getColumnTypes(), columnar.getColumnTypes());
+    assertEquals(basic.getNumRows(), columnar.getResults().size());
+    assertEquals(basic.getResults(), columnar.getResults());
+
+    long columnarSize = JvmUtil.estimateDeepSize(columnar);
+    long basicSize = JvmUtil.estimateDeepSize(basic.getResults());
+    LOG.info("Estimated size of " + NUM_ROWS + " rows: columnar " + columnarSize +
+        " bytes, row maps " + basicSize + " bytes");
+    assertTrue(columnarSize * 3 < basicSize);
+  }
+
+  @Test
+  public void testDateValues() {
+    String sql = "SELECT * FROM columnar_dates ORDER BY id";
+    ColumnarResultSetHandler columnar = new ColumnarResultSetHandler();
+    BasicResultSetHandler basic = new BasicResultSetHandler();
+    new SQLRunner(_ds, sql).executeQuery(columnar);
+    new SQLRunner(_ds, sql).executeQuery(basic);
+
+    assertTrue(columnar.getColumn("DAY") instanceof ObjectColumn);
+    assertEquals(basic.getResults(), columnar.getResults());
+    assertEquals(Timestamp.valueOf("2020-03-02 13:45:30"), columnar.getColumn("MOMENT").getValue(1));
+  }
+}
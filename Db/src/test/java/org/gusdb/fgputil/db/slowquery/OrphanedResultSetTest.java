@@ -0,0 +1,79 @@
+package org.gusdb.fgputil.db.slowquery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.junit.Test;
+
+/**
+ * Checks QueryLogger's tracking of result sets being processed, and the
+ * background sweep that drops (and logs) those never ended.
+ */
+public class OrphanedResultSetTest {
+
+  private static QueryLogger createLogger(long sweepInterval, long orphanAge) {
+    return new QueryLogger(new QueryLogConfig() {
+      @Override public long getOrphanSweepInterval() { return sweepInterval; }
+      @Override public long getOrphanedResultSetAge() { return orphanAge; }
+    });
+  }
+
+  private static ResultSet mockResultSet() {
+    return (ResultSet)Proxy.newProxyInstance(OrphanedResultSetTest.class.getClassLoader(),
+        new Class<?>[]{ ResultSet.class }, (proxy, method, args) ->
+          method.getName().equals("hashCode") ? System.identityHashCode(proxy) :
+          method.getName().equals("equals") ? proxy == args[0] : null);
+  }
+
+  @Test
+  public void testSweepRemovesOnlyOldResultSets() {
+    QueryLogger logger = createLogger(0, 60 * 1000);
+    long now = System.currentTimeMillis();
+    logger.startResultsProcessing("select 1", "old", now - 2 * 60 * 1000, mockResultSet());
+    ResultSet recent = mockResultSet();
+    logger.startResultsProcessing("select 1", "recent", now, recent);
+    assertEquals(2, logger.getNumResultSetsInProcess());
+
+    logger.logOrphanedResultSets();
+    assertEquals(1, logger.getNumResultSetsInProcess());
+
+    logger.endResultsProcessing(recent);
+    assertEquals(0, logger.getNumResultSetsInProcess());
+  }
+
+  @Test
+  public void testBackgroundSweep() {
+    QueryLogger logger = createLogger(20, 0);
+    logger.startResultsProcessing("select 1", "orphan", System.currentTimeMillis() - 1, mockResultSet());
+    for (int i = 0; i < 100 && logger.getNumResultSetsInProcess() > 0; i++) {
+      ThreadUtil.sleep(20);
+    }
+    assertEquals(0, logger.getNumResultSetsInProcess());
+  }
+
+  @Test
+  public void testConcurrentProcessing() throws Exception {
+    QueryLogger logger = createLogger(0, 60 * 1000);
+    int numThreads = 4;
+    ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+    for (int t = 0; t < numThreads; t++) {
+      exec.submit(() -> {
+        for (int i = 0; i < 10000; i++) {
+          ResultSet rs = mockResultSet();
+          logger.startResultsProcessing("select 1", "concurrent", System.currentTimeMillis(), rs);
+          logger.endResultsProcessing(rs);
+        }
+      });
+    }
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(60, TimeUnit.SECONDS));
+    assertEquals(0, logger.getNumResultSetsInProcess());
+  }
+}
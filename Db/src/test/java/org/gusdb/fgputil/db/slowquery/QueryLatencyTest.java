@@ -0,0 +1,157 @@
+package org.gusdb.fgputil.db.slowquery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeData;
+
+import org.gusdb.fgputil.db.slowquery.LatencyHistogram.Snapshot;
+import org.gusdb.fgputil.db.slowquery.QueryLatencyStats.Phase;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the accuracy of LatencyHistogram percentiles and the per-query,
+ * per-phase latencies QueryLogger collects.
+ */
+public class QueryLatencyTest {
+
+  private static final int MAX_TRACKED_QUERIES = 5;
+
+  // clock whose time only changes when told to
+  private static class ManualClock extends Clock {
+    private long _millis;
+    void advance(long millis) { _millis += millis; }
+    @Override public long millis() { return _millis; }
+    @Override public Instant instant() { return Instant.ofEpochMilli(_millis); }
+    @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+    @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+  }
+
+  @BeforeClass
+  public static void setUp() {
+    QueryLogger.initialize(new QueryLogConfig() {
+      @Override public int getMaxLatencyTrackedQueries() { return MAX_TRACKED_QUERIES; }
+      @Override public boolean isRegisterLatencyMXBean() { return true; }
+    });
+  }
+
+  @Test
+  public void testBucketBoundaries() {
+    long previousUpperBound = -1;
+    for (long value = 0; value < 100000; value++) {
+      int index = LatencyHistogram.getBucketIndex(value);
+      long upperBound = LatencyHistogram.getBucketUpperBound(index);
+      assertTrue(value <= upperBound);
+      // relative error of a value reported as its bucket's upper bound
+      assertTrue(upperBound - value <= value / 8);
+      if (LatencyHistogram.getBucketIndex(value + 1) != index) {
+        assertEquals(value, upperBound);
+        assertTrue(upperBound > previousUpperBound);
+        previousUpperBound = upperBound;
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10000; i++) {
+      histogram.record(i);
+    }
+    Snapshot snapshot = histogram.getSnapshot();
+    assertEquals(10000, snapshot.getCount());
+    assertEquals(5000.5, snapshot.getMeanMillis(), 0.001);
+    assertEquals(10000, snapshot.getMaxMillis());
+    assertWithin(5000, snapshot.getP50Millis());
+    assertWithin(9500, snapshot.getP95Millis());
+    assertWithin(9900, snapshot.getP99Millis());
+    assertEquals(10000, snapshot.getPercentileMillis(100));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected about " + expected + " but was " + actual,
+        actual >= expected && actual <= expected + expected / 8);
+  }
+
+  @Test
+  public void testConcurrentRecording() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      exec.submit(() -> {
+        for (int i = 0; i < 25000; i++) {
+          histogram.record(i % 100);
+        }
+      });
+    }
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(30, TimeUnit.SECONDS));
+    Snapshot snapshot = histogram.getSnapshot();
+    assertEquals(100000, snapshot.getCount());
+    assertEquals(99, snapshot.getMaxMillis());
+  }
+
+  @Test
+  public void testTimerPhases() {
+    QueryLogger.resetLatencyStats();
+    for (int i = 0; i < 10; i++) {
+      ManualClock clock = new ManualClock();
+      SqlTimer timer = new SqlTimer("select 1", "timed-query", clock);
+      clock.advance(1);
+      timer.statementPrepared();
+      clock.advance(2);
+      timer.paramsAssigned();
+      clock.advance(40 + i);
+      timer.sqlExecuted();
+      clock.advance(100);
+      timer.resultsHandled();
+      timer.complete();
+      QueryLogger.submitTimer(timer);
+    }
+    Map<Phase, Snapshot> phases = QueryLogger.getLatencySnapshot().get("timed-query");
+    assertEquals(5, phases.size());
+    assertEquals(10, phases.get(Phase.TOTAL).getCount());
+    assertEquals(1, phases.get(Phase.PREPARE).getMaxMillis());
+    assertEquals(2, phases.get(Phase.BIND).getP99Millis());
+    assertEquals(49, phases.get(Phase.EXECUTE).getMaxMillis());
+    assertEquals(100, phases.get(Phase.HANDLE).getP50Millis());
+    assertEquals(143 + 9, phases.get(Phase.TOTAL).getMaxMillis());
+  }
+
+  @Test
+  public void testQueryNamesBounded() {
+    QueryLogger.resetLatencyStats();
+    for (int i = 0; i < 2 * MAX_TRACKED_QUERIES; i++) {
+      QueryLogger.logEndStatementExecution("update t", "query" + i, System.currentTimeMillis());
+    }
+    QueryLogger.logEndStatementExecution("update t", null, System.currentTimeMillis());
+    Map<String, Map<Phase, Snapshot>> snapshot = QueryLogger.getLatencySnapshot();
+    assertEquals(MAX_TRACKED_QUERIES + 1, snapshot.size());
+    assertTrue(snapshot.containsKey("query0"));
+    assertFalse(snapshot.containsKey(QueryLogger.UNNAMED_QUERY_NAME));
+    assertEquals(MAX_TRACKED_QUERIES + 1, snapshot.get(QueryLogger.OTHER_QUERIES_NAME).get(Phase.TOTAL).getCount());
+  }
+
+  @Test
+  public void testMXBean() throws Exception {
+    QueryLogger.resetLatencyStats();
+    QueryLogger.logEndStatementExecution("update t", "mxbean-query", System.currentTimeMillis());
+    CompositeData[] latencies = (CompositeData[])ManagementFactory.getPlatformMBeanServer()
+        .getAttribute(QueryLatencyMXBeans.getObjectName(), "Latencies");
+    assertEquals(2, latencies.length);
+    assertEquals("mxbean-query", latencies[0].get("queryName"));
+    assertEquals(1L, latencies[0].get("count"));
+  }
+}
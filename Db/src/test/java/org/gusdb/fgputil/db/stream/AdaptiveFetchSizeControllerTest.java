@@ -0,0 +1,173 @@
+package org.gusdb.fgputil.db.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.slowquery.SqlTimer;
+import org.gusdb.fgputil.db.slowquery.SqlTimer.FetchSizeChange;
+import org.gusdb.fgputil.runtime.JvmUtil;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.Test;
+
+/**
+ * Checks that AdaptiveFetchSizeController sizes fetches from observed row
+ * width and the memory budget, and reports fetches to its SqlTimer.
+ */
+public class AdaptiveFetchSizeControllerTest {
+
+  private static final long MEMORY_BUDGET = 100000;
+
+  private static final String COLUMN_VALUE = "x".repeat(84);
+
+  // result set which records the fetch sizes applied to it, and has one VARCHAR column always holding COLUMN_VALUE
+  private static ResultSet mockResultSet(List<Integer> appliedFetchSizes) {
+    ClassLoader classLoader = AdaptiveFetchSizeControllerTest.class.getClassLoader();
+    ResultSetMetaData metaData = (ResultSetMetaData)Proxy.newProxyInstance(classLoader,
+        new Class<?>[]{ ResultSetMetaData.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getColumnCount": return 1;
+            case "getColumnType": return Types.VARCHAR;
+            case "getColumnLabel": case "getColumnName": return "value";
+            case "getPrecision": case "getScale": case "getColumnDisplaySize": case "isNullable": return 0;
+            case "isSigned": return false;
+            default: return null;
+          }
+        });
+    return (ResultSet)Proxy.newProxyInstance(classLoader,
+        new Class<?>[]{ ResultSet.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "setFetchSize": appliedFetchSizes.add((Integer)args[0]); return null;
+            case "getMetaData": return metaData;
+            case "getString": return COLUMN_VALUE;
+            default: return null;
+          }
+        });
+  }
+
+  private static AdaptiveFetchSizeController createController(List<Integer> appliedFetchSizes) {
+    return new AdaptiveFetchSizeController(mockResultSet(appliedFetchSizes), "select 1", "test",
+        new AdaptiveFetchSizeOptions()
+          .setMemoryBudget(MEMORY_BUDGET)
+          .setInitialFetchSize(100)
+          .setFetchSizeRange(10, 5000)
+          .setSampleInterval(10));
+  }
+
+  private static void readRows(AdaptiveFetchSizeController controller, int numRows, int rowWidth) {
+    for (int i = 0; i < numRows; i++) {
+      controller.rowRead(new byte[rowWidth]);
+    }
+  }
+
+  private static List<Integer> getFetchSizes(SqlTimer timer) {
+    return timer.getFetchSizeChanges().stream().map(FetchSizeChange::getFetchSize).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testGrowsForNarrowRows() {
+    List<Integer> applied = new ArrayList<>();
+    AdaptiveFetchSizeController controller = createController(applied);
+    readRows(controller, 100, 84);
+    int expected = (int)(MEMORY_BUDGET / JvmUtil.estimateDeepSize(new byte[84]));
+    assertEquals(List.of(expected), applied);
+    assertEquals(expected, controller.getFetchSize());
+
+    // width unchanged; fetch size should not churn
+    readRows(controller, expected * 3, 84);
+    assertEquals(1, applied.size());
+
+    controller.complete();
+    SqlTimer timer = controller.getTimer();
+    assertEquals(List.of(100, expected), getFetchSizes(timer));
+    assertEquals(4, timer.getNumRoundTrips());
+    assertEquals(100 + expected * 3, timer.getNumRowsFetched());
+    assertTrue(timer.getMaxBytesPerRoundTrip() <= MEMORY_BUDGET);
+  }
+
+  @Test
+  public void testMeasuresRawColumnValues() {
+    List<Integer> applied = new ArrayList<>();
+    AdaptiveFetchSizeController controller = createController(applied);
+    for (int i = 0; i < 100; i++) {
+      controller.currentRowRead();
+    }
+    int expected = (int)(MEMORY_BUDGET / JvmUtil.estimateDeepSize(new Object[]{ COLUMN_VALUE }));
+    assertEquals(List.of(expected), applied);
+  }
+
+  @Test
+  public void testShrinksForWideRows() {
+    List<Integer> applied = new ArrayList<>();
+    AdaptiveFetchSizeController controller = createController(applied);
+    readRows(controller, 100, 50000);
+    // budget allows two rows, but minimum fetch size applies
+    assertEquals(List.of(10), applied);
+  }
+
+  @Test
+  public void testFollowsChangeInWidth() {
+    List<Integer> applied = new ArrayList<>();
+    AdaptiveFetchSizeController controller = createController(applied);
+    readRows(controller, 100, 1000);
+    int wideSize = controller.getFetchSize();
+    readRows(controller, 2000, 20);
+    assertTrue(controller.getFetchSize() > wideSize * 10);
+    assertTrue(applied.size() >= 2);
+  }
+
+  @Test
+  public void testCompleteRecordsPartialFetchOnce() {
+    List<Integer> applied = new ArrayList<>();
+    AdaptiveFetchSizeController controller = createController(applied);
+    // width which suits the initial fetch size
+    readRows(controller, 150, (int)(MEMORY_BUDGET / 100) - 16);
+    assertTrue(applied.isEmpty());
+    controller.complete();
+    controller.complete();
+    assertEquals(2, controller.getTimer().getNumRoundTrips());
+    assertEquals(150, controller.getTimer().getNumRowsFetched());
+  }
+
+  @Test
+  public void testOpenIterator() throws Exception {
+    int numRows = 5000;
+    DataSource ds = TestUtil.getTestDataSource("AdaptiveFetchSizeControllerTest");
+    new SQLRunner(ds, "CREATE TABLE fetch_rows (id INTEGER, name VARCHAR(50))").executeStatement();
+    try (Connection conn = ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("INSERT INTO fetch_rows VALUES (?, ?)")) {
+      for (int i = 1; i <= numRows; i++) {
+        stmt.setInt(1, i);
+        stmt.setString(2, "row number " + i);
+        stmt.addBatch();
+      }
+      stmt.executeBatch();
+    }
+    try (ResultSetIterator<String> rows = ResultSets.openIterator(ds, "SELECT * FROM fetch_rows ORDER BY id",
+        "fetch-rows", new Object[]{}, new Integer[]{}, new AdaptiveFetchSizeOptions().setMemoryBudget(MEMORY_BUDGET),
+        rs -> Optional.of(rs.getString("name")))) {
+      int count = 0;
+      while (rows.hasNext()) {
+        assertEquals("row number " + (++count), rows.next());
+      }
+      assertEquals(numRows, count);
+      SqlTimer timer = rows.getFetchSizeController().getTimer();
+      assertEquals(numRows, timer.getNumRowsFetched());
+      assertTrue(timer.getFetchSizeChanges().size() > 1);
+      assertTrue(timer.getNumRoundTrips() < numRows / AdaptiveFetchSizeOptions.DEFAULT_INITIAL_FETCH_SIZE);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package org.gusdb.fgputil.db.stream;
+
+import static org.gusdb.fgputil.FormatUtil.NL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import javax.sql.DataSource;
+
+import org.gusdb.fgputil.IoUtil;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.stream.ResultSetInputStream.ResultSetRowConverter;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.Test;
+
+/**
+ * Checks the JSON written by JsonRowWriter, both directly to an OutputStream
+ * and through ResultSetInputStream, for each supported column type.
+ */
+public class JsonStreamingTest {
+
+  private static final String SELECT_SQL = "SELECT * FROM json_rows ORDER BY id";
+
+  private static final String ROW_1 =
+      "{\"ID\":1,\"NAME\":\"alpha\",\"SCORE\":1.5,\"PRICE\":12.50,\"NOTES\":\"some \\\"quoted\\\" text\"," +
+      "\"DATA\":\"AQL/\",\"CREATED\":\"2020-01-02T03:04:05\",\"FLAG\":true}";
+  private static final String ROW_2 =
+      "{\"ID\":2,\"NAME\":null,\"SCORE\":null,\"PRICE\":null,\"NOTES\":null," +
+      "\"DATA\":null,\"CREATED\":null,\"FLAG\":null}";
+
+  private static DataSource _ds;
+
+  private static DataSource getDb() {
+    if (_ds == null) {
+      _ds = TestUtil.getTestDataSource("JsonStreamingTest");
+      new SQLRunner(_ds,
+          "CREATE TABLE json_rows (id INTEGER, name VARCHAR(20), score DOUBLE, price DECIMAL(10,2), " +
+          "notes CLOB, data BLOB, created TIMESTAMP, flag BOOLEAN)").executeStatement();
+      new SQLRunner(_ds, "INSERT INTO json_rows VALUES (1, 'alpha', 1.5, 12.5, " +
+          "'some \"quoted\" text', X'0102ff', TIMESTAMP '2020-01-02 03:04:05', TRUE)").executeStatement();
+      new SQLRunner(_ds, "INSERT INTO json_rows (id) VALUES (2)").executeStatement();
+    }
+    return _ds;
+  }
+
+  private static String readStream(ResultSetRowConverter converter) throws Exception {
+    try (InputStream in = ResultSetInputStream.getResultSetStream(SELECT_SQL, "json-rows", getDb(), 0, converter)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      IoUtil.transferStream(out, in);
+      return out.toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  @FunctionalInterface
+  private interface RowsWriter {
+    long write(ResultSet rs, OutputStream out) throws Exception;
+  }
+
+  private static String writeDirectly(RowsWriter writer) throws Exception {
+    try (Connection conn = getDb().getConnection();
+         PreparedStatement stmt = conn.prepareStatement(SELECT_SQL);
+         ResultSet rs = stmt.executeQuery()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(2, writer.write(rs, out));
+      return out.toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void testJsonArray() throws Exception {
+    String expected = "[" + ROW_1 + "," + ROW_2 + "]";
+    assertEquals(expected, readStream(new ResultSetToJsonStreamConverter()));
+    assertEquals(expected, writeDirectly(JsonRowWriter::writeJsonArray));
+  }
+
+  @Test
+  public void testNdJson() throws Exception {
+    String expected = ROW_1 + NL + ROW_2;
+    assertEquals(expected, readStream(new ResultSetToNdJsonStreamConverter()));
+    assertEquals(expected, writeDirectly(JsonRowWriter::writeNdJson));
+  }
+
+  @Test
+  public void testLargeClob() throws Exception {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      text.append("line ").append(i).append('\n');
+    }
+    String expected = text.toString().replace("\n", "\\n");
+    try (Connection conn = getDb().getConnection()) {
+      new SQLRunner(getDb(), "CREATE TABLE json_clob (id INTEGER, notes CLOB)").executeStatement();
+      try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO json_clob VALUES (1, ?)")) {
+        stmt.setString(1, text.toString());
+        stmt.executeUpdate();
+      }
+      try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM json_clob");
+           ResultSet rs = stmt.executeQuery()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonRowWriter.writeNdJson(rs, out);
+        assertEquals("{\"ID\":1,\"NOTES\":\"" + expected + "\"}", out.toString(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() throws Exception {
+    try (Connection conn = getDb().getConnection();
+         PreparedStatement stmt = conn.prepareStatement("SELECT CURRENT_TIME AS t FROM json_rows");
+         ResultSet rs = stmt.executeQuery()) {
+      assertTrue(rs.next());
+      JsonRowWriter.writeJsonArray(rs, new ByteArrayOutputStream());
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package org.gusdb.fgputil.db.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.gusdb.fgputil.db.SqlRuntimeException;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.db.stream.ParallelConversionOptions.RowOrder;
+import org.gusdb.fgputil.db.stream.ResultSetIterator.RowConverter;
+import org.gusdb.fgputil.runtime.ThreadUtil;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that ResultSetStream produces the same rows whether converted
+ * sequentially or in parallel, honors the requested row order, limits how far
+ * the reader runs ahead of the consumer, and surfaces conversion errors.
+ */
+public class ParallelResultSetStreamTest {
+
+  private static final int NUM_ROWS = 10000;
+  private static final String SELECT_SQL = "SELECT * FROM parallel_rows ORDER BY id";
+  private static final String SELECT_VALUES_SQL = "SELECT * FROM parallel_values ORDER BY id";
+
+  private static DataSource _ds;
+
+  // converts every row but those whose ID is a multiple of 10, reading columns by label
+  private static final RowConverter<String> CONVERTER = rs -> {
+    int id = rs.getInt("ID");
+    return id % 10 == 0 ? Optional.empty() : Optional.of(
+        rs.getRow() + ":" + id + ":" + rs.getString("name") + ":" +
+        rs.getBigDecimal("amount") + ":" + rs.getTimestamp("created").getTime() + ":" +
+        rs.getString("notes").length());
+  };
+
+  // reads temporal columns as Strings, Timestamps and Objects, and the numeric column as a String and an Object
+  private static final RowConverter<List<Object>> VALUES_CONVERTER = rs -> Optional.of(Arrays.asList(
+      rs.getString("day"), rs.getTimestamp("day"), rs.getObject("day"),
+      rs.getString("moment"), rs.getTimestamp("moment"), rs.getObject("moment"),
+      rs.getString("amount"), rs.getObject("amount")));
+
+  @BeforeClass
+  public static void setUpDb() throws Exception {
+    _ds = TestUtil.getTestDataSource("ParallelResultSetStreamTest");
+    new SQLRunner(_ds, "CREATE TABLE parallel_rows (id INTEGER, name VARCHAR(20), " +
+        "amount DECIMAL(10,2), created TIMESTAMP, notes CLOB)").executeStatement();
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("INSERT INTO parallel_rows VALUES (?, ?, ?, ?, ?)")) {
+      for (int i = 1; i <= NUM_ROWS; i++) {
+        stmt.setInt(1, i);
+        stmt.setString(2, "name" + i);
+        stmt.setDouble(3, i / 4.0);
+        stmt.setTimestamp(4, new Timestamp(i * 1000L));
+        stmt.setString(5, "x".repeat(i % 50));
+        stmt.addBatch();
+      }
+      stmt.executeBatch();
+    }
+    new SQLRunner(_ds, "CREATE TABLE parallel_values (id INTEGER, day DATE, " +
+        "moment TIMESTAMP, amount NUMERIC(12,4))").executeStatement();
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("INSERT INTO parallel_values VALUES (?, ?, ?, ?)")) {
+      for (int i = 1; i <= 200; i++) {
+        boolean nulls = i % 7 == 0;
+        stmt.setInt(1, i);
+        stmt.setDate(2, nulls ? null : Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i)));
+        stmt.setTimestamp(3, nulls ? null : new Timestamp(i * 86_400_123L));
+        stmt.setBigDecimal(4, nulls ? null : new BigDecimal(i).divide(new BigDecimal(8)));
+        stmt.addBatch();
+      }
+      stmt.executeBatch();
+    }
+  }
+
+  private static ParallelConversionOptions smallBatches() {
+    return new ParallelConversionOptions().setBatchSize(64).setMaxBatchesInMemory(4);
+  }
+
+  private static List<String> readSequentially() {
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, CONVERTER)) {
+      return rows.collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  public void testResultSetOrder() {
+    List<String> expected = readSequentially();
+    assertEquals(NUM_ROWS - NUM_ROWS / 10, expected.size());
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, CONVERTER)
+        .withParallelConversion(smallBatches())) {
+      List<String> actual = new ArrayList<>();
+      rows.iterator().forEachRemaining(actual::add);
+      assertEquals(expected, actual);
+    }
+    // default options via the Stream API
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, CONVERTER)) {
+      assertEquals(expected, rows.parallel().collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testTemporalAndNumericValues() {
+    List<List<Object>> expected;
+    try (ResultSetStream<List<Object>> rows = ResultSets.openStream(_ds, SELECT_VALUES_SQL, VALUES_CONVERTER)) {
+      expected = rows.collect(Collectors.toList());
+    }
+    assertEquals(200, expected.size());
+    try (ResultSetStream<List<Object>> rows = ResultSets.openStream(_ds, SELECT_VALUES_SQL, VALUES_CONVERTER)
+        .withParallelConversion(smallBatches())) {
+      assertEquals(expected, rows.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testCompletionOrder() {
+    List<String> expected = readSequentially();
+    Collections.sort(expected);
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, CONVERTER)
+        .withParallelConversion(smallBatches().setRowOrder(RowOrder.COMPLETION_ORDER))) {
+      List<String> actual = new ArrayList<>();
+      rows.forEach(actual::add);
+      Collections.sort(actual);
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testCount() {
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, CONVERTER)) {
+      assertEquals(NUM_ROWS - NUM_ROWS / 10, rows.parallel().unordered().count());
+    }
+  }
+
+  @Test
+  public void testBackpressure() {
+    int batchSize = 10;
+    int maxBatches = 2;
+    AtomicInteger numConverted = new AtomicInteger(0);
+    ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, rs -> {
+      numConverted.incrementAndGet();
+      return CONVERTER.convert(rs);
+    }).withParallelConversion(new ParallelConversionOptions()
+        .setBatchSize(batchSize).setMaxBatchesInMemory(maxBatches));
+    try {
+      Iterator<String> iter = rows.iterator();
+      assertTrue(iter.hasNext());
+      iter.next();
+      // give the reader time to run ahead as far as it is allowed
+      ThreadUtil.sleep(200);
+      // the taken batch plus maxBatches more may have been read
+      assertTrue(numConverted.get() <= (1 + maxBatches) * batchSize);
+    }
+    finally {
+      rows.close();
+    }
+    assertTrue(rows.isClosed());
+  }
+
+  @Test
+  public void testDefaultExecutor() {
+    Set<String> converterThreads = ConcurrentHashMap.newKeySet();
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, rs -> {
+      converterThreads.add(Thread.currentThread().getName());
+      return CONVERTER.convert(rs);
+    })) {
+      Stream<String> mapped = rows.parallel().map(String::toUpperCase);
+      // only conversion is parallel; chained operations run on this thread
+      assertFalse(mapped.isParallel());
+      assertEquals(NUM_ROWS - NUM_ROWS / 10, mapped.count());
+    }
+    for (String threadName : converterThreads) {
+      assertTrue(threadName, threadName.startsWith("result-set-converter-"));
+    }
+  }
+
+  @Test(expected = SqlRuntimeException.class)
+  public void testConversionError() {
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, rs -> {
+      if (rs.getInt(1) == NUM_ROWS / 2) {
+        throw new SQLException("Bad row");
+      }
+      return CONVERTER.convert(rs);
+    }).withParallelConversion(smallBatches())) {
+      rows.forEach(row -> {});
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testModeChangeAfterConsumption() {
+    try (ResultSetStream<String> rows = ResultSets.openStream(_ds, SELECT_SQL, CONVERTER)) {
+      rows.iterator().next();
+      rows.parallel();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package org.gusdb.fgputil.db.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.gusdb.fgputil.db.runner.SQLRunner;
+import org.gusdb.fgputil.test.TestUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Streams a large result set from the local HSQL test database through
+ * ResultSetInputStream using single-byte reads, bulk reads, and transferTo(),
+ * checking that each produces the same bytes.  Timings are logged rather than
+ * asserted since they depend on the machine running the test.
+ */
+public class ResultSetInputStreamThroughputTest {
+
+  private static final Logger LOG = Logger.getLogger(ResultSetInputStreamThroughputTest.class);
+
+  // tuning parameters; for more rigorous testing, edit these values.  Reduced for test runtime.
+  private static final int NUM_ROWS = 100000;
+  private static final int INSERT_BATCH_SIZE = 1000;
+  private static final int FETCH_SIZE = 1000;
+  private static final int READ_BUFFER_SIZE = 8192;
+
+  private static final String SELECT_SQL = "SELECT * FROM throughput_rows ORDER BY id";
+
+  private static DataSource _ds;
+
+  @FunctionalInterface
+  private interface StreamReader {
+    void read(InputStream in, OutputStream out) throws IOException;
+  }
+
+  @BeforeClass
+  public static void setUpDb() throws Exception {
+    _ds = TestUtil.getTestDataSource("ResultSetInputStreamThroughputTest");
+    new SQLRunner(_ds, "CREATE TABLE throughput_rows (id INTEGER, name VARCHAR(50), score DOUBLE)").executeStatement();
+    try (Connection conn = _ds.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("INSERT INTO throughput_rows VALUES (?, ?, ?)")) {
+      for (int i = 1; i <= NUM_ROWS; i++) {
+        stmt.setInt(1, i);
+        stmt.setString(2, "row number " + i);
+        stmt.setDouble(3, i / 7.0);
+        stmt.addBatch();
+        if (i % INSERT_BATCH_SIZE == 0) {
+          stmt.executeBatch();
+        }
+      }
+      stmt.executeBatch();
+    }
+  }
+
+  private static byte[] streamResult(String readType, StreamReader reader) throws Exception {
+    long start = System.nanoTime();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = ResultSetInputStream.getResultSetStream(SELECT_SQL,
+        "throughput-rows", _ds, FETCH_SIZE, new ResultSetToNdJsonStreamConverter())) {
+      reader.read(in, out);
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+    LOG.info(readType + ": streamed " + NUM_ROWS + " rows (" + out.size() +
+        " bytes) in " + elapsedMillis + "ms");
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testReadMethodThroughput() throws Exception {
+
+    byte[] byteByByte = streamResult("Single-byte reads", (in, out) -> {
+      int b;
+      while ((b = in.read()) != -1) {
+        out.write(b);
+      }
+    });
+
+    byte[] bulk = streamResult("Bulk reads", (in, out) -> {
+      byte[] buffer = new byte[READ_BUFFER_SIZE];
+      int numRead;
+      while ((numRead = in.read(buffer)) != -1) {
+        out.write(buffer, 0, numRead);
+      }
+    });
+
+    byte[] transferred = streamResult("transferTo", (in, out) -> in.transferTo(out));
+
+    assertEquals(NUM_ROWS, countLines(bulk));
+    assertArrayEquals(byteByByte, bulk);
+    assertArrayEquals(byteByByte, transferred);
+  }
+
+  // NDJSON has no trailing newline, so rows = newlines + 1
+  private static int countLines(byte[] bytes) {
+    int count = bytes.length == 0 ? 0 : 1;
+    for (byte b : bytes) {
+      if (b == '\n') count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,109 @@
+package org.gusdb.fgputil.db.wrapper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.gusdb.fgputil.db.leakmonitor.UnclosedObjectMonitor.UnclosedObjectMonitorMap;
+import org.gusdb.fgputil.db.platform.SupportedPlatform;
+import org.gusdb.fgputil.db.pool.SimpleDbConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks which driver calls ConnectionWrapper makes when a connection is
+ * returned, depending on what was done with it.
+ */
+public class ConnectionWrapperTest {
+
+  private final List<String> _calls = new ArrayList<>();
+  private boolean _autoCommit;
+  private Connection _wrapper;
+
+  @Before
+  public void setUp() {
+    _calls.clear();
+    _autoCommit = true;
+    _wrapper = new ConnectionWrapper(mockConnection(),
+        SimpleDbConfig.create(SupportedPlatform.POSTGRESQL, "jdbc:postgresql://localhost/test", "user", "pw"),
+        new UnclosedObjectMonitorMap("connectionWrapperTest", false));
+  }
+
+  // records the names of JDBC methods called on the connection; tracks auto-commit
+  private Connection mockConnection() {
+    return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ Connection.class },
+      (proxy, method, args) -> {
+        if (method.getDeclaringClass() == Object.class) {
+          // leak monitor hashes connections; answer with identity semantics
+          return method.getName().equals("hashCode") ? System.identityHashCode(proxy) :
+            method.getName().equals("equals") ? proxy == args[0] : "mockConnection";
+        }
+        _calls.add(method.getName());
+        switch (method.getName()) {
+          case "getAutoCommit": return _autoCommit;
+          case "setAutoCommit": _autoCommit = (Boolean)args[0]; return null;
+          case "createStatement": return mockStatement(Statement.class);
+          case "prepareStatement": return mockStatement(PreparedStatement.class);
+          default: return defaultValue(method.getReturnType());
+        }
+      });
+  }
+
+  private <T extends Statement> T mockStatement(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ type },
+        (proxy, method, args) -> defaultValue(method.getReturnType())));
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    return type == boolean.class ? Boolean.FALSE : type == int.class ? Integer.valueOf(0) : null;
+  }
+
+  private void assertCallsOnClose(String... expectedCalls) throws Exception {
+    _calls.clear();
+    _wrapper.close();
+    assertEquals(Arrays.asList(expectedCalls), _calls);
+  }
+
+  @Test
+  public void testUntouchedConnection() throws Exception {
+    assertCallsOnClose("close");
+  }
+
+  @Test
+  public void testAutoCommitQuery() throws Exception {
+    _wrapper.createStatement().close();
+    // commit completes any DB-side operations (e.g. DB links) begun by the query
+    assertCallsOnClose("getAutoCommit", "setAutoCommit", "commit", "setAutoCommit", "close");
+  }
+
+  @Test
+  public void testTransactionCommittedByClient() throws Exception {
+    _wrapper.setAutoCommit(false);
+    _wrapper.prepareStatement("update t set x = 1").close();
+    _wrapper.commit();
+    // only the auto-commit default needs restoring
+    assertCallsOnClose("setAutoCommit", "close");
+  }
+
+  @Test
+  public void testStatementOpenAcrossCommit() throws Exception {
+    _wrapper.setAutoCommit(false);
+    PreparedStatement stmt = _wrapper.prepareStatement("update t set x = ?");
+    _wrapper.commit();
+    // statement may have been executed again after the commit
+    stmt.close();
+    assertCallsOnClose("getAutoCommit", "commit", "setAutoCommit", "close");
+  }
+
+  @Test
+  public void testReadOnlyRestored() throws Exception {
+    _wrapper.setReadOnly(true);
+    assertCallsOnClose("setReadOnly", "close");
+  }
+}